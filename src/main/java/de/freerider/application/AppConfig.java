@@ -9,6 +9,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 /**
@@ -17,9 +18,13 @@ import org.springframework.context.annotation.Configuration;
  * The @ComponentScan annotation specifies the package below which Spring
  * scans packages for annotations.
  * 
+ * The @EnableScheduling annotation enables @Scheduled methods, e.g. the
+ * periodic reconciliation of entity counters.
+ * 
  * @author sgra64
  */
 @ComponentScan(basePackages = {"de.freerider"})
+@EnableScheduling
 @Configuration
 public class AppConfig {
 
@@ -0,0 +1,229 @@
+package de.freerider.data_jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+
+/**
+ * Non-public engine for parameterized batch lookups by id:
+ * <pre>
+ *  SELECT * FROM VEHICLE WHERE ID IN (?, ?, ?, ?)
+ * </pre>
+ * Ids are deduplicated and sorted, split into chunks of at most MAX_BUCKET
+ * ids and each chunk is padded to the next power of two placeholders (the
+ * last id is repeated). Only log2(MAX_BUCKET) + 1 distinct SQL statements
+ * exist per table, which lets the driver and the server reuse prepared
+ * statements (Connector/J: useServerPrepStmts=true, cachePrepStmts=true)
+ * instead of parsing a new statement for every list of ids.
+ */
+final class BatchLookup {
+
+    /**
+     * Largest number of placeholders in one statement, larger id lists are
+     * split into chunks of this size.
+     */
+    static final int MAX_BUCKET = 256;
+
+    /**
+     * Number of buckets: 1, 2, 4, ... MAX_BUCKET placeholders.
+     */
+    private static final int BUCKETS = Integer.numberOfTrailingZeros(MAX_BUCKET) + 1;
+
+    /**
+     * SQL up to the placeholder list, e.g. "SELECT * FROM VEHICLE WHERE ID IN (".
+     */
+    private final String sqlPrefix;
+
+    /**
+     * SQL statements by bucket index, created on first use.
+     */
+    private final AtomicReferenceArray<String> statements = new AtomicReferenceArray<String>(BUCKETS);
+
+    /*
+     * Counters, see Stats.
+     */
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong idsRequested = new AtomicLong();
+    private final AtomicLong idsQueried = new AtomicLong();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+
+
+    /**
+     * Statistics of a BatchLookup instance.
+     *
+     * @param lookups number of calls to findAll().
+     * @param idsRequested number of ids passed to findAll(), including duplicates.
+     * @param idsQueried number of distinct ids sent to the database.
+     * @param executions number of statements executed (chunks).
+     * @param statementHits executions that reused an existing statement.
+     * @param statementMisses executions that created a new statement.
+     */
+    record Stats(long lookups, long idsRequested, long idsQueried,
+        long executions, long statementHits, long statementMisses)
+    {
+        /**
+         * @return fraction of executions that reused a statement [0.0, 1.0].
+         */
+        double hitRate() {
+            return executions == 0? 0.0 : (double)statementHits / executions;
+        }
+    }
+
+
+    /**
+     * One statement execution of a lookup.
+     *
+     * @param sql statement with bucket-size placeholders.
+     * @param ids ids bound to placeholders in order, padded to bucket size.
+     */
+    record Chunk(String sql, long[] ids) { }
+
+
+    /**
+     * Constructor.
+     *
+     * @param table table name, e.g. "VEHICLE".
+     */
+    BatchLookup(String table) {
+        this.sqlPrefix = String.format("SELECT * FROM %s WHERE ID IN (", table);
+    }
+
+
+    /**
+     * Run lookup for ids and return objects created from rows.
+     *
+     * @param <T> type of returned objects.
+     * @param jdbcTemplate JdbcTemplate to execute statements.
+     * @param ids ids to look up, may contain duplicates.
+     * @param mapper RowMapper that creates Optional<T> from a row.
+     * @return objects created from rows, empty Optionals are dropped.
+     */
+    <T> List<T> findAll(JdbcTemplate jdbcTemplate, Iterable<Long> ids, RowMapper<Optional<T>> mapper) {
+        final List<T> result = new ArrayList<T>();
+        for(Chunk chunk : plan(ids)) {
+            jdbcTemplate.query(chunk.sql(),
+                ps -> {
+                    long[] args = chunk.ids();
+                    for(int i=0; i < args.length; i++) {
+                        ps.setLong(i + 1, args[i]);
+                    }
+                },
+                rs -> {
+                    mapper.mapRow(rs, 0).ifPresent(result::add);
+                }
+            );
+        }
+        return result;
+    }
+
+
+    /**
+     * Split ids into statement executions: deduplicate, sort, chunk and pad
+     * to bucket sizes.
+     *
+     * @param ids ids to look up, may contain duplicates.
+     * @return statement executions, empty for no ids.
+     */
+    List<Chunk> plan(Iterable<Long> ids) {
+        long[] sorted = distinct(ids);
+        lookups.incrementAndGet();
+        idsQueried.addAndGet(sorted.length);
+        //
+        List<Chunk> chunks = new ArrayList<Chunk>(sorted.length / MAX_BUCKET + 1);
+        for(int from=0; from < sorted.length; from += MAX_BUCKET) {
+            int n = Math.min(MAX_BUCKET, sorted.length - from);
+            int bucket = bucketIndex(n);
+            long[] args = Arrays.copyOfRange(sorted, from, from + (1 << bucket));
+            Arrays.fill(args, n, args.length, sorted[from + n - 1]);   // pad with last id
+            chunks.add(new Chunk(statement(bucket), args));
+        }
+        executions.addAndGet(chunks.size());
+        return chunks;
+    }
+
+
+    /**
+     * @return current statistics.
+     */
+    Stats stats() {
+        return new Stats(lookups.get(), idsRequested.get(), idsQueried.get(),
+            executions.get(), statementHits.get(), statementMisses.get());
+    }
+
+
+    /**
+     * Return sorted, distinct ids.
+     *
+     * @param ids ids, may contain duplicates or nulls.
+     * @return sorted array without duplicates.
+     */
+    private long[] distinct(Iterable<Long> ids) {
+        long[] arr = new long[16];
+        int n = 0;
+        for(Long id : ids) {
+            if(id == null)
+                continue;
+            if(n == arr.length) {
+                arr = Arrays.copyOf(arr, n * 2);
+            }
+            arr[n++] = id;
+        }
+        idsRequested.addAndGet(n);
+        Arrays.sort(arr, 0, n);
+        int d = 0;
+        for(int i=0; i < n; i++) {
+            if(d == 0 || arr[i] != arr[d - 1]) {
+                arr[d++] = arr[i];
+            }
+        }
+        return Arrays.copyOf(arr, d);
+    }
+
+
+    /**
+     * Return index of smallest bucket that holds n ids.
+     *
+     * @param n number of ids, 1 &lt;= n &lt;= MAX_BUCKET.
+     * @return bucket index, bucket size is 1 &lt;&lt; index.
+     */
+    private static int bucketIndex(int n) {
+        return 32 - Integer.numberOfLeadingZeros(n - 1);
+    }
+
+
+    /**
+     * Return statement for bucket, create statement on first use.
+     *
+     * @param bucket bucket index.
+     * @return SQL with (1 &lt;&lt; bucket) placeholders.
+     */
+    private String statement(int bucket) {
+        String sql = statements.get(bucket);
+        if(sql != null) {
+            statementHits.incrementAndGet();
+            return sql;
+        }
+        int size = 1 << bucket;
+        StringBuilder sb = new StringBuilder(sqlPrefix.length() + 3 * size);
+        sb.append(sqlPrefix).append('?');
+        for(int i=1; i < size; i++) {
+            sb.append(", ?");
+        }
+        sql = sb.append(')').toString();
+        if(statements.compareAndSet(bucket, null, sql)) {
+            statementMisses.incrementAndGet();
+            return sql;
+        }
+        statementHits.incrementAndGet();
+        return statements.get(bucket);
+    }
+}
@@ -0,0 +1,39 @@
+package de.freerider.data_jdbc;
+
+
+/**
+ * Public result of one item of a batch operation, e.g. one Reservation of
+ * POST /reservations/batch.
+ *
+ * @param index position of the item in the batch (0-based).
+ * @param id id of the item or -1 if it could not be read.
+ * @param status outcome of the item.
+ * @param code HTTP status code of the outcome (201, 400, 409).
+ * @param message reason for BadRequest and Conflict, null for Created.
+ */
+public record BatchResult(int index, long id, Status status, int code, String message) {
+
+    /**
+     * Outcomes of batch items.
+     */
+    public enum Status {
+        Created(201), BadRequest(400), Conflict(409);
+
+        public final int code;
+
+        private Status(int code) { this.code = code; }
+    };
+
+
+    static BatchResult created(int index, long id) {
+        return new BatchResult(index, id, Status.Created, Status.Created.code, null);
+    }
+
+    static BatchResult badRequest(int index, long id, String message) {
+        return new BatchResult(index, id, Status.BadRequest, Status.BadRequest.code, message);
+    }
+
+    static BatchResult conflict(int index, long id, String message) {
+        return new BatchResult(index, id, Status.Conflict, Status.Conflict.code, message);
+    }
+}
@@ -0,0 +1,222 @@
+package de.freerider.data_jdbc;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+
+/**
+ * Public component that runs bulk exports of customers, vehicles and
+ * reservations into gzip-compressed NDJSON or CSV segment files in the
+ * export directory (application.export.directory), see ExportJob.
+ *
+ * Exports run in the background, their progress and finished segments
+ * can be queried while they run. Segment files are served from disk by
+ * the /exports endpoint without reading them into the heap.
+ */
+@Component
+public class BulkExports implements Metrics {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Directory segment files are written to, one sub-directory per export.
+     */
+    @Value("${application.export.directory:export}")
+    private Path directory;
+
+    /**
+     * Maximum number of rows per segment file.
+     */
+    @Value("${application.export.segment-rows:100000}")
+    private int segmentRows;
+
+    /**
+     * Number of finished exports kept for status queries.
+     */
+    private static final int RETAIN = 100;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    /**
+     * Exports by id in order of start, guarded by itself.
+     */
+    private final Map<Long, ExportJob> jobs = new LinkedHashMap<Long, ExportJob>();
+
+    /**
+     * Ids of exports that are running (started or resumed), guarded by jobs.
+     */
+    private final Set<Long> running = new HashSet<Long>();
+
+    /**
+     * Runs exports, one thread per export.
+     */
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger n = new AtomicInteger();
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "export-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+
+    /**
+     * Start export of a table in the background.
+     *
+     * @param table name of table: "customers", "vehicles" or "reservations".
+     * @param format "csv" or "ndjson", null for "ndjson".
+     * @return status of started export.
+     * @throws DataAccessException with error code 400 bad request (table or format invalid).
+     */
+    public ExportStatus startExport(String table, String format) throws DataAccessException {
+        ImportTable t = ImportTable.of(table).orElseThrow(() ->
+            new DataAccessException.BadRequest(String.format("invalid table: \"%s\"", table)));
+        ImportJob.Format f = ImportJob.Format.of(format != null? format : "ndjson").orElseThrow(() ->
+            new DataAccessException.BadRequest(String.format("invalid format: \"%s\", expected: csv, ndjson", format)));
+        //
+        long id = ids.incrementAndGet();
+        ExportJob job = new ExportJob(id, t, f,
+            directory.resolve(String.format("%d-%s", id, t.name().toLowerCase())), segmentRows);
+        synchronized(jobs) {
+            jobs.put(id, job);
+            if(jobs.size() > RETAIN) {
+                List<Long> finished = new ArrayList<Long>(jobs.keySet());
+                finished.removeAll(running);
+                finished.stream().limit(jobs.size() - RETAIN).forEach(jobs::remove);
+            }
+        }
+        return submit(job);
+    }
+
+
+    /**
+     * Resume a failed export after its last finished segment.
+     *
+     * @param id id of export.
+     * @return status of resumed export.
+     * @throws DataAccessException with error code: 404 not found, 409 conflict
+     * (export is running or completed).
+     */
+    public ExportStatus resumeExport(long id) throws DataAccessException {
+        ExportJob job;
+        synchronized(jobs) {
+            job = jobs.get(id);
+        }
+        if(job == null)
+            throw new DataAccessException.NotFound(String.format("export id: %d not found", id));
+        if(job.status().state() != ExportStatus.State.Failed)
+            throw new DataAccessException.Conflict(String.format("export id: %d is %s", id, job.status().state()));
+        //
+        return submit(job);
+    }
+
+
+    /**
+     * Return status of all retained exports in order of start.
+     *
+     * @return status of exports.
+     */
+    public List<ExportStatus> findAllExports() {
+        synchronized(jobs) {
+            return jobs.values().stream().map(ExportJob::status).toList();
+        }
+    }
+
+
+    /**
+     * Return status of export with id.
+     *
+     * @param id id of export.
+     * @return Optional with status or empty if not found.
+     */
+    public Optional<ExportStatus> findExportById(long id) {
+        synchronized(jobs) {
+            return Optional.ofNullable(jobs.get(id)).map(ExportJob::status);
+        }
+    }
+
+
+    /**
+     * Return file of a finished segment of an export.
+     *
+     * @param id id of export.
+     * @param index index of segment, starting at 0.
+     * @return Optional with path or empty if export or segment not found
+     * (segment not finished).
+     */
+    public Optional<Path> findSegment(long id, int index) {
+        synchronized(jobs) {
+            return Optional.ofNullable(jobs.get(id)).map(job -> job.segment(index));
+        }
+    }
+
+
+    @Override
+    public String metricsName() {
+        return "exports";
+    }
+
+
+    @Override
+    public Map<String, Object> metrics() {
+        List<ExportStatus> all = findAllExports();
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        m.put("exports", all.size());
+        m.put("running", all.stream().filter(s -> s.state() == ExportStatus.State.Running).count());
+        m.put("rowsWritten", all.stream().mapToLong(ExportStatus::rowsWritten).sum());
+        m.put("bytesWritten", all.stream().mapToLong(ExportStatus::bytesWritten).sum());
+        m.put("segments", all.stream().mapToLong(s -> s.segments().size()).sum());
+        m.put("rowsPerSecond", all.stream().filter(s -> s.state() == ExportStatus.State.Running)
+            .mapToDouble(ExportStatus::rowsPerSecond).sum());
+        return m;
+    }
+
+
+    /**
+     * Stop running exports on shutdown.
+     */
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+
+    private ExportStatus submit(ExportJob job) throws DataAccessException {
+        synchronized(jobs) {
+            if(running.contains(job.id))
+                throw new DataAccessException.Conflict(String.format("export id: %d is running", job.id));
+            running.add(job.id);
+            job.start();
+        }
+        executor.execute(() -> {
+            try {
+                job.run(jdbcTemplate);
+            } finally {
+                synchronized(jobs) {
+                    running.remove(job.id);
+                }
+            }
+        });
+        return job.status();
+    }
+}
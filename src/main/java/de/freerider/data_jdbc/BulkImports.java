@@ -0,0 +1,265 @@
+package de.freerider.data_jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+import de.freerider.datamodel.DataFactory;
+
+
+/**
+ * Public component that runs bulk imports of customers, vehicles and
+ * reservations from CSV or NDJSON sources, see ImportJob.
+ * <pre>
+ *  CSV:    header line with attribute names, one row per line:
+ *          ID,CUSTOMER_ID,VEHICLE_ID,BEGIN,END,PICKUP,DROPOFF,STATUS
+ *          201235,1,1001,2022-12-04 20:00:00,2022-12-04 23:00:00,Berlin,Hamburg,Booked
+ *  NDJSON: one JSON object per line with the same attributes as POST requests.
+ * </pre>
+ * Files are read from the import directory (application.import.directory),
+ * reject files are written to the same directory. Imports of files run in
+ * the background, imports of streams (HTTP request bodies) in the calling
+ * thread. Progress of the most recent imports can be queried while they run.
+ */
+@Component
+public class BulkImports implements Metrics {
+
+    @Autowired
+    private DataFactory dataFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ChangeEvents changeEvents;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReservationIntervals intervals;
+
+    /**
+     * Directory import files are read from and reject files are written to.
+     */
+    @Value("${application.import.directory:import}")
+    private Path directory;
+
+    /**
+     * Rows per batch INSERT and transaction.
+     */
+    @Value("${application.import.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Chunks buffered between reader and writer of an import.
+     */
+    @Value("${application.import.queue-capacity:8}")
+    private int queueCapacity;
+
+    /**
+     * Number of finished imports kept for status queries.
+     */
+    private static final int RETAIN = 100;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    /**
+     * Imports by id in order of start, guarded by itself.
+     */
+    private final Map<Long, ImportJob> jobs = new LinkedHashMap<Long, ImportJob>();
+
+    /**
+     * Runs file readers and writers of imports (two threads per file import,
+     * one per stream import).
+     */
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger n = new AtomicInteger();
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "import-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+
+    /**
+     * Start import of a file from the import directory in the background.
+     *
+     * @param table name of table: "customers", "vehicles" or "reservations".
+     * @param format "csv", "ndjson" or null to use the file extension.
+     * @param file name of file relative to the import directory.
+     * @return status of started import.
+     * @throws DataAccessException with error code: 400 bad request (table,
+     * format or file name invalid), 404 not found (no file).
+     */
+    public ImportStatus importFile(String table, String format, String file) throws DataAccessException {
+        Path path = directory.resolve(file == null? "" : file).normalize();
+        if(file == null || ! path.startsWith(directory.normalize()) || path.equals(directory.normalize()))
+            throw new DataAccessException.BadRequest(String.format("invalid file name: \"%s\"", file));
+        //
+        ImportJob job = create(table, format != null? format : file, file);
+        Reader reader;
+        try {
+            reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        } catch(IOException ex) {
+            remove(job);
+            throw new DataAccessException.NotFound(String.format("file: \"%s\" not found in import directory", file));
+        }
+        executor.execute(() -> job.run(reader, executor));
+        return job.status();
+    }
+
+
+    /**
+     * Import a stream, e.g. a HTTP request body, in the calling thread.
+     * Rows are inserted while the stream is read, reading blocks while the
+     * database is behind.
+     *
+     * @param table name of table: "customers", "vehicles" or "reservations".
+     * @param format "csv", "ndjson" or content type ("text/csv", "application/x-ndjson").
+     * @param in stream of UTF-8 encoded lines.
+     * @return status of finished import.
+     * @throws DataAccessException with error code 400 bad request (table or format invalid).
+     */
+    public ImportStatus importStream(String table, String format, InputStream in) throws DataAccessException {
+        ImportJob job = create(table, format, "request-body");
+        job.run(new InputStreamReader(in, StandardCharsets.UTF_8), executor);
+        return job.status();
+    }
+
+
+    /**
+     * Return status of all retained imports in order of start.
+     *
+     * @return status of imports.
+     */
+    public List<ImportStatus> findAllImports() {
+        synchronized(jobs) {
+            return jobs.values().stream().map(ImportJob::status).toList();
+        }
+    }
+
+
+    /**
+     * Return status of import with id.
+     *
+     * @param id id of import.
+     * @return Optional with status or empty if not found.
+     */
+    public Optional<ImportStatus> findImportById(long id) {
+        synchronized(jobs) {
+            return Optional.ofNullable(jobs.get(id)).map(ImportJob::status);
+        }
+    }
+
+
+    /**
+     * Return reject file of import with id.
+     *
+     * @param id id of import.
+     * @return Optional with path or empty if the import is not found or
+     * no row was rejected.
+     */
+    public Optional<Path> findRejectFile(long id) {
+        synchronized(jobs) {
+            return Optional.ofNullable(jobs.get(id))
+                .filter(job -> job.status().rowsRejected() > 0)
+                .map(ImportJob::rejectPath);
+        }
+    }
+
+
+    @Override
+    public String metricsName() {
+        return "imports";
+    }
+
+
+    @Override
+    public Map<String, Object> metrics() {
+        List<ImportStatus> all = findAllImports();
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        m.put("imports", all.size());
+        m.put("running", all.stream().filter(s -> s.state() == ImportStatus.State.Running).count());
+        m.put("rowsRead", all.stream().mapToLong(ImportStatus::rowsRead).sum());
+        m.put("rowsInserted", all.stream().mapToLong(ImportStatus::rowsInserted).sum());
+        m.put("rowsRejected", all.stream().mapToLong(ImportStatus::rowsRejected).sum());
+        m.put("rowsPerSecond", all.stream().filter(s -> s.state() == ImportStatus.State.Running)
+            .mapToDouble(ImportStatus::rowsPerSecond).sum());
+        return m;
+    }
+
+
+    /**
+     * Stop running imports on shutdown.
+     */
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+
+    /**
+     * Create and register import job.
+     */
+    private ImportJob create(String table, String format, String source) throws DataAccessException {
+        ImportTable t = ImportTable.of(table).orElseThrow(() ->
+            new DataAccessException.BadRequest(String.format("invalid table: \"%s\"", table)));
+        ImportJob.Format f = ImportJob.Format.of(format).orElseThrow(() ->
+            new DataAccessException.BadRequest(String.format("invalid format: \"%s\", expected: csv, ndjson", format)));
+        try {
+            Files.createDirectories(directory);
+        } catch(IOException ex) {
+            throw new DataAccessException.BadRequest("can't create import directory: " + directory);
+        }
+        long id = ids.incrementAndGet();
+        Path rejects = directory.resolve(String.format("import-%d-%s.rejects", id, t.name().toLowerCase()));
+        ImportJob job = new ImportJob(id, t, f, source, rejects, chunkSize, queueCapacity,
+            dataFactory, jdbcTemplate, transactionTemplate, changeEvents, objectMapper, intervals);
+        synchronized(jobs) {
+            jobs.put(id, job);
+            if(jobs.size() > RETAIN) {
+                List<Long> finished = new ArrayList<Long>();
+                jobs.forEach((k, j) -> { if(j.finished()) finished.add(k); });
+                finished.stream().limit(jobs.size() - RETAIN).forEach(jobs::remove);
+            }
+        }
+        return job;
+    }
+
+
+    private void remove(ImportJob job) {
+        synchronized(jobs) {
+            jobs.remove(job.id);
+        }
+    }
+}
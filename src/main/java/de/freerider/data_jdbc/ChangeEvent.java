@@ -0,0 +1,64 @@
+package de.freerider.data_jdbc;
+
+
+/**
+ * Public, immutable event describing a successful change of one entity
+ * through the DAO, with images of the entity before and after the change.
+ * <pre>
+ *  Create: before = null,   after = created object
+ *  Update: before = object, after = object after update (may be null if not re-read)
+ *  Delete: before = object, after = null
+ * </pre>
+ * Images may be null if they could not be read from the database.
+ *
+ * @param <T> type of changed entity, e.g. Reservation.
+ * @param type class of changed entity, e.g. Reservation.class.
+ * @param op change operation.
+ * @param id id of changed entity.
+ * @param before image before the change or null.
+ * @param after image after the change or null.
+ */
+public record ChangeEvent<T>(Class<T> type, Op op, long id, T before, T after) {
+
+    /**
+     * Change operations.
+     */
+    public enum Op { Create, Update, Delete };
+
+
+    /**
+     * @param <T> type of created entity.
+     * @param type class of created entity.
+     * @param id id of created entity.
+     * @param after created object.
+     * @return Create event.
+     */
+    public static <T> ChangeEvent<T> created(Class<T> type, long id, T after) {
+        return new ChangeEvent<T>(type, Op.Create, id, null, after);
+    }
+
+
+    /**
+     * @param <T> type of updated entity.
+     * @param type class of updated entity.
+     * @param id id of updated entity.
+     * @param before object before update or null.
+     * @param after object after update or null.
+     * @return Update event.
+     */
+    public static <T> ChangeEvent<T> updated(Class<T> type, long id, T before, T after) {
+        return new ChangeEvent<T>(type, Op.Update, id, before, after);
+    }
+
+
+    /**
+     * @param <T> type of deleted entity.
+     * @param type class of deleted entity.
+     * @param id id of deleted entity.
+     * @param before deleted object or null.
+     * @return Delete event.
+     */
+    public static <T> ChangeEvent<T> deleted(Class<T> type, long id, T before) {
+        return new ChangeEvent<T>(type, Op.Delete, id, before, null);
+    }
+}
@@ -0,0 +1,182 @@
+package de.freerider.data_jdbc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Non-public, lock-free ring buffer of ChangeEvents with multiple producers
+ * (writing threads) and multiple consumers, used by ChangeEvents to deliver
+ * events to asynchronous subscribers.
+ *
+ * Producers claim a sequence number with one atomic increment and write the
+ * event into slot (sequence &amp; mask); they never wait for consumers. Each
+ * consumer reads all events through its own Cursor. A consumer that falls
+ * behind by more than the capacity of the ring loses the overwritten events,
+ * which are counted by the Cursor:
+ * <pre>
+ *  slot:      [ seq 8 | seq 9 | seq 6 | seq 7 ]    capacity: 4, next: 10
+ *  cursors:            c1 -&gt; 9         c2 -&gt; 6     (c2 lags 4 events)
+ * </pre>
+ * A producer takes over its slot with a CAS from the sequence of the
+ * previous lap (sequence - capacity) to WRITING. Two producers a full lap
+ * apart therefore write the slot one after the other: the newer one spins
+ * until the older one has published, the slot always ends with the newer
+ * event and the older one is counted as lost by lagging consumers. A
+ * consumer accepts an event only if the slot sequence is its expected
+ * sequence before and after reading the event.
+ */
+final class ChangeEventRing {
+
+    /**
+     * Slot sequence while the slot is written.
+     */
+    private static final long WRITING = Long.MIN_VALUE;
+
+    private final int mask;
+
+    private final AtomicReferenceArray<ChangeEvent<?>> events;
+
+    /**
+     * Sequence of the event in each slot, WRITING while the slot is written,
+     * initially the (negative) sequence of the lap before the first.
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * Next sequence claimed by a producer, number of published events.
+     */
+    private final AtomicLong next = new AtomicLong();
+
+
+    /**
+     * Constructor.
+     *
+     * @param capacity minimum number of slots, rounded up to a power of two.
+     */
+    ChangeEventRing(int capacity) {
+        int n = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = n - 1;
+        this.events = new AtomicReferenceArray<ChangeEvent<?>>(n);
+        this.sequences = new AtomicLongArray(n);
+        for(int i=0; i < n; i++) {
+            sequences.set(i, i - n);
+        }
+    }
+
+
+    /**
+     * Publish event, never waits for consumers. Only waits for a producer
+     * of the previous lap that has not finished writing the same slot.
+     *
+     * @param event event to publish.
+     * @return sequence of the event.
+     */
+    long publish(ChangeEvent<?> event) {
+        long seq = next.getAndIncrement();
+        int i = (int)(seq & mask);
+        long previous = seq - (mask + 1);
+        while( ! sequences.compareAndSet(i, previous, WRITING)) {
+            Thread.onSpinWait();    // previous lap still being written
+        }
+        events.set(i, event);
+        sequences.set(i, seq);
+        return seq;
+    }
+
+
+    /**
+     * Number of slots.
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+
+    /**
+     * Number of published events.
+     */
+    long published() {
+        return next.get();
+    }
+
+
+    /**
+     * Create cursor of a consumer that reads events published from now on.
+     */
+    Cursor cursor() {
+        return new Cursor(next.get());
+    }
+
+
+    /**
+     * Read position of one consumer, polled by one thread only.
+     */
+    final class Cursor {
+
+        private volatile long sequence;
+
+        private volatile long lost = 0L;
+
+        private Cursor(long sequence) {
+            this.sequence = sequence;
+        }
+
+
+        /**
+         * Return next event or null if no event has been published (or its
+         * slot is still being written). Skips events overwritten before they
+         * were read.
+         *
+         * @return next event or null.
+         */
+        ChangeEvent<?> poll() {
+            for(;;) {
+                long seq = sequence;
+                int i = (int)(seq & mask);
+                if(sequences.get(i) == seq) {
+                    ChangeEvent<?> event = events.get(i);
+                    if(sequences.get(i) == seq) {
+                        sequence = seq + 1;
+                        return event;
+                    }
+                    continue;   // overwritten while reading
+                }
+                long head = next.get();
+                if(head - seq > mask + 1) {
+                    // lapped by producers, continue with oldest event that may remain
+                    long oldest = head - (mask + 1);
+                    lost += oldest - seq;
+                    sequence = oldest;
+                    continue;
+                }
+                return null;
+            }
+        }
+
+
+        /**
+         * Sequence of the next event to read.
+         */
+        long position() {
+            return sequence;
+        }
+
+
+        /**
+         * Number of published events not yet read.
+         */
+        long lag() {
+            return Math.max(0L, next.get() - sequence);
+        }
+
+
+        /**
+         * Number of events lost because they were overwritten before read.
+         */
+        long lost() {
+            return lost;
+        }
+    }
+}
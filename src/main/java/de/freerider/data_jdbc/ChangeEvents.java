@@ -0,0 +1,477 @@
+package de.freerider.data_jdbc;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PreDestroy;
+
+
+/**
+ * Public component through which DAO implementations publish ChangeEvents
+ * after successful writes and components (counters, indexes, aggregates)
+ * subscribe to changes of an entity type.
+ * <pre>
+ *  changeEvents.subscribe(Reservation.class, event -> { ... });
+ *  changeEvents.subscribeAsync(Reservation.class, "columns", event -> { ... });
+ * </pre>
+ * Events are published after commit: writes through JdbcTemplate run in
+ * auto-commit mode and publish when the statement has completed, events
+ * published inside a Spring transaction are held back until the transaction
+ * commits and discarded on rollback.
+ *
+ * Subscribers receive events in publishing order:
+ * <pre>
+ *  subscribe()       synchronously in the publishing thread, for cheap
+ *                    updates of in-memory state that must reflect a write
+ *                    when it returns (reservation intervals, counters,
+ *                    cache invalidations)
+ *  subscribeAsync()  in a thread of the subscriber that reads events from
+ *                    a lock-free ring buffer (application.events.ring-size),
+ *                    for updates that take locks held by scans (indexes,
+ *                    columns, aggregates), writers never wait for these
+ *                    subscribers, a subscriber lagging by more than the
+ *                    ring size loses events
+ * </pre>
+ * Exceptions of subscribers are logged and do not affect the write or other
+ * subscribers.
+ *
+ * Each entity type has a change sequence that is incremented after the
+ * synchronous subscribers of an event have returned, and again after each
+ * asynchronous subscriber has applied it, together with the time of the
+ * change. Readers that take the sequence before reading data can use it as
+ * a cheap validator of responses (ETag, Last-Modified): an unchanged
+ * sequence means no write through the DAO has completed and no in-memory
+ * state has changed since.
+ */
+@Component
+public class ChangeEvents implements Metrics {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ChangeEvents.class);
+
+    /**
+     * Maximum time an idle asynchronous subscriber parks before polling again.
+     */
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * Maximum time to drain asynchronous subscribers on shutdown.
+     */
+    private static final long DRAIN_MILLIS = 5_000L;
+
+    /**
+     * Minimum number of events buffered for asynchronous subscribers.
+     */
+    @Value("${application.events.ring-size:8192}")
+    private int ringSize = 8192;
+
+    /**
+     * Subscription of a consumer to events of one entity type.
+     */
+    private record Subscription<T>(Class<T> type, Consumer<ChangeEvent<T>> consumer) { }
+
+    /**
+     * Subscriptions, rarely changed and read on every publish.
+     */
+    private final List<Subscription<?>> subscriptions = new CopyOnWriteArrayList<Subscription<?>>();
+
+    private final List<AsyncSubscription<?>> asyncSubscriptions = new CopyOnWriteArrayList<AsyncSubscription<?>>();
+
+    /**
+     * Ring buffer of events for asynchronous subscribers, created by the
+     * first asynchronous subscription.
+     */
+    private volatile ChangeEventRing ring;
+
+    private final AtomicLong published = new AtomicLong();
+
+    /**
+     * Number of events held back until commit of a transaction.
+     */
+    private final AtomicLong deferred = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Time of start, first value of lastModified().
+     */
+    private final long started = System.currentTimeMillis();
+
+    /**
+     * Change sequence and time of last change of an entity type.
+     */
+    private static final class Sequence {
+        private final AtomicLong value = new AtomicLong();
+        private volatile long modified;
+
+        Sequence(long modified) {
+            this.modified = modified;
+        }
+    }
+
+    private final Map<Class<?>, Sequence> sequences = new ConcurrentHashMap<Class<?>, Sequence>();
+
+
+    /**
+     * Subscribe consumer to events of an entity type, events are delivered
+     * in the publishing thread.
+     *
+     * @param <T> entity type.
+     * @param type class of entity, e.g. Reservation.class.
+     * @param consumer receives events.
+     */
+    public <T> void subscribe(Class<T> type, Consumer<ChangeEvent<T>> consumer) {
+        subscriptions.add(new Subscription<T>(type, consumer));
+    }
+
+
+    /**
+     * Subscribe consumer to events of an entity type, events are delivered
+     * in a daemon thread of the subscription. Events published before are
+     * not delivered.
+     *
+     * @param <T> entity type.
+     * @param type class of entity, e.g. Reservation.class.
+     * @param name name of subscription in thread name and metrics.
+     * @param consumer receives events.
+     */
+    public <T> void subscribeAsync(Class<T> type, String name, Consumer<ChangeEvent<T>> consumer) {
+        subscribeAsync(type, name, consumer, null);
+    }
+
+
+    /**
+     * Subscribe consumer to events of an entity type, events are delivered
+     * in a daemon thread of the subscription. A subscriber that lags by more
+     * than the ring size is notified of lost events, e.g. to reload its
+     * state from the database.
+     *
+     * @param <T> entity type.
+     * @param type class of entity, e.g. Reservation.class.
+     * @param name name of subscription in thread name and metrics.
+     * @param consumer receives events.
+     * @param lost called in the thread of the subscription when events were lost, may be null.
+     */
+    public <T> void subscribeAsync(Class<T> type, String name, Consumer<ChangeEvent<T>> consumer, Runnable lost) {
+        synchronized(asyncSubscriptions) {
+            if(ring == null) {
+                ring = new ChangeEventRing(ringSize);
+            }
+            AsyncSubscription<T> s = new AsyncSubscription<T>(type, name, consumer, lost, ring.cursor());
+            asyncSubscriptions.add(s);
+            s.thread.start();
+        }
+    }
+
+
+    /**
+     * Wait until an asynchronous subscription has received all events
+     * published so far, e.g. before it replaces its state with a snapshot
+     * read from the database.
+     *
+     * @param name name of subscription.
+     * @param timeoutMillis maximum time to wait.
+     * @return true if all events were received, false on timeout or if no
+     * subscription has the name.
+     */
+    boolean awaitDelivery(String name, long timeoutMillis) {
+        ChangeEventRing r = ring;
+        for(var s : asyncSubscriptions) {
+            if(s.name.equals(name)) {
+                long published = r.published();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+                while(s.received < published) {
+                    if(System.nanoTime() - deadline > 0L)
+                        return false;
+                    LockSupport.unpark(s.thread);
+                    LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(100));
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Test whether consumers are subscribed to an entity type, publishers
+     * can skip reading before/after images if not.
+     *
+     * @param type class of entity.
+     * @return true if at least one consumer is subscribed.
+     */
+    public boolean hasSubscribers(Class<?> type) {
+        for(var s : subscriptions) {
+            if(s.type() == type)
+                return true;
+        }
+        for(var s : asyncSubscriptions) {
+            if(s.type == type)
+                return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Deliver event to consumers subscribed to its entity type, after commit
+     * if a transaction is active in the publishing thread.
+     *
+     * @param <T> entity type.
+     * @param event event to deliver.
+     */
+    public <T> void publish(ChangeEvent<T> event) {
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            deferred.incrementAndGet();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deliver(event);
+                }
+            });
+        } else {
+            deliver(event);
+        }
+    }
+
+
+    /**
+     * Deliver event to synchronous subscribers, then to the ring buffer of
+     * asynchronous subscribers.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> void deliver(ChangeEvent<T> event) {
+        published.incrementAndGet();
+        for(var s : subscriptions) {
+            if(s.type() == event.type()) {
+                try {
+                    ((Subscription<T>)s).consumer().accept(event);
+                //
+                } catch(RuntimeException ex) {
+                    failed(event, ex);
+                }
+            }
+        }
+        changed(event.type());      // after in-memory state reflects the write
+        boolean async = false;
+        for(var s : asyncSubscriptions) {
+            async |= s.type == event.type();
+        }
+        if(async) {
+            ring.publish(event);
+            for(var s : asyncSubscriptions) {
+                if(s.waiting) {
+                    LockSupport.unpark(s.thread);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Return change sequence of an entity type, incremented by every
+     * delivered event of the type and by changed().
+     *
+     * @param type class of entity, e.g. Vehicle.class.
+     * @return number of changes since start.
+     */
+    public long sequence(Class<?> type) {
+        Sequence seq = sequences.get(type);
+        return seq != null? seq.value.get() : 0L;
+    }
+
+
+    /**
+     * Return time of the last change of an entity type.
+     *
+     * @param type class of entity, e.g. Vehicle.class.
+     * @return time of last change in msec, time of start if not changed since.
+     */
+    public long lastModified(Class<?> type) {
+        Sequence seq = sequences.get(type);
+        return seq != null? seq.modified : started;
+    }
+
+
+    /**
+     * Return time of start, sequences restart from 0 with a new start time.
+     *
+     * @return time of start in msec.
+     */
+    public long started() {
+        return started;
+    }
+
+
+    /**
+     * Advance change sequence of an entity type for changes visible to
+     * readers before their event is published (queued writes).
+     *
+     * @param type class of entity.
+     */
+    void changed(Class<?> type) {
+        Sequence seq = sequences.computeIfAbsent(type, t -> new Sequence(started));
+        seq.modified = Math.max(seq.modified, System.currentTimeMillis());
+        seq.value.incrementAndGet();
+    }
+
+
+    private void failed(ChangeEvent<?> event, RuntimeException ex) {
+        failures.incrementAndGet();
+        logger.error(String.format("%s %s(id: %d), subscriber failed: %s",
+            event.op(), event.type().getSimpleName(), event.id(), ex));
+    }
+
+
+    /**
+     * Deliver remaining events to asynchronous subscribers and stop their
+     * threads on shutdown.
+     */
+    @PreDestroy
+    void shutdown() {
+        for(var s : asyncSubscriptions) {
+            s.closed = true;
+            LockSupport.unpark(s.thread);
+        }
+        for(var s : asyncSubscriptions) {
+            try {
+                s.thread.join(DRAIN_MILLIS);
+            } catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+
+    @Override
+    public String metricsName() {
+        return "events";
+    }
+
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        m.put("published", published.get());
+        m.put("deferred", deferred.get());
+        m.put("subscribers", subscriptions.size());
+        m.put("failures", failures.get());
+        Map<String, Object> seqs = new LinkedHashMap<String, Object>();
+        sequences.forEach((type, seq) -> seqs.put(type.getSimpleName(), seq.value.get()));
+        m.put("sequences", seqs);
+        ChangeEventRing r = ring;
+        if(r != null) {
+            m.put("ringSize", r.capacity());
+            Map<String, Object> async = new LinkedHashMap<String, Object>();
+            for(var s : asyncSubscriptions) {
+                Map<String, Object> sm = new LinkedHashMap<String, Object>();
+                sm.put("delivered", s.delivered.get());
+                sm.put("lag", s.cursor.lag());
+                sm.put("lost", s.cursor.lost());
+                async.put(s.name, sm);
+            }
+            m.put("async", async);
+        }
+        return m;
+    }
+
+
+    /**
+     * Asynchronous subscription with its own thread and ring buffer cursor.
+     */
+    private final class AsyncSubscription<T> implements Runnable {
+        private final Class<T> type;
+        private final String name;
+        private final Consumer<ChangeEvent<T>> consumer;
+        private final Runnable lost;
+        private final ChangeEventRing.Cursor cursor;
+        private final Thread thread;
+        private final AtomicLong delivered = new AtomicLong();
+
+        /**
+         * Ring sequence up to which events have been received and applied.
+         */
+        private volatile long received;
+
+        /**
+         * Set while the thread is about to park, publishers unpark it.
+         */
+        private volatile boolean waiting = false;
+
+        private volatile boolean closed = false;
+
+        AsyncSubscription(Class<T> type, String name, Consumer<ChangeEvent<T>> consumer, Runnable lost,
+                ChangeEventRing.Cursor cursor) {
+            this.type = type;
+            this.name = name;
+            this.consumer = consumer;
+            this.lost = lost;
+            this.cursor = cursor;
+            this.received = cursor.position();
+            this.thread = new Thread(this, "change-events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            long lostEvents = 0L;
+            for(;;) {
+                ChangeEvent<?> event = cursor.poll();
+                if(event == null) {
+                    if(closed)
+                        return;
+                    waiting = true;
+                    event = cursor.poll();  // re-check, publisher may have missed waiting
+                    if(event == null) {
+                        LockSupport.parkNanos(this, PARK_NANOS);
+                    }
+                    waiting = false;
+                    if(event == null)
+                        continue;
+                }
+                if(cursor.lost() != lostEvents) {
+                    logger.warn(String.format("change events subscriber \"%s\" lagged, %d events lost",
+                        name, cursor.lost() - lostEvents));
+                    lostEvents = cursor.lost();
+                    if(lost != null) {
+                        try {
+                            lost.run();
+                        //
+                        } catch(RuntimeException ex) {
+                            failed(event, ex);
+                        }
+                    }
+                }
+                if(event.type() == type) {
+                    try {
+                        consumer.accept((ChangeEvent<T>)event);
+                        delivered.incrementAndGet();
+                    //
+                    } catch(RuntimeException ex) {
+                        failed(event, ex);
+                    }
+                    changed(type);      // in-memory state of the subscriber reflects the write
+                }
+                received = cursor.position();
+            }
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package de.freerider.data_jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import de.freerider.datamodel.Customer;
+import de.freerider.datamodel.DataFactory;
+
+
+/**
+ * Non-public in-memory search index over names and contacts of Customers,
+ * used to find Customers by partial name or e-mail without queries.
+ *
+ * Names and contacts are split into lower-case tokens at characters other
+ * than letters and digits ("Eric.Meyer@gmail.com" -&gt; eric, meyer, gmail,
+ * com). Distinct tokens form a sorted dictionary, each token has a posting
+ * list of the Customers that contain it, and each trigram of a token has a
+ * posting list of tokens. A query term matches tokens:
+ * <pre>
+ *  - equal to the term (score 3),
+ *  - starting with the term, from the sorted dictionary (score 2),
+ *  - containing the term, from the intersection of the trigram postings
+ *    of the term, for terms of 3 or more characters (score 1).
+ * </pre>
+ * Customers must match all terms of a query, they are ranked by the sum of
+ * their best score per term, then by id. Postings are scanned in the order
+ * of scores and scanning stops when the number of requested matches has
+ * been collected.
+ *
+ * Updates and deletes leave stale entries in postings that are skipped
+ * when scanning and removed once a posting list is half stale. The index
+ * is loaded in the background at startup (or on first use):
+ * <pre>
+ *  SELECT ID, NAME, CONTACT, STATUS, VERSION FROM CUSTOMER;
+ * </pre>
+ * and kept current by ChangeEvents of Customers.
+ */
+@Component
+class CustomerSearchIndex implements Metrics {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSearchIndex.class);
+
+    private static final int EXACT = 3, PREFIX = 2, SUBSTRING = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataFactory dataFactory;
+
+    /**
+     * Guards all structures below, searches run under the read lock.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /*
+     * Customer ids and sorted token ids by slot, tokens are null for free slots.
+     */
+    private long[] ids = new long[0];
+    private int[][] tokensOf = new int[0][];
+    private int size = 0;
+    private final SlotMap slots = new SlotMap();
+    private final Postings freeSlots = new Postings();
+
+    /*
+     * Dictionary of tokens, token text and postings (slots) by token id.
+     */
+    private final TreeMap<String, Integer> dictionary = new TreeMap<String, Integer>();
+    private String[] tokens = new String[0];
+    private Postings[] postings = new Postings[0];
+    private int tokenCount = 0;
+
+    /**
+     * Postings (token ids in ascending order) by trigram.
+     */
+    private final Map<Long, Postings> trigrams = new HashMap<Long, Postings>();
+
+    private final IndexLoader<Customer> loader =
+        new IndexLoader<Customer>(logger, "customer search index", this::load, this::applyLoaded);
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+
+
+    /**
+     * Constructor, subscribes index to ChangeEvents of Customers.
+     *
+     * @param jdbcTemplate JdbcTemplate for loading the index.
+     * @param dataFactory creates Customers from rows.
+     * @param changeEvents source of ChangeEvents.
+     */
+    CustomerSearchIndex(JdbcTemplate jdbcTemplate, DataFactory dataFactory, ChangeEvents changeEvents) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataFactory = dataFactory;
+        changeEvents.subscribeAsync(Customer.class, "search", this::apply, loader::reload);
+    }
+
+
+    /**
+     * Return ids of Customers whose name or contact match all terms of a
+     * query, best matches first.
+     *
+     * @param query terms, e.g. "meyer gmail" or "eric.mey".
+     * @param limit maximum number of ids returned.
+     * @return ids of matching Customers in order of rank.
+     */
+    List<Long> search(String query, int limit) {
+        ensureLoaded();
+        long t0 = System.nanoTime();
+        List<String> terms = new ArrayList<String>(tokenize(query));
+        if(terms.isEmpty() || limit <= 0)
+            return List.of();
+        // longest term drives the scan, others are verified per Customer
+        terms.sort((a, b) -> b.length() - a.length());
+        Scan scan = new Scan(terms, limit);
+        lock.readLock().lock();
+        try {
+            String term = terms.get(0);
+            Integer exact = dictionary.get(term);
+            if(exact != null && scan.collect(exact, EXACT))
+                return scan.result();
+            //
+            for(var e : dictionary.subMap(term, false, term + Character.MAX_VALUE, false).entrySet()) {
+                if(scan.collect(e.getValue(), PREFIX))
+                    return scan.result();
+            }
+            if(term.length() >= 3) {
+                containing(term, t -> ! tokens[t].startsWith(term) && scan.collect(t, SUBSTRING));
+            }
+            return scan.result();
+        //
+        } finally {
+            lock.readLock().unlock();
+            searches.incrementAndGet();
+            searchNanos.addAndGet(System.nanoTime() - t0);
+        }
+    }
+
+
+    /**
+     * Matches collected while scanning postings of the driving term.
+     */
+    private final class Scan {
+        final List<String> terms;
+        final int limit;
+        final Set<Integer> seen = new HashSet<Integer>();
+        final List<long[]> matches = new ArrayList<long[]>();   // {score, id}
+
+        Scan(List<String> terms, int limit) {
+            this.terms = terms;
+            this.limit = limit;
+        }
+
+        /**
+         * Collect Customers of token, return true when limit is reached.
+         */
+        boolean collect(int token, int score) {
+            Postings p = postings[token];
+            for(int i=0; i < p.size; i++) {
+                int slot = p.items[i];
+                int[] own = tokensOf[slot];
+                if(own == null || Arrays.binarySearch(own, token) < 0 || ! seen.add(slot))
+                    continue;   // stale entry or seen
+                int total = score;
+                for(int j=1; j < terms.size() && total > 0; j++) {
+                    int s = score(terms.get(j), own);
+                    total = s > 0? total + s : 0;
+                }
+                if(total > 0) {
+                    matches.add(new long[] {total, ids[slot]});
+                    if(matches.size() >= limit)
+                        return true;
+                }
+            }
+            return false;
+        }
+
+        List<Long> result() {
+            matches.sort((a, b) -> a[0] != b[0]? Long.compare(b[0], a[0]) : Long.compare(a[1], b[1]));
+            return matches.stream().map(m -> m[1]).toList();
+        }
+    }
+
+
+    /**
+     * Return best score of term against tokens.
+     */
+    private int score(String term, int[] own) {
+        int best = 0;
+        for(int t : own) {
+            String token = tokens[t];
+            int s = token.equals(term)? EXACT : token.startsWith(term)? PREFIX :
+                term.length() >= 3 && token.contains(term)? SUBSTRING : 0;
+            best = Math.max(best, s);
+        }
+        return best;
+    }
+
+
+    /**
+     * Pass ids of tokens that contain term (length &gt;= 3) to visitor until
+     * it returns true: scan the smallest trigram postings of the term, test
+     * membership in the others, then verify.
+     */
+    private void containing(String term, IntPredicate visitor) {
+        List<Postings> lists = new ArrayList<Postings>();
+        for(int i=0; i + 3 <= term.length(); i++) {
+            Postings p = trigrams.get(trigram(term, i));
+            if(p == null)
+                return;
+            lists.add(p);
+        }
+        lists.sort((a, b) -> a.size - b.size);
+        Postings first = lists.get(0);
+        for(int i=0; i < first.size; i++) {
+            int t = first.items[i];
+            boolean all = true;
+            for(int j=1; j < lists.size() && all; j++) {
+                all = Arrays.binarySearch(lists.get(j).items, 0, lists.get(j).size, t) >= 0;
+            }
+            if(all && tokens[t].contains(term) && visitor.test(t))
+                return;
+        }
+    }
+
+
+    /**
+     * Split text into distinct lower-case tokens of letters and digits,
+     * independent of the default locale ("IRIS" -&gt; iris, also in Turkish).
+     *
+     * @param text text to split, may be null.
+     * @return tokens in order of first occurrence.
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<String>();
+        if(text != null) {
+            int start = -1;
+            for(int i=0; i <= text.length(); i++) {
+                boolean part = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+                if(part && start < 0) {
+                    start = i;
+                } else if( ! part && start >= 0) {
+                    tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                    start = -1;
+                }
+            }
+        }
+        return tokens;
+    }
+
+
+    private static long trigram(String s, int i) {
+        return ((long)s.charAt(i) << 32) | ((long)s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+
+    /**
+     * Update index from ChangeEvent of a successful write.
+     *
+     * @param event ChangeEvent.
+     */
+    void apply(ChangeEvent<Customer> event) {
+        loader.apply(event);
+    }
+
+
+    private void applyLoaded(ChangeEvent<Customer> event) {
+        lock.writeLock().lock();
+        try {
+            if(event.op() == ChangeEvent.Op.Delete || event.after() == null) {
+                remove(event.id());
+            } else {
+                put(event.after());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Load index in the background when the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void loadOnStartup() {
+        loader.loadInBackground();
+    }
+
+
+    private void ensureLoaded() {
+        loader.ensureLoaded();
+    }
+
+
+    /**
+     * Load index from the database.
+     */
+    private void load() {
+        load(rows -> jdbcTemplate.query(JdbcStreams.streaming("SELECT ID, NAME, CONTACT, STATUS, VERSION FROM CUSTOMER"),
+            rs -> {
+                long version = rs.getLong("VERSION");
+                dataFactory.createCustomer(rs.getLong("ID"), rs.getString("NAME"),
+                    rs.getString("CONTACT"), rs.getString("STATUS"))
+                .map(c -> c.setVersion(version))
+                .ifPresent(rows);
+            }));
+    }
+
+
+    /**
+     * Load index from a source of Customers, ChangeEvents received while
+     * loading are replayed on the loaded index (replaying is idempotent).
+     *
+     * @param source passes Customers to its argument.
+     */
+    void load(Consumer<Consumer<Customer>> source) {
+        loader.load(() -> {
+            lock.writeLock().lock();
+            try {
+                clear();
+                source.accept(this::put);
+            //
+            } catch(RuntimeException ex) {
+                clear();
+                throw ex;
+            //
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }, () -> String.format("%d customers, %d tokens", slots.size(), tokenCount));
+    }
+
+
+    /**
+     * Insert or replace Customer, caller holds the write lock.
+     */
+    private void put(Customer c) {
+        Set<String> text = tokenize(c.getName());
+        text.addAll(tokenize(c.getContact()));
+        int[] own = new int[text.size()];
+        int n = 0;
+        for(String token : text) {
+            own[n++] = token(token);
+        }
+        Arrays.sort(own);
+        //
+        int slot = slots.get(c.getId());
+        int[] previous = null;
+        if(slot < 0) {
+            slot = freeSlots.size > 0? freeSlots.items[--freeSlots.size] : size++;
+            if(slot >= ids.length) {
+                int len = Math.max(1024, ids.length * 2);
+                ids = Arrays.copyOf(ids, len);
+                tokensOf = Arrays.copyOf(tokensOf, len);
+            }
+            slots.put(c.getId(), slot);
+        } else {
+            previous = tokensOf[slot];
+        }
+        ids[slot] = c.getId();
+        tokensOf[slot] = own;
+        for(int t : own) {
+            if(previous == null || Arrays.binarySearch(previous, t) < 0) {
+                postings[t].add(slot);
+            }
+        }
+        if(previous != null) {
+            for(int t : previous) {
+                if(Arrays.binarySearch(own, t) < 0) {
+                    stale(t);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Remove Customer, caller holds the write lock.
+     */
+    private void remove(long id) {
+        int slot = slots.remove(id);
+        if(slot >= 0) {
+            int[] previous = tokensOf[slot];
+            tokensOf[slot] = null;
+            for(int t : previous) {
+                stale(t);
+            }
+            freeSlots.add(slot);
+        }
+    }
+
+
+    /**
+     * Return id of token, add token to dictionary and trigram postings.
+     */
+    private int token(String token) {
+        Integer t = dictionary.get(token);
+        if(t != null)
+            return t;
+        //
+        if(tokenCount == tokens.length) {
+            int len = Math.max(1024, tokens.length * 2);
+            tokens = Arrays.copyOf(tokens, len);
+            postings = Arrays.copyOf(postings, len);
+        }
+        int id = tokenCount++;
+        tokens[id] = token;
+        postings[id] = new Postings();
+        dictionary.put(token, id);
+        for(int i=0; i + 3 <= token.length(); i++) {
+            Postings p = trigrams.computeIfAbsent(trigram(token, i), k -> new Postings());
+            if(p.size == 0 || p.items[p.size - 1] != id) {
+                p.add(id);  // ids ascending, once per token
+            }
+        }
+        return id;
+    }
+
+
+    /**
+     * Count stale entry in postings of token, remove stale entries (and
+     * duplicates of reused slots) when half of the entries are stale.
+     */
+    private void stale(int token) {
+        Postings p = postings[token];
+        if(++p.stale * 2 < p.size)
+            return;
+        //
+        Set<Integer> kept = new HashSet<Integer>();
+        int n = 0;
+        for(int i=0; i < p.size; i++) {
+            int slot = p.items[i];
+            int[] own = tokensOf[slot];
+            if(own != null && Arrays.binarySearch(own, token) >= 0 && kept.add(slot)) {
+                p.items[n++] = slot;
+            }
+        }
+        p.size = n;
+        p.stale = 0;
+    }
+
+
+    private void clear() {
+        slots.clear();
+        freeSlots.size = 0;
+        Arrays.fill(tokensOf, null);
+        size = 0;
+        dictionary.clear();
+        Arrays.fill(tokens, null);
+        Arrays.fill(postings, null);
+        tokenCount = 0;
+        trigrams.clear();
+    }
+
+
+    @Override
+    public String metricsName() {
+        return "search";
+    }
+
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        m.put("loaded", loader.loaded());
+        lock.readLock().lock();
+        try {
+            m.put("customers", slots.size());
+            m.put("tokens", tokenCount);
+            m.put("trigrams", trigrams.size());
+            long entries = 0;
+            for(int t=0; t < tokenCount; t++) {
+                entries += postings[t].size;
+            }
+            m.put("postings", entries);
+        } finally {
+            lock.readLock().unlock();
+        }
+        m.put("loadMillis", loader.loadMillis());
+        long n = searches.get();
+        m.put("searches", n);
+        m.put("avgSearchMicros", n > 0? searchNanos.get() / n / 1000L : 0L);
+        return m;
+    }
+
+
+    /**
+     * Growable list of ints with count of stale entries.
+     */
+    static final class Postings {
+        int[] items = new int[2];
+        int size = 0;
+        int stale = 0;
+
+        void add(int item) {
+            if(size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+    }
+}
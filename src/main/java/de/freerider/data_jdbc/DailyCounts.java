@@ -0,0 +1,19 @@
+package de.freerider.data_jdbc;
+
+import java.util.Map;
+
+
+/**
+ * Public number of reservations beginning on one local day by status and
+ * vehicle category, returned by GET /analytics/reservations/daily from
+ * incrementally maintained aggregates, e.g.:
+ * <pre>
+ * { "day": "2023-01-01", "total": 7,
+ *   "counts": { "Inquired": { "SUV": 2 }, "Booked": { "SUV": 1, "Van": 4 } } }
+ * </pre>
+ *
+ * @param day day, "yyyy-MM-dd".
+ * @param total number of reservations.
+ * @param counts number of reservations by status and category, without zero counts.
+ */
+public record DailyCounts(String day, long total, Map<String, Map<String, Long>> counts) { }
@@ -2,6 +2,7 @@ package de.freerider.data_jdbc;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import de.freerider.datamodel.Customer;
 import de.freerider.datamodel.Reservation;
@@ -19,15 +20,26 @@ import de.freerider.datamodel.Reservation;
 public interface DataAccess {
 
     /**
-     * Run query that returns the number of Customers in the database:
-     * - query: SELECT COUNT(ID) FROM CUSTOMER;
-     * - returns number extracted from ResultSet.
+     * Return the number of Customers in the database from counters maintained
+     * in memory (loaded once with SELECT STATUS, COUNT(*) FROM CUSTOMER GROUP BY
+     * STATUS, then updated on creates and deletes through the DAO and
+     * reconciled periodically).
      * 
      * @return number of Customer records in the database.
      */
     long countCustomers();
 
 
+    /**
+     * Return the number of Customers with status from counters maintained in
+     * memory, O(1).
+     * 
+     * @param status Customer status.
+     * @return number of Customer records with status.
+     */
+    long countCustomersByStatus(Customer.Status status);
+
+
     /**
      * Run query that returns all Customers in the database.
      * - query: SELECT * FROM CUSTOMER;
@@ -38,6 +50,35 @@ public interface DataAccess {
     Iterable<Customer> findAllCustomers();
 
 
+    /**
+     * Run query that streams all Customers in the database to a consumer.
+     * - query: SELECT * FROM CUSTOMER;
+     * - rows are read from a MySQL streaming result set (fetchSize:
+     *   Integer.MIN_VALUE) and passed to the consumer one at a time
+     *   without collecting them, memory use is constant regardless of
+     *   table size.
+     *
+     * The database connection is held until the last row was consumed.
+     *
+     * @param consumer receives Customer objects in the order rows are read.
+     * @return number of Customers passed to consumer.
+     */
+    long streamAllCustomers(Consumer<Customer> consumer);
+
+
+    /**
+     * Run query that returns one page of Customers ordered by id, starting
+     * after a given id (keyset pagination):
+     * - query: SELECT * FROM CUSTOMER WHERE ID > ?after_id ORDER BY ID LIMIT ?limit;
+     * - each page is a bounded range scan on the primary key, no OFFSET.
+     *
+     * @param after_id id of last Customer of previous page, -1 for first page.
+     * @param limit maximum number of Customers returned.
+     * @return Customers with id > after_id in ascending id order.
+     */
+    Iterable<Customer> findCustomersAfter(long after_id, int limit);
+
+
     /**
      * Run query that returns one Customers with a given id.
      * - query: SELECT * FROM CUSTOMER WHERE ID = 10;
@@ -60,6 +101,19 @@ public interface DataAccess {
     Iterable<Customer> findAllCustomersById(Iterable<Long> ids);
 
 
+    /**
+     * Return Customers whose name or contact match all terms of a query
+     * (whole words, prefixes or substrings of 3 or more characters), best
+     * matches first. Matches are found in an in-memory search index, only
+     * the matching Customers are queried by id.
+     * 
+     * @param query search terms, e.g. "meyer gmail".
+     * @param limit maximum number of Customers returned.
+     * @return matching Customers in order of rank.
+     */
+    Iterable<Customer> searchCustomers(String query, int limit);
+
+
     /**
      * Run query that returns all reservations held by a customer.
      * This is a JOIN-query between Reservation and Customer:
@@ -74,6 +128,21 @@ public interface DataAccess {
     Iterable<Reservation> findReservationsByCustomerId(long customer_id);
 
 
+    /**
+     * Run query that returns Reservations of a Customer joined with the
+     * reserved Vehicles in one statement (instead of one findVehicleById()
+     * call per Reservation):
+     * - query: SELECT ... FROM RESERVATION JOIN VEHICLE ON VEHICLE.ID =
+     *   RESERVATION.VEHICLE_ID WHERE RESERVATION.CUSTOMER_ID = ?customer_id
+     *   ORDER BY BEGIN, ID;
+     * - returns projections created from joined rows.
+     * 
+     * @param customer_id id of owning Customer.
+     * @return Reservations with Vehicles of Customer in (BEGIN, ID) order.
+     */
+    Iterable<ReservationWithVehicle> findReservationsWithVehicleByCustomerId(long customer_id);
+
+
     /**
      * Generic method to return number of elements in Iterable<T>.
      * 
@@ -126,6 +195,22 @@ public interface DataAccess {
     boolean updateCustomer(Map<String, Object> map) throws DataAccessException;
 
 
+    /**
+     * Attempt to UPDATE existing record in CUSTOMER table if its version
+     * matches (optimistic concurrency), no lock is held between reading and
+     * updating the record:
+     * - query: UPDATE CUSTOMER SET ..., VERSION = VERSION + 1
+     *     WHERE ID = ?id AND VERSION = ?version;
+     * 
+     * @param map name-value pairs of Customer data.
+     * @param version expected version of the record, -1 to update any version.
+     * @return true if customer was updated sucessfully.
+     * @throws DataAccessException with error code (400 bad request, 404 not found,
+     *      412 precondition failed (version mismatch)).
+     */
+    boolean updateCustomer(Map<String, Object> map, long version) throws DataAccessException;
+
+
     /**
      * Delete Customer record with id from CUSTOMER table. An exception is
      * thrown with error code: 404 not found (id not found), 409 conflict
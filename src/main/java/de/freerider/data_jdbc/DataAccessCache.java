@@ -0,0 +1,127 @@
+package de.freerider.data_jdbc;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import de.freerider.datamodel.Customer;
+import de.freerider.datamodel.Reservation;
+
+
+/**
+ * Non-public decorator of the Customer DataAccess interface that serves
+ * lookups by id from a read-through cache. All other methods pass through
+ * to DataAccessImpl. Writes invalidate the cached Customer.
+ *
+ * Marked as @Primary so it is injected wherever DataAccess is autowired.
+ */
+@Primary
+@Component
+class DataAccessCache implements DataAccess {
+
+    /**
+     * Implementation that accesses the database.
+     */
+    @Autowired
+    private DataAccessImpl delegate;
+
+    /**
+     * Holder of read-through caches.
+     */
+    @Autowired
+    private DataAccessCaches caches;
+
+
+    @Override
+    public long countCustomers() {
+        return delegate.countCustomers();
+    }
+
+    @Override
+    public long countCustomersByStatus(Customer.Status status) {
+        return delegate.countCustomersByStatus(status);
+    }
+
+    @Override
+    public Iterable<Customer> findAllCustomers() {
+        return delegate.findAllCustomers();
+    }
+
+    @Override
+    public long streamAllCustomers(Consumer<Customer> consumer) {
+        return delegate.streamAllCustomers(consumer);
+    }
+
+    @Override
+    public Iterable<Customer> findCustomersAfter(long after_id, int limit) {
+        return delegate.findCustomersAfter(after_id, limit);
+    }
+
+    @Override
+    public Optional<Customer> findCustomerById(long id) {
+        return caches.customers.get(id, delegate::findCustomerById);
+    }
+
+    @Override
+    public Iterable<Customer> findAllCustomersById(Iterable<Long> ids) {
+        return caches.customers.getAll(ids, delegate::findAllCustomersById, Customer::getId);
+    }
+
+    @Override
+    public Iterable<Customer> searchCustomers(String query, int limit) {
+        return delegate.searchCustomers(query, limit);
+    }
+
+    @Override
+    public Iterable<Reservation> findReservationsByCustomerId(long customer_id) {
+        return delegate.findReservationsByCustomerId(customer_id);
+    }
+
+    @Override
+    public Iterable<ReservationWithVehicle> findReservationsWithVehicleByCustomerId(long customer_id) {
+        return delegate.findReservationsWithVehicleByCustomerId(customer_id);
+    }
+
+    @Override
+    public <T> long count(Iterable<T> iter) {
+        return delegate.count(iter);
+    }
+
+    @Override
+    public Customer createCustomer(Map<String, Object> map) throws DataAccessException {
+        Customer customer = delegate.createCustomer(map);
+        caches.customers.invalidate(customer.getId());
+        return customer;
+    }
+
+    @Override
+    public boolean updateCustomer(Map<String, Object> map) throws DataAccessException {
+        try {
+            return delegate.updateCustomer(map);
+        } finally {
+            caches.customers.invalidate(EntityCache.idOf(map));
+        }
+    }
+
+    @Override
+    public boolean updateCustomer(Map<String, Object> map, long version) throws DataAccessException {
+        try {
+            return delegate.updateCustomer(map, version);
+        } finally {
+            caches.customers.invalidate(EntityCache.idOf(map));
+        }
+    }
+
+    @Override
+    public boolean deleteCustomer(long id) throws DataAccessException {
+        try {
+            return delegate.deleteCustomer(id);
+        } finally {
+            caches.customers.invalidate(id);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package de.freerider.data_jdbc;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import de.freerider.datamodel.Customer;
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * Non-public component that holds read-through caches used by the caching
+ * DataAccess decorators. Caches are configured per entity in application.yaml:
+ * <pre>
+ * application:
+ *   cache:
+ *     customers:
+ *       enabled: true
+ *       max-size: 10000
+ *       ttl: 10m
+ * </pre>
+ * Caches are invalidated by ChangeEvents of all writes, including bulk
+ * imports and queued writes, before the change sequence of the entity type
+ * advances. Cache counters (hits, misses, evictions) are reported as metrics
+ * "caches".
+ */
+@Component
+class DataAccessCaches implements Metrics {
+
+    /**
+     * Cache of Customer objects by id.
+     */
+    final EntityCache<Customer> customers;
+
+    /**
+     * Cache of Vehicle objects by id.
+     */
+    final EntityCache<Vehicle> vehicles;
+
+    /**
+     * Cache of Reservation objects by id.
+     */
+    final EntityCache<Reservation> reservations;
+
+
+    /**
+     * Constructor with cache configuration injected from application.yaml.
+     */
+    DataAccessCaches(
+        @Value("${application.cache.customers.enabled:true}") boolean customersEnabled,
+        @Value("${application.cache.customers.max-size:10000}") long customersMaxSize,
+        @Value("${application.cache.customers.ttl:10m}") Duration customersTtl,
+        @Value("${application.cache.vehicles.enabled:true}") boolean vehiclesEnabled,
+        @Value("${application.cache.vehicles.max-size:10000}") long vehiclesMaxSize,
+        @Value("${application.cache.vehicles.ttl:10m}") Duration vehiclesTtl,
+        @Value("${application.cache.reservations.enabled:true}") boolean reservationsEnabled,
+        @Value("${application.cache.reservations.max-size:50000}") long reservationsMaxSize,
+        @Value("${application.cache.reservations.ttl:1m}") Duration reservationsTtl,
+        ChangeEvents changeEvents
+    ) {
+        this.customers = new EntityCache<Customer>("customers", customersEnabled, customersMaxSize, customersTtl);
+        this.vehicles = new EntityCache<Vehicle>("vehicles", vehiclesEnabled, vehiclesMaxSize, vehiclesTtl);
+        this.reservations = new EntityCache<Reservation>("reservations", reservationsEnabled, reservationsMaxSize, reservationsTtl);
+        changeEvents.subscribe(Customer.class, e -> customers.invalidate(e.id()));
+        changeEvents.subscribe(Vehicle.class, e -> vehicles.invalidate(e.id()));
+        changeEvents.subscribe(Reservation.class, e -> reservations.invalidate(e.id()));
+    }
+
+
+    @Override
+    public String metricsName() {
+        return "caches";
+    }
+
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        for(var cache : new EntityCache<?>[] {customers, vehicles, reservations}) {
+            m.put(cache.name(), cache.metrics());
+        }
+        return m;
+    }
+}
@@ -6,7 +6,8 @@ public class DataAccessException extends Exception {
     public enum Code {
         BadRequest(400),
         NotFound(404),
-        Conflict(409);
+        Conflict(409),
+        PreconditionFailed(412);
 
         public final int code;
         private Code(int code) { this.code=code; }
@@ -34,4 +35,8 @@ public class DataAccessException extends Exception {
         Conflict(String msg) { super(Code.Conflict, msg); }
     }
 
+    public static class PreconditionFailed extends DataAccessException {
+        PreconditionFailed(String msg) { super(Code.PreconditionFailed, msg); }
+    }
+
 }
@@ -1,24 +1,30 @@
 package de.freerider.data_jdbc;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.freerider.datamodel.Customer;
 import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.Locations;
 import de.freerider.datamodel.Reservation;
 
 
@@ -33,6 +39,11 @@ class DataAccessImpl implements DataAccess {
      */
     private static final Logger logger = LoggerFactory.getLogger(DataAccessImpl.class);
 
+    /**
+     * Columns of CUSTOMER set by updateCustomer(), in SQL order.
+     */
+    private static final String[] CUSTOMER_COLUMNS = {"ID", "NAME", "CONTACT", "STATUS"};
+
     /**
      * Datafactory is a component that creates datamodel objects.
      */
@@ -50,33 +61,58 @@ class DataAccessImpl implements DataAccess {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    /**
+     * Runs updates and deletes together with the reads of their before and
+     * after images.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Counters of records in the database, total and by status.
+     */
+    @Autowired
+    private EntityCounters counters;
+
+    /**
+     * Successful writes are published as ChangeEvents.
+     */
+    @Autowired
+    private ChangeEvents changeEvents;
+
+    /**
+     * Index of tokens of Customer names and contacts.
+     */
+    @Autowired
+    private CustomerSearchIndex searchIndex;
 
     /**
-     * Run query that returns the number of Customers in the database:
-     * - query: SELECT COUNT(ID) FROM CUSTOMER;
-     * - returns number extracted from ResultSet.
+     * Parameterized, size-bucketed lookups: WHERE ID IN (?, ...).
+     */
+    private final BatchLookup batchLookup = new BatchLookup("CUSTOMER");
+
+
+    /**
+     * Return the number of Customers in the database from maintained counters
+     * instead of running: SELECT COUNT(ID) FROM CUSTOMER;
      * 
      * @return number of Customer records in the database.
      */
     @Override
     public long countCustomers() {
-        //
-        List<Object> result = jdbcTemplate.query(
-            /*
-             * Run SQL statement:
-             */
-            "SELECT COUNT(ID) FROM CUSTOMER",
+        return counters.customers.total();
+    }
 
-            /*
-             * Return ResultSet (rs) and extract COUNT value.
-             */
-            (rs, rowNum) -> {
-                long count = rs.getInt(1);  // index[1]
-                return count;
-            }
-        );
-        //
-        return result.size() > 0? (long)(result.get(0)) : 0;
+
+    /**
+     * Return the number of Customers with status from maintained counters.
+     * 
+     * @param status Customer status.
+     * @return number of Customer records with status.
+     */
+    @Override
+    public long countCustomersByStatus(Customer.Status status) {
+        return counters.customers.count(status);
     }
 
 
@@ -109,11 +145,13 @@ class DataAccessImpl implements DataAccess {
                 String name = rs.getString("NAME");
                 String contact = rs.getString("CONTACT");
                 String status = rs.getString("STATUS");
+                long version = rs.getLong("VERSION");
                 /*
                  * Attempt to create Customer object through dataFactory,
                  * which returns Optional<Customer>.
                  */
-                return dataFactory.createCustomer(id, name, contact, status);
+                return dataFactory.createCustomer(id, name, contact, status)
+                    .map(c -> c.setVersion(version));
             }
         )
         /*
@@ -129,6 +167,66 @@ class DataAccessImpl implements DataAccess {
     }
 
 
+    /**
+     * Run query that streams all Customers in the database to a consumer.
+     * - query: SELECT * FROM CUSTOMER;
+     * - rows are read from a MySQL streaming result set and passed to the
+     *   consumer one at a time without collecting them.
+     *
+     * @param consumer receives Customer objects in the order rows are read.
+     * @return number of Customers passed to consumer.
+     */
+    @Override
+    public long streamAllCustomers(Consumer<Customer> consumer) {
+        //
+        Long count = jdbcTemplate.query(
+            JdbcStreams.streaming("SELECT * FROM CUSTOMER"),
+            /*
+             * Consume ResultSet (rs) row by row while the connection is held.
+             */
+            rs -> {
+                long n = 0;
+                while(rs.next()) {
+                    var opt = createCustomer(rs);
+                    if(opt.isPresent()) {
+                        consumer.accept(opt.get());
+                        n++;
+                    }
+                }
+                return n;
+            }
+        );
+        return count != null? count : 0L;
+    }
+
+
+    /**
+     * Run query that returns one page of Customers ordered by id, starting
+     * after a given id (keyset pagination):
+     * - query: SELECT * FROM CUSTOMER WHERE ID > ?after_id ORDER BY ID LIMIT ?limit;
+     *
+     * @param after_id id of last Customer of previous page, -1 for first page.
+     * @param limit maximum number of Customers returned.
+     * @return Customers with id > after_id in ascending id order.
+     */
+    @Override
+    public Iterable<Customer> findCustomersAfter(long after_id, int limit) {
+        //
+        return jdbcTemplate.query(
+            "SELECT * FROM CUSTOMER WHERE ID > ? ORDER BY ID LIMIT ?",
+            ps -> {
+                ps.setLong(1, after_id);
+                ps.setInt(2, limit);
+            },
+            (rs, rowNum) -> createCustomer(rs)
+        )
+        .stream()
+        .filter(opt -> opt.isPresent())
+        .map(opt -> opt.get())
+        .collect(Collectors.toList());
+    }
+
+
     /**
      * Run query that returns one Customers with a given id.
      * - query: SELECT * FROM CUSTOMER WHERE ID = ?id;
@@ -159,10 +257,12 @@ class DataAccessImpl implements DataAccess {
                 String name = rs.getString("NAME");
                 String contact = rs.getString("CONTACT");
                 String status = rs.getString("STATUS");
+                long version = rs.getLong("VERSION");
                 /*
                  * Create Optional<Customer> from values.
                  */
-                return dataFactory.createCustomer(id, name, contact, status);
+                return dataFactory.createCustomer(id, name, contact, status)
+                    .map(c -> c.setVersion(version));
             }
         );
         /*
@@ -175,7 +275,9 @@ class DataAccessImpl implements DataAccess {
 
     /**
      * Run query that returns all Customers with matching id in ids.
-     * - query: SELECT * FROM CUSTOMER WHERE ID IN (10, 20, 30000, 40);
+     * - query: SELECT * FROM CUSTOMER WHERE ID IN (?, ?, ?, ?);
+     * - ids are deduplicated and sent in chunks padded to power-of-two
+     *   placeholder buckets, see BatchLookup.
      * - returns Customer objects created from ResultSet rows.
      * 
      * @param ids Customer ids (WHERE IN (?ids))
@@ -183,44 +285,30 @@ class DataAccessImpl implements DataAccess {
      */
     @Override
     public Iterable<Customer> findAllCustomersById(Iterable<Long> ids) {
-
-        /*
-         * Map ids (23, 48, 96) to idsStr: "23, 48, 96"
-         */
-        String idsStr = StreamSupport.stream(ids.spliterator(), false)
-            .map(id -> String.valueOf(id))
-            .collect(Collectors.joining(", "));
         //
-        var result = jdbcTemplate.queryForStream(
-            /*
-             * Prepare statement (ps) with "?"-augmented SQL query.
-             */
-            String.format("SELECT * FROM CUSTOMER WHERE ID IN (%s)", idsStr),
+        return batchLookup.findAll(jdbcTemplate, ids, (rs, rowNum) -> createCustomer(rs));
+    }
 
-            /*
-             * Extract values from ResultSet for each row.
-             */
-            (rs, rowNum) -> {
-                long id = rs.getInt("ID");
-                String name = rs.getString("NAME");
-                String contact = rs.getString("CONTACT");
-                String status = rs.getString("STATUS");
-                /*
-                 * Create Optional<Customer> from values.
-                 */
-                return dataFactory.createCustomer(id, name, contact, status);
-            }
-        )
-        /*
-         * Remove empty results from stream of Optional<Customer>,
-         * map remaining from Optional<Customer> to Customer and
-         * collect result.
-         */
-        .filter(opt -> opt.isPresent())
-        .map(opt -> opt.get())
-        .collect(Collectors.toList());
+
+    /**
+     * Return Customers matching all terms of a query from the search index,
+     * matching Customers are queried by id:
+     * - query: SELECT * FROM CUSTOMER WHERE ID IN (?, ...);
+     * 
+     * @param query search terms, e.g. "meyer gmail".
+     * @param limit maximum number of Customers returned.
+     * @return matching Customers in order of rank.
+     */
+    @Override
+    public Iterable<Customer> searchCustomers(String query, int limit) {
         //
-        return result;
+        List<Long> ids = searchIndex.search(query, limit);
+        Map<Long, Customer> found = new HashMap<Long, Customer>();
+        findAllCustomersById(ids).forEach(c -> found.put(c.getId(), c));
+        return ids.stream()
+            .map(found::get)
+            .filter(c -> c != null)
+            .collect(Collectors.toList());
     }
 
 
@@ -259,23 +347,24 @@ class DataAccessImpl implements DataAccess {
                  */
                 long rid = rs.getInt("ID");   // RESERVATION.ID
                 long vehicle_id = rs.getInt("VEHICLE_ID");
-                String begin = rs.getString("BEGIN");
-                String end = rs.getString("END");
-                String pickup = rs.getString("PICKUP");
-                String dropoff = rs.getString("DROPOFF");
+                long begin = SqlDateTime.get(rs, "BEGIN");
+                long end = SqlDateTime.get(rs, "END");
+                String pickup = Locations.intern(rs.getString("PICKUP"));
+                String dropoff = Locations.intern(rs.getString("DROPOFF"));
                 String status = rs.getString("STATUS");
+                long version = rs.getLong("VERSION");
 
                 /*
                  * Create Optional<Reservation> from values.
                  */
                 var opt = dataFactory.createReservation(
                     rid, customer_id, vehicle_id, begin, end, pickup, dropoff, status
-                );
+                ).map(r -> r.setVersion(version));
 
                 if(opt.isEmpty()) {
                     // log warning if no valid Reservation object could be created
                     // from database result set
-                    logger.warn(String.format("dropping reservation id: %d"));
+                    logger.warn(String.format("dropping reservation id: %d", rid));
                 }
                 return opt;
             })
@@ -290,6 +379,54 @@ class DataAccessImpl implements DataAccess {
     }
 
 
+    /**
+     * Run query that returns Reservations of a Customer joined with the
+     * reserved Vehicles in one statement:
+     * - query: SELECT R.*, V.* FROM RESERVATION R JOIN VEHICLE V
+     *   ON V.ID = R.VEHICLE_ID WHERE R.CUSTOMER_ID = ? ORDER BY R.BEGIN, R.ID;
+     * - projections are created directly from column values without creating
+     *   (and validating) Reservation and Vehicle entity objects.
+     * 
+     * @param customer_id id of owning Customer.
+     * @return Reservations with Vehicles of Customer in (BEGIN, ID) order.
+     */
+    @Override
+    public Iterable<ReservationWithVehicle> findReservationsWithVehicleByCustomerId(long customer_id) {
+        //
+        return jdbcTemplate.query(
+            "SELECT R.ID, R.VEHICLE_ID, R.BEGIN, R.END, R.PICKUP, R.DROPOFF, R.STATUS, " +
+                "V.MAKE, V.MODEL, V.SEATS, V.CATEGORY, V.POWER, V.STATUS AS VEHICLE_STATUS " +
+            "FROM RESERVATION R JOIN VEHICLE V ON V.ID = R.VEHICLE_ID " +
+            "WHERE R.CUSTOMER_ID = ? ORDER BY R.BEGIN, R.ID",
+
+            ps -> ps.setLong(1, customer_id),
+
+            (rs, rowNum) -> {
+                long vehicle_id = rs.getLong("VEHICLE_ID");
+                var vehicle = new ReservationWithVehicle.VehicleSummary(
+                    vehicle_id,
+                    rs.getString("MAKE"),
+                    rs.getString("MODEL"),
+                    rs.getInt("SEATS"),
+                    rs.getString("CATEGORY"),
+                    rs.getString("POWER"),
+                    rs.getString("VEHICLE_STATUS")
+                );
+                return new ReservationWithVehicle(
+                    rs.getLong("ID"),
+                    customer_id,
+                    vehicle_id,
+                    SqlDateTime.get(rs, "BEGIN"),
+                    SqlDateTime.get(rs, "END"),
+                    Locations.intern(rs.getString("PICKUP")),
+                    Locations.intern(rs.getString("DROPOFF")),
+                    rs.getString("STATUS"),
+                    vehicle
+                );
+            });
+    }
+
+
     /**
      * Generic method to return number of elements in Iterable<T>.
      * 
@@ -383,10 +520,13 @@ class DataAccessImpl implements DataAccess {
             throw new DataAccessException.Conflict("INSERT exception, id may exist: " + (int)attrs[0]);
         }
         //
-        return dataFactory.createCustomer(id, (String)attrs[1], (String)attrs[1], (String)attrs[3])
+        Customer created = dataFactory.createCustomer(id, (String)attrs[1], (String)attrs[2], (String)attrs[3])
             .map(c -> c)
             .orElseThrow(() ->
                 new DataAccessException.Conflict("failed to create object for id: " + (int)attrs[0]));
+        //
+        changeEvents.publish(ChangeEvent.created(Customer.class, created.getId(), created));
+        return created;
     }
 
 
@@ -409,8 +549,26 @@ class DataAccessImpl implements DataAccess {
      */
     @Override
     public boolean updateCustomer(Map<String, Object> map) throws DataAccessException {
+        return updateCustomer(map, -1L);
+    }
+
+
+    /**
+     * Attempt to UPDATE existing record in CUSTOMER table if its version
+     * matches, the version is incremented by every update.
+     * 
+     * @param map name-value pairs of Customer data.
+     * @param version expected version of the record, -1 to update any version.
+     * @return true if customer was updated sucessfully.
+     * @throws DataAccessException with error code (400 bad request, 404 not found,
+     *      412 precondition failed).
+     */
+    @Override
+    public boolean updateCustomer(Map<String, Object> map, long version) throws DataAccessException {
         //
-        String cols = "";
+        // new values by position in CUSTOMER_COLUMNS, null: not updated
+        final Object[] values = new Object[CUSTOMER_COLUMNS.length];
+        boolean cols = false;
         int id = -1;
         //
         // extract attributes from map
@@ -422,42 +580,47 @@ class DataAccessImpl implements DataAccess {
                     final Integer ID = parseNumber(map.get(key));
                     id = ID != null && ID >= 0? ID.intValue() : id;
                     if(id >= 0) {
-                        cols += (cols.length() > 0? ", " : "") + "ID=\"" + map.get(key) + "\"";
+                        values[0] = id;
+                        cols = true;
                     }
                     break;
                 //
-                case "NAME":    cols += (cols.length() > 0? ", " : "") + "NAME=\"" + map.get(key) + "\""; break;
-                case "CONTACT": cols += (cols.length() > 0? ", " : "") + "CONTACT=\"" + map.get(key) + "\""; break;
-                case "STATUS":  cols += (cols.length() > 0? ", " : "") + "STATUS=\"" + map.get(key) + "\""; break;
+                case "NAME":    values[1] = map.get(key); cols = true; break;
+                case "CONTACT": values[2] = map.get(key); cols = true; break;
+                case "STATUS":  values[3] = map.get(key); cols = true; break;
             }
         }
         // probe all values have been set
-        if(cols.length() > 0 && id >= 0) {
+        if( ! cols || id < 0)
+            throw new DataAccessException.BadRequest("incomplete attributes");
+        //
+        final boolean publish = changeEvents.hasSubscribers(Customer.class);
+        final long uid = id;
+        // images are read in the transaction of the update, the event is published after commit
+        return inTransaction(transactionTemplate, () -> {
+            Customer before = publish? lockCustomer(uid).orElse(null) : null;
             try {
                 //
-                final String fcols = cols;
-                final int fid = id;
-                int updated = jdbcTemplate.update(connection -> {
-                    PreparedStatement ps = connection
-                        .prepareStatement("UPDATE CUSTOMER SET " + fcols + " WHERE ID = ?;");
-                    ps.setInt(1, fid);
-                    return ps;
-                });
+                int updated = update(jdbcTemplate, "CUSTOMER", CUSTOMER_COLUMNS, values, uid, version);
                 //
+                if(updated != 1 && version >= 0) {
+                    versionMismatch("CUSTOMER", uid, version);
+                }
                 if(updated != 1) {
                     throw new DataAccessException.NotFound(
-                        String.format("id not found: %d, %d records updated", id, updated)
+                        String.format("id not found: %d, %d records updated", uid, updated)
                     );
                 }
             //
             } catch(org.springframework.dao.DataAccessException dax) {
                 throw new DataAccessException.BadRequest(dax.getMessage());
             }
-        //
-        } else {
-            throw new DataAccessException.BadRequest("incomplete attributes");
-        }
-        return true;
+            if(publish) {
+                changeEvents.publish(ChangeEvent.updated(Customer.class, uid, before,
+                    findCustomerById(uid).orElse(null)));
+            }
+            return true;
+        });
     }
 
 
@@ -476,26 +639,168 @@ class DataAccessImpl implements DataAccess {
         if(id < 0)
             throw new DataAccessException.BadRequest("invalid id: " + id);
         //
-        try {
-            //
-            int deleted = jdbcTemplate.update(connection -> {
-                PreparedStatement ps = connection
-                    .prepareStatement("DELETE FROM CUSTOMER WHERE ID = ?;");
-                ps.setInt(1, (int)id);
-                return ps;
-            });
+        final boolean publish = changeEvents.hasSubscribers(Customer.class);
+        return inTransaction(transactionTemplate, () -> {
+            Customer before = null;
+            try {
+                before = publish? lockCustomer(id).orElse(null) : null;
+                //
+                int deleted = jdbcTemplate.update(connection -> {
+                    PreparedStatement ps = connection
+                        .prepareStatement("DELETE FROM CUSTOMER WHERE ID = ?;");
+                    ps.setInt(1, (int)id);
+                    return ps;
+                });
+                //
+                if(deleted != 1) {
+                    throw new DataAccessException.NotFound(
+                        String.format("id not found: %d, %d records deleted", id, deleted)
+                    );
+                }
             //
-            if(deleted != 1) {
-                throw new DataAccessException.NotFound(
-                    String.format("id not found: %d, %d records deleted", id, deleted)
-                );
+            } catch(org.springframework.dao.DataAccessException dax) {
+                throw new DataAccessException.Conflict("conflict deleting item id: " +
+                            id + ", foreign key dependency may exist");
             }
+            changeEvents.publish(ChangeEvent.deleted(Customer.class, id, before));
+            return true;
+        });
+    }
+
+
+    /**
+     * Read Customer with id and lock its record until the end of the
+     * transaction, before image of an update or delete.
+     */
+    private Optional<Customer> lockCustomer(long id) {
+        return jdbcTemplate.query("SELECT * FROM CUSTOMER WHERE ID = ? FOR UPDATE",
+            (rs, rowNum) -> createCustomer(rs), id)
+            .stream().flatMap(Optional::stream).findFirst();
+    }
+
+
+    /**
+     * Create Customer object from data in ResultSet.
+     *
+     * @param rs SQL ResultSet containing all columns for a row.
+     * @return Optional<Customer>.
+     * @throws SQLException when columns cannot be read.
+     */
+    private Optional<Customer> createCustomer(ResultSet rs) throws SQLException {
+        long id = rs.getInt("ID");
+        String name = rs.getString("NAME");
+        String contact = rs.getString("CONTACT");
+        String status = rs.getString("STATUS");
+        long version = rs.getLong("VERSION");
         //
-        } catch(org.springframework.dao.DataAccessException dax) {
-            throw new DataAccessException.Conflict("conflict deleting item id: " +
-                        id + ", foreign key dependency may exist");
+        return dataFactory.createCustomer(id, name, contact, status).map(c -> c.setVersion(version));
+    }
+
+
+    /**
+     * Throw 412 precondition failed if a record with id exists in table with
+     * a version other than expected, return if no record exists.
+     */
+    static void versionMismatch(JdbcTemplate jdbcTemplate, String table, long id, long version) throws DataAccessException {
+        List<Long> current = jdbcTemplate.queryForList(
+            String.format("SELECT VERSION FROM %s WHERE ID = ?", table), Long.class, id);
+        if( ! current.isEmpty()) {
+            throw new DataAccessException.PreconditionFailed(
+                String.format("version mismatch, id: %d, expected version: %d, version: %d", id, version, current.get(0)));
+        }
+    }
+
+
+    /**
+     * Run parameterized UPDATE of columns that have non-null values, the
+     * VERSION of the record is incremented:
+     * - query: UPDATE table SET COL = ?, ..., VERSION = VERSION + 1 WHERE ID = ?
+     *     [AND VERSION = ?version];
+     * Columns are always set in the order of the columns array, updates of
+     * the same columns use the same SQL and share one cached prepared
+     * statement.
+     * 
+     * @param jdbcTemplate template to run the UPDATE.
+     * @param table table name, e.g. "CUSTOMER".
+     * @param columns column names.
+     * @param values new values by position in columns, null: column not updated.
+     * @param id id of updated record.
+     * @param version expected version of the record, -1 to update any version.
+     * @return number of updated records.
+     */
+    static int update(JdbcTemplate jdbcTemplate, String table, String[] columns, Object[] values, long id, long version) {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        List<Object> params = new ArrayList<Object>(columns.length + 2);
+        for(int i=0; i < columns.length; i++) {
+            if(values[i] != null) {
+                sql.append(columns[i]).append(" = ?, ");
+                params.add(values[i]);
+            }
+        }
+        sql.append("VERSION = VERSION + 1 WHERE ID = ?");
+        params.add(id);
+        if(version >= 0) {
+            sql.append(" AND VERSION = ?");
+            params.add(version);
+        }
+        return jdbcTemplate.update(sql.toString(), params.toArray());
+    }
+
+
+    /**
+     * Write that fails with a DataAccessException.
+     *
+     * @param <R> result type.
+     */
+    @FunctionalInterface
+    interface Write<R> {
+        R run() throws DataAccessException;
+    }
+
+
+    /**
+     * Run write in a transaction, e.g. with the reads of its before and after
+     * images. The transaction is rolled back when the write throws, events
+     * published by the write are delivered after commit.
+     *
+     * @param <R> result type.
+     * @param transactionTemplate template that runs the transaction.
+     * @param write write to run.
+     * @return result of write.
+     * @throws DataAccessException thrown by write.
+     */
+    static <R> R inTransaction(TransactionTemplate transactionTemplate, Write<R> write) throws DataAccessException {
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return write.run();
+                //
+                } catch(DataAccessException ex) {
+                    throw new RolledBack(ex);
+                }
+            });
+        //
+        } catch(RolledBack rb) {
+            throw rb.cause;
+        }
+    }
+
+
+    /**
+     * Carries a DataAccessException out of a transaction callback.
+     */
+    private static final class RolledBack extends RuntimeException {
+        private final DataAccessException cause;
+
+        RolledBack(DataAccessException cause) {
+            super(cause);
+            this.cause = cause;
         }
-        return true;
+    }
+
+
+    private void versionMismatch(String table, long id, long version) throws DataAccessException {
+        versionMismatch(jdbcTemplate, table, id, version);
     }
 
 
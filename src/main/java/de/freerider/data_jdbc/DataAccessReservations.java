@@ -1,7 +1,9 @@
 package de.freerider.data_jdbc;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import de.freerider.datamodel.Reservation;
 
@@ -14,15 +16,26 @@ import de.freerider.datamodel.Reservation;
 public interface DataAccessReservations {
 
     /**
-     * Run query that returns the number of Reservations in the database:
-     * - query: SELECT COUNT(ID) FROM Reservation;
-     * - returns number extracted from ResultSet.
+     * Return the number of Reservations in the database from counters maintained
+     * in memory (loaded once with SELECT STATUS, COUNT(*) FROM RESERVATION GROUP BY
+     * STATUS, then updated on creates and deletes through the DAO and
+     * reconciled periodically).
      * 
      * @return number of Reservation records in the database.
      */
     long countReservations();
 
 
+    /**
+     * Return the number of Reservations with status from counters maintained in
+     * memory, O(1).
+     * 
+     * @param status Reservation status.
+     * @return number of Reservation records with status.
+     */
+    long countReservationsByStatus(Reservation.Status status);
+
+
     /**
      * Run query that returns all Reservations in the database.
      * - query: SELECT * FROM Reservation;
@@ -33,6 +46,64 @@ public interface DataAccessReservations {
     Iterable<Reservation> findAllReservations();
 
 
+    /**
+     * Run query that streams all Reservations in the database to a consumer.
+     * - query: SELECT * FROM RESERVATION;
+     * - rows are read from a MySQL streaming result set (fetchSize:
+     *   Integer.MIN_VALUE) and passed to the consumer one at a time
+     *   without collecting them, memory use is constant regardless of
+     *   table size.
+     *
+     * The database connection is held until the last row was consumed.
+     *
+     * @param consumer receives Reservation objects in the order rows are read.
+     * @return number of Reservations passed to consumer.
+     */
+    long streamAllReservations(Consumer<Reservation> consumer);
+
+
+    /**
+     * Run query that returns one page of Reservations ordered by (BEGIN, ID),
+     * starting after a given (begin, id) position (keyset pagination):
+     * - query: SELECT * FROM RESERVATION
+     *     WHERE BEGIN >= ?after_begin AND (BEGIN > ?after_begin OR ID > ?after_id)
+     *     ORDER BY BEGIN, ID LIMIT ?limit;
+     * - BEGIN >= ?after_begin is the range predicate of the scan on the index
+     *   over (BEGIN, ID) created by db/migration/01_reservation_begin_id_index.sql,
+     *   the OR only skips rows at its start; MySQL does not range-optimize
+     *   the equivalent row comparison (BEGIN, ID) > (?, ?):
+     *     CREATE INDEX RESERVATION_BEGIN_ID ON RESERVATION (BEGIN, ID);
+     *
+     * @param after_begin begin of last Reservation of previous page (msec since
+     *        1970-01-01), -1 for first page.
+     * @param after_id id of last Reservation of previous page.
+     * @param limit maximum number of Reservations returned.
+     * @return Reservations following (after_begin, after_id) in (BEGIN, ID) order.
+     */
+    Iterable<Reservation> findReservationsAfter(long after_begin, long after_id, int limit);
+
+
+    /**
+     * Return one page of Reservations picking up at a location with begin in
+     * [from, to), ordered by (BEGIN, ID), starting after a (begin, id) position.
+     * Answered from an in-memory index by pickup location, equivalent to:
+     * - query: SELECT * FROM RESERVATION WHERE PICKUP = ?location
+     *     AND BEGIN >= ?from AND BEGIN < ?to
+     *     AND (BEGIN > ?after_begin OR (BEGIN = ?after_begin AND ID > ?after_id))
+     *     ORDER BY BEGIN, ID LIMIT ?limit;
+     *
+     * @param location pickup location.
+     * @param from lower bound of begin (msec since 1970-01-01).
+     * @param to upper bound of begin (exclusive).
+     * @param after_begin begin of last Reservation of previous page, -1 for first page.
+     * @param after_id id of last Reservation of previous page.
+     * @param limit maximum number of Reservations returned.
+     * @return matching Reservations in (BEGIN, ID) order.
+     */
+    Iterable<Reservation> findReservationsByPickup(String location, long from, long to,
+        long after_begin, long after_id, int limit);
+
+
     /**
      * Run query that returns one Reservations with a given id.
      * - query: SELECT * FROM Reservation WHERE ID = 145373;
@@ -81,6 +152,20 @@ public interface DataAccessReservations {
     Reservation createReservation(Map<String, Object> map) throws DataAccessException;
 
 
+    /**
+     * Attempt to INSERT a list of new Reservations (attributes as for
+     * createReservation()) with JDBC batch statements in chunks, one
+     * transaction per chunk. Invalid items do not prevent valid items from
+     * being inserted, the outcome of each item is returned:
+     * 201 created, 400 bad request (invalid attributes, customer or vehicle
+     * not found), 409 conflict (id exists).
+     * 
+     * @param maps list of name-value pairs of Reservation data.
+     * @return one result per item in order of maps.
+     */
+    List<BatchResult> createReservations(List<Map<String, Object>> maps);
+
+
     /**
      * Attempt to UPDATE existing record into Reservation table from attributes
      * provided by name-value pairs, e.g.:
@@ -101,6 +186,22 @@ public interface DataAccessReservations {
     boolean updateReservation(Map<String, Object> map) throws DataAccessException;
 
 
+    /**
+     * Attempt to UPDATE existing record in RESERVATION table if its version
+     * matches (optimistic concurrency), no lock is held between reading and
+     * updating the record:
+     * - query: UPDATE RESERVATION SET ..., VERSION = VERSION + 1
+     *     WHERE ID = ?id AND VERSION = ?version;
+     * 
+     * @param map name-value pairs of Reservation data.
+     * @param version expected version of the record, -1 to update any version.
+     * @return true if Reservation was updated sucessfully.
+     * @throws DataAccessException with error code (400 bad request, 404 not found,
+     *      409 conflict, 412 precondition failed (version mismatch)).
+     */
+    boolean updateReservation(Map<String, Object> map, long version) throws DataAccessException;
+
+
     /**
      * Delete Reservation record with id from Reservation table. An exception is
      * thrown with error code: 404 not found (id not found), 409 conflict
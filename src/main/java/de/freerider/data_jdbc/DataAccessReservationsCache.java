@@ -0,0 +1,137 @@
+package de.freerider.data_jdbc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import de.freerider.datamodel.Reservation;
+
+
+/**
+ * Non-public decorator of the Reservation DataAccess interface that serves
+ * lookups by id from a read-through cache. All other methods pass through
+ * to DataAccessReservationsImpl. Writes invalidate the cached Reservation.
+ *
+ * Status-only updates without expected version are queued by
+ * ReservationWriteBehind when write-behind is enabled, returned Reservations
+ * carry queued status (and version) until written.
+ *
+ * Marked as @Primary so it is injected wherever DataAccessReservations is
+ * autowired.
+ */
+@Primary
+@Component
+class DataAccessReservationsCache implements DataAccessReservations {
+
+    /**
+     * Implementation that accesses the database.
+     */
+    @Autowired
+    private DataAccessReservationsImpl delegate;
+
+    /**
+     * Holder of read-through caches.
+     */
+    @Autowired
+    private DataAccessCaches caches;
+
+    /**
+     * Queue of status-only updates written behind.
+     */
+    @Autowired
+    private ReservationWriteBehind writeBehind;
+
+
+    @Override
+    public long countReservations() {
+        return delegate.countReservations();
+    }
+
+    @Override
+    public long countReservationsByStatus(Reservation.Status status) {
+        return delegate.countReservationsByStatus(status);
+    }
+
+    @Override
+    public Iterable<Reservation> findAllReservations() {
+        return writeBehind.overlay(delegate.findAllReservations());
+    }
+
+    @Override
+    public long streamAllReservations(Consumer<Reservation> consumer) {
+        return delegate.streamAllReservations(r -> consumer.accept(writeBehind.overlay(r)));
+    }
+
+    @Override
+    public Iterable<Reservation> findReservationsAfter(long after_begin, long after_id, int limit) {
+        return writeBehind.overlay(delegate.findReservationsAfter(after_begin, after_id, limit));
+    }
+
+    @Override
+    public Iterable<Reservation> findReservationsByPickup(String location, long from, long to,
+            long after_begin, long after_id, int limit) {
+        return writeBehind.overlay(delegate.findReservationsByPickup(location, from, to, after_begin, after_id, limit));
+    }
+
+    @Override
+    public Optional<Reservation> findReservationById(long id) {
+        return caches.reservations.get(id, delegate::findReservationById).map(writeBehind::overlay);
+    }
+
+    @Override
+    public Iterable<Reservation> findAllReservationsById(Iterable<Long> ids) {
+        return writeBehind.overlay(caches.reservations.getAll(ids, delegate::findAllReservationsById, Reservation::getId));
+    }
+
+    @Override
+    public Reservation createReservation(Map<String, Object> map) throws DataAccessException {
+        Reservation reservation = delegate.createReservation(map);
+        caches.reservations.invalidate(reservation.getId());
+        return reservation;
+    }
+
+    @Override
+    public List<BatchResult> createReservations(List<Map<String, Object>> maps) {
+        List<BatchResult> results = delegate.createReservations(maps);
+        results.forEach(r -> caches.reservations.invalidate(r.id()));
+        return results;
+    }
+
+    @Override
+    public boolean updateReservation(Map<String, Object> map) throws DataAccessException {
+        return updateReservation(map, -1L);
+    }
+
+    @Override
+    public boolean updateReservation(Map<String, Object> map, long version) throws DataAccessException {
+        long id = EntityCache.idOf(map);
+        Object status = ReservationWriteBehind.statusOnly(map);
+        if(writeBehind.enabled() && status != null && id >= 0 && version < 0) {
+            Reservation current = findReservationById(id).orElseThrow(() ->
+                new DataAccessException.NotFound(String.format("id not found: %d", id)));
+            if(writeBehind.offer(current, status))
+                return true;
+        }
+        writeBehind.flush(id);
+        try {
+            return delegate.updateReservation(map, version);
+        } finally {
+            caches.reservations.invalidate(id);
+        }
+    }
+
+    @Override
+    public boolean deleteReservation(long id) throws DataAccessException {
+        writeBehind.flush(id);
+        try {
+            return delegate.deleteReservation(id);
+        } finally {
+            caches.reservations.invalidate(id);
+        }
+    }
+}
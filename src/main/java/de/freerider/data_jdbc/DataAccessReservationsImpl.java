@@ -1,22 +1,28 @@
 package de.freerider.data_jdbc;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
-import java.text.SimpleDateFormat;
+import java.sql.Timestamp;
 import java.sql.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.DateTimeCodec;
+import de.freerider.datamodel.Locations;
 import de.freerider.datamodel.Reservation;
 
 /**
@@ -25,9 +31,11 @@ import de.freerider.datamodel.Reservation;
 @Component
 public class DataAccessReservationsImpl  implements DataAccessReservations{
 
-    // Define the desired date-time format
-    SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-
+    /**
+     * Columns of RESERVATION set by updateReservation(), in SQL order.
+     */
+    private static final String[] RESERVATION_COLUMNS =
+        {"ID", "CUSTOMER_ID", "VEHICLE_ID", "BEGIN", "END", "PICKUP", "DROPOFF", "STATUS"};
 
     /**
      * Datafactory is a component that creates datamodel objects.
@@ -46,33 +54,70 @@ public class DataAccessReservationsImpl  implements DataAccessReservations{
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    /**
+     * Runs updates and deletes together with the reads of their before and
+     * after images.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Inserts lists of Reservations with JDBC batch statements.
+     */
+    @Autowired
+    private ReservationBatchInsert batchInsert;
+
+    /**
+     * Counters of records in the database, total and by status.
+     */
+    @Autowired
+    private EntityCounters counters;
+
+    /**
+     * Successful writes are published as ChangeEvents.
+     */
+    @Autowired
+    private ChangeEvents changeEvents;
+
+    /**
+     * Intervals of reserved vehicles, rejects overlapping bookings.
+     */
+    @Autowired
+    private ReservationIntervals intervals;
+
+    /**
+     * Reservations by pickup location and begin.
+     */
+    @Autowired
+    private ReservationLocations locations;
+
+    /**
+     * Parameterized, size-bucketed lookups: WHERE ID IN (?, ...).
+     */
+    private final BatchLookup batchLookup = new BatchLookup("RESERVATION");
+
 
     /**
-     * Run query that returns the number of Reservation in the database:
-     * - query: SELECT COUNT(ID) FROM RESERVATION;
-     * - returns number extracted from ResultSet.
+     * Return the number of Reservations in the database from maintained counters
+     * instead of running: SELECT COUNT(ID) FROM RESERVATION;
      * 
      * @return number of Reservation records in the database.
      */
     @Override
     public long countReservations() {
-        //
-        List<Object> result = jdbcTemplate.query(
-            /*
-             * Run SQL statement:
-             */
-            "SELECT COUNT(ID) FROM RESERVATION",
+        return counters.reservations.total();
+    }
 
-            /*
-             * Return ResultSet (rs) and extract COUNT value.
-             */
-            (rs, rowNum) -> {
-                long count = rs.getInt(1);  // index[1]
-                return count;
-            }
-        );
-        //
-        return result.size() > 0? (long)(result.get(0)) : 0;
+
+    /**
+     * Return the number of Reservations with status from maintained counters.
+     * 
+     * @param status Reservation status.
+     * @return number of Reservation records with status.
+     */
+    @Override
+    public long countReservationsByStatus(Reservation.Status status) {
+        return counters.reservations.count(status);
     }
 
 
@@ -98,24 +143,11 @@ public class DataAccessReservationsImpl  implements DataAccessReservations{
              * returned from the database or not (empty Optional is returned).
              */
             (rs, rowNum) -> {
-                /*
-                 * Extract values from ResultSet for each row.
-                 */
-                long id = rs.getInt("ID");
-                long customer_id = rs.getInt("CUSTOMER_ID");
-                long vehicle_id = rs.getInt("VEHICLE_ID");
-                String begin = rs.getString("BEGIN");
-                String end = rs.getString("END"); 
-                String pickup = rs.getString("PICKUP");
-                String dropoff = rs.getString("DROPOFF");
-                String status = rs.getString("STATUS");
-
-                
                 /*
                  * Attempt to create Reservation object through dataFactory,
                  * which returns Optional<Reservation>.
                  */
-                return dataFactory.createReservation(id,customer_id, vehicle_id, begin, end, pickup,dropoff, status);
+                return createReservation(rs);
             }
         )
         /*
@@ -130,6 +162,129 @@ public class DataAccessReservationsImpl  implements DataAccessReservations{
         return result;    
     }
 
+
+    /**
+     * Run query that streams all Reservations in the database to a consumer.
+     * - query: SELECT * FROM RESERVATION;
+     * - rows are read from a MySQL streaming result set and passed to the
+     *   consumer one at a time without collecting them.
+     *
+     * @param consumer receives Reservation objects in the order rows are read.
+     * @return number of Reservations passed to consumer.
+     */
+    @Override
+    public long streamAllReservations(Consumer<Reservation> consumer) {
+        //
+        Long count = jdbcTemplate.query(
+            JdbcStreams.streaming("SELECT * FROM RESERVATION"),
+            rs -> {
+                long n = 0;
+                while(rs.next()) {
+                    var opt = createReservation(rs);
+                    if(opt.isPresent()) {
+                        consumer.accept(opt.get());
+                        n++;
+                    }
+                }
+                return n;
+            }
+        );
+        return count != null? count : 0L;
+    }
+
+
+    /**
+     * Run query that returns one page of Reservations ordered by (BEGIN, ID),
+     * starting after a given (begin, id) position (keyset pagination):
+     * - query: SELECT * FROM RESERVATION
+     *     WHERE BEGIN >= ?after_begin AND (BEGIN > ?after_begin OR ID > ?after_id)
+     *     ORDER BY BEGIN, ID LIMIT ?limit;
+     * - range scan on index RESERVATION_BEGIN_ID from ?after_begin, see db/migration.
+     *
+     * @param after_begin begin of last Reservation of previous page (msec since
+     *        1970-01-01), -1 for first page.
+     * @param after_id id of last Reservation of previous page.
+     * @param limit maximum number of Reservations returned.
+     * @return Reservations following (after_begin, after_id) in (BEGIN, ID) order.
+     */
+    @Override
+    public Iterable<Reservation> findReservationsAfter(long after_begin, long after_id, int limit) {
+        //
+        List<Optional<Reservation>> result = after_begin < 0?
+            //
+            jdbcTemplate.query(
+                "SELECT * FROM RESERVATION ORDER BY BEGIN, ID LIMIT ?",
+                ps -> {
+                    ps.setInt(1, limit);
+                },
+                (rs, rowNum) -> createReservation(rs)
+            ) :
+            //
+            jdbcTemplate.query(
+                "SELECT * FROM RESERVATION WHERE BEGIN >= ? AND (BEGIN > ? OR ID > ?) " +
+                "ORDER BY BEGIN, ID LIMIT ?",
+                ps -> {
+                    ps.setTimestamp(1, new Timestamp(after_begin));
+                    ps.setTimestamp(2, new Timestamp(after_begin));
+                    ps.setLong(3, after_id);
+                    ps.setInt(4, limit);
+                },
+                (rs, rowNum) -> createReservation(rs)
+            );
+        //
+        return result.stream()
+            .filter(opt -> opt.isPresent())
+            .map(opt -> opt.get())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Return one page of Reservations picking up at a location with begin in
+     * [from, to), ordered by (BEGIN, ID). Ids are taken from the in-memory
+     * pickup location index, rows are read by id. Locations the index does
+     * not cover (Locations dictionary full) are queried directly.
+     * 
+     * @param location pickup location.
+     * @param from lower bound of begin (msec since 1970-01-01).
+     * @param to upper bound of begin (exclusive).
+     * @param after_begin begin of last Reservation of previous page, -1 for first page.
+     * @param after_id id of last Reservation of previous page.
+     * @param limit maximum number of Reservations returned.
+     * @return matching Reservations in (BEGIN, ID) order.
+     */
+    @Override
+    public Iterable<Reservation> findReservationsByPickup(String location, long from, long to,
+            long after_begin, long after_id, int limit) {
+        //
+        List<Long> ids = locations.find(location, from, to, after_begin, after_id, limit);
+        if(ids == null) {
+            // location not indexed (Locations dictionary full), the scan starts
+            // at the later of from and after_begin
+            return jdbcTemplate.query(
+                "SELECT * FROM RESERVATION WHERE PICKUP = ? AND BEGIN >= ? AND BEGIN < ? " +
+                "AND (BEGIN > ? OR ID > ?) ORDER BY BEGIN, ID LIMIT ?",
+                ps -> {
+                    ps.setString(1, location);
+                    ps.setTimestamp(2, new Timestamp(Math.max(from, after_begin)));
+                    ps.setTimestamp(3, new Timestamp(to));
+                    ps.setTimestamp(4, new Timestamp(Math.max(after_begin, 0L)));
+                    ps.setLong(5, after_begin < 0? Long.MIN_VALUE : after_id);
+                    ps.setInt(6, limit);
+                },
+                (rs, rowNum) -> createReservation(rs)
+            ).stream()
+                .filter(opt -> opt.isPresent())
+                .map(opt -> opt.get())
+                .collect(Collectors.toList());
+        }
+        Map<Long, Reservation> found = new HashMap<Long, Reservation>();
+        findAllReservationsById(ids).forEach(r -> found.put(r.getId(), r));
+        return ids.stream()
+            .map(found::get)
+            .filter(r -> r != null)
+            .collect(Collectors.toList());
+    }
+
     /**
      * Run query that returns one Reservations with a given id.
      * - query: SELECT * FROM RESERVATION WHERE ID = ?id;
@@ -154,21 +309,10 @@ public class DataAccessReservationsImpl  implements DataAccessReservations{
             },
 
             (rs, rowNum) -> {
-                /*
-                 * Extract values from ResultSet.
-                 */
-                long customer_id = rs.getInt("CUSTOMER_ID");
-                long vehicle_id = rs.getInt("VEHICLE_ID");
-                String begin = rs.getString("BEGIN");
-                
-                String end = rs.getString("END"); 
-                String pickup = rs.getString("PICKUP");
-                String dropoff = rs.getString("DROPOFF");
-                String status = rs.getString("STATUS");
                 /*
                  * Create Optional<Reservation> from values.
                  */
-                return dataFactory.createReservation(id,customer_id, vehicle_id, begin, end, pickup,dropoff, status);
+                return createReservation(rs);
             }
         );
         /*
@@ -180,7 +324,9 @@ public class DataAccessReservationsImpl  implements DataAccessReservations{
 
     /**
      * Run query that returns all Reservations with matching id in ids.
-     * - query: SELECT * FROM RESERVATION WHERE ID IN (145373, 201235, 351682);
+     * - query: SELECT * FROM RESERVATION WHERE ID IN (?, ?, ?, ?);
+     * - ids are deduplicated and sent in chunks padded to power-of-two
+     *   placeholder buckets, see BatchLookup.
      * - returns Reservation objects created from ResultSet rows.
      * 
      * @param ids Reservation ids (WHERE IN (?ids))
@@ -188,47 +334,8 @@ public class DataAccessReservationsImpl  implements DataAccessReservations{
      */
     @Override
     public Iterable<Reservation> findAllReservationsById(Iterable<Long> ids) {
-        /*
-         * Map ids (145373, 201235, 351682) to idsStr: "145373, 201235, 351682"
-         */
-        String idsStr = StreamSupport.stream(ids.spliterator(), false)
-            .map(id -> String.valueOf(id))
-            .collect(Collectors.joining(", "));
-        //
-        var result = jdbcTemplate.queryForStream(
-            /*
-             * Prepare statement (ps) with "?"-augmented SQL query.
-             */
-            String.format("SELECT * FROM RESERVATION WHERE ID IN (%s)", idsStr),
-
-            /*
-             * Extract values from ResultSet for each row.
-             */
-            (rs, rowNum) -> {
-                long id = rs.getInt("ID");
-                long customer_id = rs.getInt("CUSTOMER_ID");
-                long vehicle_id = rs.getInt("VEHICLE_ID");
-                String begin = rs.getString("BEGIN");
-                String end = rs.getString("END"); 
-                String pickup = rs.getString("PICKUP");
-                String dropoff = rs.getString("DROPOFF");
-                String status = rs.getString("STATUS");
-                /*
-                 * Create Optional<Reservation> from values.
-                 */
-                return dataFactory.createReservation(id,customer_id, vehicle_id, begin, end, pickup,dropoff, status);
-            }
-        )
-        /*
-         * Remove empty results from stream of Optional<Customer>,
-         * map remaining from Optional<Customer> to Customer and
-         * collect result.
-         */
-        .filter(opt -> opt.isPresent())
-        .map(opt -> opt.get())
-        .collect(Collectors.toList());
         //
-        return result;
+        return batchLookup.findAll(jdbcTemplate, ids, (rs, rowNum) -> createReservation(rs));
     }
 
     @Override
@@ -273,18 +380,37 @@ public class DataAccessReservationsImpl  implements DataAccessReservations{
             }
         }
 
+        Reservation created = dataFactory.createReservation(
+                ((Number) attrs[0]).longValue(),
+                ((Number) attrs[1]).longValue(),
+                ((Number) attrs[2]).longValue(),
+                (String) attrs[3],
+                (String) attrs[4],
+                (String) attrs[5],
+                (String) attrs[6],
+                (String) attrs[7]
+        ).orElseThrow(() ->
+                new DataAccessException.BadRequest("invalid attributes for id: " + (int)attrs[0]));
+
+        // claim interval of vehicle, rejects overlapping bookings (409)
+        final boolean claimed = ReservationIntervals.holdsVehicle(created.getStatus());
+        if (claimed) {
+            intervals.claim(created.getId(), created.getVehicleId(), created.getBegin(), created.getEnd());
+        }
+
         KeyHolder keyHolder = new GeneratedKeyHolder();
+        boolean done = false;
 
         try {
-            int created = jdbcTemplate.update(connection -> {
+            int inserted = jdbcTemplate.update(connection -> {
                 PreparedStatement ps = connection.prepareStatement(
                         "INSERT INTO RESERVATION (ID, CUSTOMER_ID, VEHICLE_ID, BEGIN, END, PICKUP, DROPOFF, STATUS) " +
                                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?);",
                         Statement.RETURN_GENERATED_KEYS);
 
-                ps.setLong(1, (Long) attrs[0]);  // ID
-                ps.setLong(2, (Long) attrs[1]);  // CUSTOMER_ID
-                ps.setLong(3, (Long) attrs[2]);  // VEHICLE_ID
+                ps.setLong(1, ((Number) attrs[0]).longValue());  // ID
+                ps.setLong(2, ((Number) attrs[1]).longValue());  // CUSTOMER_ID
+                ps.setLong(3, ((Number) attrs[2]).longValue());  // VEHICLE_ID
                 ps.setString(4, (String) attrs[3]);  // BEGIN
                 ps.setString(5, (String) attrs[4]);  // END
                 ps.setString(6, (String) attrs[5]);  // PICKUP
@@ -294,31 +420,48 @@ public class DataAccessReservationsImpl  implements DataAccessReservations{
                 return ps;
             }, keyHolder);
 
-            if (created != 1) {
+            if (inserted != 1) {
                 throw new DataAccessException.BadRequest(
-                        String.format("data record not created for id: %d, %d records created", id, created)
+                        String.format("data record not created for id: %d, %d records created", id, inserted)
                 );
             }
+            done = true;
         } catch (org.springframework.dao.DataAccessException dax) {
             throw new DataAccessException.Conflict("INSERT exception, id may exist: " + (int)attrs[0]);
+
+        } finally {
+            if (claimed && ! done) {
+                intervals.restore(created.getId(), null);
+            }
         }
 
-        return dataFactory.createReservation(
-                (Long) attrs[0],
-                (Long) attrs[1],
-                (Long) attrs[2],
-                (String) attrs[3],
-                (String) attrs[4],
-                (String) attrs[5],
-                (String) attrs[6],
-                (String) attrs[7]
-        ).orElseThrow(() ->
-                new DataAccessException.Conflict("failed to create object for id: " + (int)attrs[0]));
+        changeEvents.publish(ChangeEvent.created(Reservation.class, created.getId(), created));
+        return created;
+    }
+
+
+    /**
+     * Insert list of Reservations with JDBC batch statements, see
+     * ReservationBatchInsert.
+     *
+     * @param maps list of name-value pairs of Reservation data.
+     * @return one result per item in order of maps.
+     */
+    @Override
+    public List<BatchResult> createReservations(List<Map<String, Object>> maps) {
+        return batchInsert.insert(maps);
     }
 
     @Override
     public boolean updateReservation(Map<String, Object> map) throws DataAccessException {
-        StringBuilder cols = new StringBuilder();
+        return updateReservation(map, -1L);
+    }
+
+    @Override
+    public boolean updateReservation(Map<String, Object> map, long version) throws DataAccessException {
+        // new values by position in RESERVATION_COLUMNS, null: not updated
+        final Object[] values = new Object[RESERVATION_COLUMNS.length];
+        boolean cols = false;
         int id = -1;
 
         // Extract attributes from map
@@ -328,55 +471,80 @@ public class DataAccessReservationsImpl  implements DataAccessReservations{
                     final Integer ID = parseNumber(map.get(key));
                     id = (ID != null && ID >= 0) ? ID : id;
                     if (id >= 0) {
-                        cols.append(cols.length() > 0 ? ", " : "").append("ID=").append(map.get(key));
+                        values[0] = id;
+                        cols = true;
                     }
                     break;
-                case "CUSTOMER_ID":
-                    cols.append(cols.length() > 0 ? ", " : "").append("CUSTOMER_ID=").append(map.get(key));
-                    break;
-                case "VEHICLE_ID":
-                    cols.append(cols.length() > 0 ? ", " : "").append("VEHICLE_ID=").append(map.get(key));
-                    break;
-                case "BEGIN":
-                    cols.append(cols.length() > 0 ? ", " : "").append("BEGIN='").append(map.get(key)).append("'");
-                    break;
-                case "END":
-                    cols.append(cols.length() > 0 ? ", " : "").append("END='").append(map.get(key)).append("'");
-                    break;
-                case "PICKUP":
-                    cols.append(cols.length() > 0 ? ", " : "").append("PICKUP='").append(map.get(key)).append("'");
-                    break;
-                case "DROPOFF":
-                    cols.append(cols.length() > 0 ? ", " : "").append("DROPOFF='").append(map.get(key)).append("'");
-                    break;
-                case "STATUS":
-                    cols.append(cols.length() > 0 ? ", " : "").append("STATUS='").append(map.get(key)).append("'");
-                    break;
+                case "CUSTOMER_ID": values[1] = map.get(key); cols = true; break;
+                case "VEHICLE_ID":  values[2] = map.get(key); cols = true; break;
+                case "BEGIN":       values[3] = map.get(key); cols = true; break;
+                case "END":         values[4] = map.get(key); cols = true; break;
+                case "PICKUP":      values[5] = map.get(key); cols = true; break;
+                case "DROPOFF":     values[6] = map.get(key); cols = true; break;
+                case "STATUS":      values[7] = map.get(key); cols = true; break;
             }
         }
+        // new values of attributes that affect the interval of the vehicle
+        final Object vehicle = values[2], begin = values[3], end = values[4], status = values[7];
 
         // Probe all values have been set
-        if (cols.length() > 0 && id >= 0) {
-            try {
-                final String fcols = cols.toString();
-                final long fid = id;
-                int updated = jdbcTemplate.update(connection -> {
-                    PreparedStatement ps = connection.prepareStatement(
-                            "UPDATE RESERVATION SET " + fcols + " WHERE ID = ?;");
-                    ps.setLong(1, fid);
-                    return ps;
-                });
+        if (! cols || id < 0) {
+            throw new DataAccessException.BadRequest("incomplete attributes");
+        }
+        final boolean publish = changeEvents.hasSubscribers(Reservation.class);
+        // interval changes are always checked against the current record,
+        // whether or not ChangeEvents are published
+        final boolean moves = vehicle != null || begin != null || end != null || status != null;
+        final int uid = id;
+        // interval claimed by the update, restored unless the transaction commits
+        final ReservationIntervals.Interval[] previous = {null};
+        final boolean[] claimed = {false};
+        boolean done = false;
+        try {
+            // images are read in the transaction of the update, the event is published after commit
+            DataAccessImpl.inTransaction(transactionTemplate, () -> {
+                Reservation before = publish || moves ? lockReservation(uid).orElse(null) : null;
+                if (before != null && moves) {
+                    // claim new interval of vehicle, rejects overlapping bookings (409)
+                    try {
+                        Reservation.Status s = status != null ? Reservation.Status.valueOf(status.toString()) : before.getStatus();
+                        if (ReservationIntervals.holdsVehicle(s)) {
+                            long vid = vehicle != null ? ((Number) parseNumber(vehicle)).longValue() : before.getVehicleId();
+                            long b = begin != null ? DateTimeCodec.parse(begin.toString()) : before.getBegin();
+                            long e = end != null ? DateTimeCodec.parse(end.toString()) : before.getEnd();
+                            previous[0] = intervals.claimUpdate(uid, vid, b, e);
+                            claimed[0] = true;
+                        }
+                    } catch (IllegalArgumentException | NullPointerException ex) {
+                        throw new DataAccessException.BadRequest("invalid attributes: " + ex.getMessage());
+                    }
+                }
+                try {
+                    int updated = DataAccessImpl.update(jdbcTemplate, "RESERVATION", RESERVATION_COLUMNS, values, uid, version);
 
-                if (updated != 1) {
-                    throw new DataAccessException.NotFound(
-                            String.format("id not found: %d, %d records updated", id, updated)
-                    );
+                    if (updated != 1 && version >= 0) {
+                        DataAccessImpl.versionMismatch(jdbcTemplate, "RESERVATION", uid, version);
+                    }
+                    if (updated != 1) {
+                        throw new DataAccessException.NotFound(
+                                String.format("id not found: %d, %d records updated", uid, updated)
+                        );
+                    }
+                } catch (org.springframework.dao.DataAccessException dax) {
+                    throw new DataAccessException.BadRequest(dax.getMessage());
+                }
+                if (publish) {
+                    changeEvents.publish(ChangeEvent.updated(Reservation.class, uid, before,
+                            findReservationById(uid).orElse(null)));
                 }
-            } catch (org.springframework.dao.DataAccessException dax) {
-                throw new DataAccessException.BadRequest(dax.getMessage());
+                return true;
+            });
+            done = true;
+
+        } finally {
+            if (claimed[0] && ! done) {
+                intervals.restore(uid, previous[0]);
             }
-        } else {
-            throw new DataAccessException.BadRequest("incomplete attributes");
         }
         return true;
     }
@@ -387,28 +555,69 @@ public class DataAccessReservationsImpl  implements DataAccessReservations{
         if(id < 0)
             throw new DataAccessException.BadRequest("invalid id: " + id);
         //
-        try {
-            //
-            int deleted = jdbcTemplate.update(connection -> {
-                PreparedStatement ps = connection
-                    .prepareStatement("DELETE FROM RESERVATION WHERE ID = ?;");
-                ps.setInt(1, (int)id);
-                return ps;
-            });
+        final boolean publish = changeEvents.hasSubscribers(Reservation.class);
+        return DataAccessImpl.inTransaction(transactionTemplate, () -> {
+            Reservation before = null;
+            try {
+                before = publish? lockReservation(id).orElse(null) : null;
+                //
+                int deleted = jdbcTemplate.update(connection -> {
+                    PreparedStatement ps = connection
+                        .prepareStatement("DELETE FROM RESERVATION WHERE ID = ?;");
+                    ps.setInt(1, (int)id);
+                    return ps;
+                });
+                //
+                if(deleted != 1) {
+                    throw new DataAccessException.NotFound(
+                        String.format("id not found: %d, %d records deleted", id, deleted)
+                    );
+                }
             //
-            if(deleted != 1) {
-                throw new DataAccessException.NotFound(
-                    String.format("id not found: %d, %d records deleted", id, deleted)
-                );
+            } catch(org.springframework.dao.DataAccessException dax) {
+                throw new DataAccessException.Conflict("conflict deleting item id: " +
+                            id + ", foreign key dependency may exist");
             }
+            changeEvents.publish(ChangeEvent.deleted(Reservation.class, id, before));
+            return true;
+        });
+    }
+
+
+    /**
+     * Read Reservation with id and lock its record until the end of the
+     * transaction, before image of an update or delete.
+     */
+    private Optional<Reservation> lockReservation(long id) {
+        return jdbcTemplate.query("SELECT * FROM RESERVATION WHERE ID = ? FOR UPDATE",
+            (rs, rowNum) -> createReservation(rs), id)
+            .stream().flatMap(Optional::stream).findFirst();
+    }
+
+    /**
+     * Create Reservation object from data in ResultSet. DATETIME columns are
+     * read as msec since 1970-01-01 without String conversion.
+     *
+     * @param rs SQL ResultSet containing all columns for a row.
+     * @return Optional<Reservation>.
+     * @throws SQLException when columns cannot be read.
+     */
+    private Optional<Reservation> createReservation(ResultSet rs) throws SQLException {
+        long id = rs.getInt("ID");
+        long customer_id = rs.getInt("CUSTOMER_ID");
+        long vehicle_id = rs.getInt("VEHICLE_ID");
+        long begin = SqlDateTime.get(rs, "BEGIN");
+        long end = SqlDateTime.get(rs, "END");
+        String pickup = Locations.intern(rs.getString("PICKUP"));
+        String dropoff = Locations.intern(rs.getString("DROPOFF"));
+        String status = rs.getString("STATUS");
+        long version = rs.getLong("VERSION");
         //
-        } catch(org.springframework.dao.DataAccessException dax) {
-            throw new DataAccessException.Conflict("conflict deleting item id: " +
-                        id + ", foreign key dependency may exist");
-        }
-        return true;
+        return dataFactory.createReservation(id, customer_id, vehicle_id, begin, end, pickup, dropoff, status)
+            .map(r -> r.setVersion(version));
     }
 
+
     /**
      * Attempt to parse an Integer value from an object.
      * 
@@ -1,6 +1,7 @@
 package de.freerider.data_jdbc;
 
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import de.freerider.datamodel.Vehicle;
 
@@ -13,15 +14,26 @@ import de.freerider.datamodel.Vehicle;
 public interface DataAccessVehicles {
 
     /**
-     * Run query that returns the number of Vehicles in the database:
-     * - query: SELECT COUNT(ID) FROM VEHICLE;
-     * - returns number extracted from ResultSet.
+     * Return the number of Vehicles in the database from counters maintained
+     * in memory (loaded once with SELECT STATUS, COUNT(*) FROM VEHICLE GROUP BY
+     * STATUS, then updated on creates and deletes through the DAO and
+     * reconciled periodically).
      * 
      * @return number of Vehicle records in the database.
      */
     long countVehicles();
 
 
+    /**
+     * Return the number of Vehicles with status from counters maintained in
+     * memory, O(1).
+     * 
+     * @param status Vehicle status.
+     * @return number of Vehicle records with status.
+     */
+    long countVehiclesByStatus(Vehicle.Status status);
+
+
     /**
      * Run query that returns all Vehicles in the database.
      * - query: SELECT * FROM VEHICLE;
@@ -32,6 +44,67 @@ public interface DataAccessVehicles {
     Iterable<Vehicle> findAllVehicles();
 
 
+    /**
+     * Run query that streams all Vehicles in the database to a consumer.
+     * - query: SELECT * FROM VEHICLE;
+     * - rows are read from a MySQL streaming result set (fetchSize:
+     *   Integer.MIN_VALUE) and passed to the consumer one at a time
+     *   without collecting them.
+     *
+     * The database connection is held until the last row was consumed.
+     *
+     * @param consumer receives Vehicle objects in the order rows are read.
+     * @return number of Vehicles passed to consumer.
+     */
+    long streamAllVehicles(Consumer<Vehicle> consumer);
+
+
+    /**
+     * Run query that returns one page of Vehicles ordered by id, starting
+     * after a given id (keyset pagination):
+     * - query: SELECT * FROM VEHICLE WHERE ID > ?after_id ORDER BY ID LIMIT ?limit;
+     * - each page is a bounded range scan on the primary key, no OFFSET.
+     *
+     * @param after_id id of last Vehicle of previous page, -1 for first page.
+     * @param limit maximum number of Vehicles returned.
+     * @return Vehicles with id > after_id in ascending id order.
+     */
+    Iterable<Vehicle> findVehiclesAfter(long after_id, int limit);
+
+
+    /**
+     * Return Vehicles matching attributes from the in-memory vehicle catalog
+     * (bitmap intersections, no query), ordered by id, starting after a given
+     * id (keyset pagination).
+     *
+     * @param category required category or null for any.
+     * @param power required power source or null for any.
+     * @param status required status or null for any.
+     * @param seats minimum number of seats, 0 for any.
+     * @param after_id id of last Vehicle of previous page, -1 for first page.
+     * @param limit maximum number of Vehicles returned, &lt;= 0 for all.
+     * @return matching Vehicles with id &gt; after_id in ascending id order.
+     */
+    Iterable<Vehicle> findVehiclesByAttributes(Vehicle.Category category, Vehicle.Power power,
+        Vehicle.Status status, int seats, long after_id, int limit);
+
+
+    /**
+     * Return Active Vehicles that are not reserved (InquiryConfirmed, Booked)
+     * during [from, to) and match the given attributes, answered from the
+     * in-memory vehicle catalog and index of reserved intervals, no query.
+     *
+     * @param from begin of interval (msec since 1970-01-01).
+     * @param to end of interval (exclusive).
+     * @param category required category or null for any.
+     * @param power required power source or null for any.
+     * @param seats minimum number of seats, 0 for any.
+     * @return available Vehicles in order of id.
+     */
+    Iterable<Vehicle> findAvailableVehicles(long from, long to,
+        Vehicle.Category category, Vehicle.Power power, int seats);
+
+
     /**
      * Run query that returns one Vehicles with a given id.
      * - query: SELECT * FROM VEHICLE WHERE ID = 10;
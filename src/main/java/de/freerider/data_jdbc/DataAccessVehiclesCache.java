@@ -0,0 +1,83 @@
+package de.freerider.data_jdbc;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * Non-public decorator of the Vehicle DataAccess interface that serves
+ * lookups by id from a read-through cache. All other methods pass through
+ * to DataAccessVehiclesImpl.
+ *
+ * Marked as @Primary so it is injected wherever DataAccessVehicles is autowired.
+ */
+@Primary
+@Component
+class DataAccessVehiclesCache implements DataAccessVehicles {
+
+    /**
+     * Implementation that accesses the database.
+     */
+    @Autowired
+    private DataAccessVehiclesImpl delegate;
+
+    /**
+     * Holder of read-through caches.
+     */
+    @Autowired
+    private DataAccessCaches caches;
+
+
+    @Override
+    public long countVehicles() {
+        return delegate.countVehicles();
+    }
+
+    @Override
+    public long countVehiclesByStatus(Vehicle.Status status) {
+        return delegate.countVehiclesByStatus(status);
+    }
+
+    @Override
+    public Iterable<Vehicle> findAllVehicles() {
+        return delegate.findAllVehicles();
+    }
+
+    @Override
+    public long streamAllVehicles(Consumer<Vehicle> consumer) {
+        return delegate.streamAllVehicles(consumer);
+    }
+
+    @Override
+    public Iterable<Vehicle> findVehiclesAfter(long after_id, int limit) {
+        return delegate.findVehiclesAfter(after_id, limit);
+    }
+
+    @Override
+    public Iterable<Vehicle> findVehiclesByAttributes(Vehicle.Category category, Vehicle.Power power,
+            Vehicle.Status status, int seats, long after_id, int limit) {
+        return delegate.findVehiclesByAttributes(category, power, status, seats, after_id, limit);
+    }
+
+    @Override
+    public Iterable<Vehicle> findAvailableVehicles(long from, long to,
+            Vehicle.Category category, Vehicle.Power power, int seats) {
+        return delegate.findAvailableVehicles(from, to, category, power, seats);
+    }
+
+    @Override
+    public Optional<Vehicle> findVehicleById(long id) {
+        return caches.vehicles.get(id, delegate::findVehicleById);
+    }
+
+    @Override
+    public Iterable<Vehicle> findAllVehiclesById(Iterable<Long> ids) {
+        return caches.vehicles.getAll(ids, delegate::findAllVehiclesById, Vehicle::getId);
+    }
+}
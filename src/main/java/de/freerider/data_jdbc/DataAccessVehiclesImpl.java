@@ -4,8 +4,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -34,24 +34,51 @@ class DataAccessVehiclesImpl implements DataAccessVehicles {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    /**
+     * Counters of records in the database, total and by status.
+     */
+    @Autowired
+    private EntityCounters counters;
+
+    /**
+     * In-memory catalog of Vehicles for attribute filters.
+     */
+    @Autowired
+    private VehicleCatalog catalog;
+
+    /**
+     * Index of reserved intervals per vehicle.
+     */
+    @Autowired
+    private ReservationIntervals intervals;
 
     /**
-     * Run query that returns the number of Vehicles in the database:
-     * - query: SELECT COUNT(ID) FROM VEHICLE;
-     * - returns number extracted from ResultSet.
+     * Parameterized, size-bucketed lookups: WHERE ID IN (?, ...).
+     */
+    private final BatchLookup batchLookup = new BatchLookup("VEHICLE");
+
+
+    /**
+     * Return the number of Vehicles in the database from maintained counters
+     * instead of running: SELECT COUNT(ID) FROM VEHICLE;
      * 
      * @return number of Vehicle records in the database.
      */
     @Override
     public long countVehicles() {
-        List<Object> result = jdbcTemplate.query(
-            "SELECT COUNT(ID) FROM VEHICLE",
-            (rs, rowNum) -> {
-                long count = rs.getInt(1);  // index[1]
-                return count;
-            }
-        );
-        return result.size() > 0? (long)(result.get(0)) : 0;
+        return counters.vehicles.total();
+    }
+
+
+    /**
+     * Return the number of Vehicles with status from maintained counters.
+     * 
+     * @param status Vehicle status.
+     * @return number of Vehicle records with status.
+     */
+    @Override
+    public long countVehiclesByStatus(Vehicle.Status status) {
+        return counters.vehicles.count(status);
     }
 
 
@@ -75,6 +102,107 @@ class DataAccessVehiclesImpl implements DataAccessVehicles {
     }
 
 
+    /**
+     * Run query that streams all Vehicles in the database to a consumer.
+     * - query: SELECT * FROM VEHICLE;
+     * - rows are read from a MySQL streaming result set and passed to the
+     *   consumer one at a time without collecting them.
+     *
+     * @param consumer receives Vehicle objects in the order rows are read.
+     * @return number of Vehicles passed to consumer.
+     */
+    @Override
+    public long streamAllVehicles(Consumer<Vehicle> consumer) {
+        //
+        Long count = jdbcTemplate.query(
+            JdbcStreams.streaming("SELECT * FROM VEHICLE"),
+            rs -> {
+                long n = 0;
+                while(rs.next()) {
+                    var opt = createVehicle(rs);
+                    if(opt.isPresent()) {
+                        consumer.accept(opt.get());
+                        n++;
+                    }
+                }
+                return n;
+            }
+        );
+        return count != null? count : 0L;
+    }
+
+
+    /**
+     * Run query that returns one page of Vehicles ordered by id, starting
+     * after a given id (keyset pagination):
+     * - query: SELECT * FROM VEHICLE WHERE ID > ?after_id ORDER BY ID LIMIT ?limit;
+     *
+     * @param after_id id of last Vehicle of previous page, -1 for first page.
+     * @param limit maximum number of Vehicles returned.
+     * @return Vehicles with id > after_id in ascending id order.
+     */
+    @Override
+    public Iterable<Vehicle> findVehiclesAfter(long after_id, int limit) {
+        //
+        return jdbcTemplate.query(
+            "SELECT * FROM VEHICLE WHERE ID > ? ORDER BY ID LIMIT ?",
+            ps -> {
+                ps.setLong(1, after_id);
+                ps.setInt(2, limit);
+            },
+            (rs, rowNum) -> createVehicle(rs)
+        )
+        .stream()
+        .filter(opt -> opt.isPresent())
+        .map(opt -> opt.get())
+        .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Return Vehicles matching attributes from the catalog, which intersects
+     * bitmaps of the attribute values, ordered by id after after_id.
+     *
+     * @param category required category or null for any.
+     * @param power required power source or null for any.
+     * @param status required status or null for any.
+     * @param seats minimum number of seats, 0 for any.
+     * @param after_id id of last Vehicle of previous page, -1 for first page.
+     * @param limit maximum number of Vehicles returned, &lt;= 0 for all.
+     * @return matching Vehicles with id &gt; after_id in ascending id order.
+     */
+    @Override
+    public Iterable<Vehicle> findVehiclesByAttributes(Vehicle.Category category, Vehicle.Power power,
+            Vehicle.Status status, int seats, long after_id, int limit) {
+        //
+        var filter = new VehicleCatalog.Filter(category, power, status, seats);
+        return catalog.find(filter, id -> id > after_id).stream()
+            .limit(limit > 0? limit : Long.MAX_VALUE)
+            .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Return Active Vehicles matching attributes that are not reserved during
+     * [from, to): the catalog filters attributes, each match is tested with
+     * a binary search in the reserved intervals of the vehicle.
+     *
+     * @param from begin of interval (msec since 1970-01-01).
+     * @param to end of interval (exclusive).
+     * @param category required category or null for any.
+     * @param power required power source or null for any.
+     * @param seats minimum number of seats, 0 for any.
+     * @return available Vehicles in order of id.
+     */
+    @Override
+    public Iterable<Vehicle> findAvailableVehicles(long from, long to,
+            Vehicle.Category category, Vehicle.Power power, int seats) {
+        //
+        var filter = new VehicleCatalog.Filter(category, power, Vehicle.Status.Active, seats);
+        return catalog.find(filter, id -> intervals.findOverlap(id, from, to) < 0);
+    }
+
+
     /**
      * Run query that returns one Vehicles with a given id.
      * - query: SELECT * FROM VEHICLE WHERE ID = 10;
@@ -98,7 +226,9 @@ class DataAccessVehiclesImpl implements DataAccessVehicles {
 
     /**
      * Run query that returns all Vehicles with matching id in ids.
-     * - query: SELECT * FROM VEHICLE WHERE ID IN (10, 20, 30000, 40);
+     * - query: SELECT * FROM VEHICLE WHERE ID IN (?, ?, ?, ?);
+     * - ids are deduplicated and sent in chunks padded to power-of-two
+     *   placeholder buckets, see BatchLookup.
      * - returns Vehicle objects created from ResultSet rows.
      * 
      * @param ids Vehicle ids (WHERE IN (?ids))
@@ -106,22 +236,8 @@ class DataAccessVehiclesImpl implements DataAccessVehicles {
      */
     @Override
     public Iterable<Vehicle> findAllVehiclesById(Iterable<Long> ids) {
-        /*
-         * Map ids (23, 48, 96) to idsStr: "23, 48, 96"
-         */
-        String idsStr = StreamSupport.stream(ids.spliterator(), false)
-            .map(id -> String.valueOf(id))
-            .collect(Collectors.joining(", "));
         //
-        return jdbcTemplate.queryForStream(
-            //
-            String.format("SELECT * FROM VEHICLE WHERE ID IN (%s)", idsStr),
-            //
-            (rs, rowNum) -> createVehicle(rs)
-        )
-        .filter(opt -> opt.isPresent())
-        .map(opt -> opt.get())
-        .collect(Collectors.toList());
+        return batchLookup.findAll(jdbcTemplate, ids, (rs, rowNum) -> createVehicle(rs));
     }
 
 
@@ -0,0 +1,183 @@
+package de.freerider.data_jdbc;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+
+/**
+ * Non-public read-through cache of entity objects by id.
+ *
+ * The cache is bounded in size (W-TinyLFU eviction) and objects expire a
+ * fixed time after they were loaded. Concurrent lookups of the same id
+ * are single-flight: only one thread loads the object from the database
+ * while other threads wait for the result.
+ *
+ * Only objects found in the database are cached, lookups for missing ids
+ * always reach the database. When disabled, all calls pass through to
+ * the loader.
+ *
+ * @param <T> type of cached entity objects.
+ */
+final class EntityCache<T> {
+
+    /**
+     * Cache name used in metrics, e.g. "customers".
+     */
+    private final String name;
+
+    /**
+     * Caffeine cache or null when caching is disabled.
+     */
+    private final Cache<Long, T> cache;
+
+    /**
+     * Maximum number of cached objects.
+     */
+    private final long maxSize;
+
+    /**
+     * Time objects remain in the cache after they were loaded.
+     */
+    private final Duration ttl;
+
+
+    /**
+     * Constructor.
+     *
+     * @param name cache name used in metrics.
+     * @param enabled false creates a pass-through cache.
+     * @param maxSize maximum number of cached objects.
+     * @param ttl time objects remain in the cache after loading.
+     */
+    EntityCache(String name, boolean enabled, long maxSize, Duration ttl) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.cache = enabled?
+            Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build() : null;
+    }
+
+
+    /**
+     * @return cache name.
+     */
+    String name() {
+        return name;
+    }
+
+
+    /**
+     * @return true if caching is enabled.
+     */
+    boolean enabled() {
+        return cache != null;
+    }
+
+
+    /**
+     * Return object with id from cache or load it.
+     *
+     * @param id id of object.
+     * @param loader loads object from the database, e.g. dao::findVehicleById.
+     * @return Optional with object or empty if not found.
+     */
+    Optional<T> get(long id, LongFunction<Optional<T>> loader) {
+        if(cache == null)
+            return loader.apply(id);
+        //
+        return Optional.ofNullable(cache.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+
+    /**
+     * Return objects with ids from cache, load missing ids with one call of
+     * the bulk loader.
+     *
+     * @param ids ids of objects.
+     * @param loader loads objects for missing ids, e.g. dao::findAllVehiclesById.
+     * @param idOf returns id of an object, e.g. Vehicle::getId.
+     * @return objects found for ids.
+     */
+    Iterable<T> getAll(Iterable<Long> ids, Function<Iterable<Long>, Iterable<T>> loader, ToLongFunction<T> idOf) {
+        if(cache == null)
+            return loader.apply(ids);
+        //
+        Map<Long, T> found = cache.getAll(ids, missing -> {
+            Map<Long, T> loaded = new LinkedHashMap<Long, T>();
+            loader.apply(new ArrayList<Long>(missing)).forEach(obj -> loaded.put(idOf.applyAsLong(obj), obj));
+            return loaded;
+        });
+        return new ArrayList<T>(found.values());
+    }
+
+
+    /**
+     * Remove object with id from the cache after it was changed or deleted.
+     *
+     * @param id id of object.
+     */
+    void invalidate(long id) {
+        if(cache != null && id >= 0) {
+            cache.invalidate(id);
+        }
+    }
+
+
+    /**
+     * Return cache counters: size, hits, misses, evictions, loads.
+     *
+     * @return counters as name-value pairs.
+     */
+    Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        m.put("enabled", cache != null);
+        if(cache != null) {
+            var stats = cache.stats();
+            m.put("maxSize", maxSize);
+            m.put("ttlSeconds", ttl.toSeconds());
+            m.put("size", cache.estimatedSize());
+            m.put("hits", stats.hitCount());
+            m.put("misses", stats.missCount());
+            m.put("hitRate", stats.hitRate());
+            m.put("evictions", stats.evictionCount());
+            m.put("loads", stats.loadCount());
+            m.put("loadFailures", stats.loadFailureCount());
+            m.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        }
+        return m;
+    }
+
+
+    /**
+     * Extract id from name-value pairs passed to create/update methods.
+     *
+     * @param map name-value pairs, e.g. {"id": 1, ...}.
+     * @return id or -1 if no valid id is present.
+     */
+    static long idOf(Map<String, Object> map) {
+        for(var e : map.entrySet()) {
+            if("ID".equalsIgnoreCase(e.getKey())) {
+                Object v = e.getValue();
+                if(v instanceof Number)
+                    return ((Number)v).longValue();
+                try {
+                    return v != null? Long.parseLong(v.toString()) : -1L;
+                } catch(NumberFormatException ex) { }
+            }
+        }
+        return -1L;
+    }
+}
@@ -0,0 +1,254 @@
+package de.freerider.data_jdbc;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import de.freerider.datamodel.Customer;
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * Non-public component that maintains the number of Customers, Vehicles and
+ * Reservations (total and by status) in memory, replacing COUNT(ID) scans.
+ *
+ * Counters are loaded once from the database on first use:
+ * <pre>
+ *  SELECT STATUS, COUNT(*) FROM RESERVATION GROUP BY STATUS;
+ * </pre>
+ * are then updated from ChangeEvents of successful creates, updates and
+ * deletes through the DAO, and are reconciled with the database periodically
+ * (application.counters.reconcile-interval) to correct drift from writes
+ * that bypass the DAO.
+ */
+@Component
+class EntityCounters implements Metrics {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(EntityCounters.class);
+
+    /**
+     * JdbcTemplate for loading and reconciling counters.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    final StatusCounter<Customer, Customer.Status> customers =
+        new StatusCounter<>("CUSTOMER", Customer.Status.class, Customer::getStatus);
+
+    final StatusCounter<Vehicle, Vehicle.Status> vehicles =
+        new StatusCounter<>("VEHICLE", Vehicle.Status.class, Vehicle::getStatus);
+
+    final StatusCounter<Reservation, Reservation.Status> reservations =
+        new StatusCounter<>("RESERVATION", Reservation.Status.class, Reservation::getStatus);
+
+
+    /**
+     * Constructor, subscribes counters to ChangeEvents.
+     *
+     * @param jdbcTemplate JdbcTemplate for loading and reconciling counters.
+     * @param changeEvents source of ChangeEvents.
+     */
+    EntityCounters(JdbcTemplate jdbcTemplate, ChangeEvents changeEvents) {
+        this.jdbcTemplate = jdbcTemplate;
+        changeEvents.subscribe(Customer.class, customers::apply);
+        changeEvents.subscribe(Vehicle.class, vehicles::apply);
+        changeEvents.subscribe(Reservation.class, reservations::apply);
+    }
+
+
+    /**
+     * Reconcile loaded counters with the database, called periodically.
+     */
+    @Scheduled(
+        initialDelayString="${application.counters.reconcile-interval:PT5M}",
+        fixedDelayString="${application.counters.reconcile-interval:PT5M}")
+    void reconcile() {
+        for(var counter : new StatusCounter<?, ?>[] {customers, vehicles, reservations}) {
+            if(counter.loader.loaded()) {
+                try {
+                    counter.load(jdbcTemplate);
+                //
+                } catch(org.springframework.dao.DataAccessException dax) {
+                    logger.warn(String.format("reconcile %s counters failed: %s", counter.table, dax.getMessage()));
+                }
+            }
+        }
+    }
+
+
+    @Override
+    public String metricsName() {
+        return "counters";
+    }
+
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        m.put("customers", customers.metrics());
+        m.put("vehicles", vehicles.metrics());
+        m.put("reservations", reservations.metrics());
+        return m;
+    }
+
+
+    /**
+     * Total and per-status counter of one table.
+     *
+     * @param <T> entity type.
+     * @param <S> status enum type of entity.
+     */
+    final class StatusCounter<T, S extends Enum<S>> {
+
+        private final String table;
+        private final S[] statuses;
+        private final Function<T, S> statusOf;
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLongArray byStatus;
+
+        /**
+         * Number of reconciliations that found counters differing from the database.
+         */
+        private final AtomicLong corrections = new AtomicLong();
+
+        private final IndexLoader<T> loader;
+
+
+        StatusCounter(String table, Class<S> statusType, Function<T, S> statusOf) {
+            this.table = table;
+            this.statuses = statusType.getEnumConstants();
+            this.statusOf = statusOf;
+            this.byStatus = new AtomicLongArray(statuses.length);
+            this.loader = new IndexLoader<T>(logger, table.toLowerCase(Locale.ROOT) + " counters",
+                () -> load(jdbcTemplate), this::applyLoaded);
+        }
+
+
+        /**
+         * @return number of records in table.
+         */
+        long total() {
+            ensureLoaded();
+            return total.get();
+        }
+
+
+        /**
+         * @param status status to count.
+         * @return number of records with status.
+         */
+        long count(S status) {
+            ensureLoaded();
+            return byStatus.get(status.ordinal());
+        }
+
+
+        /**
+         * Update counters from ChangeEvent of a successful write.
+         *
+         * @param event ChangeEvent.
+         */
+        void apply(ChangeEvent<T> event) {
+            loader.apply(event);
+        }
+
+
+        private void applyLoaded(ChangeEvent<T> event) {
+            switch(event.op()) {
+            case Create:
+                total.incrementAndGet();
+                add(event.after(), 1);
+                break;
+            case Update:
+                add(event.before(), -1);
+                add(event.after(), 1);
+                break;
+            case Delete:
+                total.decrementAndGet();
+                add(event.before(), -1);
+                break;
+            }
+        }
+
+
+        private void add(T obj, int delta) {
+            S status = obj != null? statusOf.apply(obj) : null;
+            if(status != null) {
+                byStatus.addAndGet(status.ordinal(), delta);
+            }
+        }
+
+
+        private void ensureLoaded() {
+            loader.ensureLoaded();
+        }
+
+
+        /**
+         * Load counters from the database. The snapshot is discarded and
+         * loading repeated when ChangeEvents were applied while querying.
+         *
+         * @param jdbcTemplate JdbcTemplate to run query.
+         */
+        void load(JdbcTemplate jdbcTemplate) {
+            // counts by status ordinal, total in the last element
+            loader.loadSnapshot(() -> {
+                long[] counts = new long[statuses.length + 1];
+                jdbcTemplate.query(
+                    String.format("SELECT STATUS, COUNT(*) FROM %s GROUP BY STATUS", table),
+                    rs -> {
+                        String name = rs.getString(1);
+                        long n = rs.getLong(2);
+                        counts[statuses.length] += n;
+                        for(S s : statuses) {
+                            if(s.name().equalsIgnoreCase(name)) {
+                                counts[s.ordinal()] += n;
+                            }
+                        }
+                    });
+                return counts;
+            }, counts -> {
+                boolean loaded = loader.loaded();
+                boolean drift = loaded && total.get() != counts[statuses.length];
+                for(int i=0; i < statuses.length; i++) {
+                    drift |= loaded && byStatus.get(i) != counts[i];
+                    byStatus.set(i, counts[i]);
+                }
+                total.set(counts[statuses.length]);
+                if(drift) {
+                    corrections.incrementAndGet();
+                }
+            });
+        }
+
+
+        Map<String, Object> metrics() {
+            Map<String, Object> m = new LinkedHashMap<String, Object>();
+            boolean loaded = loader.loaded();
+            m.put("loaded", loaded);
+            if(loaded) {
+                m.put("total", total.get());
+                Map<String, Object> bs = new LinkedHashMap<String, Object>();
+                for(S s : statuses) {
+                    bs.put(s.name(), byStatus.get(s.ordinal()));
+                }
+                m.put("byStatus", bs);
+            }
+            m.put("changes", loader.changes());
+            m.put("corrections", corrections.get());
+            return m;
+        }
+    }
+}
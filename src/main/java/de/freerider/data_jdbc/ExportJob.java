@@ -0,0 +1,343 @@
+package de.freerider.data_jdbc;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import de.freerider.datamodel.DateTimeCodec;
+
+
+/**
+ * Non-public bulk export of one table into gzip-compressed segment files.
+ *
+ * Rows are read in order of ID from a MySQL streaming result set (see
+ * JdbcStreams) and written column by column, no entity objects or lists
+ * are created. Every segmentRows rows, the current segment file is closed
+ * and renamed from ".part" to its final name, finished segments can be
+ * downloaded while the export continues:
+ * <pre>
+ *  export/17-reservations/reservations-00000.ndjson.gz
+ *  export/17-reservations/reservations-00001.ndjson.gz
+ *  export/17-reservations/reservations-00002.ndjson.gz.part  (being written)
+ * </pre>
+ * Rows use the attribute names of imports (ImportTable), DATETIME columns
+ * are formatted as "yyyy-MM-dd HH:mm:ss", exported files can be imported.
+ *
+ * A failed export is resumed after the last id of its last finished
+ * segment, finished segments are kept.
+ */
+final class ExportJob {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ExportJob.class);
+
+    /**
+     * Writes NDJSON rows, no separator between root values (rows end with '\n').
+     */
+    private static final JsonFactory jsonFactory = new JsonFactory().setRootValueSeparator(null);
+
+    final long id;
+    final ImportTable table;
+    final ImportJob.Format format;
+
+    private final Path directory;
+    private final int segmentRows;
+
+    /**
+     * Finished segments, appended by the export thread, read by status().
+     */
+    private final List<ExportStatus.Segment> segments = new CopyOnWriteArrayList<ExportStatus.Segment>();
+
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private volatile long startNanos = System.nanoTime();
+    private volatile long endNanos = -1L;
+    private volatile long rowsAtStart;
+    private volatile ExportStatus.State state = ExportStatus.State.Running;
+    private volatile String error;
+
+    /*
+     * Segment being written by the export thread.
+     */
+    private Path part;
+    private Writer out;
+    private JsonGenerator json;
+    private long segmentRowCount;
+    private long firstId;
+    private long lastId;
+
+
+    /**
+     * Constructor.
+     *
+     * @param id id of export.
+     * @param table table to export.
+     * @param format format of rows.
+     * @param directory directory of segment files (created).
+     * @param segmentRows maximum number of rows per segment.
+     */
+    ExportJob(long id, ImportTable table, ImportJob.Format format, Path directory, int segmentRows) {
+        this.id = id;
+        this.table = table;
+        this.format = format;
+        this.directory = directory;
+        this.segmentRows = Math.max(1, segmentRows);
+    }
+
+
+    /**
+     * Mark export as running before it is (re-)submitted to run.
+     */
+    void start() {
+        startNanos = System.nanoTime();
+        endNanos = -1L;
+        rowsAtStart = rowsWritten.get();
+        state = ExportStatus.State.Running;
+        error = null;
+    }
+
+
+    /**
+     * Run export in the calling thread, after the last finished segment
+     * when resumed.
+     *
+     * @param jdbcTemplate runs the streaming query.
+     */
+    void run(JdbcTemplate jdbcTemplate) {
+        long after = segments.isEmpty()? Long.MIN_VALUE : segments.get(segments.size() - 1).lastId();
+        try {
+            Files.createDirectories(directory);
+            jdbcTemplate.query(JdbcStreams.streaming(
+                String.format("SELECT * FROM %s WHERE ID > ? ORDER BY ID", table.table), after),
+                (ResultSet rs) -> { write(rs); });
+            closeSegment();
+            state = ExportStatus.State.Completed;
+        //
+        } catch(IOException | RuntimeException ex) {
+            abortSegment();
+            error = ex.getMessage();
+            state = ExportStatus.State.Failed;
+        //
+        } finally {
+            endNanos = System.nanoTime();
+            logger.info(String.format("export %d %s: %s, rows: %d, segments: %d, bytes: %d, %.0f rows/sec",
+                id, table, state, rowsWritten.get(), segments.size(), bytesWritten.get(), rowsPerSecond()));
+        }
+    }
+
+
+    /**
+     * Return snapshot of progress.
+     *
+     * @return current status.
+     */
+    ExportStatus status() {
+        return new ExportStatus(id, table.name(), format.name().toLowerCase(), state,
+            rowsWritten.get(), bytesWritten.get(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos()),
+            rowsPerSecond(), error, List.copyOf(segments));
+    }
+
+
+    /**
+     * Return path of finished segment.
+     *
+     * @param index index of segment.
+     * @return path of segment file or null if segment is not finished.
+     */
+    Path segment(int index) {
+        List<ExportStatus.Segment> s = segments;
+        return index >= 0 && index < s.size()? directory.resolve(s.get(index).file()) : null;
+    }
+
+
+    /**
+     * Write current row of result set, switch segment when full.
+     */
+    private void write(ResultSet rs) throws SQLException {
+        try {
+            if(out == null) {
+                openSegment();
+            }
+            long rowId = rs.getLong("ID");
+            if(segmentRowCount == 0) {
+                firstId = rowId;
+            }
+            if(format == ImportJob.Format.CSV) {
+                writeCsv(rs);
+            } else {
+                writeJson(rs);
+            }
+            lastId = rowId;
+            rowsWritten.incrementAndGet();
+            if(++segmentRowCount >= segmentRows) {
+                closeSegment();
+            }
+        } catch(IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+
+    private void writeJson(ResultSet rs) throws SQLException, IOException {
+        json.writeStartObject();
+        for(String column : table.columns) {
+            String name = column.toLowerCase();
+            switch(kind(column)) {
+                case 'n': json.writeNumberField(name, rs.getLong(column)); break;
+                case 'd': json.writeStringField(name, datetime(rs, column)); break;
+                default:  json.writeStringField(name, rs.getString(column)); break;
+            }
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+
+    private void writeCsv(ResultSet rs) throws SQLException, IOException {
+        for(int k=0; k < table.columns.length; k++) {
+            String column = table.columns[k];
+            if(k > 0) {
+                out.write(',');
+            }
+            switch(kind(column)) {
+                case 'n': out.write(Long.toString(rs.getLong(column))); break;
+                case 'd': writeCsvField(datetime(rs, column)); break;
+                default:  writeCsvField(rs.getString(column)); break;
+            }
+        }
+        out.write('\n');
+    }
+
+
+    private void writeCsvField(String value) throws IOException {
+        if(value == null)
+            return;
+        if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            out.write(value);
+        } else {
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+    }
+
+
+    /**
+     * Kind of column: 'n' numeric, 'd' DATETIME, 's' String.
+     */
+    private static char kind(String column) {
+        if(column.equals("ID") || column.endsWith("_ID") || column.equals("SEATS"))
+            return 'n';
+        if(column.equals("BEGIN") || column.equals("END"))
+            return 'd';
+        return 's';
+    }
+
+
+    private static String datetime(ResultSet rs, String column) throws SQLException {
+        long t = SqlDateTime.get(rs, column);
+        return t >= 0? DateTimeCodec.format(t) : null;
+    }
+
+
+    private void openSegment() throws IOException {
+        part = directory.resolve(fileName(segments.size()) + ".part");
+        out = new BufferedWriter(new OutputStreamWriter(
+            new GZIPOutputStream(Files.newOutputStream(part), 1 << 16), StandardCharsets.UTF_8), 1 << 16);
+        if(format == ImportJob.Format.CSV) {
+            out.write(String.join(",", table.columns).toLowerCase());
+            out.write('\n');
+        } else {
+            json = jsonFactory.createGenerator(out);
+        }
+        segmentRowCount = 0;
+    }
+
+
+    /**
+     * Close current segment and publish it under its final name.
+     */
+    private void closeSegment() throws IOException {
+        if(out == null)
+            return;
+        if(json != null) {
+            json.close();
+        }
+        out.close();
+        int index = segments.size();
+        Path file = directory.resolve(fileName(index));
+        Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long bytes = Files.size(file);
+        segments.add(new ExportStatus.Segment(index, segmentRowCount, bytes, firstId, lastId,
+            file.getFileName().toString()));
+        bytesWritten.addAndGet(bytes);
+        segmentRowCount = 0;        // rows of finished segments are kept on abort
+        out = null;
+        json = null;
+        part = null;
+    }
+
+
+    /**
+     * Discard unfinished segment after a failure.
+     */
+    private void abortSegment() {
+        rowsWritten.addAndGet(-segmentRowCount);
+        segmentRowCount = 0;
+        try {
+            if(out != null) {
+                out.close();
+            }
+        } catch(IOException ex) { }
+        try {
+            if(part != null) {
+                Files.deleteIfExists(part);
+            }
+        } catch(IOException ex) { }
+        out = null;
+        json = null;
+        part = null;
+    }
+
+
+    private String fileName(int index) {
+        return String.format("%s-%05d.%s.gz", table.name().toLowerCase(), index, format.name().toLowerCase());
+    }
+
+
+    private long elapsedNanos() {
+        long end = endNanos;
+        return (end >= 0? end : System.nanoTime()) - startNanos;
+    }
+
+
+    /**
+     * Rows per second since the export (or its last resume) started.
+     */
+    private double rowsPerSecond() {
+        long nanos = elapsedNanos();
+        return nanos > 0? (rowsWritten.get() - rowsAtStart) * 1e9 / nanos : 0.0;
+    }
+}
@@ -0,0 +1,48 @@
+package de.freerider.data_jdbc;
+
+import java.util.List;
+
+
+/**
+ * Public snapshot of the progress of a bulk export, returned by /exports
+ * endpoints while the export runs and after it has finished.
+ *
+ * @param id id of the export.
+ * @param table exported table, e.g. "Reservations".
+ * @param format format of rows, "csv" or "ndjson".
+ * @param state Running, Completed or Failed.
+ * @param rowsWritten rows written (including the segment being written).
+ * @param bytesWritten compressed bytes of finished segments.
+ * @param elapsedMillis time since the export (or its last resume) started.
+ * @param rowsPerSecond written rows per second.
+ * @param error reason for state Failed, null otherwise.
+ * @param segments finished segments in order of ids, can be downloaded
+ * while the export runs.
+ */
+public record ExportStatus(
+    long id, String table, String format, State state,
+    long rowsWritten, long bytesWritten, long elapsedMillis, double rowsPerSecond,
+    String error, List<Segment> segments
+) {
+
+    /**
+     * States of an export.
+     */
+    public enum State {
+        Running, Completed, Failed
+    };
+
+
+    /**
+     * Finished segment file of an export.
+     *
+     * @param index position of segment, starting at 0.
+     * @param rows number of rows in segment.
+     * @param bytes compressed size of segment file.
+     * @param firstId id of first row.
+     * @param lastId id of last row, a resumed export continues after lastId
+     * of the last segment.
+     * @param file name of segment file, e.g. "reservations-00000.ndjson.gz".
+     */
+    public record Segment(int index, long rows, long bytes, long firstId, long lastId, String file) { }
+}
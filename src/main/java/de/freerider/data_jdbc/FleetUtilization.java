@@ -0,0 +1,304 @@
+package de.freerider.data_jdbc;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * Non-public fork/join computation of vehicle utilization per local day
+ * over the chunks of ReservationColumns, used by ReservationAnalytics.
+ *
+ * Utilization of a vehicle on a day is the time it is held by reservations
+ * (InquiryConfirmed, Booked) divided by the length of the day (23, 24 or 25
+ * hours). Reservations are clipped to [from, to) and split at local day
+ * boundaries.
+ *
+ * The computation runs in two fork/join phases:
+ * <pre>
+ *  1. scan:       chunks -&gt; rows of held reservations overlapping [from, to),
+ *                 bucketed by vehicle partition (one task per chunk)
+ *  2. accumulate: partition -&gt; booked msec per vehicle and day, per category
+ *                 and day (one task per partition, no shared counters)
+ * </pre>
+ * Vehicles are partitioned by ranges of their position in the (sorted)
+ * vehicle list, each partition is accumulated by one task.
+ */
+final class FleetUtilization {
+
+    private static final int CATEGORIES = Vehicle.Category.values().length;
+
+    /**
+     * UTC msec of local day boundaries, days + 1 values.
+     */
+    private final long[] dayStarts;
+    private final int days;
+
+    /**
+     * Vehicle id -&gt; position, categories by position.
+     */
+    private final SlotMap positions = new SlotMap();
+    private final long[] vehicleIds;
+    private final byte[] categories;
+
+    private final boolean perVehicle;
+
+    private final int partitions;
+    private final int perPartition;
+
+    /**
+     * Statuses holding a vehicle by ordinal.
+     */
+    private static final boolean[] held = new boolean[Reservation.Status.values().length];
+
+    static {
+        for(Reservation.Status s : Reservation.Status.values()) {
+            held[s.ordinal()] = ReservationIntervals.holdsVehicle(s);
+        }
+    }
+
+    /**
+     * Booked msec per category and day, summed over partitions.
+     */
+    private final long[] bookedByCategory;
+
+    /**
+     * Booked msec per vehicle position and day, null unless perVehicle.
+     */
+    private final long[][] bookedByVehicle;
+
+
+    /**
+     * Constructor.
+     *
+     * @param dayStarts UTC msec of local day boundaries, days + 1 ascending values.
+     * @param vehicles vehicles whose utilization is computed.
+     * @param perVehicle true to keep booked time per vehicle.
+     * @param parallelism number of worker threads, partitions are a multiple.
+     */
+    FleetUtilization(long[] dayStarts, List<Vehicle> vehicles, boolean perVehicle, int parallelism) {
+        this.dayStarts = dayStarts;
+        this.days = dayStarts.length - 1;
+        this.vehicleIds = new long[vehicles.size()];
+        this.categories = new byte[vehicles.size()];
+        for(int i=0; i < vehicleIds.length; i++) {
+            Vehicle v = vehicles.get(i);
+            vehicleIds[i] = v.getId();
+            categories[i] = (byte)v.getCategory().ordinal();
+            positions.put(v.getId(), i);
+        }
+        this.perVehicle = perVehicle;
+        this.partitions = Math.max(1, Math.min(vehicleIds.length, 4 * parallelism));
+        this.perPartition = Math.max(1, (vehicleIds.length + partitions - 1) / partitions);
+        this.bookedByCategory = new long[CATEGORIES * days];
+        this.bookedByVehicle = perVehicle? new long[vehicleIds.length][] : null;
+    }
+
+
+    /**
+     * Run both phases on chunks of ReservationColumns, must be called while
+     * the chunks are valid (during a scan).
+     *
+     * @param chunks chunks of ReservationColumns.
+     * @param pool pool running the tasks.
+     * @return this computation with results.
+     */
+    FleetUtilization compute(List<ReservationColumns.Chunk> chunks, ForkJoinPool pool) {
+        int[][][] rows = new int[chunks.size()][][];
+        pool.invoke(new ScanTask(chunks, rows, 0, chunks.size()));
+        pool.invoke(new AccumulateTask(chunks, rows, 0, partitions));
+        return this;
+    }
+
+
+    /**
+     * Number of vehicles.
+     */
+    int vehicles() {
+        return vehicleIds.length;
+    }
+
+
+    /**
+     * Number of vehicles by category ordinal.
+     */
+    int[] vehiclesByCategory() {
+        int[] n = new int[CATEGORIES];
+        for(byte c : categories) {
+            n[c]++;
+        }
+        return n;
+    }
+
+
+    /**
+     * Booked msec of category on day.
+     */
+    long booked(int category, int day) {
+        return bookedByCategory[category * days + day];
+    }
+
+
+    /**
+     * Vehicle id at position.
+     */
+    long vehicleId(int position) {
+        return vehicleIds[position];
+    }
+
+
+    /**
+     * Booked msec per day of vehicle at position, null without reservations
+     * or unless computed per vehicle.
+     */
+    long[] bookedByVehicle(int position) {
+        return perVehicle? bookedByVehicle[position] : null;
+    }
+
+
+    /**
+     * Length of day in msec.
+     */
+    long dayLength(int day) {
+        return dayStarts[day + 1] - dayStarts[day];
+    }
+
+
+    /**
+     * Phase 1: collect rows of held reservations that overlap [from, to)
+     * by vehicle partition, rows[chunk][partition] = row numbers in chunk.
+     */
+    private final class ScanTask extends RecursiveAction {
+        private final List<ReservationColumns.Chunk> chunks;
+        private final int[][][] rows;
+        private final int lo, hi;
+
+        ScanTask(List<ReservationColumns.Chunk> chunks, int[][][] rows, int lo, int hi) {
+            this.chunks = chunks;
+            this.rows = rows;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if(hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ScanTask(chunks, rows, lo, mid), new ScanTask(chunks, rows, mid, hi));
+                return;
+            }
+            ReservationColumns.Chunk c = chunks.get(lo);
+            long from = dayStarts[0], to = dayStarts[days];
+            int[][] buckets = new int[partitions][];
+            int[] counts = new int[partitions];
+            for(int r=0; r < ReservationColumns.CHUNK_ROWS; r++) {
+                byte status = c.status(r);
+                if(status == ReservationColumns.FREE || ! held[status])
+                    continue;
+                if(c.begin(r) >= to || c.end(r) <= from)
+                    continue;
+                int position = positions.get(c.vehicleId(r));
+                if(position < 0)
+                    continue;   // vehicle not included
+                //
+                int p = position / perPartition;
+                int[] b = buckets[p];
+                if(b == null) {
+                    b = buckets[p] = new int[64];
+                } else if(counts[p] == b.length) {
+                    b = buckets[p] = Arrays.copyOf(b, b.length * 2);
+                }
+                b[counts[p]++] = r;
+            }
+            for(int p=0; p < partitions; p++) {
+                if(buckets[p] != null) {
+                    buckets[p] = Arrays.copyOf(buckets[p], counts[p]);
+                }
+            }
+            rows[lo] = buckets;
+        }
+    }
+
+
+    /**
+     * Phase 2: accumulate booked time of partitions [lo, hi), one partition
+     * per leaf task.
+     */
+    private final class AccumulateTask extends RecursiveAction {
+        private final List<ReservationColumns.Chunk> chunks;
+        private final int[][][] rows;
+        private final int lo, hi;
+
+        AccumulateTask(List<ReservationColumns.Chunk> chunks, int[][][] rows, int lo, int hi) {
+            this.chunks = chunks;
+            this.rows = rows;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if(hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new AccumulateTask(chunks, rows, lo, mid), new AccumulateTask(chunks, rows, mid, hi));
+                return;
+            }
+            int p = lo;
+            long[] byCategory = new long[CATEGORIES * days];
+            for(int i=0; i < chunks.size(); i++) {
+                int[] bucket = rows[i][p];
+                if(bucket == null)
+                    continue;
+                //
+                ReservationColumns.Chunk c = chunks.get(i);
+                for(int r : bucket) {
+                    int position = positions.get(c.vehicleId(r));
+                    int category = categories[position];
+                    long[] vehicle = null;
+                    if(perVehicle) {
+                        vehicle = bookedByVehicle[position];
+                        if(vehicle == null) {
+                            vehicle = bookedByVehicle[position] = new long[days];
+                        }
+                    }
+                    long begin = Math.max(c.begin(r), dayStarts[0]);
+                    long end = Math.min(c.end(r), dayStarts[days]);
+                    // clip to local days
+                    for(int d=firstDay(begin); d < days && dayStarts[d] < end; d++) {
+                        long booked = Math.min(end, dayStarts[d + 1]) - Math.max(begin, dayStarts[d]);
+                        byCategory[category * days + d] += booked;
+                        if(vehicle != null) {
+                            vehicle[d] += booked;
+                        }
+                    }
+                }
+            }
+            synchronized(bookedByCategory) {
+                for(int i=0; i < byCategory.length; i++) {
+                    bookedByCategory[i] += byCategory[i];
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Return index of the day containing t, dayStarts[0] &lt;= t &lt; dayStarts[days].
+     */
+    private int firstDay(long t) {
+        int lo = 0, hi = days;
+        while(lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if(dayStarts[mid + 1] <= t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
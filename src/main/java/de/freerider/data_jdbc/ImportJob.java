@@ -0,0 +1,487 @@
+package de.freerider.data_jdbc;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.Reservation;
+
+
+/**
+ * Non-public bulk import of one CSV or NDJSON source into one table.
+ *
+ * The source is read line by line and never materialized. Two threads form
+ * a pipeline connected by a bounded queue of chunks:
+ * <pre>
+ *  reader (caller)                       writer (executor)
+ *  parse line -> validate (DataFactory)  take chunk -> batch INSERT in one
+ *  -> chunk of rows -> queue.put()  ==>  transaction -> publish ChangeEvents
+ * </pre>
+ * When the database is slower than the source, the queue fills up and
+ * blocks the reader (backpressure), memory stays bounded by the queue
+ * capacity times the chunk size.
+ *
+ * Rows that cannot be parsed, fail validation or fail to insert (e.g.
+ * duplicate id, missing customer) are written with line number and reason
+ * to a tab-separated reject file. A chunk that fails to insert is rolled
+ * back and retried row by row.
+ */
+final class ImportJob {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ImportJob.class);
+
+    /**
+     * Formats of import sources.
+     */
+    enum Format {
+        CSV, NDJSON;
+
+        /**
+         * Find format by name or file extension (.csv, .ndjson, .jsonl).
+         */
+        static Optional<Format> of(String name) {
+            if(name == null)
+                return Optional.empty();
+            String n = name.toLowerCase();
+            if(n.equals("csv") || n.endsWith(".csv") || n.equals("text/csv"))
+                return Optional.of(CSV);
+            if(n.equals("ndjson") || n.endsWith(".ndjson") || n.endsWith(".jsonl") || n.equals("application/x-ndjson"))
+                return Optional.of(NDJSON);
+            return Optional.empty();
+        }
+    };
+
+    /**
+     * Validated row with line number and source text for the reject file.
+     */
+    private record Row(long line, Object entity, String text) { }
+
+    /**
+     * Marks the end of the source in the queue.
+     */
+    private static final List<Row> END = List.of();
+
+    private static final TypeReference<LinkedHashMap<String, Object>> MAP_TYPE =
+        new TypeReference<LinkedHashMap<String, Object>>() { };
+
+    final long id;
+    final ImportTable table;
+    final Format format;
+    final String source;
+
+    private final Path rejectPath;
+    private final int chunkSize;
+    private final BlockingQueue<List<Row>> queue;
+
+    private final DataFactory dataFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ChangeEvents changeEvents;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Index of reserved vehicles, rejects overlapping reservations (null for
+     * other tables).
+     */
+    private final ReservationIntervals intervals;
+
+    /*
+     * Progress counters, read by status() while the import runs.
+     */
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsInserted = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos = -1L;
+    private volatile ImportStatus.State state = ImportStatus.State.Running;
+    private volatile String error;
+
+    /**
+     * Reject file, opened with the first rejected row.
+     */
+    private BufferedWriter rejects;
+
+
+    /**
+     * Constructor.
+     *
+     * @param id id of import.
+     * @param table table rows are inserted into.
+     * @param format format of source.
+     * @param source name of source for status.
+     * @param rejectPath path of reject file.
+     * @param chunkSize rows per batch INSERT and transaction.
+     * @param queueCapacity chunks buffered between reader and writer.
+     * @param intervals index of reserved vehicles, used for reservations.
+     */
+    ImportJob(long id, ImportTable table, Format format, String source, Path rejectPath,
+            int chunkSize, int queueCapacity, DataFactory dataFactory, JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate, ChangeEvents changeEvents, ObjectMapper objectMapper,
+            ReservationIntervals intervals) {
+        this.id = id;
+        this.table = table;
+        this.format = format;
+        this.source = source;
+        this.rejectPath = rejectPath;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.queue = new ArrayBlockingQueue<List<Row>>(Math.max(1, queueCapacity));
+        this.dataFactory = dataFactory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.changeEvents = changeEvents;
+        this.objectMapper = objectMapper;
+        this.intervals = table == ImportTable.Reservations? intervals : null;
+    }
+
+
+    /**
+     * Run import, reads source in the calling thread while rows are inserted
+     * by a writer thread of the executor. Returns when all rows have been
+     * inserted or rejected, the reader is closed.
+     *
+     * @param reader source of lines.
+     * @param executor runs the writer.
+     */
+    void run(Reader reader, ExecutorService executor) {
+        Future<?> writer = executor.submit(this::write);
+        try(BufferedReader in = new BufferedReader(reader, 1 << 16)) {
+            read(in, writer);
+        //
+        } catch(IOException ex) {
+            fail("read failed: " + ex.getMessage());
+        //
+        } catch(InterruptedException ex) {
+            fail("interrupted");
+            Thread.currentThread().interrupt();
+        //
+        } finally {
+            try {
+                while( ! writer.isDone() && ! queue.offer(END, 100, TimeUnit.MILLISECONDS)) { }
+                writer.get();
+            } catch(InterruptedException ex) {
+                writer.cancel(true);
+                fail("interrupted");
+                Thread.currentThread().interrupt();
+            } catch(ExecutionException ex) {
+                fail("write failed: " + firstLine(ex.getCause().getMessage()));
+            }
+            closeRejects();
+            endNanos = System.nanoTime();
+            if(state == ImportStatus.State.Running) {
+                state = ImportStatus.State.Completed;
+            }
+            logger.info(String.format("import %d %s from %s: %s, read: %d, inserted: %d, rejected: %d, %.0f rows/sec",
+                id, table, source, state, rowsRead.get(), rowsInserted.get(), rowsRejected.get(), rowsPerSecond()));
+        }
+    }
+
+
+    /**
+     * Return snapshot of progress.
+     *
+     * @return current status.
+     */
+    ImportStatus status() {
+        return new ImportStatus(id, table.name(), format.name().toLowerCase(), source, state,
+            rowsRead.get(), rowsInserted.get(), rowsRejected.get(),
+            TimeUnit.NANOSECONDS.toMillis(elapsedNanos()), rowsPerSecond(),
+            rowsRejected.get() > 0? rejectPath.toString() : null, error);
+    }
+
+
+    /**
+     * @return true if the import has finished (Completed or Failed).
+     */
+    boolean finished() {
+        return endNanos >= 0;
+    }
+
+
+    /**
+     * @return path of reject file (may not exist).
+     */
+    Path rejectPath() {
+        return rejectPath;
+    }
+
+
+    /**
+     * Reader: parse and validate lines, pass chunks of rows to writer.
+     */
+    private void read(BufferedReader in, Future<?> writer) throws IOException, InterruptedException {
+        List<String> header = null;
+        List<Row> chunk = new ArrayList<Row>(chunkSize);
+        long lineNo = 0;
+        for(String line; (line = in.readLine()) != null; ) {
+            lineNo++;
+            if(lineNo == 1 && line.startsWith("\uFEFF")) {
+                line = line.substring(1);   // byte order mark
+            }
+            if(line.isBlank())
+                continue;
+            //
+            if(format == Format.CSV && header == null) {
+                header = splitCsv(line);
+                continue;
+            }
+            rowsRead.incrementAndGet();
+            Map<String, Object> map;
+            try {
+                map = format == Format.CSV? csvRow(header, line) : objectMapper.readValue(line, MAP_TYPE);
+            } catch(IOException | IllegalArgumentException ex) {
+                reject(lineNo, "unparsable: " + firstLine(ex.getMessage()), line);
+                continue;
+            }
+            Optional<?> entity = table.create(map, dataFactory);
+            if(entity.isEmpty()) {
+                reject(lineNo, "invalid or incomplete attributes", line);
+                continue;
+            }
+            chunk.add(new Row(lineNo, entity.get(), line));
+            if(chunk.size() >= chunkSize) {
+                if( ! put(chunk, writer))
+                    return;
+                chunk = new ArrayList<Row>(chunkSize);
+            }
+        }
+        if(chunk.size() > 0) {
+            put(chunk, writer);
+        }
+    }
+
+
+    /**
+     * Pass chunk to writer, blocks while the queue is full.
+     *
+     * @return false if the writer has terminated (failed), its error is
+     * reported when the import finishes.
+     */
+    private boolean put(List<Row> chunk, Future<?> writer) throws InterruptedException {
+        while( ! queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if(writer.isDone())
+                return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Writer: insert chunks until the end of the source.
+     */
+    private void write() {
+        try {
+            for(List<Row> chunk; (chunk = queue.take()) != END; ) {
+                insert(chunk);
+            }
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Insert chunk with one batch statement in one transaction, insert rows
+     * one by one if the chunk fails. Reservations that overlap a booking of
+     * the same vehicle are rejected before the INSERT.
+     */
+    private void insert(List<Row> rows) {
+        List<Row> chunk = claim(rows);
+        int inserted = 0;
+        try {
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                    table.insertSql, chunk, chunk.size(), (ps, row) -> table.bind(ps, row.entity())));
+                inserted = chunk.size();
+                rowsInserted.addAndGet(chunk.size());
+                chunk.forEach(row -> table.publishCreated(changeEvents, row.entity()));
+            //
+            } catch(org.springframework.dao.DataAccessException dax) {
+                for(; inserted < chunk.size(); inserted++) {
+                    Row row = chunk.get(inserted);
+                    try {
+                        jdbcTemplate.update(table.insertSql, ps -> table.bind(ps, row.entity()));
+                        rowsInserted.incrementAndGet();
+                        table.publishCreated(changeEvents, row.entity());
+                    //
+                    } catch(org.springframework.dao.DataAccessException ex) {
+                        release(row);
+                        reject(row.line(), "INSERT failed: " + firstLine(ex.getMostSpecificCause().getMessage()), row.text());
+                    }
+                }
+            }
+        } finally {
+            // rows not written when the writer fails
+            chunk.subList(inserted, chunk.size()).forEach(this::release);
+        }
+    }
+
+
+    /**
+     * Claim intervals of reservations that hold a vehicle, reject overlaps.
+     *
+     * @return rows to insert.
+     */
+    private List<Row> claim(List<Row> rows) {
+        if(intervals == null)
+            return rows;
+        List<Row> claimed = new ArrayList<Row>(rows.size());
+        for(Row row : rows) {
+            Reservation r = (Reservation)row.entity();
+            try {
+                if(ReservationIntervals.holdsVehicle(r.getStatus())) {
+                    intervals.claim(r.getId(), r.getVehicleId(), r.getBegin(), r.getEnd());
+                }
+                claimed.add(row);
+            } catch(DataAccessException dax) {
+                reject(row.line(), dax.getMessage(), row.text());
+            }
+        }
+        return claimed;
+    }
+
+
+    private void release(Row row) {
+        if(intervals != null && ReservationIntervals.holdsVehicle(((Reservation)row.entity()).getStatus())) {
+            intervals.restore(((Reservation)row.entity()).getId(), null);
+        }
+    }
+
+
+    /**
+     * Write rejected line to reject file: line number, reason, line.
+     */
+    private synchronized void reject(long lineNo, String reason, String line) {
+        rowsRejected.incrementAndGet();
+        try {
+            if(rejects == null) {
+                rejects = Files.newBufferedWriter(rejectPath, StandardCharsets.UTF_8);
+                rejects.write("#line\treason\trecord\n");
+            }
+            rejects.write(String.format("%d\t%s\t%s\n", lineNo, reason.replace('\t', ' '), line));
+        //
+        } catch(IOException ex) {
+            fail("can't write reject file: " + rejectPath);
+        }
+    }
+
+
+    private synchronized void closeRejects() {
+        if(rejects != null) {
+            try {
+                rejects.close();
+            } catch(IOException ex) {
+                fail("can't write reject file: " + rejectPath);
+            }
+        }
+    }
+
+
+    private void fail(String reason) {
+        if(error == null) {
+            error = reason;
+        }
+        state = ImportStatus.State.Failed;
+    }
+
+
+    private long elapsedNanos() {
+        long end = endNanos;
+        return (end >= 0? end : System.nanoTime()) - startNanos;
+    }
+
+
+    private double rowsPerSecond() {
+        long nanos = elapsedNanos();
+        return nanos > 0? rowsInserted.get() * 1e9 / nanos : 0.0;
+    }
+
+
+    /**
+     * Map fields of a CSV line to header names.
+     */
+    private static Map<String, Object> csvRow(List<String> header, String line) {
+        List<String> fields = splitCsv(line);
+        if(fields.size() != header.size())
+            throw new IllegalArgumentException(String.format("%d fields, expected: %d", fields.size(), header.size()));
+        //
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        for(int i=0; i < fields.size(); i++) {
+            map.put(header.get(i).trim(), fields.get(i));
+        }
+        return map;
+    }
+
+
+    /**
+     * Split CSV line into fields separated by ',', fields may be quoted with
+     * '"' and contain escaped quotes "" (RFC 4180 without line breaks in fields).
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<String>();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for(int i=0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if(quoted) {
+                if(c == '"') {
+                    if(i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        sb.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    sb.append(c);
+                }
+            } else if(c == '"') {
+                quoted = true;
+            } else if(c == ',') {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        if(quoted)
+            throw new IllegalArgumentException("unterminated quote");
+        //
+        fields.add(sb.toString());
+        return fields;
+    }
+
+
+    private static String firstLine(String msg) {
+        if(msg == null)
+            return "";
+        int nl = msg.indexOf('\n');
+        return nl >= 0? msg.substring(0, nl) : msg;
+    }
+}
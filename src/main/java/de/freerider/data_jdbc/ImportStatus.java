@@ -0,0 +1,33 @@
+package de.freerider.data_jdbc;
+
+
+/**
+ * Public snapshot of the progress of a bulk import, returned by
+ * /imports endpoints while the import runs and after it has finished.
+ *
+ * @param id id of the import.
+ * @param table imported table, e.g. "Customers".
+ * @param format format of rows, "csv" or "ndjson".
+ * @param source file name or "request-body".
+ * @param state Running, Completed or Failed.
+ * @param rowsRead rows read from source (excluding CSV header).
+ * @param rowsInserted rows inserted into the database.
+ * @param rowsRejected rows written to the reject file.
+ * @param elapsedMillis time since the import started (until it finished).
+ * @param rowsPerSecond inserted rows per second.
+ * @param rejectFile path of reject file or null if no row was rejected.
+ * @param error reason for state Failed, null otherwise.
+ */
+public record ImportStatus(
+    long id, String table, String format, String source, State state,
+    long rowsRead, long rowsInserted, long rowsRejected,
+    long elapsedMillis, double rowsPerSecond, String rejectFile, String error
+) {
+
+    /**
+     * States of an import.
+     */
+    public enum State {
+        Running, Completed, Failed
+    };
+}
@@ -0,0 +1,229 @@
+package de.freerider.data_jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+import de.freerider.datamodel.Customer;
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * Non-public description of tables used by bulk operations (import,
+ * export, batch create): attribute names, validation through DataFactory
+ * and the INSERT statement.
+ *
+ * Rows are name-value pairs with case-insensitive names, as passed to the
+ * create methods of the DataAccess interfaces, e.g. parsed from JSON or
+ * from a CSV header line. Values may be Numbers or Strings.
+ */
+enum ImportTable {
+
+    Customers(Customer.class, "CUSTOMER", "ID", "NAME", "CONTACT", "STATUS") {
+        @Override
+        Optional<?> create(Object[] a, DataFactory dataFactory) {
+            return dataFactory.createCustomer(toLong(a[0]), (String)a[1], (String)a[2], (String)a[3]);
+        }
+
+        @Override
+        void bind(PreparedStatement ps, Object entity) throws SQLException {
+            Customer c = (Customer)entity;
+            ps.setLong(1, c.getId());
+            ps.setString(2, c.getName());
+            ps.setString(3, c.getContact());
+            ps.setString(4, c.getStatus().name());
+        }
+
+        @Override
+        long idOf(Object entity) {
+            return ((Customer)entity).getId();
+        }
+    },
+
+    Vehicles(Vehicle.class, "VEHICLE", "ID", "MAKE", "MODEL", "SEATS", "CATEGORY", "POWER", "STATUS") {
+        @Override
+        Optional<?> create(Object[] a, DataFactory dataFactory) {
+            return dataFactory.createVehicle(toLong(a[0]), (String)a[1], (String)a[2], (int)toLong(a[3]),
+                (String)a[4], (String)a[5], (String)a[6]);
+        }
+
+        @Override
+        void bind(PreparedStatement ps, Object entity) throws SQLException {
+            Vehicle v = (Vehicle)entity;
+            ps.setLong(1, v.getId());
+            ps.setString(2, v.getMake());
+            ps.setString(3, v.getModel());
+            ps.setInt(4, v.getSeats());
+            ps.setString(5, v.getCategory().name());
+            ps.setString(6, v.getPower().name());
+            ps.setString(7, v.getStatus().name());
+        }
+
+        @Override
+        long idOf(Object entity) {
+            return ((Vehicle)entity).getId();
+        }
+    },
+
+    Reservations(Reservation.class, "RESERVATION",
+            "ID", "CUSTOMER_ID", "VEHICLE_ID", "BEGIN", "END", "PICKUP", "DROPOFF", "STATUS") {
+        @Override
+        Optional<?> create(Object[] a, DataFactory dataFactory) {
+            return dataFactory.createReservation(toLong(a[0]), toLong(a[1]), toLong(a[2]),
+                (String)a[3], (String)a[4], (String)a[5], (String)a[6], (String)a[7]);
+        }
+
+        @Override
+        void bind(PreparedStatement ps, Object entity) throws SQLException {
+            Reservation r = (Reservation)entity;
+            ps.setLong(1, r.getId());
+            ps.setLong(2, r.getCustomerId());
+            ps.setLong(3, r.getVehicleId());
+            ps.setTimestamp(4, new Timestamp(r.getBegin()));
+            ps.setTimestamp(5, new Timestamp(r.getEnd()));
+            ps.setString(6, r.getPickup());
+            ps.setString(7, r.getDropoff());
+            ps.setString(8, r.getStatus().name());
+        }
+
+        @Override
+        long idOf(Object entity) {
+            return ((Reservation)entity).getId();
+        }
+    };
+
+
+    /**
+     * Entity class of rows, e.g. Customer.class.
+     */
+    final Class<?> type;
+
+    /**
+     * Name of database table, e.g. "CUSTOMER".
+     */
+    final String table;
+
+    /**
+     * Upper-case attribute (column) names in order of the INSERT statement.
+     */
+    final String[] columns;
+
+    /**
+     * INSERT statement with one parameter per column.
+     */
+    final String insertSql;
+
+
+    private ImportTable(Class<?> type, String table, String... columns) {
+        this.type = type;
+        this.table = table;
+        this.columns = columns;
+        this.insertSql = String.format("INSERT INTO %s (%s) VALUES (%s)", table,
+            String.join(", ", columns), String.join(", ", Collections.nCopies(columns.length, "?")));
+    }
+
+
+    /**
+     * Create entity from attribute values in order of columns, numeric
+     * values have been converted to Long.
+     */
+    abstract Optional<?> create(Object[] attrs, DataFactory dataFactory);
+
+    /**
+     * Bind entity attributes to parameters of the INSERT statement.
+     */
+    abstract void bind(PreparedStatement ps, Object entity) throws SQLException;
+
+    /**
+     * Return id of entity.
+     */
+    abstract long idOf(Object entity);
+
+
+    /**
+     * Create entity from name-value pairs, names are case-insensitive. The
+     * first column (ID) and columns ending with "_ID" or named "SEATS" must
+     * be numeric, all others Strings.
+     *
+     * @param map name-value pairs of one row.
+     * @param dataFactory validates attributes and creates entity.
+     * @return Optional with entity or empty for missing or invalid attributes.
+     */
+    Optional<?> create(Map<String, Object> map, DataFactory dataFactory) {
+        Object[] attrs = new Object[columns.length];
+        for(var e : map.entrySet()) {
+            int k = column(e.getKey());
+            if(k >= 0) {
+                attrs[k] = numeric(k)? number(e.getValue()) : e.getValue() instanceof String? e.getValue() : null;
+            }
+        }
+        for(Object a : attrs) {
+            if(a == null)
+                return Optional.empty();
+        }
+        return create(attrs, dataFactory);
+    }
+
+
+    /**
+     * Publish ChangeEvent for an inserted entity.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void publishCreated(ChangeEvents changeEvents, Object entity) {
+        changeEvents.publish(ChangeEvent.created((Class)type, idOf(entity), entity));
+    }
+
+
+    /**
+     * Find table by name, e.g. "customers" (case-insensitive).
+     *
+     * @param name name of table.
+     * @return Optional with table or empty if no table matches.
+     */
+    static Optional<ImportTable> of(String name) {
+        for(ImportTable t : values()) {
+            if(t.name().equalsIgnoreCase(name) || t.table.equalsIgnoreCase(name))
+                return Optional.of(t);
+        }
+        return Optional.empty();
+    }
+
+
+    /**
+     * Return index of column or -1 if name is not a column.
+     */
+    int column(String name) {
+        for(int k=0; k < columns.length; k++) {
+            if(columns[k].equalsIgnoreCase(name))
+                return k;
+        }
+        return -1;
+    }
+
+
+    private boolean numeric(int k) {
+        return k == 0 || columns[k].endsWith("_ID") || columns[k].equals("SEATS");
+    }
+
+
+    private static long toLong(Object obj) {
+        return ((Long)obj).longValue();
+    }
+
+
+    private static Long number(Object obj) {
+        if(obj instanceof Number)
+            return ((Number)obj).longValue();
+        if(obj instanceof String) {
+            try {
+                return Long.parseLong(((String)obj).trim());
+            } catch(NumberFormatException ex) { }
+        }
+        return null;
+    }
+}
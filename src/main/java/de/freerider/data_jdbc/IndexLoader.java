@@ -0,0 +1,226 @@
+package de.freerider.data_jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+
+
+/**
+ * Non-public helper of in-memory state derived from the database (indexes,
+ * columns, aggregates, counters) that is loaded in the background at startup
+ * or on first use and kept current by ChangeEvents of one entity type.
+ *
+ * ChangeEvents passed to apply() are handled depending on the state:
+ * <pre>
+ *  not loaded   dropped, loading reads the write from the database later
+ *  loading      load():         queued and replayed when the state has
+ *                               been filled (applying must be idempotent)
+ *               loadSnapshot(): dropped, the query is repeated when
+ *                               events arrived while it ran or while
+ *                               its snapshot was installed
+ *  loaded       applied
+ * </pre>
+ *
+ * @param <T> entity type of ChangeEvents.
+ */
+final class IndexLoader<T> {
+
+    /**
+     * Maximum attempts to load a consistent snapshot while writes occur.
+     */
+    private static final int LOAD_ATTEMPTS = 3;
+
+    private final Logger logger;
+
+    private final String name;
+
+    /**
+     * Loads the state from the database through load() or loadSnapshot().
+     */
+    private final Runnable load;
+
+    /**
+     * Applies a ChangeEvent to the loaded state.
+     */
+    private final Consumer<ChangeEvent<T>> applyLoaded;
+
+    /**
+     * ChangeEvents received while loading, replayed after loading (guarded by itself).
+     */
+    private final List<ChangeEvent<T>> pending = new ArrayList<ChangeEvent<T>>();
+    private boolean loading = false;
+
+    private volatile boolean loaded = false;
+
+    private volatile long loadMillis = -1L;
+
+    /**
+     * Number of ChangeEvents passed to apply(), detects writes during loading.
+     */
+    private final AtomicLong changes = new AtomicLong();
+
+
+    /**
+     * Constructor.
+     *
+     * @param logger logger of the state, e.g. of ReservationColumns.
+     * @param name name of the state in log messages, e.g. "reservation columns".
+     * @param load loads the state from the database through load() or loadSnapshot().
+     * @param applyLoaded applies a ChangeEvent to the loaded state.
+     */
+    IndexLoader(Logger logger, String name, Runnable load, Consumer<ChangeEvent<T>> applyLoaded) {
+        this.logger = logger;
+        this.name = name;
+        this.load = load;
+        this.applyLoaded = applyLoaded;
+    }
+
+
+    /**
+     * @return true when the state has been loaded.
+     */
+    boolean loaded() {
+        return loaded;
+    }
+
+
+    /**
+     * @return duration of the last load in msec, -1 if not loaded.
+     */
+    long loadMillis() {
+        return loadMillis;
+    }
+
+
+    /**
+     * @return number of ChangeEvents received.
+     */
+    long changes() {
+        return changes.get();
+    }
+
+
+    /**
+     * Update state from ChangeEvent of a successful write.
+     *
+     * @param event ChangeEvent.
+     */
+    void apply(ChangeEvent<T> event) {
+        changes.incrementAndGet();
+        synchronized(pending) {
+            if(loading) {
+                pending.add(event);
+                return;
+            }
+        }
+        if( ! loaded)
+            return;     // state is loaded after the write
+        //
+        applyLoaded.accept(event);
+    }
+
+
+    /**
+     * Load state in the calling thread unless it has been loaded.
+     */
+    void ensureLoaded() {
+        if( ! loaded) {
+            synchronized(this) {
+                if( ! loaded) {
+                    load.run();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Load state in the background, e.g. when the application has started.
+     * Failures are logged, loading is retried on first use.
+     */
+    void loadInBackground() {
+        CompletableFuture.runAsync(() -> {
+            try {
+                ensureLoaded();
+            } catch(org.springframework.dao.DataAccessException dax) {
+                logger.warn(String.format("%s not loaded, retried on first use: %s", name, dax.getMessage()));
+            }
+        });
+    }
+
+
+    /**
+     * Load state again in the background, e.g. after ChangeEvents were lost.
+     * Readers wait for the state to be loaded.
+     */
+    void reload() {
+        loaded = false;
+        loadInBackground();
+    }
+
+
+    /**
+     * Fill state unless it has been loaded, ChangeEvents received while
+     * filling are replayed on the filled state.
+     *
+     * @param fill resets and fills the state, resets it before rethrowing an exception.
+     * @param summary describes the loaded state in the log, e.g. "100 rows".
+     */
+    synchronized void load(Runnable fill, Supplier<String> summary) {
+        if(loaded)
+            return;
+        //
+        long t0 = System.nanoTime();
+        synchronized(pending) {
+            loading = true;
+        }
+        try {
+            fill.run();
+        //
+        } catch(RuntimeException ex) {
+            synchronized(pending) {
+                loading = false;
+                pending.clear();
+            }
+            throw ex;
+        }
+        synchronized(pending) {
+            loaded = true;
+            pending.forEach(applyLoaded);
+            pending.clear();
+            loading = false;
+        }
+        loadMillis = (System.nanoTime() - t0) / 1_000_000L;
+        logger.info(String.format("%s loaded: %s, %d ms", name, summary.get(), loadMillis));
+    }
+
+
+    /**
+     * Load or reload state from a snapshot query. The query is repeated and
+     * its snapshot installed again when ChangeEvents were received while
+     * querying or installing, e.g. applied to the replaced state.
+     *
+     * @param <S> type of snapshot.
+     * @param query runs the query and returns the snapshot.
+     * @param install replaces the state with the snapshot, loaded() tells
+     * whether state is replaced on reconciliation.
+     */
+    synchronized <S> void loadSnapshot(Supplier<S> query, Consumer<S> install) {
+        long t0 = System.nanoTime();
+        for(int attempt=1; ; attempt++) {
+            long before = changes.get();
+            S snapshot = query.get();
+            install.accept(snapshot);
+            if(changes.get() == before || attempt == LOAD_ATTEMPTS) {
+                loaded = true;
+                loadMillis = (System.nanoTime() - t0) / 1_000_000L;
+                return;
+            }
+        }
+    }
+}
@@ -31,12 +31,6 @@ class JDBC_QueryRunner {
     @Autowired
     private DataAccess dao;
 
-    /**
-     * Vehicle DAO.
-     */
-    @Autowired
-    private DataAccessVehicles vehicle_dao;
-
 
     /**
      * Method is called by Spring Container after container is ready.
@@ -72,23 +66,16 @@ class JDBC_QueryRunner {
             });
 
         id = 2L;
-        logger.info(String.format("dao.findReservationsByCustomerId(%d):", id));
+        logger.info(String.format("dao.findReservationsWithVehicleByCustomerId(%d):", id));
         //
-        dao.findReservationsByCustomerId(id)
+        dao.findReservationsWithVehicleByCustomerId(id)
             .forEach(r -> {
-                String begin = Reservation.dateTimeToStr(r.getBegin());
-                String end = Reservation.dateTimeToStr(r.getEnd());
-                String vehicle = "<UNKNOWN>";
-                if(vehicle_dao != null) {
-                    vehicle = vehicle_dao.findVehicleById(r.getVehicleId())
-                        .map(v -> {
-                            String veh = String.format("%s %s", v.getMake(), v.getModel());
-                            return String.format("[id: %d, %-20s]", v.getId(), veh);
-                        })
-                        .orElse(vehicle);
-                }
+                String begin = Reservation.dateTimeToStr(r.begin());
+                String end = Reservation.dateTimeToStr(r.end());
+                String veh = String.format("%s %s", r.vehicle().make(), r.vehicle().model());
+                String vehicle = String.format("[id: %d, %-20s]", r.vehicleId(), veh);
                 logger.info(String.format(" - RES: %d, [%s - %s], %s, vehicle: %s",
-                    r.getId(), begin, end, r.getStatus(), vehicle));
+                    r.id(), begin, end, r.status(), vehicle));
             });
     }
 }
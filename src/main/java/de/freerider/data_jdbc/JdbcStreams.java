@@ -0,0 +1,50 @@
+package de.freerider.data_jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.springframework.jdbc.core.PreparedStatementCreator;
+
+
+/**
+ * Non-public helper to create statements that read MySQL result sets as
+ * streams rather than buffering all rows in the driver.
+ *
+ * MySQL Connector/J only streams rows when the statement is forward-only,
+ * read-only and has fetchSize set to Integer.MIN_VALUE. Otherwise the
+ * complete result set is read into memory before the first row is returned.
+ */
+final class JdbcStreams {
+
+    /**
+     * fetchSize value that switches Connector/J into row-by-row streaming.
+     */
+    static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+
+    /**
+     * Private constructor, class only has static methods.
+     */
+    private JdbcStreams() { }
+
+
+    /**
+     * Create statement for a "?"-augmented SQL query that streams its
+     * result set row by row.
+     *
+     * @param sql SQL query, e.g. "SELECT * FROM RESERVATION".
+     * @param args values for "?" placeholders in order of occurence.
+     * @return PreparedStatementCreator for use with JdbcTemplate.query().
+     */
+    static PreparedStatementCreator streaming(String sql, Object... args) {
+        return connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAMING_FETCH_SIZE);
+            for(int i=0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        };
+    }
+}
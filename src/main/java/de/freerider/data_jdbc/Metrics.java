@@ -0,0 +1,29 @@
+package de.freerider.data_jdbc;
+
+import java.util.Map;
+
+
+/**
+ * Public interface of components that report runtime counters (cache hits,
+ * saved round trips, rows/sec, etc.). All Spring beans implementing this
+ * interface are listed by the /metrics endpoint.
+ */
+public interface Metrics {
+
+    /**
+     * Name under which metrics are reported, e.g. "caches".
+     *
+     * @return unique name of metrics.
+     */
+    String metricsName();
+
+
+    /**
+     * Return current values of counters as name-value pairs. Values are
+     * numbers, Strings or nested Maps that serialize to JSON.
+     *
+     * @return current metrics values.
+     */
+    Map<String, Object> metrics();
+
+}
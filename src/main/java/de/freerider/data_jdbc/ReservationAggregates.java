@@ -0,0 +1,289 @@
+package de.freerider.data_jdbc;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import de.freerider.datamodel.DateTimeCodec;
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * Non-public materialized aggregate of the number of reservations by
+ * (local day of begin, Reservation.Status, Vehicle.Category), served from
+ * memory instead of recomputing GROUP BY queries for dashboards.
+ *
+ * Counts are loaded once (in the background at startup or on first use):
+ * <pre>
+ *  SELECT DATE(R.BEGIN), R.STATUS, V.CATEGORY, COUNT(*) FROM RESERVATION R
+ *      JOIN VEHICLE V ON V.ID = R.VEHICLE_ID GROUP BY DATE(R.BEGIN), R.STATUS, V.CATEGORY;
+ * </pre>
+ * are then updated from ChangeEvents of creates, updates and deletes
+ * through the DAO: the before image is subtracted from its bucket and the
+ * after image added to its bucket, which moves counts on status changes
+ * (e.g. Inquired to Booked) and on changes of begin or vehicle. Like
+ * EntityCounters, counts are reconciled with the database periodically
+ * (application.aggregates.reconcile-interval) to correct drift from writes
+ * that bypass the DAO or from changed vehicle categories. ChangeEvents are
+ * applied in the thread of an asynchronous subscription, reservations of
+ * vehicles not yet in the (also asynchronously updated) VehicleCatalog are
+ * counted by the next reconciliation.
+ */
+@Component
+class ReservationAggregates implements Metrics {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ReservationAggregates.class);
+
+    private static final Reservation.Status[] statuses = Reservation.Status.values();
+
+    private static final Vehicle.Category[] categories = Vehicle.Category.values();
+
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    /**
+     * Maximum time to wait for events of writes included in a snapshot.
+     */
+    private static final long DELIVERY_MILLIS = 1_000L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Category of reserved vehicles.
+     */
+    private final VehicleCatalog catalog;
+
+    /**
+     * Delivers ChangeEvents in the thread of the "aggregates" subscription.
+     */
+    private final ChangeEvents changeEvents;
+
+    /**
+     * Counts by epoch day, counts[status * categories + category].
+     */
+    private volatile ConcurrentSkipListMap<Long, AtomicLongArray> days = new ConcurrentSkipListMap<>();
+
+    /**
+     * Number of reconciliations that found counts differing from the database.
+     */
+    private final AtomicLong corrections = new AtomicLong();
+
+    private final AtomicLong queries = new AtomicLong();
+
+    private final IndexLoader<Reservation> loader =
+        new IndexLoader<Reservation>(logger, "reservation aggregates", this::load, this::applyLoaded);
+
+
+    /**
+     * Constructor, subscribes aggregates to ChangeEvents of Reservations.
+     *
+     * @param jdbcTemplate JdbcTemplate for loading and reconciling counts.
+     * @param catalog catalog of vehicles for their categories.
+     * @param changeEvents source of ChangeEvents.
+     */
+    ReservationAggregates(JdbcTemplate jdbcTemplate, VehicleCatalog catalog, ChangeEvents changeEvents) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalog = catalog;
+        this.changeEvents = changeEvents;
+        changeEvents.subscribeAsync(Reservation.class, "aggregates", this::apply, loader::reload);
+    }
+
+
+    /**
+     * Return counts of days in [from, to) with at least one reservation.
+     *
+     * @param from first day.
+     * @param to day after the last day.
+     * @return counts by day in order, counts[status.ordinal() * categories + category.ordinal()].
+     */
+    NavigableMap<LocalDate, long[]> counts(LocalDate from, LocalDate to) {
+        ensureLoaded();
+        queries.incrementAndGet();
+        NavigableMap<LocalDate, long[]> result = new TreeMap<LocalDate, long[]>();
+        days.subMap(from.toEpochDay(), to.toEpochDay()).forEach((day, counts) -> {
+            long[] c = new long[counts.length()];
+            long total = 0;
+            for(int i=0; i < c.length; i++) {
+                total += c[i] = counts.get(i);
+            }
+            if(total != 0) {
+                result.put(LocalDate.ofEpochDay(day), c);
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * Index of (status, category) in counts.
+     */
+    static int index(Reservation.Status status, Vehicle.Category category) {
+        return status.ordinal() * categories.length + category.ordinal();
+    }
+
+
+    /**
+     * Update counts from ChangeEvent of a successful write.
+     *
+     * @param event ChangeEvent.
+     */
+    void apply(ChangeEvent<Reservation> event) {
+        loader.apply(event);
+    }
+
+
+    private void applyLoaded(ChangeEvent<Reservation> event) {
+        switch(event.op()) {
+        case Create:
+            add(event.after(), 1);
+            break;
+        case Update:
+            add(event.before(), -1);
+            add(event.after(), 1);
+            break;
+        case Delete:
+            add(event.before(), -1);
+            break;
+        }
+    }
+
+
+    private void add(Reservation r, int delta) {
+        if(r == null)
+            return;
+        //
+        catalog.findById(r.getVehicleId()).ifPresent(v -> {
+            long day = Math.floorDiv(DateTimeCodec.localSeconds(r.getBegin()), SECONDS_PER_DAY);
+            days.computeIfAbsent(day, d -> new AtomicLongArray(statuses.length * categories.length))
+                .addAndGet(index(r.getStatus(), v.getCategory()), delta);
+        });
+    }
+
+
+    /**
+     * Load counts in the background when the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void loadOnStartup() {
+        loader.loadInBackground();
+    }
+
+
+    /**
+     * Reconcile loaded counts with the database, called periodically.
+     */
+    @Scheduled(
+        initialDelayString="${application.aggregates.reconcile-interval:PT15M}",
+        fixedDelayString="${application.aggregates.reconcile-interval:PT15M}")
+    void reconcile() {
+        if(loader.loaded()) {
+            try {
+                load();
+            //
+            } catch(org.springframework.dao.DataAccessException dax) {
+                logger.warn("reconcile reservation aggregates failed: " + dax.getMessage());
+            }
+        }
+    }
+
+
+    private void ensureLoaded() {
+        loader.ensureLoaded();
+    }
+
+
+    /**
+     * Load counts from the database. The snapshot is loaded again when
+     * ChangeEvents were applied while querying or replacing counts.
+     */
+    private void load() {
+        loader.loadSnapshot(() -> {
+            ConcurrentSkipListMap<Long, AtomicLongArray> loading = new ConcurrentSkipListMap<>();
+            jdbcTemplate.query(
+                "SELECT DATE(R.BEGIN), R.STATUS, V.CATEGORY, COUNT(*) FROM RESERVATION R " +
+                "JOIN VEHICLE V ON V.ID = R.VEHICLE_ID GROUP BY DATE(R.BEGIN), R.STATUS, V.CATEGORY",
+                rs -> {
+                    long day = rs.getDate(1).toLocalDate().toEpochDay();
+                    int status = ReservationColumns.statusOrdinal(rs.getString(2));
+                    int category = categoryOrdinal(rs.getString(3));
+                    loading.computeIfAbsent(day, d -> new AtomicLongArray(statuses.length * categories.length))
+                        .addAndGet(status * categories.length + category, rs.getLong(4));
+                });
+            return loading;
+        }, loading -> {
+            // events of writes counted by the snapshot are applied to the replaced counts
+            changeEvents.awaitDelivery("aggregates", DELIVERY_MILLIS);
+            if(loader.loaded() && ! equal(days, loading)) {
+                corrections.incrementAndGet();
+            }
+            days = loading;
+        });
+    }
+
+
+    private static int categoryOrdinal(String category) {
+        for(Vehicle.Category c : categories) {
+            if(c.name().equalsIgnoreCase(category))
+                return c.ordinal();
+        }
+        throw new IllegalArgumentException(String.format("can't parse Category from: \"%s\"", category));
+    }
+
+
+    private static boolean equal(Map<Long, AtomicLongArray> a, Map<Long, AtomicLongArray> b) {
+        return contains(a, b) && contains(b, a);
+    }
+
+
+    /**
+     * Test whether all counts of a are equal in b, missing days count 0.
+     */
+    private static boolean contains(Map<Long, AtomicLongArray> a, Map<Long, AtomicLongArray> b) {
+        for(var e : a.entrySet()) {
+            AtomicLongArray x = e.getValue(), y = b.get(e.getKey());
+            for(int i=0; i < x.length(); i++) {
+                if(x.get(i) != (y != null? y.get(i) : 0L))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+
+    @Override
+    public String metricsName() {
+        return "aggregates";
+    }
+
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        boolean loaded = loader.loaded();
+        m.put("loaded", loaded);
+        if(loaded) {
+            m.put("days", days.size());
+            m.put("loadMillis", loader.loadMillis());
+        }
+        m.put("changes", loader.changes());
+        m.put("corrections", corrections.get());
+        m.put("queries", queries.get());
+        return m;
+    }
+}
@@ -0,0 +1,275 @@
+package de.freerider.data_jdbc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import de.freerider.datamodel.DateTimeCodec;
+import de.freerider.datamodel.Locations;
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
+
+import jakarta.annotation.PreDestroy;
+
+
+/**
+ * Public component that answers analytical questions about reservations
+ * (status mix, busiest hours and locations, utilization) by scanning the
+ * off-heap columns of ReservationColumns instead of loading Reservation
+ * objects through findAllReservations(). Utilization is computed in
+ * parallel on a fork/join pool, see FleetUtilization.
+ */
+@Component
+public class ReservationAnalytics {
+
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    private static final double HOUR = 3_600_000.0;
+
+    /**
+     * Maximum number of days of a utilization report.
+     */
+    public static final int MAX_DAYS = 3660;
+
+    /**
+     * Maximum number of vehicle x day values of a utilization report with
+     * utilization per vehicle.
+     */
+    public static final int MAX_VEHICLE_DAYS = 1_000_000;
+
+    /**
+     * Off-heap columnar copy of RESERVATION.
+     */
+    @Autowired
+    private ReservationColumns columns;
+
+    /**
+     * In-memory catalog of vehicles.
+     */
+    @Autowired
+    private VehicleCatalog catalog;
+
+    /**
+     * Number of fork/join worker threads, 0 for the number of cores.
+     */
+    @Value("${application.analytics.parallelism:0}")
+    private int parallelism;
+
+    /**
+     * Counts by day, status and category, maintained incrementally.
+     */
+    @Autowired
+    private ReservationAggregates aggregates;
+
+    /**
+     * Pool running utilization tasks, created on first use.
+     */
+    private ForkJoinPool pool;
+
+
+    /**
+     * Aggregate reservations with begin in [from, to).
+     *
+     * @param from lower bound of begin (msec since 1970-01-01).
+     * @param to upper bound of begin (exclusive).
+     * @return counts by status, local hour of day of begin and pickup location.
+     */
+    public ReservationStats reservationStats(long from, long to) {
+        long t0 = System.nanoTime();
+        Reservation.Status[] statuses = Reservation.Status.values();
+        long[] byStatus = new long[statuses.length];
+        long[] byHour = new long[24];
+        long[][] byPickup = new long[1][];
+        long total = columns.scan(chunks -> {
+            long n = 0;
+            byPickup[0] = new long[Locations.size()];
+            for(ReservationColumns.Chunk c : chunks) {
+                for(int r=0; r < ReservationColumns.CHUNK_ROWS; r++) {
+                    byte status = c.status(r);
+                    if(status == ReservationColumns.FREE)
+                        continue;
+                    long begin = c.begin(r);
+                    if(begin < from || begin >= to)
+                        continue;
+                    //
+                    n++;
+                    byStatus[status]++;
+                    byHour[(int)(Math.floorMod(DateTimeCodec.localSeconds(begin), SECONDS_PER_DAY) / 3600)]++;
+                    int pickup = c.pickup(r);
+                    if(pickup >= 0 && pickup < byPickup[0].length) {
+                        byPickup[0][pickup]++;      // not counted: locations past dictionary capacity
+                    }
+                }
+            }
+            return n;
+        });
+        //
+        Map<String, Long> status = new LinkedHashMap<String, Long>();
+        for(Reservation.Status s : statuses) {
+            status.put(s.name(), byStatus[s.ordinal()]);
+        }
+        long[] pickups = byPickup[0];
+        Map<String, Long> pickup = new LinkedHashMap<String, Long>();
+        IntStream.range(0, pickups.length)
+            .filter(code -> pickups[code] > 0)
+            .boxed()
+            .sorted(Comparator.comparingLong((Integer code) -> pickups[code]).reversed())
+            .forEach(code -> pickup.put(Locations.name(code), pickups[code]));
+        //
+        return new ReservationStats(total, status, byHour, pickup, (System.nanoTime() - t0) / 1_000_000L);
+    }
+
+
+    /**
+     * Return number of reservations per local day of begin in [from, to) by
+     * status and vehicle category, served from ReservationAggregates.
+     *
+     * @param from first day.
+     * @param to day after the last day.
+     * @param status status to count, null for all statuses.
+     * @param category vehicle category to count, null for all categories.
+     * @return counts of days with reservations in order of days.
+     * @throws IllegalArgumentException for from not before to.
+     */
+    public List<DailyCounts> dailyCounts(LocalDate from, LocalDate to, Reservation.Status status,
+            Vehicle.Category category) {
+        if( ! from.isBefore(to))
+            throw new IllegalArgumentException(String.format("from: %s not before to: %s", from, to));
+        //
+        List<DailyCounts> result = new ArrayList<DailyCounts>();
+        aggregates.counts(from, to).forEach((day, counts) -> {
+            long total = 0;
+            Map<String, Map<String, Long>> byStatus = new LinkedHashMap<String, Map<String, Long>>();
+            for(Reservation.Status s : Reservation.Status.values()) {
+                if(status != null && s != status)
+                    continue;
+                for(Vehicle.Category c : Vehicle.Category.values()) {
+                    long n = counts[ReservationAggregates.index(s, c)];
+                    if(n != 0 && (category == null || c == category)) {
+                        byStatus.computeIfAbsent(s.name(), k -> new LinkedHashMap<String, Long>()).put(c.name(), n);
+                        total += n;
+                    }
+                }
+            }
+            if(total != 0) {
+                result.add(new DailyCounts(day.toString(), total, byStatus));
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * Compute utilization of vehicles per local day in [from, to).
+     *
+     * @param from first day.
+     * @param to day after the last day.
+     * @param category category of included vehicles, null for all vehicles.
+     * @param perVehicle true to include utilization per vehicle.
+     * @return utilization per day of the fleet, categories and optionally vehicles.
+     * @throws IllegalArgumentException for from not before to, more than
+     * MAX_DAYS days or more than MAX_VEHICLE_DAYS values per vehicle.
+     */
+    public UtilizationReport utilization(LocalDate from, LocalDate to, Vehicle.Category category,
+            boolean perVehicle) {
+        return utilization(from, to, category, perVehicle, pool());
+    }
+
+
+    /**
+     * Compute utilization on a given pool, e.g. to compare parallelism.
+     */
+    UtilizationReport utilization(LocalDate from, LocalDate to, Vehicle.Category category,
+            boolean perVehicle, ForkJoinPool pool) {
+        if( ! from.isBefore(to))
+            throw new IllegalArgumentException(String.format("from: %s not before to: %s", from, to));
+        if(to.toEpochDay() - from.toEpochDay() > MAX_DAYS)
+            throw new IllegalArgumentException(String.format("from: %s to: %s exceeds %d days", from, to, MAX_DAYS));
+        int days = (int)(to.toEpochDay() - from.toEpochDay());
+        //
+        long t0 = System.nanoTime();
+        List<String> dayNames = new ArrayList<String>(days);
+        long[] dayStarts = new long[days + 1];
+        for(int d=0; d <= days; d++) {
+            LocalDate day = from.plusDays(d);
+            dayStarts[d] = DateTimeCodec.parse(day + " 00:00:00");
+            if(d < days) {
+                dayNames.add(day.toString());
+            }
+        }
+        List<Vehicle> vehicles = catalog.find(new VehicleCatalog.Filter(category, null, null, 0), id -> true);
+        if(perVehicle && (long)vehicles.size() * days > MAX_VEHICLE_DAYS)
+            throw new IllegalArgumentException(String.format("%d vehicles x %d days exceed %d values",
+                vehicles.size(), days, MAX_VEHICLE_DAYS));
+        //
+        FleetUtilization u = columns.scan(chunks ->
+            new FleetUtilization(dayStarts, vehicles, perVehicle, pool.getParallelism()).compute(chunks, pool));
+        //
+        Vehicle.Category[] all = Vehicle.Category.values();
+        int[] counts = u.vehiclesByCategory();
+        double[] fleetBooked = new double[days];
+        Map<String, UtilizationReport.Utilization> categories = new LinkedHashMap<String, UtilizationReport.Utilization>();
+        for(Vehicle.Category c : all) {
+            if(category != null && c != category)
+                continue;
+            double[] booked = new double[days];
+            for(int d=0; d < days; d++) {
+                booked[d] = u.booked(c.ordinal(), d) / HOUR;
+                fleetBooked[d] += booked[d];
+            }
+            categories.put(c.name(), utilization(counts[c.ordinal()], booked, u));
+        }
+        Map<Long, double[]> byVehicle = null;
+        if(perVehicle) {
+            byVehicle = new LinkedHashMap<Long, double[]>();
+            for(int i=0; i < u.vehicles(); i++) {
+                long[] booked = u.bookedByVehicle(i);
+                double[] utilization = new double[days];
+                for(int d=0; booked != null && d < days; d++) {
+                    utilization[d] = booked[d] / (double)u.dayLength(d);
+                }
+                byVehicle.put(u.vehicleId(i), utilization);
+            }
+        }
+        return new UtilizationReport(from.toString(), to.toString(), dayNames,
+            utilization(u.vehicles(), fleetBooked, u), categories, byVehicle,
+            pool.getParallelism(), (System.nanoTime() - t0) / 1_000_000L);
+    }
+
+
+    private static UtilizationReport.Utilization utilization(int vehicles, double[] bookedHours, FleetUtilization u) {
+        double[] utilization = new double[bookedHours.length];
+        for(int d=0; vehicles > 0 && d < utilization.length; d++) {
+            utilization[d] = bookedHours[d] / (vehicles * (u.dayLength(d) / HOUR));
+        }
+        return new UtilizationReport.Utilization(vehicles, bookedHours, utilization);
+    }
+
+
+    private synchronized ForkJoinPool pool() {
+        if(pool == null) {
+            pool = new ForkJoinPool(parallelism > 0? parallelism : Runtime.getRuntime().availableProcessors());
+        }
+        return pool;
+    }
+
+
+    /**
+     * Shut down the fork/join pool.
+     */
+    @PreDestroy
+    synchronized void shutdown() {
+        if(pool != null) {
+            pool.shutdown();
+        }
+    }
+}
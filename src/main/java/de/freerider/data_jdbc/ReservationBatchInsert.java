@@ -0,0 +1,239 @@
+package de.freerider.data_jdbc;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.Reservation;
+
+
+/**
+ * Non-public component that inserts lists of Reservations with JDBC batch
+ * statements. With Connector/J option rewriteBatchedStatements=true, each
+ * batch is sent as one multi-row INSERT.
+ *
+ * Items are processed in three steps:
+ * <pre>
+ *  1. validate attributes of each item (400 bad request), duplicate ids
+ *     within the batch (409 conflict),
+ *  2. look up ids that exist and customers/vehicles that do not exist with
+ *     bucketed WHERE ID IN (?, ...) queries (409 conflict, 400 bad request),
+ *  3. insert remaining items in chunks of application.reservations.batch.
+ *     chunk-size rows, one transaction per chunk (0: one transaction),
+ *     after claiming the interval of each booked vehicle (409 conflict
+ *     when it overlaps another reservation).
+ * </pre>
+ * When a chunk fails (e.g. a concurrent insert of the same id), its
+ * transaction is rolled back and its items are inserted one by one to
+ * report per-item results.
+ */
+@Component
+class ReservationBatchInsert {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ReservationBatchInsert.class);
+
+    /**
+     * Attributes, validation and INSERT statement of RESERVATION rows.
+     */
+    private static final ImportTable table = ImportTable.Reservations;
+
+    @Autowired
+    private DataFactory dataFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Runs each chunk in a transaction.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ChangeEvents changeEvents;
+
+    /**
+     * Index of reserved vehicles, rejects overlapping reservations.
+     */
+    @Autowired
+    private ReservationIntervals intervals;
+
+    /**
+     * Number of rows inserted per transaction, 0 for one transaction per batch.
+     */
+    @Value("${application.reservations.batch.chunk-size:500}")
+    private int chunkSize;
+
+    /*
+     * Lookups of existing ids in RESERVATION, CUSTOMER and VEHICLE tables.
+     */
+    private final BatchLookup reservationIds = new BatchLookup("RESERVATION");
+    private final BatchLookup customerIds = new BatchLookup("CUSTOMER");
+    private final BatchLookup vehicleIds = new BatchLookup("VEHICLE");
+
+
+    /**
+     * Validated item of a batch.
+     */
+    private record Item(int index, Reservation reservation) { }
+
+
+    /**
+     * Insert Reservations from name-value pairs (same attributes as
+     * DataAccessReservations.createReservation()).
+     *
+     * @param maps name-value pairs of Reservations.
+     * @return one result per item in order of maps.
+     */
+    List<BatchResult> insert(List<Map<String, Object>> maps) {
+        BatchResult[] results = new BatchResult[maps.size()];
+        List<Item> items = new ArrayList<Item>(maps.size());
+        Set<Long> ids = new HashSet<Long>();
+        List<Item> claimed = List.of();
+        //
+        // 1. validate attributes
+        for(int i=0; i < maps.size(); i++) {
+            Map<String, Object> map = maps.get(i);
+            long id = map != null? EntityCache.idOf(map) : -1L;
+            Optional<Reservation> reservation = map != null?
+                table.create(map, dataFactory).map(Reservation.class::cast) : Optional.empty();
+            if(reservation.isEmpty()) {
+                results[i] = BatchResult.badRequest(i, id, "invalid or incomplete attributes");
+            } else if( ! ids.add(id)) {
+                results[i] = BatchResult.conflict(i, id, "duplicate id in batch");
+            } else {
+                items.add(new Item(i, reservation.get()));
+            }
+        }
+        //
+        // 2. probe existing ids and references
+        if(items.size() > 0) {
+            Set<Long> existing = existing(reservationIds, items.stream().map(it -> it.reservation().getId()).toList());
+            Set<Long> customers = existing(customerIds, items.stream().map(it -> it.reservation().getCustomerId()).toList());
+            Set<Long> vehicles = existing(vehicleIds, items.stream().map(it -> it.reservation().getVehicleId()).toList());
+            claimed = new ArrayList<Item>(items.size());
+            for(Item it : items) {
+                Reservation r = it.reservation();
+                if(existing.contains(r.getId())) {
+                    results[it.index()] = BatchResult.conflict(it.index(), r.getId(), "id exists");
+                } else if( ! customers.contains(r.getCustomerId())) {
+                    results[it.index()] = BatchResult.badRequest(it.index(), r.getId(),
+                        String.format("customer_id: %d not found", r.getCustomerId()));
+                } else if( ! vehicles.contains(r.getVehicleId())) {
+                    results[it.index()] = BatchResult.badRequest(it.index(), r.getId(),
+                        String.format("vehicle_id: %d not found", r.getVehicleId()));
+                } else if( ! claim(r)) {
+                    results[it.index()] = BatchResult.conflict(it.index(), r.getId(),
+                        String.format("vehicle_id: %d is reserved", r.getVehicleId()));
+                } else {
+                    claimed.add(it);
+                }
+            }
+            items = claimed;
+        }
+        //
+        // 3. insert in chunks
+        boolean[] written = new boolean[results.length];
+        try {
+            int chunk = chunkSize > 0? chunkSize : Math.max(1, items.size());
+            for(int from=0; from < items.size(); from += chunk) {
+                List<Item> part = items.subList(from, Math.min(items.size(), from + chunk));
+                try {
+                    transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                        table.insertSql, part, part.size(), (ps, it) -> table.bind(ps, it.reservation())));
+                    //
+                    for(Item it : part) {
+                        written[it.index()] = true;
+                        results[it.index()] = BatchResult.created(it.index(), it.reservation().getId());
+                        publish(it.reservation());
+                    }
+                } catch(org.springframework.dao.DataAccessException dax) {
+                    logger.warn(String.format("batch insert of %d reservations rolled back, inserting one by one: %s",
+                        part.size(), dax.getMessage()));
+                    for(Item it : part) {
+                        results[it.index()] = insertOne(it, written);
+                    }
+                }
+            }
+        } finally {
+            // claims of items not written, e.g. when the transaction fails
+            for(Item it : claimed) {
+                if( ! written[it.index()]) {
+                    release(it.reservation());
+                }
+            }
+        }
+        return List.of(results);
+    }
+
+
+    /**
+     * Insert one item in its own transaction (auto-commit), its claim is
+     * released by the caller when not written.
+     */
+    private BatchResult insertOne(Item it, boolean[] written) {
+        Reservation r = it.reservation();
+        try {
+            jdbcTemplate.update(table.insertSql, ps -> table.bind(ps, r));
+            written[it.index()] = true;
+            publish(r);
+            return BatchResult.created(it.index(), r.getId());
+        //
+        } catch(org.springframework.dao.DataAccessException dax) {
+            return BatchResult.conflict(it.index(), r.getId(), "INSERT exception, id may exist");
+        }
+    }
+
+
+    /**
+     * Claim interval of a reservation that holds its vehicle.
+     *
+     * @return false if the interval overlaps another reservation.
+     */
+    private boolean claim(Reservation r) {
+        try {
+            if(ReservationIntervals.holdsVehicle(r.getStatus())) {
+                intervals.claim(r.getId(), r.getVehicleId(), r.getBegin(), r.getEnd());
+            }
+            return true;
+        //
+        } catch(DataAccessException dax) {
+            return false;
+        }
+    }
+
+
+    private void release(Reservation r) {
+        if(ReservationIntervals.holdsVehicle(r.getStatus())) {
+            intervals.restore(r.getId(), null);
+        }
+    }
+
+
+    private void publish(Reservation r) {
+        table.publishCreated(changeEvents, r);
+    }
+
+
+    /**
+     * Return subset of ids that exist in a table.
+     */
+    private Set<Long> existing(BatchLookup lookup, List<Long> ids) {
+        return new HashSet<Long>(lookup.findAll(jdbcTemplate, ids, (rs, rowNum) -> Optional.of(rs.getLong("ID"))));
+    }
+}
@@ -0,0 +1,383 @@
+package de.freerider.data_jdbc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import de.freerider.datamodel.Locations;
+import de.freerider.datamodel.Reservation;
+
+
+/**
+ * Non-public columnar copy of the RESERVATION table held off-heap for
+ * analytics scans that read primitive values without creating Reservation
+ * objects.
+ *
+ * Rows are stored in chunks of 65536 rows, each chunk is one direct
+ * ByteBuffer with one region per column:
+ * <pre>
+ *  | ID long | CUSTOMER_ID long | VEHICLE_ID long | BEGIN long | END long |
+ *  | PICKUP int | DROPOFF int | STATUS byte |      (49 bytes per row)
+ * </pre>
+ * PICKUP and DROPOFF are codes of the Locations dictionary (-1 for locations
+ * past its capacity), STATUS is the
+ * ordinal of Reservation.Status or FREE for rows of deleted reservations,
+ * which are reused by later inserts. Chunks are allocated as the table
+ * grows and never move, the heap only holds chunk headers, a row-by-id map
+ * and the list of free rows.
+ *
+ * ChangeEvents keep the columns current after writes. The columns are
+ * loaded in the background at startup (or on first use):
+ * <pre>
+ *  SELECT ID, CUSTOMER_ID, VEHICLE_ID, BEGIN, END, PICKUP, DROPOFF, STATUS FROM RESERVATION;
+ * </pre>
+ * Scans run under a read lock that excludes updates of the columns for
+ * their duration. Updates are applied in the thread of an asynchronous
+ * ChangeEvents subscription, writes through the DAO never wait for scans.
+ */
+@Component
+class ReservationColumns implements Metrics {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ReservationColumns.class);
+
+    /**
+     * Rows per chunk.
+     */
+    static final int CHUNK_ROWS = 1 << 16;
+
+    /**
+     * STATUS value of free rows.
+     */
+    static final byte FREE = -1;
+
+    /**
+     * Receiver of rows while loading, values as stored in the columns.
+     */
+    @FunctionalInterface
+    interface RowSink {
+        void accept(long id, long customerId, long vehicleId, long begin, long end,
+            int pickup, int dropoff, int status);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Chunks in row order, row r is in chunk r / CHUNK_ROWS (guarded by lock).
+     */
+    private final List<Chunk> chunks = new ArrayList<Chunk>();
+
+    /**
+     * Rows in use or free, rows &gt;= used are unused (guarded by lock).
+     */
+    private int used = 0;
+
+    /**
+     * Stack of free rows below used (guarded by lock).
+     */
+    private int[] free = new int[64];
+    private int freeCount = 0;
+
+    /**
+     * Reservation id -&gt; row (guarded by lock).
+     */
+    private final SlotMap rows = new SlotMap();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final IndexLoader<Reservation> loader =
+        new IndexLoader<Reservation>(logger, "reservation columns", this::load, this::applyLoaded);
+
+    private final AtomicLong scans = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+
+
+    /**
+     * Constructor, subscribes columns to ChangeEvents of Reservations.
+     *
+     * @param jdbcTemplate JdbcTemplate for loading the columns.
+     * @param changeEvents source of ChangeEvents.
+     */
+    ReservationColumns(JdbcTemplate jdbcTemplate, ChangeEvents changeEvents) {
+        this.jdbcTemplate = jdbcTemplate;
+        changeEvents.subscribeAsync(Reservation.class, "columns", this::apply, loader::reload);
+    }
+
+
+    /**
+     * Run a scan over all chunks under the read lock. Chunks must not be
+     * used after the scan returns, rows with status FREE must be skipped.
+     *
+     * @param <R> result type.
+     * @param scan function of the chunks in row order.
+     * @return result of scan.
+     */
+    <R> R scan(Function<List<Chunk>, R> scan) {
+        ensureLoaded();
+        scans.incrementAndGet();
+        lock.readLock().lock();
+        try {
+            return scan.apply(List.copyOf(chunks));
+        //
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Update columns from ChangeEvent of a successful write.
+     *
+     * @param event ChangeEvent.
+     */
+    void apply(ChangeEvent<Reservation> event) {
+        loader.apply(event);
+    }
+
+
+    private void applyLoaded(ChangeEvent<Reservation> event) {
+        Reservation r = event.op() == ChangeEvent.Op.Delete? null : event.after();
+        lock.writeLock().lock();
+        try {
+            if(r != null) {
+                put(r.getId(), r.getCustomerId(), r.getVehicleId(), r.getBegin(), r.getEnd(),
+                    Locations.code(r.getPickup()), Locations.code(r.getDropoff()), r.getStatus().ordinal());
+            } else {
+                int row = rows.remove(event.id());
+                if(row >= 0) {
+                    chunks.get(row / CHUNK_ROWS).clear(row % CHUNK_ROWS);
+                    if(freeCount == free.length) {
+                        free = Arrays.copyOf(free, freeCount * 2);
+                    }
+                    free[freeCount++] = row;
+                }
+            }
+            writes.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Insert or overwrite row of reservation id (guarded by write lock).
+     */
+    private void put(long id, long customerId, long vehicleId, long begin, long end,
+            int pickup, int dropoff, int status) {
+        int row = rows.get(id);
+        if(row < 0) {
+            if(freeCount > 0) {
+                row = free[--freeCount];
+            } else {
+                if(used == chunks.size() * CHUNK_ROWS) {
+                    chunks.add(new Chunk());
+                }
+                row = used++;
+            }
+            rows.put(id, row);
+        }
+        Chunk chunk = chunks.get(row / CHUNK_ROWS);
+        chunk.set(row % CHUNK_ROWS, id, customerId, vehicleId, begin, end, pickup, dropoff, status);
+    }
+
+
+    /**
+     * Load columns in the background when the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void loadOnStartup() {
+        loader.loadInBackground();
+    }
+
+
+    private void ensureLoaded() {
+        loader.ensureLoaded();
+    }
+
+
+    /**
+     * Load columns from the database.
+     */
+    private void load() {
+        load(rows -> jdbcTemplate.query(JdbcStreams.streaming(
+            "SELECT ID, CUSTOMER_ID, VEHICLE_ID, BEGIN, END, PICKUP, DROPOFF, STATUS FROM RESERVATION"),
+            rs -> {
+                rows.accept(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                    SqlDateTime.get(rs, "BEGIN"), SqlDateTime.get(rs, "END"),
+                    Locations.code(rs.getString(6)), Locations.code(rs.getString(7)),
+                    statusOrdinal(rs.getString(8)));
+            }));
+    }
+
+
+    /**
+     * Load columns from a source of rows, ChangeEvents received while
+     * loading are replayed on the loaded columns (replaying is idempotent).
+     *
+     * @param source passes rows of all reservations to its argument.
+     */
+    void load(Consumer<RowSink> source) {
+        loader.load(() -> {
+            lock.writeLock().lock();
+            try {
+                clear();
+                source.accept(this::put);
+            //
+            } catch(RuntimeException ex) {
+                clear();
+                throw ex;
+            //
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }, () -> String.format("%d rows, %d chunks", used, chunks.size()));
+    }
+
+
+    private void clear() {
+        chunks.clear();
+        rows.clear();
+        used = 0;
+        freeCount = 0;
+    }
+
+
+    /**
+     * Return ordinal of Reservation.Status name, ignoring case.
+     *
+     * @param status name of status.
+     * @return ordinal of status.
+     * @throws IllegalArgumentException for unknown status.
+     */
+    static int statusOrdinal(String status) {
+        for(Reservation.Status s : Reservation.Status.values()) {
+            if(s.name().equalsIgnoreCase(status))
+                return s.ordinal();
+        }
+        throw new IllegalArgumentException(String.format("can't parse Status from: \"%s\"", status));
+    }
+
+
+    @Override
+    public String metricsName() {
+        return "columns";
+    }
+
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        boolean loaded = loader.loaded();
+        m.put("loaded", loaded);
+        if(loaded) {
+            lock.readLock().lock();
+            try {
+                m.put("rows", rows.size());
+                m.put("freeRows", freeCount);
+                m.put("chunks", chunks.size());
+                m.put("offHeapBytes", (long)chunks.size() * Chunk.BYTES);
+            } finally {
+                lock.readLock().unlock();
+            }
+            m.put("loadMillis", loader.loadMillis());
+        }
+        m.put("scans", scans.get());
+        m.put("writes", writes.get());
+        return m;
+    }
+
+
+    /**
+     * CHUNK_ROWS rows in one direct ByteBuffer (native byte order), one
+     * region per column. Rows are numbered 0 .. CHUNK_ROWS - 1 within the
+     * chunk, unused rows have status FREE.
+     */
+    static final class Chunk {
+        private static final int ID = 0;
+        private static final int CUSTOMER_ID = ID + 8 * CHUNK_ROWS;
+        private static final int VEHICLE_ID = CUSTOMER_ID + 8 * CHUNK_ROWS;
+        private static final int BEGIN = VEHICLE_ID + 8 * CHUNK_ROWS;
+        private static final int END = BEGIN + 8 * CHUNK_ROWS;
+        private static final int PICKUP = END + 8 * CHUNK_ROWS;
+        private static final int DROPOFF = PICKUP + 4 * CHUNK_ROWS;
+        private static final int STATUS = DROPOFF + 4 * CHUNK_ROWS;
+        static final int BYTES = STATUS + CHUNK_ROWS;
+
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BYTES).order(ByteOrder.nativeOrder());
+
+
+        Chunk() {
+            for(int r=0; r < CHUNK_ROWS; r++) {
+                buffer.put(STATUS + r, FREE);
+            }
+        }
+
+        long id(int r) {
+            return buffer.getLong(ID + (r << 3));
+        }
+
+        long customerId(int r) {
+            return buffer.getLong(CUSTOMER_ID + (r << 3));
+        }
+
+        long vehicleId(int r) {
+            return buffer.getLong(VEHICLE_ID + (r << 3));
+        }
+
+        long begin(int r) {
+            return buffer.getLong(BEGIN + (r << 3));
+        }
+
+        long end(int r) {
+            return buffer.getLong(END + (r << 3));
+        }
+
+        int pickup(int r) {
+            return buffer.getInt(PICKUP + (r << 2));
+        }
+
+        int dropoff(int r) {
+            return buffer.getInt(DROPOFF + (r << 2));
+        }
+
+        /**
+         * Return ordinal of Reservation.Status or FREE.
+         */
+        byte status(int r) {
+            return buffer.get(STATUS + r);
+        }
+
+        private void set(int r, long id, long customerId, long vehicleId, long begin, long end,
+                int pickup, int dropoff, int status) {
+            buffer.putLong(ID + (r << 3), id);
+            buffer.putLong(CUSTOMER_ID + (r << 3), customerId);
+            buffer.putLong(VEHICLE_ID + (r << 3), vehicleId);
+            buffer.putLong(BEGIN + (r << 3), begin);
+            buffer.putLong(END + (r << 3), end);
+            buffer.putInt(PICKUP + (r << 2), pickup);
+            buffer.putInt(DROPOFF + (r << 2), dropoff);
+            buffer.put(STATUS + r, (byte)status);
+        }
+
+        private void clear(int r) {
+            buffer.put(STATUS + r, FREE);
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package de.freerider.data_jdbc;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import de.freerider.datamodel.Reservation;
+
+
+/**
+ * Non-public in-memory index of the time intervals [begin, end) during which
+ * vehicles are reserved, used to reject overlapping bookings (409 conflict)
+ * without range scans in the database.
+ *
+ * Only reservations in states that hold a vehicle (InquiryConfirmed, Booked)
+ * are indexed. Each vehicle has arrays of intervals sorted by begin with a
+ * prefix maximum of end values, an overlap test is a binary search followed
+ * by a scan that stops as soon as no earlier interval can reach the new one.
+ *
+ * Writers claim the interval of a reservation before the INSERT or UPDATE,
+ * atomically per vehicle, and restore the previous state if the write fails.
+ * ChangeEvents keep the index current after writes. The index is loaded in
+ * the background at startup (or on first use):
+ * <pre>
+ *  SELECT ID, VEHICLE_ID, BEGIN, END FROM RESERVATION WHERE STATUS IN ('InquiryConfirmed', 'Booked');
+ * </pre>
+ */
+@Component
+class ReservationIntervals implements Metrics {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ReservationIntervals.class);
+
+    /**
+     * Interval during which a reservation holds a vehicle.
+     */
+    record Interval(long id, long vehicleId, long begin, long end) { }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Intervals by vehicle id, null until loaded.
+     */
+    private volatile Map<Long, VehicleIntervals> vehicles;
+
+    /**
+     * Intervals by reservation id, null until loaded.
+     */
+    private volatile Map<Long, Interval> intervals;
+
+    private final IndexLoader<Reservation> loader =
+        new IndexLoader<Reservation>(logger, "reservation intervals", this::load, this::applyLoaded);
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+
+    /**
+     * Constructor, subscribes index to ChangeEvents of Reservations.
+     *
+     * @param jdbcTemplate JdbcTemplate for loading the index.
+     * @param changeEvents source of ChangeEvents.
+     */
+    ReservationIntervals(JdbcTemplate jdbcTemplate, ChangeEvents changeEvents) {
+        this.jdbcTemplate = jdbcTemplate;
+        changeEvents.subscribe(Reservation.class, this::apply);
+    }
+
+
+    /**
+     * Test whether a reservation status holds the vehicle.
+     *
+     * @param status status of reservation.
+     * @return true for InquiryConfirmed and Booked.
+     */
+    static boolean holdsVehicle(Reservation.Status status) {
+        return status == Reservation.Status.InquiryConfirmed || status == Reservation.Status.Booked;
+    }
+
+
+    /**
+     * Claim interval for a new reservation.
+     *
+     * @param id id of new reservation.
+     * @param vehicleId reserved vehicle.
+     * @param begin begin of reservation (msec since 1970-01-01).
+     * @param end end of reservation (exclusive).
+     * @throws DataAccessException.Conflict when the interval overlaps another
+     * reservation of the vehicle or the id is already indexed.
+     */
+    void claim(long id, long vehicleId, long begin, long end) throws DataAccessException {
+        ensureLoaded();
+        if(intervals.containsKey(id))
+            throw new DataAccessException.Conflict("reservation id exists: " + id);
+        claim(new Interval(id, vehicleId, begin, end));
+    }
+
+
+    /**
+     * Claim new interval of an existing reservation (changed vehicle, begin,
+     * end or status), replacing its current interval.
+     *
+     * @param id id of reservation.
+     * @param vehicleId reserved vehicle.
+     * @param begin begin of reservation (msec since 1970-01-01).
+     * @param end end of reservation (exclusive).
+     * @return previous interval to restore if the write fails, or null.
+     * @throws DataAccessException.Conflict when the interval overlaps another
+     * reservation of the vehicle.
+     */
+    Interval claimUpdate(long id, long vehicleId, long begin, long end) throws DataAccessException {
+        ensureLoaded();
+        Interval previous = intervals.get(id);
+        claim(new Interval(id, vehicleId, begin, end));
+        if(previous != null && previous.vehicleId() != vehicleId) {
+            vehicle(previous.vehicleId()).remove(previous);
+        }
+        return previous;
+    }
+
+
+    /**
+     * Restore interval of a reservation after a failed write.
+     *
+     * @param id id of reservation.
+     * @param previous interval before the claim, null removes the claim.
+     */
+    void restore(long id, Interval previous) {
+        Map<Long, Interval> byId = intervals;
+        if(byId == null)
+            return;
+        Interval claimed = previous != null? byId.put(id, previous) : byId.remove(id);
+        if(claimed != null) {
+            vehicle(claimed.vehicleId()).remove(claimed);
+        }
+        if(previous != null) {
+            vehicle(previous.vehicleId()).put(previous);
+        }
+    }
+
+
+    /**
+     * Return id of a reservation that holds the vehicle during [begin, end).
+     *
+     * @param vehicleId vehicle.
+     * @param begin begin of interval (msec since 1970-01-01).
+     * @param end end of interval (exclusive).
+     * @return id of an overlapping reservation or -1 if the vehicle is free.
+     */
+    long findOverlap(long vehicleId, long begin, long end) {
+        ensureLoaded();
+        VehicleIntervals v = vehicles.get(vehicleId);
+        return v != null? v.overlap(begin, end, -1L) : -1L;
+    }
+
+
+    /**
+     * Claim interval under the lock of its vehicle.
+     */
+    private void claim(Interval iv) throws DataAccessException {
+        checks.incrementAndGet();
+        VehicleIntervals v = vehicle(iv.vehicleId());
+        synchronized(v) {
+            long other = v.overlap(iv.begin(), iv.end(), iv.id());
+            if(other >= 0) {
+                conflicts.incrementAndGet();
+                throw new DataAccessException.Conflict(String.format(
+                    "reservation id: %d overlaps reservation id: %d of vehicle id: %d",
+                    iv.id(), other, iv.vehicleId()));
+            }
+            v.put(iv);
+            intervals.put(iv.id(), iv);
+        }
+    }
+
+
+    /**
+     * Update index from ChangeEvent of a successful write.
+     *
+     * @param event ChangeEvent.
+     */
+    void apply(ChangeEvent<Reservation> event) {
+        loader.apply(event);
+    }
+
+
+    private void applyLoaded(ChangeEvent<Reservation> event) {
+        Reservation r = event.op() == ChangeEvent.Op.Delete? null : event.after();
+        if(r != null && holdsVehicle(r.getStatus())) {
+            Interval iv = new Interval(r.getId(), r.getVehicleId(), r.getBegin(), r.getEnd());
+            Interval previous = intervals.put(iv.id(), iv);
+            if(previous != null && ! previous.equals(iv)) {
+                vehicle(previous.vehicleId()).remove(previous);
+            }
+            vehicle(iv.vehicleId()).put(iv);
+        } else {
+            Interval previous = intervals.remove(event.id());
+            if(previous != null) {
+                vehicle(previous.vehicleId()).remove(previous);
+            }
+        }
+    }
+
+
+    /**
+     * Load index in the background when the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void loadOnStartup() {
+        loader.loadInBackground();
+    }
+
+
+    private void ensureLoaded() {
+        loader.ensureLoaded();
+    }
+
+
+    /**
+     * Load index from the database.
+     */
+    private void load() {
+        load(rows -> jdbcTemplate.query(JdbcStreams.streaming(
+            "SELECT ID, VEHICLE_ID, BEGIN, END FROM RESERVATION WHERE STATUS IN (?, ?)",
+            Reservation.Status.InquiryConfirmed.name(), Reservation.Status.Booked.name()),
+            rs -> {
+                rows.accept(new Interval(rs.getLong(1), rs.getLong(2),
+                    SqlDateTime.get(rs, "BEGIN"), SqlDateTime.get(rs, "END")));
+            }));
+    }
+
+
+    /**
+     * Load index from a source of intervals, ChangeEvents received while
+     * loading are replayed on the loaded index (replaying is idempotent).
+     *
+     * @param source passes intervals of reservations that hold a vehicle to
+     * its argument.
+     */
+    void load(Consumer<Consumer<Interval>> source) {
+        loader.load(() -> {
+            Map<Long, VehicleIntervals> byVehicle = new ConcurrentHashMap<Long, VehicleIntervals>();
+            Map<Long, Interval> byId = new ConcurrentHashMap<Long, Interval>();
+            source.accept(iv -> {
+                byId.put(iv.id(), iv);
+                byVehicle.computeIfAbsent(iv.vehicleId(), VehicleIntervals::new).append(iv);
+            });
+            byVehicle.values().forEach(VehicleIntervals::sort);
+            vehicles = byVehicle;   // claims wait for loaded, replayed events see the maps
+            intervals = byId;
+        }, () -> String.format("%d vehicles, %d intervals", vehicles.size(), intervals.size()));
+    }
+
+
+    private VehicleIntervals vehicle(long vehicleId) {
+        return vehicles.computeIfAbsent(vehicleId, VehicleIntervals::new);
+    }
+
+
+    @Override
+    public String metricsName() {
+        return "intervals";
+    }
+
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        boolean loaded = loader.loaded();
+        m.put("loaded", loaded);
+        if(loaded) {
+            m.put("vehicles", vehicles.size());
+            m.put("intervals", intervals.size());
+            m.put("loadMillis", loader.loadMillis());
+        }
+        m.put("checks", checks.get());
+        m.put("conflicts", conflicts.get());
+        return m;
+    }
+
+
+    /**
+     * Intervals of one vehicle sorted by begin, with prefix maximum of end
+     * values: maxEnd[i] = max(end[0..i]). Methods are synchronized, claims
+     * synchronize on the object to test and insert atomically.
+     */
+    static final class VehicleIntervals {
+        final long vehicleId;
+        private long[] begins = new long[4];
+        private long[] ends = new long[4];
+        private long[] ids = new long[4];
+        private long[] maxEnd = new long[4];
+        private int size = 0;
+
+
+        VehicleIntervals(long vehicleId) {
+            this.vehicleId = vehicleId;
+        }
+
+
+        /**
+         * Return id of an interval overlapping [begin, end) other than
+         * exclude, or -1 if none.
+         */
+        synchronized long overlap(long begin, long end, long exclude) {
+            // intervals 0..k begin before end
+            for(int i=upperBound(end - 1) - 1; i >= 0 && maxEnd[i] > begin; i--) {
+                if(ends[i] > begin && ids[i] != exclude)
+                    return ids[i];
+            }
+            return -1L;
+        }
+
+
+        /**
+         * Insert interval, replacing an interval with the same id.
+         */
+        synchronized void put(Interval iv) {
+            removeId(iv.id());
+            int pos = upperBound(iv.begin());
+            grow();
+            System.arraycopy(begins, pos, begins, pos + 1, size - pos);
+            System.arraycopy(ends, pos, ends, pos + 1, size - pos);
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            begins[pos] = iv.begin();
+            ends[pos] = iv.end();
+            ids[pos] = iv.id();
+            size++;
+            updateMaxEnd(pos);
+        }
+
+
+        /**
+         * Remove interval with id of iv.
+         */
+        synchronized void remove(Interval iv) {
+            removeId(iv.id());
+        }
+
+
+        /**
+         * Number of intervals.
+         */
+        synchronized int size() {
+            return size;
+        }
+
+
+        /**
+         * Append interval while loading (unsorted), call sort() when done.
+         */
+        void append(Interval iv) {
+            grow();
+            begins[size] = iv.begin();
+            ends[size] = iv.end();
+            ids[size] = iv.id();
+            size++;
+        }
+
+
+        /**
+         * Sort intervals appended while loading.
+         */
+        synchronized void sort() {
+            Integer[] order = new Integer[size];
+            for(int i=0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(begins[a], begins[b]));
+            long[] b = new long[begins.length], e = new long[begins.length], d = new long[begins.length];
+            for(int i=0; i < size; i++) {
+                b[i] = begins[order[i]];
+                e[i] = ends[order[i]];
+                d[i] = ids[order[i]];
+            }
+            begins = b;
+            ends = e;
+            ids = d;
+            updateMaxEnd(0);
+        }
+
+
+        private void removeId(long id) {
+            for(int i=0; i < size; i++) {
+                if(ids[i] == id) {
+                    System.arraycopy(begins, i + 1, begins, i, size - i - 1);
+                    System.arraycopy(ends, i + 1, ends, i, size - i - 1);
+                    System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                    size--;
+                    updateMaxEnd(i);
+                    return;
+                }
+            }
+        }
+
+
+        /**
+         * Return index of first interval with begin &gt; t.
+         */
+        private int upperBound(long t) {
+            int lo = 0, hi = size;
+            while(lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if(begins[mid] <= t) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+
+        private void updateMaxEnd(int from) {
+            if(maxEnd.length < begins.length) {
+                maxEnd = Arrays.copyOf(maxEnd, begins.length);
+            }
+            long max = from > 0? maxEnd[from - 1] : Long.MIN_VALUE;
+            for(int i=from; i < size; i++) {
+                max = Math.max(max, ends[i]);
+                maxEnd[i] = max;
+            }
+        }
+
+
+        private void grow() {
+            if(size == begins.length) {
+                int n = begins.length * 2;
+                begins = Arrays.copyOf(begins, n);
+                ends = Arrays.copyOf(ends, n);
+                ids = Arrays.copyOf(ids, n);
+                maxEnd = Arrays.copyOf(maxEnd, n);
+            }
+        }
+    }
+}
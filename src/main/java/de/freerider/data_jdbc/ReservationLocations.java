@@ -0,0 +1,483 @@
+package de.freerider.data_jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import de.freerider.datamodel.Locations;
+import de.freerider.datamodel.Reservation;
+
+
+/**
+ * Non-public in-memory index of reservations by pickup location, answers
+ * "reservations picking up at location L with begin in [from, to)" in
+ * (BEGIN, ID) order without scanning the RESERVATION table.
+ *
+ * Locations are codes of the Locations dictionary, each code has a Timeline
+ * of (begin, id) pairs sorted by begin and id. Writes go to a small unsorted
+ * delta of the Timeline and tombstones of removed ids, both are merged into
+ * the sorted arrays when they exceed 1/64 of its size, which keeps inserts
+ * amortized O(64) instead of shifting arrays on each write. Queries binary
+ * search the sorted arrays and merge matching delta entries.
+ *
+ * Reservations at locations past the capacity of the Locations dictionary
+ * have no code and are not indexed, queries for locations without code then
+ * return null and are answered by the database.
+ *
+ * ChangeEvents keep the index current after writes. The index is loaded in
+ * the background at startup (or on first use):
+ * <pre>
+ *  SELECT ID, BEGIN, PICKUP FROM RESERVATION;
+ * </pre>
+ */
+@Component
+class ReservationLocations implements Metrics {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ReservationLocations.class);
+
+    /**
+     * Pickup location and begin of a reservation.
+     */
+    record Pickup(long id, int location, long begin) { }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Timelines by location code, null for locations without reservations
+     * (guarded by lock).
+     */
+    private Timeline[] timelines = new Timeline[0];
+
+    /**
+     * Reservation id -&gt; location code (guarded by lock).
+     */
+    private final SlotMap locations = new SlotMap();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Set when a reservation at a location without code was not indexed.
+     */
+    private volatile boolean unindexed = false;
+
+    private final IndexLoader<Reservation> loader =
+        new IndexLoader<Reservation>(logger, "reservation locations", this::load, this::applyLoaded);
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong merges = new AtomicLong();
+
+
+    /**
+     * Constructor, subscribes index to ChangeEvents of Reservations.
+     *
+     * @param jdbcTemplate JdbcTemplate for loading the index.
+     * @param changeEvents source of ChangeEvents.
+     */
+    ReservationLocations(JdbcTemplate jdbcTemplate, ChangeEvents changeEvents) {
+        this.jdbcTemplate = jdbcTemplate;
+        changeEvents.subscribeAsync(Reservation.class, "locations", this::apply, loader::reload);
+    }
+
+
+    /**
+     * Return ids of reservations picking up at location with begin in
+     * [from, to), ordered by (begin, id) and starting after a (begin, id)
+     * position.
+     *
+     * @param location pickup location.
+     * @param from lower bound of begin (msec since 1970-01-01).
+     * @param to upper bound of begin (exclusive).
+     * @param after_begin begin of last reservation of previous page, -1 for first page.
+     * @param after_id id of last reservation of previous page.
+     * @param limit maximum number of ids returned.
+     * @return ids of matching reservations in (begin, id) order, null when
+     *      location has no code and may have reservations that are not indexed.
+     */
+    List<Long> find(String location, long from, long to, long after_begin, long after_id, int limit) {
+        ensureLoaded();
+        queries.incrementAndGet();
+        int code = Locations.find(location);
+        if(code < 0 && unindexed)
+            return null;
+        //
+        // first position (begin, id) >= (lowBegin, lowId)
+        long lowBegin = from, lowId = Long.MIN_VALUE;
+        if(after_begin >= from) {
+            lowBegin = after_begin;
+            lowId = after_id + 1;
+        }
+        lock.readLock().lock();
+        try {
+            Timeline t = code >= 0 && code < timelines.length? timelines[code] : null;
+            return t != null? t.find(lowBegin, lowId, to, limit) : List.of();
+        //
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Update index from ChangeEvent of a successful write.
+     *
+     * @param event ChangeEvent.
+     */
+    void apply(ChangeEvent<Reservation> event) {
+        loader.apply(event);
+    }
+
+
+    private void applyLoaded(ChangeEvent<Reservation> event) {
+        Reservation before = event.before();
+        Reservation after = event.op() == ChangeEvent.Op.Delete? null : event.after();
+        if(before != null && after != null && before.getPickup().equals(after.getPickup()) &&
+                before.getBegin() == after.getBegin())
+            return;     // e.g. status changes
+        //
+        lock.writeLock().lock();
+        try {
+            int previous = locations.remove(event.id());
+            if(previous >= 0) {
+                timelines[previous].remove(event.id());
+            }
+            if(after != null) {
+                put(new Pickup(after.getId(), Locations.code(after.getPickup()), after.getBegin()), false);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Add pickup, appended unsorted while loading (guarded by write lock).
+     */
+    private void put(Pickup p, boolean loading) {
+        if(p.location() < 0) {
+            unindexed = true;   // location past dictionary capacity
+            return;
+        }
+        if(p.location() >= timelines.length) {
+            timelines = Arrays.copyOf(timelines, Math.max(p.location() + 1, timelines.length * 2));
+        }
+        Timeline t = timelines[p.location()];
+        if(t == null) {
+            t = timelines[p.location()] = new Timeline();
+        }
+        if(loading) {
+            t.append(p.begin(), p.id());
+        } else if(t.add(p.begin(), p.id())) {
+            merges.incrementAndGet();
+        }
+        locations.put(p.id(), p.location());
+    }
+
+
+    /**
+     * Load index in the background when the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void loadOnStartup() {
+        loader.loadInBackground();
+    }
+
+
+    private void ensureLoaded() {
+        loader.ensureLoaded();
+    }
+
+
+    /**
+     * Load index from the database.
+     */
+    private void load() {
+        load(rows -> jdbcTemplate.query(JdbcStreams.streaming(
+            "SELECT ID, BEGIN, PICKUP FROM RESERVATION"),
+            rs -> {
+                rows.accept(new Pickup(rs.getLong(1), Locations.code(rs.getString(3)),
+                    SqlDateTime.get(rs, "BEGIN")));
+            }));
+    }
+
+
+    /**
+     * Load index from a source of pickups, ChangeEvents received while
+     * loading are replayed on the loaded index (replaying is idempotent).
+     *
+     * @param source passes pickups of all reservations to its argument.
+     */
+    void load(Consumer<Consumer<Pickup>> source) {
+        loader.load(() -> {
+            lock.writeLock().lock();
+            try {
+                clear();
+                source.accept(p -> put(p, true));
+                for(Timeline t : timelines) {
+                    if(t != null) {
+                        t.sort();
+                    }
+                }
+            //
+            } catch(RuntimeException ex) {
+                clear();
+                throw ex;
+            //
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }, () -> String.format("%d locations, %d reservations", Locations.size(), locations.size()));
+    }
+
+
+    private void clear() {
+        timelines = new Timeline[0];
+        locations.clear();
+    }
+
+
+    @Override
+    public String metricsName() {
+        return "locations";
+    }
+
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        boolean loaded = loader.loaded();
+        m.put("loaded", loaded);
+        if(loaded) {
+            lock.readLock().lock();
+            try {
+                m.put("locations", Arrays.stream(timelines).filter(t -> t != null).count());
+                m.put("reservations", locations.size());
+            } finally {
+                lock.readLock().unlock();
+            }
+            m.put("loadMillis", loader.loadMillis());
+        }
+        m.put("dictionary", Locations.size());
+        m.put("unindexed", unindexed);
+        m.put("queries", queries.get());
+        m.put("merges", merges.get());
+        return m;
+    }
+
+
+    /**
+     * (begin, id) pairs of one location: sorted arrays, an unsorted delta of
+     * added pairs and tombstones of ids removed from the sorted arrays. Not
+     * thread-safe, guarded by the lock of the index.
+     */
+    static final class Timeline {
+        private static final int MIN_MERGE = 256;
+        private long[] begins = new long[4];
+        private long[] ids = new long[4];
+        private int size = 0;
+        private long[] addedBegins = new long[4];
+        private long[] addedIds = new long[4];
+        private int added = 0;
+        private final Set<Long> removed = new HashSet<Long>();
+
+
+        /**
+         * Add pair, return true if delta and tombstones were merged.
+         */
+        boolean add(long begin, long id) {
+            if(added == addedBegins.length) {
+                addedBegins = Arrays.copyOf(addedBegins, added * 2);
+                addedIds = Arrays.copyOf(addedIds, added * 2);
+            }
+            addedBegins[added] = begin;
+            addedIds[added] = id;
+            added++;
+            return mergeIfFull();
+        }
+
+
+        /**
+         * Remove pair with id from delta or, if not in delta, tombstone it.
+         */
+        void remove(long id) {
+            for(int i=0; i < added; i++) {
+                if(addedIds[i] == id) {
+                    added--;
+                    addedBegins[i] = addedBegins[added];
+                    addedIds[i] = addedIds[added];
+                    return;     // an id is in either the delta or the sorted arrays
+                }
+            }
+            removed.add(id);
+            mergeIfFull();
+        }
+
+
+        /**
+         * Append pair while loading (unsorted), call sort() when done.
+         */
+        void append(long begin, long id) {
+            if(size == begins.length) {
+                begins = Arrays.copyOf(begins, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            begins[size] = begin;
+            ids[size] = id;
+            size++;
+        }
+
+
+        /**
+         * Sort pairs appended while loading.
+         */
+        void sort() {
+            sort(begins, ids, size);
+        }
+
+
+        /**
+         * Return ids of pairs with (begin, id) &gt;= (lowBegin, lowId) and
+         * begin &lt; to in order, at most limit.
+         */
+        List<Long> find(long lowBegin, long lowId, long to, int limit) {
+            // matching delta pairs, sorted
+            long[] db = new long[Math.min(added, 16)], di = new long[db.length];
+            int dn = 0;
+            for(int i=0; i < added; i++) {
+                long b = addedBegins[i];
+                if(b < to && compare(b, addedIds[i], lowBegin, lowId) >= 0) {
+                    if(dn == db.length) {
+                        db = Arrays.copyOf(db, dn * 2);
+                        di = Arrays.copyOf(di, dn * 2);
+                    }
+                    db[dn] = b;
+                    di[dn++] = addedIds[i];
+                }
+            }
+            sort(db, di, dn);
+            //
+            List<Long> result = new ArrayList<Long>(Math.min(limit, 64));
+            int i = lowerBound(lowBegin, lowId), d = 0;
+            while(result.size() < limit) {
+                boolean more = i < size && begins[i] < to;
+                if(more && ! removed.isEmpty() && removed.contains(ids[i])) {
+                    i++;
+                    continue;
+                }
+                if(d < dn && ( ! more || compare(db[d], di[d], begins[i], ids[i]) < 0)) {
+                    result.add(di[d++]);
+                } else if(more) {
+                    result.add(ids[i++]);
+                } else {
+                    break;
+                }
+            }
+            return result;
+        }
+
+
+        private boolean mergeIfFull() {
+            if(added + removed.size() < Math.max(MIN_MERGE, size >>> 6))
+                return false;
+            //
+            sort(addedBegins, addedIds, added);
+            int n = size - removed.size() + added;
+            long[] b = new long[Math.max(4, n + (n >>> 3))], d = new long[b.length];
+            int k = 0, i = 0, j = 0;
+            while(i < size || j < added) {
+                if(i < size && removed.contains(ids[i])) {
+                    i++;
+                } else if(j < added && (i == size || compare(addedBegins[j], addedIds[j], begins[i], ids[i]) < 0)) {
+                    b[k] = addedBegins[j];
+                    d[k++] = addedIds[j++];
+                } else {
+                    b[k] = begins[i];
+                    d[k++] = ids[i++];
+                }
+            }
+            begins = b;
+            ids = d;
+            size = k;
+            added = 0;
+            removed.clear();
+            return true;
+        }
+
+
+        /**
+         * Return index of first sorted pair &gt;= (begin, id).
+         */
+        private int lowerBound(long begin, long id) {
+            int lo = 0, hi = size;
+            while(lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if(compare(begins[mid], ids[mid], begin, id) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+
+        private static int compare(long begin1, long id1, long begin2, long id2) {
+            int c = Long.compare(begin1, begin2);
+            return c != 0? c : Long.compare(id1, id2);
+        }
+
+
+        /**
+         * Sort n pairs of parallel arrays by (begin, id), bottom-up merge sort.
+         */
+        private static void sort(long[] begins, long[] ids, int n) {
+            long[] b = begins, d = ids;
+            long[] tb = new long[n], td = new long[n];
+            for(int width=1; width < n; width *= 2) {
+                for(int lo=0; lo < n; lo += 2 * width) {
+                    int mid = Math.min(lo + width, n), hi = Math.min(lo + 2 * width, n);
+                    int i = lo, j = mid, k = lo;
+                    while(i < mid && j < hi) {
+                        if(compare(b[j], d[j], b[i], d[i]) < 0) {
+                            tb[k] = b[j];
+                            td[k++] = d[j++];
+                        } else {
+                            tb[k] = b[i];
+                            td[k++] = d[i++];
+                        }
+                    }
+                    for(; i < mid; i++, k++) {
+                        tb[k] = b[i];
+                        td[k] = d[i];
+                    }
+                    for(; j < hi; j++, k++) {
+                        tb[k] = b[j];
+                        td[k] = d[j];
+                    }
+                }
+                long[] s = b; b = tb; tb = s;
+                s = d; d = td; td = s;
+            }
+            if(b != begins) {
+                System.arraycopy(b, 0, begins, 0, n);
+                System.arraycopy(d, 0, ids, 0, n);
+            }
+        }
+    }
+}
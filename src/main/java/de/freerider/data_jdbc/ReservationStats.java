@@ -0,0 +1,21 @@
+package de.freerider.data_jdbc;
+
+import java.util.Map;
+
+
+/**
+ * Public aggregate of reservations with begin in an interval, returned by
+ * GET /analytics/reservations. Computed by a scan of ReservationColumns,
+ * no Reservation objects are created.
+ *
+ * @param reservations number of reservations.
+ * @param byStatus number of reservations by status, e.g. "Booked": 1234.
+ * @param byHour number of reservations by local hour of day of begin (0..23).
+ * @param byPickup number of reservations by pickup location, busiest
+ * location first.
+ * @param scanMillis duration of the scan.
+ */
+public record ReservationStats(
+    long reservations, Map<String, Long> byStatus, long[] byHour,
+    Map<String, Long> byPickup, long scanMillis
+) { }
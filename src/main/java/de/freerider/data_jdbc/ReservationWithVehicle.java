@@ -0,0 +1,51 @@
+package de.freerider.data_jdbc;
+
+
+/**
+ * Public read-only projection of a Reservation joined with its Vehicle,
+ * returned by DataAccess.findReservationsWithVehicleByCustomerId().
+ *
+ * Values are read directly from one row of a RESERVATION-VEHICLE join,
+ * no Reservation or Vehicle entity objects are created. Field names match
+ * the JSON names of Reservation with an embedded "vehicle" object, e.g.:
+ * <pre>
+ * {
+ *   "id": 145373, "customerId": 2, "vehicleId": 1002,
+ *   "begin": 1671526800000, "end": 1671562800000,
+ *   "pickup": "Berlin Wedding", "dropoff": "Berlin Wedding", "status": "Booked",
+ *   "vehicle": {
+ *     "id": 1002, "make": "VW", "model": "ID.3", "seats": 4,
+ *     "category": "Sedan", "power": "Electric", "status": "Active"
+ *   }
+ * }
+ * </pre>
+ *
+ * @param id Reservation id.
+ * @param customerId id of Customer owning the Reservation.
+ * @param vehicleId id of reserved Vehicle.
+ * @param begin begin of Reservation (msec since 01/01/1970).
+ * @param end end of Reservation (msec since 01/01/1970).
+ * @param pickup pickup location.
+ * @param dropoff dropoff location.
+ * @param status Reservation status, e.g. "Booked".
+ * @param vehicle reserved Vehicle.
+ */
+public record ReservationWithVehicle(
+    long id, long customerId, long vehicleId, long begin, long end,
+    String pickup, String dropoff, String status, VehicleSummary vehicle)
+{
+    /**
+     * Vehicle part of the projection.
+     *
+     * @param id Vehicle id.
+     * @param make Vehicle make, e.g. "VW".
+     * @param model Vehicle model, e.g. "ID.3".
+     * @param seats number of seats.
+     * @param category Vehicle category, e.g. "Sedan".
+     * @param power Vehicle power, e.g. "Electric".
+     * @param status Vehicle status, e.g. "Active".
+     */
+    public record VehicleSummary(
+        long id, String make, String model, int seats,
+        String category, String power, String status) { }
+}
@@ -0,0 +1,402 @@
+package de.freerider.data_jdbc;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.Reservation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+
+/**
+ * Non-public component that writes status-only updates of Reservations
+ * (PUT {"id": 201235, "status": "Booked"}) behind: updates are queued and
+ * coalesced per reservation id, then written by a background thread in
+ * batched transactions every application.reservations.write-behind.
+ * flush-interval:
+ * <pre>
+ *  PUT id: 1 Inquired -&gt; InquiryConfirmed  --+
+ *  PUT id: 1 InquiryConfirmed -&gt; Booked    --+--&gt; pending: {1: Booked (2 updates), 2: Cancelled (1)}
+ *  PUT id: 2 Booked -&gt; Cancelled           --+        | flush
+ *                                                     v
+ *    UPDATE RESERVATION SET STATUS = ?, VERSION = VERSION + ? WHERE ID = ?  (one batch, one transaction)
+ * </pre>
+ * Write-behind is disabled by default (application.reservations.write-behind.
+ * enabled). When enabled:
+ * <pre>
+ *  - the status is validated (400) and the interval of the vehicle claimed
+ *    (409) when the update is queued, as for synchronous updates,
+ *  - lookups by id through DataAccessReservationsCache return the queued
+ *    status and the version it is written with (read-your-writes), other
+ *    queries return it after the flush,
+ *  - each queued update increments the version, coalesced updates are
+ *    written with the number of updates they replace, such that no two
+ *    statuses are returned with the same version (ETag),
+ *  - updates with an expected version (If-Match) are written synchronously,
+ *  - ChangeEvents are published after the flush has committed,
+ *  - other updates and deletes of a queued reservation flush it first,
+ *  - updates are written synchronously when max-pending ids are queued,
+ *  - queued updates are flushed on shutdown before the database connection
+ *    pool is closed.
+ * </pre>
+ */
+@Component
+class ReservationWriteBehind implements Metrics {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ReservationWriteBehind.class);
+
+    /**
+     * Attempts to flush queued updates on shutdown.
+     */
+    private static final int SHUTDOWN_ATTEMPTS = 3;
+
+    @Autowired
+    private DataFactory dataFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Runs each flush in a transaction.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ChangeEvents changeEvents;
+
+    @Autowired
+    private DataAccessCaches caches;
+
+    /**
+     * Index of reserved vehicles, rejects overlapping reservations.
+     */
+    @Autowired
+    private ReservationIntervals intervals;
+
+    @Value("${application.reservations.write-behind.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Time between flushes of queued updates.
+     */
+    @Value("${application.reservations.write-behind.flush-interval:200ms}")
+    private Duration flushInterval;
+
+    /**
+     * Maximum number of queued reservation ids, updates are written
+     * synchronously when reached.
+     */
+    @Value("${application.reservations.write-behind.max-pending:10000}")
+    private int maxPending;
+
+    /**
+     * Queued update of one reservation: image last written to the database,
+     * queued status and number of updates coalesced into it (added to the
+     * version when written).
+     */
+    private record Pending(Reservation before, Reservation.Status status, int updates) { }
+
+    /**
+     * Queued updates by reservation id.
+     */
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<Long, Pending>();
+
+    /**
+     * Serializes queuing of updates of the same reservation id.
+     */
+    private final Object[] stripes = new Object[64];
+
+    /**
+     * Serializes flushes.
+     */
+    private final ReentrantLock flushing = new ReentrantLock();
+
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong missing = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong synchronous = new AtomicLong();
+
+
+    ReservationWriteBehind() {
+        for(int i=0; i < stripes.length; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+
+    /**
+     * Start flushing queued updates when write-behind is enabled.
+     */
+    @PostConstruct
+    void start() {
+        if(enabled) {
+            long millis = Math.max(1L, flushInterval.toMillis());
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "reservations-write-behind");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleWithFixedDelay(this::flush, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+
+    /**
+     * Return status of a status-only update or null for other updates.
+     *
+     * @param map name-value pairs of update, e.g. {"id": 1, "status": "Booked"}.
+     * @return value of the status attribute or null.
+     */
+    static Object statusOnly(Map<String, Object> map) {
+        Object status = null;
+        for(var e : map.entrySet()) {
+            if("STATUS".equalsIgnoreCase(e.getKey())) {
+                status = e.getValue();
+            } else if( ! "ID".equalsIgnoreCase(e.getKey())) {
+                return null;
+            }
+        }
+        return status;
+    }
+
+
+    /**
+     * Test whether status-only updates are written behind.
+     */
+    boolean enabled() {
+        return enabled;
+    }
+
+
+    /**
+     * Queue update of status of a reservation.
+     *
+     * @param current current image of the reservation, including queued status.
+     * @param status new status.
+     * @return true if queued, false if the update must be written synchronously.
+     * @throws DataAccessException 400 for invalid status, 409 when the vehicle
+     *      is reserved by another reservation.
+     */
+    boolean offer(Reservation current, Object status) throws DataAccessException {
+        Reservation.Status s;
+        try {
+            s = Reservation.Status.valueOf(status.toString());
+        } catch(IllegalArgumentException | NullPointerException ex) {
+            throw new DataAccessException.BadRequest("invalid attributes: " + ex.getMessage());
+        }
+        long id = current.getId();
+        synchronized(stripes[(int)(id & (stripes.length - 1))]) {
+            Pending p = pending.get(id);
+            if(p == null && pending.size() >= maxPending) {
+                synchronous.incrementAndGet();
+                return false;
+            }
+            if(ReservationIntervals.holdsVehicle(s)) {
+                intervals.claimUpdate(id, current.getVehicleId(), current.getBegin(), current.getEnd());
+            } else {
+                intervals.restore(id, null);   // release vehicle now, not after the flush
+            }
+            pending.put(id, p != null? new Pending(p.before(), s, p.updates() + 1) : new Pending(current, s, 1));
+            changeEvents.changed(Reservation.class);   // queued status is visible to readers
+            queued.incrementAndGet();
+            if(p != null) {
+                coalesced.incrementAndGet();
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Return reservation with queued status or the reservation itself.
+     *
+     * @param r reservation read from cache or database.
+     * @return reservation with queued status.
+     */
+    Reservation overlay(Reservation r) {
+        Pending p = pending.isEmpty()? null : pending.get(r.getId());
+        return p == null? r : withStatus(p.before(), p);
+    }
+
+
+    /**
+     * Return reservations with queued status.
+     */
+    Iterable<Reservation> overlay(Iterable<Reservation> reservations) {
+        if(pending.isEmpty())
+            return reservations;
+        //
+        List<Reservation> result = new ArrayList<Reservation>();
+        reservations.forEach(r -> result.add(overlay(r)));
+        return result;
+    }
+
+
+    /**
+     * Flush queued update of one reservation before it is updated or
+     * deleted synchronously.
+     *
+     * @param id reservation id.
+     */
+    void flush(long id) {
+        if(pending.isEmpty() || ! pending.containsKey(id))
+            return;
+        //
+        flushing.lock();
+        try {
+            Pending p = pending.get(id);
+            if(p != null) {
+                write(Map.of(id, p));
+            }
+        } finally {
+            flushing.unlock();
+        }
+    }
+
+
+    /**
+     * Flush all queued updates, called periodically.
+     */
+    void flush() {
+        if(pending.isEmpty())
+            return;
+        //
+        flushing.lock();
+        try {
+            write(new LinkedHashMap<Long, Pending>(pending));
+        //
+        } catch(RuntimeException ex) {
+            logger.warn(String.format("write-behind flush failed, retried: %s", ex.getMessage()));
+        } finally {
+            flushing.unlock();
+        }
+    }
+
+
+    /**
+     * Write snapshot of queued updates in one transaction, then publish
+     * ChangeEvents and dequeue updates that were not queued again meanwhile.
+     */
+    private void write(Map<Long, Pending> snapshot) {
+        List<Map.Entry<Long, Pending>> rows = new ArrayList<Map.Entry<Long, Pending>>(snapshot.entrySet());
+        int[][] counts;
+        try {
+            counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(
+                "UPDATE RESERVATION SET STATUS = ?, VERSION = VERSION + ? WHERE ID = ?", rows, rows.size(), (ps, e) -> {
+                    ps.setString(1, e.getValue().status().name());
+                    ps.setInt(2, e.getValue().updates());
+                    ps.setLong(3, e.getKey());
+                }));
+        } catch(org.springframework.dao.DataAccessException dax) {
+            failures.incrementAndGet();
+            throw dax;
+        }
+        flushes.incrementAndGet();
+        //
+        for(int i=0; i < rows.size(); i++) {
+            long id = rows.get(i).getKey();
+            Pending p = rows.get(i).getValue();
+            caches.reservations.invalidate(id);
+            if(counts[0][i] == 0) {
+                // deleted meanwhile, bypassing the DAO
+                missing.incrementAndGet();
+                pending.remove(id, p);
+                intervals.restore(id, null);
+                logger.warn(String.format("write-behind: reservation id: %d not found, status %s discarded", id, p.status()));
+                continue;
+            }
+            written.incrementAndGet();
+            Reservation after = withStatus(p.before(), p);
+            synchronized(stripes[(int)(id & (stripes.length - 1))]) {
+                if( ! pending.remove(id, p)) {
+                    // queued again while writing, written image is the new before image
+                    pending.computeIfPresent(id, (k, q) -> new Pending(after, q.status(), q.updates() - p.updates()));
+                }
+            }
+            changeEvents.publish(ChangeEvent.updated(Reservation.class, id, p.before(), after));
+        }
+    }
+
+
+    /**
+     * Return copy of the before image as written by the flush of a queued
+     * status, with its version incremented by the number of queued updates.
+     */
+    private Reservation withStatus(Reservation r, Pending p) {
+        return dataFactory.createReservation(r.getId(), r.getCustomerId(), r.getVehicleId(),
+            r.getBegin(), r.getEnd(), r.getPickup(), r.getDropoff(), p.status().name())
+            .map(c -> c.setVersion(r.getVersion() + p.updates())).orElse(r);
+    }
+
+
+    /**
+     * Stop flushing periodically and flush remaining updates on shutdown.
+     */
+    @PreDestroy
+    void shutdown() {
+        if(scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(flushInterval.toMillis() + 5_000L, TimeUnit.MILLISECONDS);
+            } catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for(int attempt=1; attempt <= SHUTDOWN_ATTEMPTS && ! pending.isEmpty(); attempt++) {
+            flush();
+        }
+        if( ! pending.isEmpty()) {
+            pending.forEach((id, p) -> logger.error(String.format(
+                "write-behind: status of reservation id: %d not written: %s", id, p.status())));
+        }
+    }
+
+
+    @Override
+    public String metricsName() {
+        return "writeBehind";
+    }
+
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        m.put("enabled", enabled);
+        m.put("pending", pending.size());
+        m.put("queued", queued.get());
+        m.put("coalesced", coalesced.get());
+        m.put("synchronous", synchronous.get());
+        m.put("flushes", flushes.get());
+        m.put("written", written.get());
+        m.put("missing", missing.get());
+        m.put("failures", failures.get());
+        return m;
+    }
+}
@@ -0,0 +1,99 @@
+package de.freerider.data_jdbc;
+
+import java.util.Arrays;
+
+
+/**
+ * Non-public map of entity ids to int slots with open addressing (linear
+ * probing), avoids boxing millions of ids in in-memory indexes and columns.
+ * Not thread-safe, users guard it with their own locks.
+ */
+final class SlotMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private long[] keys = newKeys(1024);
+    private int[] values = new int[1024];
+    private int size = 0;
+
+    int get(long key) {
+        int mask = keys.length - 1;
+        for(int i=hash(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if(keys[i] == key)
+                return values[i];
+        }
+        return -1;
+    }
+
+    void put(long key, int value) {
+        if(2 * (size + 1) > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        for(; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if(keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    /**
+     * Remove key, return its value or -1. Following entries of the
+     * probe sequence are re-inserted.
+     */
+    int remove(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        for(; keys[i] != key; i = (i + 1) & mask) {
+            if(keys[i] == EMPTY)
+                return -1;
+        }
+        int value = values[i];
+        keys[i] = EMPTY;
+        size--;
+        for(i = (i + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            long k = keys[i];
+            keys[i] = EMPTY;
+            size--;
+            put(k, values[i]);
+        }
+        return value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        keys = newKeys(1024);
+        values = new int[1024];
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] k = keys;
+        int[] v = values;
+        keys = newKeys(capacity);
+        values = new int[capacity];
+        size = 0;
+        for(int i=0; i < k.length; i++) {
+            if(k[i] != EMPTY) {
+                put(k[i], v[i]);
+            }
+        }
+    }
+
+    private static long[] newKeys(int capacity) {
+        long[] k = new long[capacity];
+        Arrays.fill(k, EMPTY);
+        return k;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+}
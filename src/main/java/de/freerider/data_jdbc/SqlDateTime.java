@@ -0,0 +1,39 @@
+package de.freerider.data_jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+
+/**
+ * Non-public helper to read DATETIME columns as long values counted as
+ * msec since 1970-01-01, without formatting and parsing Strings.
+ */
+final class SqlDateTime {
+
+    /**
+     * Value returned for NULL columns, rejected by Reservation validation.
+     */
+    static final long NULL = -1L;
+
+
+    /**
+     * Private constructor, class only has static methods.
+     */
+    private SqlDateTime() { }
+
+
+    /**
+     * Read DATETIME column as msec since 1970-01-01 (the driver converts
+     * with the connection time zone, default: system time zone).
+     *
+     * @param rs ResultSet positioned at a row.
+     * @param column column name, e.g. "BEGIN".
+     * @return msec since 1970-01-01 or NULL.
+     * @throws SQLException when column cannot be read.
+     */
+    static long get(ResultSet rs, String column) throws SQLException {
+        Timestamp ts = rs.getTimestamp(column);
+        return ts != null? ts.getTime() : NULL;
+    }
+}
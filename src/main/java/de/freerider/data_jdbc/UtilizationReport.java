@@ -0,0 +1,37 @@
+package de.freerider.data_jdbc;
+
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Public report of vehicle utilization per local day, returned by
+ * GET /analytics/utilization. Utilization is the time vehicles are held by
+ * reservations (InquiryConfirmed, Booked) divided by the time they are
+ * available (number of vehicles times the length of the day).
+ *
+ * @param from first day, "yyyy-MM-dd".
+ * @param to day after the last day, "yyyy-MM-dd".
+ * @param days days of the report, "yyyy-MM-dd".
+ * @param fleet utilization of all included vehicles per day.
+ * @param categories utilization per vehicle category and day.
+ * @param vehicles utilization per vehicle id and day, null unless requested.
+ * @param parallelism number of fork/join worker threads.
+ * @param computeMillis duration of the computation.
+ */
+public record UtilizationReport(
+    String from, String to, List<String> days,
+    Utilization fleet, Map<String, Utilization> categories, Map<Long, double[]> vehicles,
+    int parallelism, long computeMillis
+) {
+
+    /**
+     * Utilization of a group of vehicles per day.
+     *
+     * @param vehicles number of vehicles in the group.
+     * @param bookedHours hours held by reservations per day.
+     * @param utilization booked hours / available hours per day, 0 for groups
+     * without vehicles.
+     */
+    public record Utilization(int vehicles, double[] bookedHours, double[] utilization) { }
+}
@@ -0,0 +1,434 @@
+package de.freerider.data_jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * Non-public in-memory catalog of all Vehicles used to answer attribute
+ * filters (category, power, status, seats) without queries.
+ *
+ * Vehicles are kept in slots, slots of deleted Vehicles are reused. Each
+ * value of Category, Power, Status and each number of seats has a bitmap
+ * of the slots of Vehicles with that value, filters are bitmap
+ * intersections that only touch Vehicle objects of matching slots:
+ * <pre>
+ *  category=SUV AND power=Electric AND status=Active
+ *      -&gt; category[SUV] &amp; power[Electric] &amp; status[Active]
+ *
+ *  seats &gt;= 5 -&gt; seats[5] | seats[6] | ... | seats[100]
+ * </pre>
+ *
+ * The catalog is loaded in the background at startup (or on first use):
+ * <pre>
+ *  SELECT * FROM VEHICLE;
+ * </pre>
+ * and kept current by ChangeEvents of Vehicles.
+ */
+@Component
+class VehicleCatalog implements Metrics {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(VehicleCatalog.class);
+
+    /**
+     * Filter of Vehicle attributes, null attributes match any value.
+     *
+     * @param category category or null.
+     * @param power power source or null.
+     * @param status status or null.
+     * @param minSeats minimum number of seats, 0 for any.
+     */
+    record Filter(Vehicle.Category category, Vehicle.Power power, Vehicle.Status status, int minSeats) { }
+
+    private static final byte FREE = -1;
+
+    private static final int MAX_SEATS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataFactory dataFactory;
+
+    /**
+     * Guards slots and columns, filters run under the read lock.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /*
+     * Vehicles and attribute columns by slot, status is FREE for unused slots.
+     * Columns hold the values bits are set for, Vehicle objects may change.
+     */
+    private Vehicle[] vehicles = new Vehicle[0];
+    private long[] ids = new long[0];
+    private byte[] category = new byte[0];
+    private byte[] power = new byte[0];
+    private byte[] status = new byte[0];
+    private byte[] seats = new byte[0];
+    private int size = 0;
+
+    /*
+     * Bitmaps of slots in use and by attribute value (ordinal, seats).
+     */
+    private final Bitmap live = new Bitmap();
+    private final Bitmap[] byCategory = Bitmap.array(Vehicle.Category.values().length);
+    private final Bitmap[] byPower = Bitmap.array(Vehicle.Power.values().length);
+    private final Bitmap[] byStatus = Bitmap.array(Vehicle.Status.values().length);
+    private final Bitmap[] bySeats = Bitmap.array(MAX_SEATS + 1);
+
+    /**
+     * Slots by Vehicle id.
+     */
+    private final Map<Long, Integer> slots = new HashMap<Long, Integer>();
+
+    /**
+     * Unused slots of deleted Vehicles.
+     */
+    private final List<Integer> freeSlots = new ArrayList<Integer>();
+
+    private final IndexLoader<Vehicle> loader =
+        new IndexLoader<Vehicle>(logger, "vehicle catalog", this::load, this::applyLoaded);
+
+
+    /**
+     * Constructor, subscribes catalog to ChangeEvents of Vehicles.
+     *
+     * @param jdbcTemplate JdbcTemplate for loading the catalog.
+     * @param dataFactory creates Vehicles from rows.
+     * @param changeEvents source of ChangeEvents.
+     */
+    VehicleCatalog(JdbcTemplate jdbcTemplate, DataFactory dataFactory, ChangeEvents changeEvents) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataFactory = dataFactory;
+        changeEvents.subscribeAsync(Vehicle.class, "catalog", this::apply, loader::reload);
+    }
+
+
+    /**
+     * Return Vehicles that match a filter and a predicate in order of id.
+     *
+     * @param filter attributes to match.
+     * @param and predicate tested on ids of Vehicles matching the filter,
+     * e.g. availability.
+     * @return matching Vehicles in order of id.
+     */
+    List<Vehicle> find(Filter filter, LongPredicate and) {
+        ensureLoaded();
+        List<Vehicle> found = new ArrayList<Vehicle>();
+        lock.readLock().lock();
+        try {
+            long[] bits = live.copy();
+            if(filter.category() != null) {
+                byCategory[filter.category().ordinal()].andTo(bits);
+            }
+            if(filter.power() != null) {
+                byPower[filter.power().ordinal()].andTo(bits);
+            }
+            if(filter.status() != null) {
+                byStatus[filter.status().ordinal()].andTo(bits);
+            }
+            if(filter.minSeats() > 1) {
+                long[] seats = new long[bits.length];
+                for(int n=filter.minSeats(); n <= MAX_SEATS; n++) {
+                    bySeats[n].orTo(seats);
+                }
+                for(int i=0; i < bits.length; i++) {
+                    bits[i] &= seats[i];
+                }
+            }
+            for(int i=0; i < bits.length; i++) {
+                for(long w = bits[i]; w != 0L; w &= w - 1) {
+                    int slot = (i << 6) + Long.numberOfTrailingZeros(w);
+                    if(and.test(ids[slot])) {
+                        found.add(vehicles[slot]);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        found.sort(Comparator.comparingLong(Vehicle::getId));
+        return found;
+    }
+
+
+    /**
+     * Return Vehicle with id from the catalog.
+     *
+     * @param id id of Vehicle.
+     * @return Optional with Vehicle or empty if not found.
+     */
+    Optional<Vehicle> findById(long id) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(id);
+            return slot != null? Optional.of(vehicles[slot]) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Update catalog from ChangeEvent of a successful write.
+     *
+     * @param event ChangeEvent.
+     */
+    void apply(ChangeEvent<Vehicle> event) {
+        loader.apply(event);
+    }
+
+
+    private void applyLoaded(ChangeEvent<Vehicle> event) {
+        lock.writeLock().lock();
+        try {
+            if(event.op() == ChangeEvent.Op.Delete || event.after() == null) {
+                remove(event.id());
+            } else {
+                put(event.after());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Load catalog in the background when the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void loadOnStartup() {
+        loader.loadInBackground();
+    }
+
+
+    private void ensureLoaded() {
+        loader.ensureLoaded();
+    }
+
+
+    /**
+     * Load catalog from the database.
+     */
+    private void load() {
+        load(rows -> jdbcTemplate.query(JdbcStreams.streaming("SELECT * FROM VEHICLE"),
+            rs -> {
+                dataFactory.createVehicle(rs.getLong("ID"), rs.getString("MAKE"), rs.getString("MODEL"),
+                    rs.getInt("SEATS"), rs.getString("CATEGORY"), rs.getString("POWER"), rs.getString("STATUS"))
+                .ifPresent(rows);
+            }));
+    }
+
+
+    /**
+     * Load catalog from a source of Vehicles, ChangeEvents received while
+     * loading are replayed on the loaded catalog (replaying is idempotent).
+     *
+     * @param source passes Vehicles to its argument.
+     */
+    void load(Consumer<Consumer<Vehicle>> source) {
+        loader.load(() -> {
+            lock.writeLock().lock();
+            try {
+                clear();
+                source.accept(this::put);
+            //
+            } catch(RuntimeException ex) {
+                clear();
+                throw ex;
+            //
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }, () -> String.format("%d vehicles", slots.size()));
+    }
+
+
+    /**
+     * Insert or replace Vehicle, caller holds the write lock.
+     */
+    private void put(Vehicle v) {
+        Integer slot = slots.get(v.getId());
+        if(slot == null) {
+            slot = freeSlots.isEmpty()? size++ : freeSlots.remove(freeSlots.size() - 1);
+            if(slot >= vehicles.length) {
+                int n = Math.max(1024, vehicles.length * 2);
+                vehicles = Arrays.copyOf(vehicles, n);
+                ids = Arrays.copyOf(ids, n);
+                category = Arrays.copyOf(category, n);
+                power = Arrays.copyOf(power, n);
+                status = Arrays.copyOf(status, n);
+                seats = Arrays.copyOf(seats, n);
+            }
+            slots.put(v.getId(), slot);
+        } else {
+            clearBits(slot);
+        }
+        vehicles[slot] = v;
+        ids[slot] = v.getId();
+        category[slot] = (byte)v.getCategory().ordinal();
+        power[slot] = (byte)v.getPower().ordinal();
+        status[slot] = (byte)v.getStatus().ordinal();
+        seats[slot] = (byte)Math.min(MAX_SEATS, v.getSeats());
+        live.set(slot);
+        byCategory[category[slot]].set(slot);
+        byPower[power[slot]].set(slot);
+        byStatus[status[slot]].set(slot);
+        bySeats[seats[slot]].set(slot);
+    }
+
+
+    /**
+     * Remove Vehicle, caller holds the write lock.
+     */
+    private void remove(long id) {
+        Integer slot = slots.remove(id);
+        if(slot != null) {
+            clearBits(slot);
+            vehicles[slot] = null;
+            status[slot] = FREE;
+            freeSlots.add(slot);
+        }
+    }
+
+
+    private void clearBits(int slot) {
+        live.clear(slot);
+        byCategory[category[slot]].clear(slot);
+        byPower[power[slot]].clear(slot);
+        byStatus[status[slot]].clear(slot);
+        bySeats[seats[slot]].clear(slot);
+    }
+
+
+    private void clear() {
+        slots.clear();
+        freeSlots.clear();
+        Arrays.fill(vehicles, null);
+        size = 0;
+        live.reset();
+        for(Bitmap[] index : List.of(byCategory, byPower, byStatus, bySeats)) {
+            Arrays.stream(index).forEach(Bitmap::reset);
+        }
+    }
+
+
+    @Override
+    public String metricsName() {
+        return "catalog";
+    }
+
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        m.put("loaded", loader.loaded());
+        lock.readLock().lock();
+        try {
+            m.put("vehicles", slots.size());
+            m.put("slots", size);
+            m.put("bitmapBytes", List.of(byCategory, byPower, byStatus, bySeats).stream()
+                .flatMap(Arrays::stream).mapToLong(Bitmap::bytes).sum() + live.bytes());
+        } finally {
+            lock.readLock().unlock();
+        }
+        m.put("loadMillis", loader.loadMillis());
+        return m;
+    }
+
+
+    /**
+     * Bitmap of slots, one bit per slot in words of 64 bits. Bitmaps grow
+     * with the highest slot set, missing words are zero.
+     */
+    static final class Bitmap {
+        private long[] words = new long[0];
+
+
+        static Bitmap[] array(int n) {
+            Bitmap[] bitmaps = new Bitmap[n];
+            for(int i=0; i < n; i++) {
+                bitmaps[i] = new Bitmap();
+            }
+            return bitmaps;
+        }
+
+
+        void set(int bit) {
+            int i = bit >>> 6;
+            if(i >= words.length) {
+                words = Arrays.copyOf(words, Math.max(i + 1, words.length * 2));
+            }
+            words[i] |= 1L << bit;
+        }
+
+
+        void clear(int bit) {
+            int i = bit >>> 6;
+            if(i < words.length) {
+                words[i] &= ~(1L << bit);
+            }
+        }
+
+
+        /**
+         * Return copy of words.
+         */
+        long[] copy() {
+            return words.clone();
+        }
+
+
+        /**
+         * Intersect bits with this bitmap: bits &amp;= this.
+         */
+        void andTo(long[] bits) {
+            int n = Math.min(bits.length, words.length);
+            for(int i=0; i < n; i++) {
+                bits[i] &= words[i];
+            }
+            Arrays.fill(bits, n, bits.length, 0L);
+        }
+
+
+        /**
+         * Unite bits with this bitmap: bits |= this.
+         */
+        void orTo(long[] bits) {
+            int n = Math.min(bits.length, words.length);
+            for(int i=0; i < n; i++) {
+                bits[i] |= words[i];
+            }
+        }
+
+
+        long bytes() {
+            return 8L * words.length;
+        }
+
+
+        void reset() {
+            words = new long[0];
+        }
+    }
+}
@@ -13,6 +13,7 @@ package de.freerider.datamodel;
  * | CONTACT | varchar(60)                             | YES  |     | NULL    |
  * | STATUS  | enum('Active','InRegistration',         | YES  |     | NULL    |
  * |         |   'Terminated')                         |      |     |         |
+ * | VERSION | int                                     | NO   |     | 0       |
  * +---------+-----------------------------------------+------+-----+---------+
  * 
  * @author sgra64
@@ -39,6 +40,12 @@ public final class Customer {
      */
     private Status status;
 
+    /*
+     * Customer attribute: version, incremented by every update of the record,
+     * used for optimistic concurrency (ETag, If-Match).
+     */
+    private long version = 0L;
+
 
     /**
      * Lifecycle and Status information of a Customer.
@@ -159,4 +166,30 @@ public final class Customer {
         this.status = status;
         return this;
     }
+
+
+    /**
+     * Public version attribute getter, serialized as JSON field "version".
+     * 
+     * @return version of Customer record, incremented by every update.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+
+    /**
+     * Public version attribute setter, version as read from the database.
+     * 
+     * @param version version of Customer record.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException for negative version.
+     */
+    public Customer setVersion(long version) {
+        if(version < 0)
+            throw new IllegalArgumentException(String.format("version: %d, version < 0", version));
+        //
+        this.version = version;
+        return this;
+    }
 }
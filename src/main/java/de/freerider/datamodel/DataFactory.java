@@ -66,6 +66,26 @@ public interface DataFactory {
     );
 
 
+    /**
+     * Create new Reservation object from parameters with begin and end as
+     * long values (msec since 1970-01-01), e.g. read from DATETIME columns.
+     * 
+     * @param id unique identifier, PRIMARY KEY in database.
+     * @param customer reference to Customer, FOREIGN KEY relation in database.
+     * @param vehicle reference to Vehicle, FOREIGN KEY relation in database.
+     * @param begin date/time the reservation begins.
+     * @param end date/time the reservation ends.
+     * @param pickup pickup location.
+     * @param dropoff drop-off location.
+     * @param status status of Reservation (String must match Reservation.Status enum).
+     * @return Optional with object or empty when no object could be created from parameters.
+     */
+    Optional<Reservation> createReservation(
+        long id, long customer_id, long vehicle_id,
+        long begin, long end, String pickup, String dropoff, String status
+    );
+
+
     /**
      * Generic method to create list of objects of type <T> from list of arguments.
      * Invalid arguments are logged as errors and prevent object creation (dropped
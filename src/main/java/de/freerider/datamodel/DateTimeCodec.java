@@ -0,0 +1,317 @@
+package de.freerider.datamodel;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+
+/**
+ * Public, thread-safe codec between SQL datetime Strings and long values
+ * counted as msec since 1970-01-01 (system default time zone), replacing
+ * shared SimpleDateFormat instances.
+ * <pre>
+ *  "2020-01-01 00:00:00"  &lt;-&gt;  1577833200000  (Europe/Berlin)
+ * </pre>
+ * Digits are parsed and formatted by hand with calendar arithmetic, the
+ * codec holds no mutable per-call state and can be used from any number of
+ * threads. Zone offsets are taken from cached windows between offset
+ * transitions (daylight saving time changes), java.time objects are only
+ * created to fill the cache and for local times near a transition.
+ */
+public final class DateTimeCodec {
+
+    /**
+     * Length of the external representation "yyyy-MM-dd HH:mm:ss".
+     */
+    public static final int LENGTH = 19;
+
+    /**
+     * Time zone of external representations, system default.
+     */
+    private static final ZoneId zone = ZoneId.systemDefault();
+
+    /**
+     * Offset rules of the time zone.
+     */
+    private static final ZoneRules rules = zone.getRules();
+
+    /**
+     * Distance (sec) to the nearest offset transition below which local
+     * times may fall into a gap or overlap and are resolved by java.time.
+     */
+    private static final long TRANSITION_MARGIN = 86_400L;
+
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    /**
+     * Immutable interval [fromUtc, toUtc) of epoch seconds with one offset.
+     */
+    private record Window(long fromUtc, long toUtc, int offset) {
+        boolean contains(long utc) {
+            return utc >= fromUtc && utc < toUtc;
+        }
+    }
+
+    /**
+     * Direct-mapped cache of offset windows indexed by day (4096 days, ~11
+     * years without collisions). Windows are immutable, racing writes of
+     * array elements are harmless.
+     */
+    private static final Window[] windows = new Window[1 << 12];
+
+
+    /**
+     * Private constructor, class only has static methods.
+     */
+    private DateTimeCodec() { }
+
+
+    /**
+     * Parse datetime String "yyyy-MM-dd HH:mm:ss" (or with 'T' separator and
+     * optional fraction of seconds, e.g. "2022-12-20T10:00:00.5") into msec
+     * since 1970-01-01.
+     *
+     * @param datetime date and time as String.
+     * @return msec since 1970-01-01.
+     * @throws IllegalArgumentException for null or unparsable datetime String.
+     */
+    public static long parse(CharSequence datetime) {
+        if(datetime == null)
+            throw new IllegalArgumentException("datetime is null");
+        //
+        int len = datetime.length();
+        if(len < LENGTH || ! (sep(datetime, 4, '-') && sep(datetime, 7, '-') &&
+                (sep(datetime, 10, ' ') || sep(datetime, 10, 'T')) && sep(datetime, 13, ':') &&
+                sep(datetime, 16, ':')))
+            throw unparsable(datetime);
+        //
+        int year = digits(datetime, 0, 4);
+        int month = digits(datetime, 5, 2);
+        int day = digits(datetime, 8, 2);
+        int hour = digits(datetime, 11, 2);
+        int minute = digits(datetime, 14, 2);
+        int second = digits(datetime, 17, 2);
+        int millis = 0;
+        if(len > LENGTH) {
+            if(datetime.charAt(LENGTH) != '.' || len == LENGTH + 1)
+                throw unparsable(datetime);
+            for(int i=LENGTH + 1, scale=100; i < len; i++, scale /= 10) {
+                millis += digit(datetime, i) * scale;
+            }
+        }
+        if(year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) ||
+                hour > 23 || minute > 59 || second > 59)
+            throw unparsable(datetime);
+        //
+        long local = daysFromCivil(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+        return utcFromLocal(local) * 1000L + millis;
+    }
+
+
+    /**
+     * Return local time of msec since 1970-01-01 as seconds since local
+     * 1970-01-01 00:00:00, e.g. to bucket instants by local day
+     * (floorDiv(local, 86400)) or hour of day without creating java.time
+     * objects.
+     *
+     * @param datetime msec since 1970-01-01.
+     * @return local seconds since 1970-01-01 00:00:00.
+     */
+    public static long localSeconds(long datetime) {
+        long utc = Math.floorDiv(datetime, 1000L);
+        return utc + offsetAtUtc(utc);
+    }
+
+
+    /**
+     * Format msec since 1970-01-01 as "yyyy-MM-dd HH:mm:ss" (fraction of
+     * seconds is truncated).
+     *
+     * @param datetime msec since 1970-01-01, datetime &gt;= 0.
+     * @return date and time as String.
+     * @throws IllegalArgumentException for datetime &lt; 0.
+     */
+    public static String format(long datetime) {
+        char[] buf = new char[LENGTH];
+        formatTo(datetime, buf, 0);
+        return new String(buf);
+    }
+
+
+    /**
+     * Format msec since 1970-01-01 as "yyyy-MM-dd HH:mm:ss" into a buffer
+     * without allocating, e.g. for writers that reuse buffers.
+     *
+     * @param datetime msec since 1970-01-01, datetime &gt;= 0.
+     * @param buf buffer receiving LENGTH characters.
+     * @param off offset in buffer.
+     * @throws IllegalArgumentException for datetime &lt; 0.
+     */
+    public static void formatTo(long datetime, char[] buf, int off) {
+        if(datetime < 0)
+            throw new IllegalArgumentException(String.format("datetime: %d, datetime < 0", datetime));
+        //
+        long utc = datetime / 1000L;
+        long local = utc + offsetAtUtc(utc);
+        long days = Math.floorDiv(local, SECONDS_PER_DAY);
+        int secs = (int)Math.floorMod(local, SECONDS_PER_DAY);
+        //
+        // civil date from days since 1970-01-01 (H. Hinnant, chrono-compatible algorithms)
+        long z = days + 719_468L;
+        long era = Math.floorDiv(z, 146_097L);
+        long doe = z - era * 146_097L;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146_096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int)(doy - (153 * mp + 2) / 5 + 1);
+        int month = (int)(mp < 10? mp + 3 : mp - 9);
+        int year = (int)(yoe + era * 400 + (month <= 2? 1 : 0));
+        //
+        put4(buf, off, year);
+        buf[off + 4] = '-';
+        put2(buf, off + 5, month);
+        buf[off + 7] = '-';
+        put2(buf, off + 8, day);
+        buf[off + 10] = ' ';
+        put2(buf, off + 11, secs / 3600);
+        buf[off + 13] = ':';
+        put2(buf, off + 14, (secs / 60) % 60);
+        buf[off + 16] = ':';
+        put2(buf, off + 17, secs % 60);
+    }
+
+
+    /**
+     * Return offset (sec) of the time zone at an instant.
+     *
+     * @param utc epoch seconds.
+     * @return zone offset in seconds.
+     */
+    private static int offsetAtUtc(long utc) {
+        return cachedWindow(utc).offset();
+    }
+
+
+    /**
+     * Convert local epoch seconds into UTC epoch seconds. Local times within
+     * TRANSITION_MARGIN of an offset transition are resolved by java.time
+     * like SimpleDateFormat (gaps are shifted forward, overlaps use the later
+     * offset).
+     *
+     * @param local local date/time as seconds since 1970-01-01T00:00.
+     * @return epoch seconds.
+     */
+    private static long utcFromLocal(long local) {
+        Window w = cachedWindow(local);
+        long utc = local - w.offset();
+        if(utc >= w.fromUtc() + TRANSITION_MARGIN && utc < w.toUtc() - TRANSITION_MARGIN)
+            return utc;
+        //
+        return ZonedDateTime.ofLocal(
+            LocalDateTime.ofEpochSecond(local, 0, ZoneOffset.UTC), zone, null)
+                .withLaterOffsetAtOverlap().toEpochSecond();
+    }
+
+
+    /**
+     * Return cached offset window that contains an instant, create window
+     * if it is not cached.
+     *
+     * @param utc epoch seconds.
+     * @return window containing utc.
+     */
+    private static Window cachedWindow(long utc) {
+        int i = (int)(Math.floorDiv(utc, SECONDS_PER_DAY) & (windows.length - 1));
+        Window w = windows[i];
+        if(w == null || ! w.contains(utc)) {
+            windows[i] = w = window(utc);
+        }
+        return w;
+    }
+
+
+    /**
+     * Create offset window that contains an instant.
+     *
+     * @param utc epoch seconds.
+     * @return window between the offset transitions around utc.
+     */
+    private static Window window(long utc) {
+        Instant instant = Instant.ofEpochSecond(utc);
+        int offset = rules.getOffset(instant).getTotalSeconds();
+        if(rules.isFixedOffset())
+            return new Window(Long.MIN_VALUE / 2, Long.MAX_VALUE / 2, offset);
+        //
+        ZoneOffsetTransition prev = rules.previousTransition(instant.plusSeconds(1));
+        ZoneOffsetTransition next = rules.nextTransition(instant);
+        return new Window(
+            prev != null? prev.toEpochSecond() : Long.MIN_VALUE / 2,
+            next != null? next.toEpochSecond() : Long.MAX_VALUE / 2,
+            offset);
+    }
+
+
+    /**
+     * Days since 1970-01-01 of a civil date (H. Hinnant, chrono-compatible algorithms).
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153 * (month > 2? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097L + doe - 719_468L;
+    }
+
+
+    private static int daysInMonth(int year, int month) {
+        if(month == 2)
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0))? 29 : 28;
+        return (month == 4 || month == 6 || month == 9 || month == 11)? 30 : 31;
+    }
+
+
+    private static boolean sep(CharSequence s, int i, char c) {
+        return s.charAt(i) == c;
+    }
+
+
+    private static int digits(CharSequence s, int from, int n) {
+        int v = 0;
+        for(int i=from; i < from + n; i++) {
+            v = v * 10 + digit(s, i);
+        }
+        return v;
+    }
+
+
+    private static int digit(CharSequence s, int i) {
+        int d = s.charAt(i) - '0';
+        if(d < 0 || d > 9)
+            throw unparsable(s);
+        return d;
+    }
+
+
+    private static void put2(char[] buf, int off, int v) {
+        buf[off] = (char)('0' + v / 10);
+        buf[off + 1] = (char)('0' + v % 10);
+    }
+
+
+    private static void put4(char[] buf, int off, int v) {
+        buf[off] = (char)('0' + (v / 1000) % 10);
+        buf[off + 1] = (char)('0' + (v / 100) % 10);
+        buf[off + 2] = (char)('0' + (v / 10) % 10);
+        buf[off + 3] = (char)('0' + v % 10);
+    }
+
+
+    private static IllegalArgumentException unparsable(CharSequence datetime) {
+        return new IllegalArgumentException(String.format("can't parse datetime from: \"%s\"", datetime));
+    }
+}
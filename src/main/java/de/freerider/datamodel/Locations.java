@@ -0,0 +1,144 @@
+package de.freerider.datamodel;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Public, thread-safe dictionary of pickup and drop-off locations. Each
+ * distinct location String is assigned a dense int code on first use:
+ * <pre>
+ *  "Berlin Hbf"   &lt;-&gt;  0
+ *  "Berlin TXL"   &lt;-&gt;  1
+ * </pre>
+ * Rows read from the database carry new String instances for each row,
+ * interned locations of all Reservations at the same location share one
+ * canonical String, in-memory indexes store codes instead of Strings.
+ * <p>
+ * Only locations of persisted rows are interned (row mappers, indexes
+ * loaded from the database or updated by ChangeEvents), locations of
+ * requests, imports and batch items are not, since they may be rejected.
+ * Codes are never reused or removed. The dictionary holds at most MAX_SIZE
+ * locations, further locations are not assigned codes and their Strings
+ * are used as they are.
+ * <p>
+ * Lookups of known locations are lock-free, assigning a new code is
+ * serialized.
+ */
+public final class Locations {
+
+    /**
+     * Maximum number of locations in the dictionary.
+     */
+    public static final int MAX_SIZE = 1 << 16;
+
+    /**
+     * Location -&gt; code.
+     */
+    private static final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+
+    /**
+     * Code -&gt; location, replaced when grown.
+     */
+    private static volatile String[] names = new String[64];
+
+    /**
+     * Number of assigned codes.
+     */
+    private static volatile int size = 0;
+
+
+    /**
+     * Private constructor, class only has static methods.
+     */
+    private Locations() { }
+
+
+    /**
+     * Return code of location, a new code is assigned to unknown locations
+     * of persisted rows while the dictionary holds less than MAX_SIZE
+     * locations.
+     *
+     * @param location location name, not null.
+     * @return code of location, code &gt;= 0, or -1 when the dictionary is full.
+     */
+    public static int code(String location) {
+        Integer code = codes.get(location);
+        return code != null? code : assign(location);
+    }
+
+
+    /**
+     * Return code of a known location without assigning a new code.
+     *
+     * @param location location name, may be null.
+     * @return code of location or -1 for unknown location.
+     */
+    public static int find(String location) {
+        Integer code = location==null? null : codes.get(location);
+        return code != null? code : -1;
+    }
+
+
+    /**
+     * Return location name of code.
+     *
+     * @param code code of location.
+     * @return canonical location String.
+     * @throws IllegalArgumentException for unassigned code.
+     */
+    public static String name(int code) {
+        if(code < 0 || code >= size)
+            throw new IllegalArgumentException(String.format("location code: %d not assigned", code));
+        return names[code];
+    }
+
+
+    /**
+     * Return the canonical String instance of a location of a persisted row.
+     *
+     * @param location location name, may be null.
+     * @return canonical String equal to location, location itself when the
+     *      dictionary is full, null for null.
+     */
+    public static String intern(String location) {
+        if(location==null)
+            return null;
+        int code = code(location);
+        return code >= 0? names[code] : location;
+    }
+
+
+    /**
+     * Return number of known locations, codes are 0 .. size() - 1.
+     *
+     * @return number of known locations.
+     */
+    public static int size() {
+        return size;
+    }
+
+
+    /**
+     * Assign next code to location unless another thread has assigned it
+     * or the dictionary is full.
+     */
+    private static synchronized int assign(String location) {
+        Integer code = codes.get(location);
+        if(code == null) {
+            if(size >= MAX_SIZE)
+                return -1;
+            //
+            code = size;
+            String[] n = names;
+            if(code == n.length) {
+                n = Arrays.copyOf(n, n.length * 2);
+            }
+            n[code] = location;
+            names = n;
+            size = code + 1;
+            codes.put(location, code);     // published after the name is readable
+        }
+        return code;
+    }
+}
@@ -1,8 +1,6 @@
 package de.freerider.datamodel;
 
-import java.sql.Date;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 
 /**
@@ -21,6 +19,7 @@ import java.text.SimpleDateFormat;
  * | DROPOFF     | varchar(48)                         | YES  |     | NULL    |
  * | STATUS      | enum('Inquired','InquiryConfirmed', | YES  |     | NULL    |
  * |             |   'Booked','Cancelled')             |      |     |         |
+ * | VERSION     | int                                 | NO   |     | 0       |
  * +-------------+-------------------------------------+------+-----+---------+
  * 
  * Reservation date/times are stored as long values counted as msec since 1970-01-01.
@@ -31,8 +30,12 @@ import java.text.SimpleDateFormat;
  * 1893452399000:   2029-12-31 23:59:59
  * 9223372036854775000 (Long.MAX_VALUE): Year: 292,278,994 Aug, 17 (08-17), 08:12:55
  * 
+ * JSON property order is fixed since customerId and vehicleId are getter-only
+ * properties that Jackson otherwise orders by reflection (unspecified).
+ * 
  * @author sgra64
  */
+@JsonPropertyOrder({"id", "begin", "end", "pickup", "dropoff", "status", "version", "customerId", "vehicleId"})
 public final class Reservation {
 
     /*
@@ -61,12 +64,14 @@ public final class Reservation {
     private long end;
 
     /*
-     * Reservation attribute: pickup, location the Vehicle is picked up.
+     * Reservation attribute: pickup, location the Vehicle is picked up,
+     * canonical String of the Locations dictionary when read from the database.
      */
     private String pickup;
 
     /*
-     * Reservation attribute: dropoff, location the Vehicle is returned.
+     * Reservation attribute: dropoff, location the Vehicle is returned,
+     * canonical String of the Locations dictionary when read from the database.
      */
     private String dropoff;
 
@@ -75,6 +80,12 @@ public final class Reservation {
      */
     private Status status;
 
+    /*
+     * Reservation attribute: version, incremented by every update of the record,
+     * used for optimistic concurrency (ETag, If-Match).
+     */
+    private long version = 0L;
+
 
     /*
      * The Lifecycle type Status and the status attribute of a Reservation object
@@ -128,12 +139,6 @@ public final class Reservation {
         Cancelled
     };
 
-    /*
-     * Date/Time format used by SQL for external representation, "yyyy-MM-dd HH:mm:ss".
-     * Example for 28th Dec, 2022, 16:30: "2022-12-28 16:30:00"
-     */
-    public static final SimpleDateFormat reservationDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-
     /*
      * Lower bound of past reservation dates (all reservations must be later than: 01/01/2020).
      */
@@ -161,6 +166,28 @@ public final class Reservation {
      */
     Reservation(long id, long customer_id, long vehicle_id,
         String begin, String end, String pickup, String dropoff, String status)
+    {
+        this(id, customer_id, vehicle_id, dateTimeStrToLong(begin), dateTimeStrToLong(end),
+            pickup, dropoff, status);
+    }
+
+
+    /**
+     * Non-public constructor with begin and end as long values, e.g. read
+     * from DATETIME columns without String conversion.
+     * 
+     * @param id unique identifier, PRIMARY KEY in database.
+     * @param customer reference to Customer, FOREIGN KEY in database.
+     * @param vehicle reference to Vehicle, FOREIGN KEY in database.
+     * @param begin date/time the reservation begins (msec since 1970-01-01).
+     * @param end date/time the reservation ends (msec since 1970-01-01).
+     * @param pickup pickup location.
+     * @param dropoff drop-off location.
+     * @param status status of Reservation.
+     * @throws IllegalArgumentException for illegal parameters.
+     */
+    Reservation(long id, long customer_id, long vehicle_id,
+        long begin, long end, String pickup, String dropoff, String status)
     {
         if(id < 0)
             throw new IllegalArgumentException(String.format("id: %d, id < 0", id));
@@ -172,8 +199,8 @@ public final class Reservation {
         this.id = id;
         this.customer_id = customer_id;
         this.vehicle_id = vehicle_id;
-        setBegin(dateTimeStrToLong(begin));
-        setEnd(dateTimeStrToLong(end));
+        setBegin(begin);
+        setEnd(end);
         setPickup(pickup);
         setDropoff(dropoff);
         setStatus(strToStatusEnum(status));
@@ -274,6 +301,17 @@ public final class Reservation {
     }
 
 
+    /**
+     * Public pickup location code getter (not a bean property).
+     * 
+     * @return code of pickup location in the Locations dictionary,
+     *      -1 if not in the dictionary.
+     */
+    public int pickupCode() {
+        return Locations.find(pickup);
+    }
+
+
     /**
      * Public pickup attribute setter.
      * 
@@ -300,6 +338,17 @@ public final class Reservation {
     }
 
 
+    /**
+     * Public dropoff location code getter (not a bean property).
+     * 
+     * @return code of drop-off location in the Locations dictionary,
+     *      -1 if not in the dictionary.
+     */
+    public int dropoffCode() {
+        return Locations.find(dropoff);
+    }
+
+
     /**
      * Public dropoff attribute setter.
      * 
@@ -343,23 +392,46 @@ public final class Reservation {
 
 
     /**
-     * Convert datetime from String format into long time.
-     * Example: {@code "2020-01-01 00:00:00"} to {@code 1577833200000}.
+     * Public version attribute getter, serialized as JSON field "version".
      * 
-     * @param datetime date and time as String.
-     * @return long dateTime value.
-     * @throws IllegalArgumentException for unparsable datetime String.
+     * @return version of Reservation record, incremented by every update.
      */
-    public static String dateTimeToStr(long datetime) {
-        if(datetime < 0)
-            throw new IllegalArgumentException("datetime is < 0>");
+    public long getVersion() {
+        return version;
+    }
+
+
+    /**
+     * Public version attribute setter, version as read from the database.
+     * 
+     * @param version version of Reservation record.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException for negative version.
+     */
+    public Reservation setVersion(long version) {
+        if(version < 0)
+            throw new IllegalArgumentException(String.format("version: %d, version < 0", version));
         //
-        return reservationDateFormat.format(new Date(datetime));
+        this.version = version;
+        return this;
+    }
+
+
+    /**
+     * Convert datetime from long time into String format (thread-safe).
+     * Example: {@code 1577833200000} to {@code "2020-01-01 00:00:00"}.
+     * 
+     * @param datetime long dateTime value.
+     * @return date and time as String.
+     * @throws IllegalArgumentException for datetime &lt; 0.
+     */
+    public static String dateTimeToStr(long datetime) {
+        return DateTimeCodec.format(datetime);
     }
 
 
     /**
-     * Convert datetime from String format into long time.
+     * Convert datetime from String format into long time (thread-safe).
      * Example: {@code "2020-01-01 00:00:00"} to {@code 1577833200000}.
      * 
      * @param datetime date and time as String.
@@ -367,15 +439,7 @@ public final class Reservation {
      * @throws IllegalArgumentException for unparsable datetime String.
      */
     public static long dateTimeStrToLong(String datetime) {
-        if(datetime==null)
-            throw new IllegalArgumentException("datetime is null");
-        //
-        try {
-            return reservationDateFormat.parse(datetime).getTime();
-        //
-        } catch(ParseException e) {
-            throw new IllegalArgumentException("datetime ParseException, " + e.getMessage());
-        }
+        return DateTimeCodec.parse(datetime);
     }
 
 
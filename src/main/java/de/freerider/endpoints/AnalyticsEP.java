@@ -0,0 +1,64 @@
+package de.freerider.endpoints;
+
+import java.util.List;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import de.freerider.data_jdbc.DailyCounts;
+import de.freerider.data_jdbc.ReservationStats;
+import de.freerider.data_jdbc.UtilizationReport;
+
+
+/**
+ * Spring Controller interface for /analytics REST endpoint to answer
+ * analytical questions about reservations from an off-heap columnar copy
+ * of the RESERVATION table.
+ * 
+ * Operations provided by the endpoint:
+ * 
+ * - GET /analytics/reservations?from=&to= - return counts of reservations with
+ *                            begin in [from, to) by status, hour of day and pickup
+ *                            location, status: 200 OK, 400 bad request (from, to).
+ * 
+ * - GET /analytics/reservations/daily?from=&to=&status=&category= - return number
+ *                            of reservations per day by status and vehicle category
+ *                            from incrementally maintained aggregates,
+ *                            status: 200 OK, 400 bad request (from, to, status, category).
+ * 
+ * - GET /analytics/utilization?from=&to=&category=&vehicles= - return utilization
+ *                            (booked hours / available hours) per day of the fleet,
+ *                            of categories and optionally of each vehicle,
+ *                            status: 200 OK, 400 bad request (from, to, category, too many days).
+ * 
+ */
+
+@RequestMapping("/v1/analytics")
+public interface AnalyticsEP extends AnalyticsEPDoc {
+
+    @GetMapping("/reservations")
+    @Override
+    ReservationStats findReservationStats(
+        @RequestParam(required=false) String from,
+        @RequestParam(required=false) String to);
+
+
+    @GetMapping("/reservations/daily")
+    @Override
+    List<DailyCounts> findDailyCounts(
+        @RequestParam String from,
+        @RequestParam String to,
+        @RequestParam(required=false) String status,
+        @RequestParam(required=false) String category);
+
+
+    @GetMapping("/utilization")
+    @Override
+    UtilizationReport findUtilization(
+        @RequestParam String from,
+        @RequestParam String to,
+        @RequestParam(required=false) String category,
+        @RequestParam(required=false) boolean vehicles);
+
+}
@@ -0,0 +1,124 @@
+package de.freerider.endpoints;
+
+import java.util.List;
+
+import org.springframework.web.bind.annotation.RequestParam;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.media.Content;
+
+import de.freerider.data_jdbc.DailyCounts;
+import de.freerider.data_jdbc.ReservationStats;
+import de.freerider.data_jdbc.UtilizationReport;
+
+
+public interface AnalyticsEPDoc {
+
+    static final String api_group_analytics = "Analytics endpoint";
+
+
+    /**
+     * Return counts of reservations by status, hour of day and pickup location.
+     * 
+     * - GET /analytics/reservations?from=2023-01-01 00:00:00&to=2024-01-01 00:00:00
+     * 
+     * @param from lower bound of begin, format: "yyyy-MM-dd HH:mm:ss", null for no bound.
+     * @param to upper bound of begin (exclusive), null for no bound.
+     * @return counts of reservations with begin in [from, to).
+     * @throws ResponseStatusException 400 bad request (from, to).
+     */
+    @Operation(
+        tags = {api_group_analytics},
+        summary = "Return counts of reservations by status, hour of day and pickup location.",
+        description = "Return the status mix, the number of reservations by hour of day of " +
+            "begin and by pickup location (busiest first) of reservations with begin in " +
+            "[from, to). Computed by a scan of an off-heap columnar copy of reservations."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="400", description="Bad Request"),
+    })
+    //
+    ReservationStats findReservationStats(
+        @Parameter(description="lower bound of begin, e.g. 2023-01-01 00:00:00")
+        @RequestParam(required=false) String from,
+        @Parameter(description="upper bound of begin (exclusive), e.g. 2024-01-01 00:00:00")
+        @RequestParam(required=false) String to);
+
+
+    /**
+     * Return number of reservations per day by status and vehicle category.
+     * 
+     * - GET /analytics/reservations/daily?from=2023-01-01&to=2023-02-01&status=Booked
+     * 
+     * @param from first day, format: "yyyy-MM-dd".
+     * @param to day after the last day, after from.
+     * @param status reservation status or null for all statuses.
+     * @param category vehicle category or null for all categories.
+     * @return counts of days with reservations, by status and category.
+     * @throws ResponseStatusException 400 bad request (from, to, status, category).
+     */
+    @Operation(
+        tags = {api_group_analytics},
+        summary = "Return number of reservations per day by status and vehicle category.",
+        description = "Return the number of reservations by local day of begin in [from, to), " +
+            "status and vehicle category. Served from aggregates that are loaded once and " +
+            "updated on every create, update and delete of a reservation, days without " +
+            "reservations are omitted."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="400", description="Bad Request"),
+    })
+    //
+    List<DailyCounts> findDailyCounts(
+        @Parameter(description="first day, e.g. 2023-01-01")
+        @RequestParam String from,
+        @Parameter(description="day after the last day, e.g. 2023-02-01")
+        @RequestParam String to,
+        @Parameter(description="Inquired, InquiryConfirmed, Booked, Cancelled")
+        @RequestParam(required=false) String status,
+        @Parameter(description="Sedan, SUV, Convertible, Van, Bike")
+        @RequestParam(required=false) String category);
+
+
+    /**
+     * Return utilization of vehicles per day.
+     * 
+     * - GET /analytics/utilization?from=2023-01-01&to=2023-02-01&category=SUV&vehicles=true
+     * 
+     * @param from first day, format: "yyyy-MM-dd".
+     * @param to day after the last day, after from.
+     * @param category vehicle category or null for all vehicles.
+     * @param vehicles true to include utilization per vehicle.
+     * @return utilization per day of the fleet, categories and optionally vehicles.
+     * @throws ResponseStatusException 400 bad request (from, to, category, too many days).
+     */
+    @Operation(
+        tags = {api_group_analytics},
+        summary = "Return utilization of vehicles per day.",
+        description = "Return booked hours and utilization (booked hours / available hours) per " +
+            "local day in [from, to) of the fleet, of each vehicle category and, with vehicles=true, " +
+            "of each vehicle. Hours count while a reservation is InquiryConfirmed or Booked, " +
+            "reservations are clipped to day boundaries. Computed in parallel from an off-heap " +
+            "columnar copy of reservations."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="400", description="Bad Request"),
+    })
+    //
+    UtilizationReport findUtilization(
+        @Parameter(description="first day, e.g. 2023-01-01")
+        @RequestParam String from,
+        @Parameter(description="day after the last day, e.g. 2023-02-01")
+        @RequestParam String to,
+        @Parameter(description="Sedan, SUV, Convertible, Van, Bike")
+        @RequestParam(required=false) String category,
+        @Parameter(description="include utilization per vehicle (max. 1,000,000 vehicle-days)")
+        @RequestParam(required=false) boolean vehicles);
+
+}
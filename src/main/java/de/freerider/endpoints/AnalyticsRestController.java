@@ -0,0 +1,111 @@
+package de.freerider.endpoints;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.freerider.data_jdbc.DailyCounts;
+import de.freerider.data_jdbc.ReservationAnalytics;
+import de.freerider.data_jdbc.ReservationStats;
+import de.freerider.data_jdbc.UtilizationReport;
+import de.freerider.datamodel.DateTimeCodec;
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
+
+
+@RestController
+class AnalyticsRestController implements AnalyticsEP {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger =
+        LoggerFactory.getLogger(AnalyticsRestController.class);
+
+    /**
+     * Analytics component scanning columnar reservation data.
+     */
+    @Autowired
+    private ReservationAnalytics analytics;
+
+
+    @Override
+    public ReservationStats findReservationStats(String from, String to) {
+        //
+        logger.info(String.format("--- received request: GET /analytics/reservations?from=%s&to=%s", from, to));
+        //
+        long begin = from != null? parse(from) : Long.MIN_VALUE;
+        long end = to != null? parse(to) : Long.MAX_VALUE;
+        if(begin >= end)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                String.format("from: \"%s\" not before to: \"%s\"", from, to));
+        //
+        return analytics.reservationStats(begin, end);
+    }
+
+
+    @Override
+    public List<DailyCounts> findDailyCounts(String from, String to, String status, String category) {
+        //
+        logger.info(String.format("--- received request: GET /analytics/reservations/daily?from=%s&to=%s&status=%s&category=%s",
+            from, to, status, category));
+        //
+        LocalDate first = parseDay(from), last = parseDay(to);
+        try {
+            return analytics.dailyCounts(first, last,
+                VehiclesRestController.parseEnum(Reservation.Status.class, "status", status),
+                VehiclesRestController.parseEnum(Vehicle.Category.class, "category", category));
+        //
+        } catch(IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+
+    @Override
+    public UtilizationReport findUtilization(String from, String to, String category, boolean vehicles) {
+        //
+        logger.info(String.format("--- received request: GET /analytics/utilization?from=%s&to=%s&category=%s&vehicles=%b",
+            from, to, category, vehicles));
+        //
+        LocalDate first = parseDay(from), last = parseDay(to);
+        try {
+            return analytics.utilization(first, last,
+                VehiclesRestController.parseEnum(Vehicle.Category.class, "category", category), vehicles);
+        //
+        } catch(IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+
+    /**
+     * Parse datetime query parameter, error 400 if unparsable.
+     */
+    private static long parse(String datetime) {
+        try {
+            return DateTimeCodec.parse(datetime);
+        } catch(IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+
+    /**
+     * Parse day query parameter "yyyy-MM-dd", error 400 if unparsable.
+     */
+    private static LocalDate parseDay(String day) {
+        try {
+            return LocalDate.parse(day);
+        } catch(DateTimeParseException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+}
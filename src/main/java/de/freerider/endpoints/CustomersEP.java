@@ -8,8 +8,12 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import de.freerider.datamodel.Customer;
 
@@ -23,23 +27,50 @@ import de.freerider.datamodel.Customer;
  * - GET /customers         - return JSON data for all customer in the repository,
  *                            status: 200 OK.
  * 
- * - GET /customers/{id}    - return JSON data for customer with id,
+ * - GET /customers?limit=&after= - return one page of customers (keyset pagination),
+ *                            cursor for the next page in header X-Next-Cursor,
+ *                            status: 200 OK, 400 bad request (limit, cursor).
+ * 
+ * - GET /customers         - with header "Accept: application/x-ndjson", stream JSON
+ *                            data for all customers, one object per line,
+ *                            status: 200 OK.
+ * 
+ * - GET /customers/search?q=&limit= - return customers whose name or contact
+ *                            match all terms of q (words, prefixes, substrings),
+ *                            best matches first, limit: 10 (default) .. 1000,
+ *                            status: 200 OK, 400 bad request (q, limit).
+ * 
+ * - GET /customers/{id}    - return JSON data for customer with id, version of
+ *                            customer in header ETag,
  *                            status: 200 OK, 400 bad request (id), 404 not found.
  * 
+ * - GET /customers/{id}/reservations - return JSON data for reservations of customer
+ *                            with id, with ?expand=vehicle reservations include the
+ *                            reserved vehicle (single join query),
+ *                            status: 200 OK, 400 bad request (id, expand), 404 not found.
+ * 
  * - POST /customers        - create new objects in the repository from JSON objects
  *                            passed with the request,
  *                            status: 201 created, 400 bad request (json body),
  *                            409 conflict.
  * 
  * - PUT /customers         - updated existing objects in the repository from JSON
- *                            objects passed with the request,
+ *                            objects passed with the request, only if the version
+ *                            matches header If-Match (optional), new version in
+ *                            header ETag,
  *                            status: 202 accepted, 400 bad request (json body),
- *                            404 not found.
+ *                            404 not found, 412 precondition failed (version).
  * 
  * - DELETE /customers/{id} - delete customer with id,
  *                            status: 202 accepted, 400 bad request (id),
  *                            404 not found, 409 conflict (foreign key dependency).
  * 
+ * GET operations returning JSON are conditional: responses carry headers
+ * ETag and Last-Modified, requests with a matching If-None-Match (or
+ * If-Modified-Since) return 304 not modified without a body. ETags of
+ * collections change with every write to the CUSTOMER (and RESERVATION)
+ * table, the ETag of GET /customers/{id} is the version of the customer.
+ * 
  * @author sgra64
  *
  */
@@ -49,12 +80,36 @@ public interface CustomersEP extends CustomersEPDoc {
 
     @GetMapping("")
     @Override
-    Iterable<Customer> findAllCustomers();
+    ResponseEntity<?> findAllCustomers(
+        @RequestParam(required=false) Integer limit,
+        @RequestParam(required=false) String after,
+        WebRequest request);
+
+
+    @GetMapping(value="", produces=NdJson.MEDIA_TYPE)
+    @Override
+    ResponseEntity<StreamingResponseBody> streamAllCustomers();
+
+
+    @GetMapping("/search")
+    @Override
+    Iterable<Customer> searchCustomers(
+        @RequestParam String q,
+        @RequestParam(required=false) Integer limit,
+        WebRequest request);
 
 
     @GetMapping("/{id}")
     @Override
-    Customer findCustomerById(@PathVariable long id);
+    ResponseEntity<?> findCustomerById(@PathVariable long id, WebRequest request);
+
+
+    @GetMapping("/{id}/reservations")
+    @Override
+    ResponseEntity<Iterable<?>> findReservationsByCustomerId(
+        @PathVariable long id,
+        @RequestParam(required=false) String expand,
+        WebRequest request);
 
 
     @PostMapping("")
@@ -64,7 +119,9 @@ public interface CustomersEP extends CustomersEPDoc {
 
     @PutMapping("")
     @Override
-    ResponseEntity<?> updateCustomer(@RequestBody Map<String, Object> jsonData);
+    ResponseEntity<?> updateCustomer(
+        @RequestBody Map<String, Object> jsonData,
+        @RequestHeader(value="If-Match", required=false) String ifMatch);
 
 
     @DeleteMapping("/{id}")
@@ -5,10 +5,16 @@ import java.util.Map;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
@@ -27,7 +33,13 @@ public interface CustomersEPDoc {
      * 
      * - GET /customers
      * 
-     * @return iterable with all Customers.
+     * - GET /customers?limit=100&after={cursor}
+     * 
+     * @param limit page size, null returns all customers unless after is given.
+     * @param after opaque cursor of the previous page (id of its last Customer).
+     * @param request HTTP request with headers If-None-Match, If-Modified-Since.
+     * @return iterable with all Customers or one page of Customers.
+     * @throws ResponseStatusException 400 bad request (limit, cursor).
      */
     @Operation(
         // group name where this operation appears and defines swagger tag
@@ -38,13 +50,77 @@ public interface CustomersEPDoc {
         summary = "Return all customers.",
 
         // detailed description inside API
-        description = "Return all customers (no limit, no pagination)."
+        description = "Return all customers (no limit, no pagination) or, with query " +
+            "parameters limit and/or after, one page of customers ordered by id. The cursor " +
+            "for the next page is returned in response header X-Next-Cursor."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json", array=@ArraySchema(schema=@Schema(implementation=Customer.class)))),
+        @ApiResponse(responseCode="304", description="Not Modified"),
+        @ApiResponse(responseCode="400", description="Bad Request"),
+    })
+    //
+    ResponseEntity<?> findAllCustomers(
+        @Parameter(description="maximum number of customers returned (page size, max: 1000)")
+        @RequestParam(required=false) Integer limit,
+        @Parameter(description="cursor from header X-Next-Cursor of the previous page")
+        @RequestParam(required=false) String after,
+        WebRequest request);
+
+
+    /**
+     * Stream all customers as newline-delimited JSON (one Customer per line).
+     * 
+     * - GET /customers with header "Accept: application/x-ndjson"
+     * 
+     * Rows are written to the response as they are read from the database,
+     * memory use is constant regardless of the number of customers.
+     * 
+     * @return ResponseEntity with streaming body.
+     */
+    @Operation(
+        tags = {api_group_customers},
+        summary = "Stream all customers as NDJSON.",
+        description = "Stream all customers with one JSON object per line when requested " +
+            "with header \"Accept: application/x-ndjson\" (no limit, constant memory)."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/x-ndjson")),
+    })
+    //
+    ResponseEntity<StreamingResponseBody> streamAllCustomers();
+
+
+    /**
+     * Return Customers by partial name or contact.
+     * 
+     * - GET /customers/search?q=meyer gmail&limit=10
+     * 
+     * @param q search terms, split at characters other than letters and digits.
+     * @param limit maximum number of Customers returned, default: 10.
+     * @param request HTTP request with headers If-None-Match, If-Modified-Since.
+     * @return matching Customers, best matches first.
+     * @throws ResponseStatusException 400 bad request (q without terms, limit).
+     */
+    @Operation(
+        tags = {api_group_customers},
+        summary = "Search Customers by partial name or contact.",
+        description = "Return Customers whose name or contact contain all terms of q as " +
+            "words (best), word prefixes or substrings of 3 or more characters, ranked by " +
+            "match and id. Answered from an in-memory index."
     )
     @ApiResponses(value={
         @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="304", description="Not Modified"),
+        @ApiResponse(responseCode="400", description="Bad Request"),
     })
     //
-    Iterable<Customer> findAllCustomers();
+    Iterable<Customer> searchCustomers(
+        @Parameter(description="search terms, e.g. \"meyer gmail\"")
+        @RequestParam String q,
+        @Parameter(description="maximum number of customers returned (default: 10, max: 1000)")
+        @RequestParam(required=false) Integer limit,
+        WebRequest request);
 
 
     /**
@@ -53,22 +129,60 @@ public interface CustomersEPDoc {
      * - GET /customers/{id}
      * 
      * @param id of Customer, id must not be negative.
-     * @return Customer with id.
+     * @param request HTTP request with headers If-None-Match, If-Modified-Since.
+     * @return Customer with id, version in header ETag.
      * @throws ResponseStatusException 400 bad request, 404 not found.
      */
     @Operation(
         tags = {api_group_customers},
         summary = "Return Customer by id, id must not be negative.",
-        description = "Return Customer if id exists, else return error 404 (not found)."
+        description = "Return Customer if id exists, else return error 404 (not found). " +
+            "Header ETag carries the version of the Customer for updates with If-Match."
         // parameters = {@Parameter(name="id", in=ParameterIn.QUERY, schema=@Schema(implementation=Long.class)) }
     )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json", schema=@Schema(implementation=Customer.class))),
+        @ApiResponse(responseCode="304", description="Not Modified"),
+        @ApiResponse(responseCode="400", description="Bad Request"),
+        @ApiResponse(responseCode="404", description="Not Found"),
+    })
+    //
+    ResponseEntity<?> findCustomerById(@PathVariable long id, WebRequest request);
+
+
+    /**
+     * Return Reservations of Customer with id.
+     * 
+     * - GET /customers/{id}/reservations
+     * 
+     * - GET /customers/{id}/reservations?expand=vehicle
+     * 
+     * @param id of Customer, id must not be negative.
+     * @param expand "vehicle" includes reserved Vehicles, null returns Reservations only.
+     * @param request HTTP request with headers If-None-Match, If-Modified-Since.
+     * @return Reservations or Reservations with Vehicles of Customer.
+     * @throws ResponseStatusException 400 bad request, 404 not found.
+     */
+    @Operation(
+        tags = {api_group_customers},
+        summary = "Return Reservations of Customer with id.",
+        description = "Return Reservations of Customer with id. With expand=vehicle, each " +
+            "Reservation includes the reserved Vehicle (one join query instead of one " +
+            "Vehicle lookup per Reservation). Return error 404 (not found) if the " +
+            "Customer does not exist."
+    )
     @ApiResponses(value={
         @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="304", description="Not Modified"),
         @ApiResponse(responseCode="400", description="Bad Request"),
         @ApiResponse(responseCode="404", description="Not Found"),
     })
     //
-    Customer findCustomerById(@PathVariable long id);
+    ResponseEntity<Iterable<?>> findReservationsByCustomerId(
+        @PathVariable long id,
+        @Parameter(description="\"vehicle\" to include reserved vehicles")
+        @RequestParam(required=false) String expand,
+        WebRequest request);
 
 
 
@@ -130,14 +244,22 @@ public interface CustomersEPDoc {
      * validated, in particular the id-value, which MUST must exist in the
      * database in order to update the corresponding database object.
      * 
+     * With header If-Match (ETag from GET /customers/{id}), the Customer is
+     * only updated if its version has not changed (optimistic concurrency).
+     * 
      * @param jsonData serialized JSON received with the Request.
-     * @return empty ResponseEntity with status code.
-     * @throws ResponseStatusException 400 bad request, 404 conflict (not found).
+     * @param ifMatch expected version as returned in ETag, null or "*" for any version.
+     * @return empty ResponseEntity with status code, new version in header ETag
+     * if updated with If-Match.
+     * @throws ResponseStatusException 400 bad request, 404 conflict (not found),
+     * 412 precondition failed (version has changed).
      */
     @Operation(
         tags = {api_group_customers},
         summary = "Create new Customer, Customer id must not exist.",
-        description = "Create new Customer from JSON data received in the Request-Body."
+        description = "Create new Customer from JSON data received in the Request-Body. " +
+            "With header If-Match, the Customer is only updated if its version matches, " +
+            "else error 412 (precondition failed) is returned."
     )
     @RequestBody(
         description = "JSON data from which Customer object to update is deserialized.",
@@ -147,9 +269,13 @@ public interface CustomersEPDoc {
         @ApiResponse(responseCode="202", description="Accepted"),
         @ApiResponse(responseCode="400", description="Bad Request"),
         @ApiResponse(responseCode="404", description="Not Found"),
+        @ApiResponse(responseCode="412", description="Precondition Failed"),
     })
     //
-    ResponseEntity<?> updateCustomer(@RequestBody Map<String, Object> jsonData);
+    ResponseEntity<?> updateCustomer(
+        @RequestBody Map<String, Object> jsonData,
+        @Parameter(description="ETag of Customer from GET /customers/{id}, e.g. \"3\"")
+        @RequestHeader(value="If-Match", required=false) String ifMatch);
 
 
     /**
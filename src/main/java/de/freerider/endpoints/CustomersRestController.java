@@ -8,13 +8,20 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.freerider.data_jdbc.ChangeEvents;
 import de.freerider.data_jdbc.DataAccess;
 import de.freerider.data_jdbc.DataAccessException;
 import de.freerider.datamodel.Customer;
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
 
 
 @RestController
@@ -26,6 +33,11 @@ class CustomersRestController implements CustomersEP {
     private static final Logger logger =
         LoggerFactory.getLogger(CustomersRestController.class);
 
+    /**
+     * Number of search results returned when no limit is given.
+     */
+    private static final int SEARCH_LIMIT = 10;
+
     /**
      * DataAccess (object) DAO is a component to accesses data in the
      * database through SQL queries.
@@ -33,18 +45,94 @@ class CustomersRestController implements CustomersEP {
     @Autowired
     private DataAccess dao;
 
+    /**
+     * ObjectMapper used by Spring to serialize objects to JSON, used for
+     * streamed responses.
+     */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Source of change sequences validating conditional GETs.
+     */
+    @Autowired
+    private ChangeEvents changeEvents;
+
+    /**
+     * Cache of serialized JSON responses.
+     */
+    @Autowired
+    private JsonCache jsonCache;
+
 
     @Override
-    public Iterable<Customer> findAllCustomers() {
-        return dao.findAllCustomers();
+    public ResponseEntity<?> findAllCustomers(Integer limit, String after, WebRequest request) {
+        //
+        if(limit == null && after == null) {
+            if(ETags.notModified(request, changeEvents, Customer.class))
+                return null;    // 304 not modified
+            return jsonCache.collection(request, "customers", dao::findAllCustomers, Customer.class);
+        }
+        int n = Paging.limit(limit);
+        logger.info(String.format("--- received request: GET /customers?limit=%d&after=%s", n, after));
+        //
+        long after_id = after != null? Paging.decode(after, 1)[0] : -1L;
+        if(ETags.notModified(request, changeEvents, Customer.class))
+            return null;
+        return Paging.page(dao.findCustomersAfter(after_id, n + 1), n,
+            c -> new long[] {c.getId()});
     }
 
 
     @Override
-    public Customer findCustomerById(@PathVariable long id) {
+    public ResponseEntity<StreamingResponseBody> streamAllCustomers() {
+        //
+        logger.info(String.format("--- received request: GET /customers (%s)", NdJson.MEDIA_TYPE));
+        //
+        return NdJson.stream(objectMapper, dao::streamAllCustomers);
+    }
+
+
+    @Override
+    public Iterable<Customer> searchCustomers(String q, Integer limit, WebRequest request) {
+        //
+        logger.info(String.format("--- received request: GET /customers/search?q=%s", q));
+        //
+        if(q == null || q.chars().noneMatch(Character::isLetterOrDigit))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                String.format("q: \"%s\" has no search terms", q));
+        //
+        int n = Paging.limit(limit != null? limit : SEARCH_LIMIT);
+        if(ETags.notModified(request, changeEvents, Customer.class))
+            return null;
+        return dao.searchCustomers(q, n);
+    }
+
+
+    @Override
+    public ResponseEntity<?> findCustomerById(@PathVariable long id, WebRequest request) {
         //
         logger.info(String.format("--- received request: GET /customer/%d", id));
         //
+        long lastModified = changeEvents.lastModified(Customer.class);
+        Customer found = findCustomer(id);
+        //
+        logger.info(String.format("--- found: Customer(id: %d, name: %s)", found.getId(), found.getName()));
+        //
+        if(ETags.notModified(request, found.getVersion(), lastModified))
+            return null;    // 304 not modified, no JSON serialization
+        return jsonCache.entity(request, Customer.class, id, found.getVersion(), () -> found);
+    }
+
+
+    /**
+     * Find Customer by id.
+     * 
+     * @param id of Customer.
+     * @return Customer with id.
+     * @throws ResponseStatusException 400 bad request (id), 404 not found.
+     */
+    private Customer findCustomer(long id) {
         if(id < 0L)
             // throw error 400 (bad request)
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
@@ -59,12 +147,34 @@ class CustomersRestController implements CustomersEP {
                 String.format("Customer id: %d not found, error %d", id, HttpStatus.NOT_FOUND.value())
             ));
         //
-        logger.info(String.format("--- found: Customer(id: %d, name: %s)", found.getId(), found.getName()));
-        //
         return found;
     }
 
 
+    @Override
+    public ResponseEntity<Iterable<?>> findReservationsByCustomerId(@PathVariable long id, String expand, WebRequest request) {
+        //
+        logger.info(String.format("--- received request: GET /customers/%d/reservations?expand=%s", id, expand));
+        //
+        if(expand != null && ! expand.equals("vehicle"))
+            // throw error 400 (bad request)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                String.format("expand: \"%s\" invalid, expected: \"vehicle\"", expand));
+        //
+        findCustomer(id);   // 400 bad request (id), 404 not found
+        //
+        if(expand != null?
+                ETags.notModified(request, changeEvents, Customer.class, Reservation.class, Vehicle.class) :
+                ETags.notModified(request, changeEvents, Customer.class, Reservation.class))
+            return null;
+        Iterable<?> reservations = expand != null?
+            dao.findReservationsWithVehicleByCustomerId(id) :
+            dao.findReservationsByCustomerId(id);
+        //
+        return ResponseEntity.ok(reservations);
+    }
+
+
     @Override
     public ResponseEntity<Customer> createCustomer(@RequestBody Map<String, Object> jsonData) {
         //
@@ -89,20 +199,24 @@ class CustomersRestController implements CustomersEP {
 
 
     @Override
-    public ResponseEntity<?> updateCustomer(Map<String, Object> jsonData) {
+    public ResponseEntity<?> updateCustomer(Map<String, Object> jsonData, String ifMatch) {
         //
-        logger.info(String.format("--- received PUT (update): Customer JSON data:"));
+        logger.info(String.format("--- received PUT (update): Customer JSON data, If-Match: %s", ifMatch));
         //
-        var respCode = HttpStatus.NOT_IMPLEMENTED;
+        long version = ETags.ifMatch(ifMatch);     // 412 for unparsable ETag
         try {
-            dao.updateCustomer(jsonData);
+            dao.updateCustomer(jsonData, version);
             logger.info(String.format("--- Customer object updated"));
-            respCode = HttpStatus.ACCEPTED;
+            var response = ResponseEntity.status(HttpStatus.ACCEPTED);
+            if(version != ETags.ANY) {
+                response.eTag(ETags.of(version + 1));
+            }
+            return response.build();
         //
         } catch(DataAccessException dax) {
             reThrow(dax, "DataAccessException dax: " + dax.getMessage());
         }
-        return ResponseEntity.status(respCode).build();
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
     }
 
 
@@ -137,6 +251,7 @@ class CustomersRestController implements CustomersEP {
             case BadRequest: respCode = HttpStatus.BAD_REQUEST; break;
             case NotFound:   respCode = HttpStatus.NOT_FOUND; break;
             case Conflict:   respCode = HttpStatus.CONFLICT; break;
+            case PreconditionFailed: respCode = HttpStatus.PRECONDITION_FAILED; break;
         }
         throw new ResponseStatusException(respCode, msg);
     }
@@ -0,0 +1,132 @@
+package de.freerider.endpoints;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import de.freerider.data_jdbc.ChangeEvents;
+
+
+/**
+ * Non-public helper for entity tags of single resources. The ETag of a
+ * customer or reservation is the VERSION of its record, which is incremented
+ * by every update:
+ * <pre>
+ *  - GET /customers/1                     # 200, ETag: "3"
+ *  - PUT /customers  If-Match: "3"        # 202, ETag: "4", record updated
+ *  - PUT /customers  If-Match: "3"        # 412 precondition failed, updated by another client
+ * </pre>
+ * Clients that receive 412 read the resource again and retry the update,
+ * the server holds no locks between the read and the update.
+ *
+ * Collections are tagged with weak ETags built from the change sequences of
+ * the tables they are read from (ChangeEvents), which never match If-Match.
+ * Conditional GETs compare validators before any data is read:
+ * <pre>
+ *  - GET /vehicles                        # 200, ETag: W/"18b2c3d4e5f-42", Last-Modified: ...
+ *  - GET /vehicles  If-None-Match: W/"18b2c3d4e5f-42"   # 304 not modified, no query, no JSON
+ * </pre>
+ * The sequence is taken before data is read, a write completing meanwhile
+ * only causes the next request to return 200 again. Writes that bypass the
+ * DAO (e.g. SQL console) do not change ETags.
+ */
+final class ETags {
+
+    /**
+     * Expected version for a missing If-Match header or "*".
+     */
+    static final long ANY = -1L;
+
+
+    /**
+     * Private constructor, class only has static methods.
+     */
+    private ETags() { }
+
+
+    /**
+     * Return strong ETag of a version, e.g. "\"3\"".
+     *
+     * @param version version of record.
+     * @return quoted version.
+     */
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+
+    /**
+     * Parse If-Match header into the expected version of a record.
+     *
+     * @param ifMatch value of If-Match header, e.g. "\"3\"", "*" or null.
+     * @return expected version or ANY for null or "*".
+     * @throws ResponseStatusException 412 precondition failed for weak, multiple
+     *      or unparsable ETags, which never match a version.
+     */
+    static long ifMatch(String ifMatch) {
+        if(ifMatch == null || ifMatch.trim().equals("*"))
+            return ANY;
+        //
+        String tag = ifMatch.trim();
+        if(tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                long version = Long.parseLong(tag.substring(1, tag.length() - 1));
+                if(version >= 0)
+                    return version;
+            } catch(NumberFormatException ex) { }
+        }
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+            String.format("If-Match: %s does not match", ifMatch));
+    }
+
+
+    /**
+     * Check conditional GET of a collection read from tables of entity types
+     * against their change sequences. Sets headers ETag and Last-Modified of
+     * the response.
+     *
+     * @param request HTTP request with headers If-None-Match, If-Modified-Since.
+     * @param changeEvents source of change sequences.
+     * @param types entity types the response is read from, e.g. Vehicle.class.
+     * @return true if not modified, the caller returns null for 304 not modified.
+     */
+    static boolean notModified(WebRequest request, ChangeEvents changeEvents, Class<?>... types) {
+        long lastModified = 0L;
+        for(Class<?> type : types) {
+            lastModified = Math.max(lastModified, changeEvents.lastModified(type));
+        }
+        return request.checkNotModified(
+            String.format("W/\"%x-%d\"", changeEvents.started(), sequence(changeEvents, types)), lastModified);
+    }
+
+
+    /**
+     * Return sum of change sequences of entity types, which changes with
+     * every write to any of their tables.
+     *
+     * @param changeEvents source of change sequences.
+     * @param types entity types, e.g. Vehicle.class.
+     * @return sum of change sequences.
+     */
+    static long sequence(ChangeEvents changeEvents, Class<?>... types) {
+        long sequence = 0L;
+        for(Class<?> type : types) {
+            sequence += changeEvents.sequence(type);
+        }
+        return sequence;
+    }
+
+
+    /**
+     * Check conditional GET of a single resource against its version.
+     * Sets headers ETag and Last-Modified of the response.
+     *
+     * @param request HTTP request with headers If-None-Match, If-Modified-Since.
+     * @param version version of the resource.
+     * @param lastModified last change of its table, taken before the resource was read.
+     * @return true if not modified, the caller returns null for 304 not modified.
+     */
+    static boolean notModified(WebRequest request, long version, long lastModified) {
+        return request.checkNotModified(of(version), lastModified);
+    }
+}
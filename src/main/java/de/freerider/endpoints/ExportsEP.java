@@ -0,0 +1,78 @@
+package de.freerider.endpoints;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import de.freerider.data_jdbc.ExportStatus;
+
+
+/**
+ * Spring Controller interface for /exports REST endpoint to dump customers,
+ * vehicles and reservations into gzip-compressed segment files and to
+ * download finished segments.
+ *
+ * Operations provided by the endpoint:
+ *
+ * - POST /exports/{table}    - start export of table (customers, vehicles,
+ *                            reservations) in the background, param
+ *                            format=ndjson|csv (default: ndjson),
+ *                            status: 202 accepted, 400 bad request (table, format).
+ *
+ * - POST /exports/{id}/resume - resume failed export after its last finished
+ *                            segment, status: 202 accepted, 404 not found,
+ *                            409 conflict (running or completed).
+ *
+ * - GET /exports             - return progress of recent exports (rows, bytes,
+ *                            rows/sec, finished segments), status: 200 OK.
+ *
+ * - GET /exports/{id}        - return progress of export with id,
+ *                            status: 200 OK, 404 not found.
+ *
+ * - GET /exports/{id}/segments/{n} - download finished segment n (gzip file),
+ *                            sent from the file with FileChannel.transferTo,
+ *                            status: 200 OK, 404 not found (not finished).
+ *
+ */
+
+@RequestMapping("/v1/exports")
+public interface ExportsEP extends ExportsEPDoc {
+
+    @PostMapping("/{table}")
+    @Override
+    ResponseEntity<ExportStatus> startExport(
+        @PathVariable String table,
+        @RequestParam(required=false) String format
+    );
+
+
+    @PostMapping("/{id:[0-9]+}/resume")
+    @Override
+    ResponseEntity<ExportStatus> resumeExport(@PathVariable long id);
+
+
+    @GetMapping("")
+    @Override
+    List<ExportStatus> findAllExports();
+
+
+    @GetMapping("/{id}")
+    @Override
+    ExportStatus findExportById(@PathVariable long id);
+
+
+    @GetMapping("/{id}/segments/{n}")
+    @Override
+    void downloadSegment(@PathVariable long id, @PathVariable int n,
+        HttpServletRequest request, HttpServletResponse response) throws IOException;
+
+}
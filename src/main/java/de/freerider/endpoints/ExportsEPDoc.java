@@ -0,0 +1,148 @@
+package de.freerider.endpoints;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.media.Content;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import de.freerider.data_jdbc.ExportStatus;
+
+
+public interface ExportsEPDoc {
+
+    static final String api_group_exports = "Exports endpoint";
+
+
+    /**
+     * Start export of a table into segment files.
+     *
+     * - POST /exports/reservations?format=csv
+     *
+     * @param table name of table: customers, vehicles, reservations.
+     * @param format ndjson (default) or csv.
+     * @return ResponseEntity with status of started export.
+     * @throws ResponseStatusException 400 bad request (table, format).
+     */
+    @Operation(
+        tags = {api_group_exports},
+        summary = "Export customers, vehicles or reservations into compressed files.",
+        description = "Start export of a table in the background. Rows are streamed " +
+            "from the database in order of id into gzip-compressed NDJSON or CSV " +
+            "segment files that can be downloaded once finished."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="202", description="Accepted", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="400", description="Bad Request"),
+    })
+    //
+    ResponseEntity<ExportStatus> startExport(
+        @PathVariable String table,
+        @Parameter(description = "ndjson (default) or csv")
+        @RequestParam(required=false) String format
+    );
+
+
+    /**
+     * Resume a failed export after its last finished segment.
+     *
+     * - POST /exports/{id}/resume
+     *
+     * @param id id of export.
+     * @return ResponseEntity with status of resumed export.
+     * @throws ResponseStatusException 404 not found, 409 conflict (running or completed).
+     */
+    @Operation(
+        tags = {api_group_exports},
+        summary = "Resume failed export with id.",
+        description = "Resume a failed export after the last id of its last finished " +
+            "segment, finished segments are kept."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="202", description="Accepted", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="404", description="Not Found"),
+        @ApiResponse(responseCode="409", description="Conflict"),
+    })
+    //
+    ResponseEntity<ExportStatus> resumeExport(@PathVariable long id);
+
+
+    /**
+     * Return progress of recent exports.
+     *
+     * - GET /exports
+     *
+     * @return status of exports in order of start.
+     */
+    @Operation(
+        tags = {api_group_exports},
+        summary = "Return progress of recent exports.",
+        description = "Return state, rows and bytes written, rows/sec and finished " +
+            "segments of running and recently finished exports."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+    })
+    //
+    List<ExportStatus> findAllExports();
+
+
+    /**
+     * Return progress of one export.
+     *
+     * - GET /exports/{id}
+     *
+     * @param id id of export.
+     * @return status of export.
+     * @throws ResponseStatusException 404 not found.
+     */
+    @Operation(
+        tags = {api_group_exports},
+        summary = "Return progress of export with id.",
+        description = "Return state, rows and bytes written, rows/sec and finished " +
+            "segments of export with id, else return error 404 (not found)."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="404", description="Not Found"),
+    })
+    //
+    ExportStatus findExportById(@PathVariable long id);
+
+
+    /**
+     * Download a finished segment file of an export.
+     *
+     * - GET /exports/{id}/segments/{n}
+     *
+     * @param id id of export.
+     * @param n index of segment, starting at 0.
+     * @param request HTTP request.
+     * @param response HTTP response the file is sent to.
+     * @throws ResponseStatusException 404 not found (export, segment not finished).
+     */
+    @Operation(
+        tags = {api_group_exports},
+        summary = "Download finished segment of export with id.",
+        description = "Send gzip-compressed segment file n from disk (sendfile or " +
+            "FileChannel.transferTo), else return error 404 (not found, not finished)."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/gzip")),
+        @ApiResponse(responseCode="404", description="Not Found"),
+    })
+    //
+    void downloadSegment(@PathVariable long id, @PathVariable int n,
+        HttpServletRequest request, HttpServletResponse response) throws IOException;
+
+}
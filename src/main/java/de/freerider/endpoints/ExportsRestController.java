@@ -0,0 +1,147 @@
+package de.freerider.endpoints;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import de.freerider.data_jdbc.BulkExports;
+import de.freerider.data_jdbc.DataAccessException;
+import de.freerider.data_jdbc.ExportStatus;
+
+
+@RestController
+class ExportsRestController implements ExportsEP {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger =
+        LoggerFactory.getLogger(ExportsRestController.class);
+
+    /*
+     * Request attributes of Tomcat's sendfile support (NIO connector), the
+     * connector sends the file with FileChannel.transferTo to the socket.
+     */
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Component that runs exports and keeps their progress.
+     */
+    @Autowired
+    private BulkExports exports;
+
+
+    @Override
+    public ResponseEntity<ExportStatus> startExport(String table, String format) {
+        //
+        logger.info(String.format("--- received POST (export): %s, format: %s", table, format));
+        //
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(exports.startExport(table, format));
+        //
+        } catch(DataAccessException dax) {
+            reThrow(dax, "DataAccessException dax: " + dax.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+    }
+
+
+    @Override
+    public ResponseEntity<ExportStatus> resumeExport(@PathVariable long id) {
+        //
+        logger.info(String.format("--- received POST (resume export): %d", id));
+        //
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(exports.resumeExport(id));
+        //
+        } catch(DataAccessException dax) {
+            reThrow(dax, "DataAccessException dax: " + dax.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+    }
+
+
+    @Override
+    public List<ExportStatus> findAllExports() {
+        return exports.findAllExports();
+    }
+
+
+    @Override
+    public ExportStatus findExportById(@PathVariable long id) {
+        return exports.findExportById(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                String.format("export id: %d not found", id)));
+    }
+
+
+    @Override
+    public void downloadSegment(@PathVariable long id, @PathVariable int n,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        //
+        Path path = exports.findSegment(id, n)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                String.format("export id: %d, segment: %d not found", id, n)));
+        long size = Files.size(path);
+        //
+        response.setContentType("application/gzip");
+        response.setContentLengthLong(size);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            String.format("attachment; filename=\"%s\"", path.getFileName()));
+        //
+        if(Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // connector sends file after the handler returns
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, Long.valueOf(0L));
+            request.setAttribute(SENDFILE_END, Long.valueOf(size));
+            return;
+        }
+        try(FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            for(long pos=0; pos < size; ) {
+                pos += file.transferTo(pos, size - pos, out);
+            }
+        }
+    }
+
+
+    /**
+     * Map exceptions of type DataAccessException used in the data access layer
+     * to HTTP ResponseStatusExceptions used in the Controller layer.
+     *
+     * @param dax DataAccessException from the data access layer.
+     * @param msg exception message.
+     * @throws ResponseStatusException return to HTTP client.
+     */
+    private void reThrow(DataAccessException dax, String msg) throws ResponseStatusException {
+        var respCode = HttpStatus.NOT_IMPLEMENTED;
+        switch(dax.code) {
+            case BadRequest: respCode = HttpStatus.BAD_REQUEST; break;
+            case NotFound:   respCode = HttpStatus.NOT_FOUND; break;
+            case Conflict:   respCode = HttpStatus.CONFLICT; break;
+        }
+        throw new ResponseStatusException(respCode, msg);
+    }
+
+}
@@ -0,0 +1,76 @@
+package de.freerider.endpoints;
+
+import java.io.InputStream;
+import java.util.List;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import de.freerider.data_jdbc.ImportStatus;
+
+
+/**
+ * Spring Controller interface for /imports REST endpoint to bulk load
+ * customers, vehicles and reservations from CSV or NDJSON sources.
+ *
+ * Operations provided by the endpoint:
+ *
+ * - POST /imports/{table}?file=  - start import of a file from the import directory
+ *                            in the background, table: customers, vehicles,
+ *                            reservations, format from file extension or param
+ *                            format=csv|ndjson,
+ *                            status: 202 accepted, 400 bad request (table, format,
+ *                            file name), 404 not found (file).
+ *
+ * - POST /imports/{table}    - import CSV (Content-Type: text/csv) or NDJSON
+ *                            (Content-Type: application/x-ndjson) request body,
+ *                            returns when all rows are processed,
+ *                            status: 200 OK, 400 bad request (table, format),
+ *                            500 import failed.
+ *
+ * - GET /imports             - return progress of recent imports (rows read,
+ *                            inserted, rejected, rows/sec), status: 200 OK.
+ *
+ * - GET /imports/{id}        - return progress of import with id,
+ *                            status: 200 OK, 404 not found.
+ *
+ * - GET /imports/{id}/rejects - return reject file of import with id (line
+ *                            number, reason, record), status: 200 OK, 404 not found.
+ *
+ */
+
+@RequestMapping("/v1/imports")
+public interface ImportsEP extends ImportsEPDoc {
+
+    @PostMapping("/{table}")
+    @Override
+    ResponseEntity<ImportStatus> importTable(
+        @PathVariable String table,
+        @RequestParam(required=false) String file,
+        @RequestParam(required=false) String format,
+        @RequestHeader(value="Content-Type", required=false) String contentType,
+        InputStream body
+    );
+
+
+    @GetMapping("")
+    @Override
+    List<ImportStatus> findAllImports();
+
+
+    @GetMapping("/{id}")
+    @Override
+    ImportStatus findImportById(@PathVariable long id);
+
+
+    @GetMapping("/{id}/rejects")
+    @Override
+    ResponseEntity<Resource> findRejectsByImportId(@PathVariable long id);
+
+}
@@ -0,0 +1,133 @@
+package de.freerider.endpoints;
+
+import java.io.InputStream;
+import java.util.List;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.media.Content;
+
+import de.freerider.data_jdbc.ImportStatus;
+
+
+public interface ImportsEPDoc {
+
+    static final String api_group_imports = "Imports endpoint";
+
+
+    /**
+     * Import rows into a table from a file in the import directory (in the
+     * background) or from the request body (before the response is sent).
+     *
+     * - POST /imports/reservations?file=berlin-2023.csv
+     *
+     * - POST /imports/customers   (Content-Type: application/x-ndjson)
+     *
+     * @param table name of table: customers, vehicles, reservations.
+     * @param file name of file in the import directory, null imports the request body.
+     * @param format csv or ndjson, null uses file extension or Content-Type.
+     * @param contentType Content-Type of request body.
+     * @param body request body with one row per line.
+     * @return ResponseEntity with status of import.
+     * @throws ResponseStatusException 400 bad request (table, format, file), 404 not found (file).
+     */
+    @Operation(
+        tags = {api_group_imports},
+        summary = "Import customers, vehicles or reservations from CSV or NDJSON.",
+        description = "Import rows from a file in the import directory (param file, " +
+            "status 202, runs in the background) or from the request body (status 200 " +
+            "after all rows were processed). Rows are validated and inserted in batches, " +
+            "invalid rows are written to a reject file with line number and reason."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="202", description="Accepted", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="400", description="Bad Request"),
+        @ApiResponse(responseCode="404", description="Not Found"),
+        @ApiResponse(responseCode="500", description="Import Failed", content=@Content(mediaType="application/json")),
+    })
+    //
+    ResponseEntity<ImportStatus> importTable(
+        @PathVariable String table,
+        @Parameter(description = "file name in import directory, imports request body if omitted")
+        @RequestParam(required=false) String file,
+        @Parameter(description = "csv or ndjson, default: file extension or Content-Type")
+        @RequestParam(required=false) String format,
+        String contentType,
+        InputStream body
+    );
+
+
+    /**
+     * Return progress of recent imports.
+     *
+     * - GET /imports
+     *
+     * @return status of imports in order of start.
+     */
+    @Operation(
+        tags = {api_group_imports},
+        summary = "Return progress of recent imports.",
+        description = "Return state, rows read, inserted and rejected and rows/sec " +
+            "of running and recently finished imports."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+    })
+    //
+    List<ImportStatus> findAllImports();
+
+
+    /**
+     * Return progress of one import.
+     *
+     * - GET /imports/{id}
+     *
+     * @param id id of import.
+     * @return status of import.
+     * @throws ResponseStatusException 404 not found.
+     */
+    @Operation(
+        tags = {api_group_imports},
+        summary = "Return progress of import with id.",
+        description = "Return state, rows read, inserted and rejected and rows/sec " +
+            "of import with id, else return error 404 (not found)."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="404", description="Not Found"),
+    })
+    //
+    ImportStatus findImportById(@PathVariable long id);
+
+
+    /**
+     * Return reject file of an import.
+     *
+     * - GET /imports/{id}/rejects
+     *
+     * @param id id of import.
+     * @return ResponseEntity with tab-separated lines: line number, reason, record.
+     * @throws ResponseStatusException 404 not found (import or no rejected rows).
+     */
+    @Operation(
+        tags = {api_group_imports},
+        summary = "Return reject file of import with id.",
+        description = "Return rejected rows as tab-separated lines with line number, " +
+            "reason and record, else return error 404 (not found, no rejected rows)."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="text/tab-separated-values")),
+        @ApiResponse(responseCode="404", description="Not Found"),
+    })
+    //
+    ResponseEntity<Resource> findRejectsByImportId(@PathVariable long id);
+
+}
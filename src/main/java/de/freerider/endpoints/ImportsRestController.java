@@ -0,0 +1,109 @@
+package de.freerider.endpoints;
+
+import java.io.InputStream;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import de.freerider.data_jdbc.BulkImports;
+import de.freerider.data_jdbc.DataAccessException;
+import de.freerider.data_jdbc.ImportStatus;
+
+
+@RestController
+class ImportsRestController implements ImportsEP {
+
+    /*
+     * Logger instance for this class.
+     */
+    private static final Logger logger =
+        LoggerFactory.getLogger(ImportsRestController.class);
+
+    /**
+     * Component that runs imports and keeps their progress.
+     */
+    @Autowired
+    private BulkImports imports;
+
+
+    @Override
+    public ResponseEntity<ImportStatus> importTable(String table, String file, String format, String contentType, InputStream body) {
+        //
+        logger.info(String.format("--- received POST (import): %s, file: %s, format: %s", table, file, format));
+        //
+        try {
+            if(file != null) {
+                ImportStatus started = imports.importFile(table, format, file);
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(started);
+            }
+            //
+            if(format == null && contentType != null) {
+                var mt = MediaType.parseMediaType(contentType);
+                format = mt.getType() + "/" + mt.getSubtype();
+            }
+            ImportStatus done = imports.importStream(table, format, body);
+            return ResponseEntity
+                .status(done.state() == ImportStatus.State.Completed? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(done);
+        //
+        } catch(DataAccessException dax) {
+            reThrow(dax, "DataAccessException dax: " + dax.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+    }
+
+
+    @Override
+    public List<ImportStatus> findAllImports() {
+        return imports.findAllImports();
+    }
+
+
+    @Override
+    public ImportStatus findImportById(@PathVariable long id) {
+        return imports.findImportById(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                String.format("import id: %d not found", id)));
+    }
+
+
+    @Override
+    public ResponseEntity<Resource> findRejectsByImportId(@PathVariable long id) {
+        return imports.findRejectFile(id)
+            .map(path -> ResponseEntity.ok()
+                .contentType(new MediaType("text", "tab-separated-values"))
+                .body((Resource)new FileSystemResource(path)))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                String.format("no rejected rows for import id: %d", id)));
+    }
+
+
+    /**
+     * Map exceptions of type DataAccessException used in the data access layer
+     * to HTTP ResponseStatusExceptions used in the Controller layer.
+     *
+     * @param dax DataAccessException from the data access layer.
+     * @param msg exception message.
+     * @throws ResponseStatusException return to HTTP client.
+     */
+    private void reThrow(DataAccessException dax, String msg) throws ResponseStatusException {
+        var respCode = HttpStatus.NOT_IMPLEMENTED;
+        switch(dax.code) {
+            case BadRequest: respCode = HttpStatus.BAD_REQUEST; break;
+            case NotFound:   respCode = HttpStatus.NOT_FOUND; break;
+            case Conflict:   respCode = HttpStatus.CONFLICT; break;
+        }
+        throw new ResponseStatusException(respCode, msg);
+    }
+
+}
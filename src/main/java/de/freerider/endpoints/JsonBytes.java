@@ -0,0 +1,111 @@
+package de.freerider.endpoints;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Non-public response body of already serialized JSON, e.g. from the
+ * JsonCache. The bytes are written to the response output stream as they
+ * are (Content-Encoding, if any, is set by the controller), Jackson is not
+ * involved.
+ */
+final class JsonBytes {
+
+    /**
+     * Size of chunks copied from off-heap buffers to the output stream.
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * Bytes to write, position and limit of the buffer are owned by this
+     * body (duplicate of a shared buffer).
+     */
+    private final ByteBuffer buffer;
+
+
+    /**
+     * Constructor.
+     *
+     * @param buffer bytes from position to limit, not modified.
+     */
+    JsonBytes(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate();
+    }
+
+
+    /**
+     * Number of bytes, sent as Content-Length.
+     */
+    int length() {
+        return buffer.remaining();
+    }
+
+
+    /**
+     * Write bytes to output stream, heap buffers in one call, off-heap
+     * buffers in chunks through a small heap array.
+     *
+     * @param out output stream of the response.
+     * @throws IOException when the client disconnects.
+     */
+    void writeTo(OutputStream out) throws IOException {
+        ByteBuffer b = buffer.duplicate();
+        if(b.hasArray()) {
+            out.write(b.array(), b.arrayOffset() + b.position(), b.remaining());
+            return;
+        }
+        byte[] chunk = new byte[Math.min(CHUNK_SIZE, b.remaining())];
+        while(b.hasRemaining()) {
+            int n = Math.min(chunk.length, b.remaining());
+            b.get(chunk, 0, n);
+            out.write(chunk, 0, n);
+        }
+    }
+
+
+    /**
+     * HttpMessageConverter for JsonBytes response bodies, picked up by Spring
+     * Boot and registered before the Jackson converter.
+     */
+    @Component
+    static class Converter extends AbstractHttpMessageConverter<JsonBytes> {
+
+        Converter() {
+            super(MediaType.APPLICATION_JSON);
+        }
+
+        @Override
+        protected boolean supports(Class<?> clazz) {
+            return JsonBytes.class == clazz;
+        }
+
+        @Override
+        protected boolean canRead(MediaType mediaType) {
+            return false;
+        }
+
+        @Override
+        protected JsonBytes readInternal(Class<? extends JsonBytes> clazz, HttpInputMessage inputMessage) {
+            throw new HttpMessageNotReadableException("JsonBytes are write-only", inputMessage);
+        }
+
+        @Override
+        protected Long getContentLength(JsonBytes body, MediaType contentType) {
+            return (long)body.length();
+        }
+
+        @Override
+        protected void writeInternal(JsonBytes body, HttpOutputMessage outputMessage) throws IOException {
+            body.writeTo(outputMessage.getBody());
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package de.freerider.endpoints;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.WebRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.freerider.data_jdbc.ChangeEvents;
+import de.freerider.data_jdbc.Metrics;
+import de.freerider.datamodel.Customer;
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
+import jakarta.annotation.PostConstruct;
+
+
+/**
+ * Non-public component that caches JSON responses as serialized bytes for
+ * collections (GET /vehicles), held off-heap in direct ByteBuffers, and for
+ * single entities (GET /vehicles/{id}), held on the heap. Cached responses
+ * are written to the output stream as they are (JsonBytes), without Jackson:
+ * <pre>
+ *  GET /vehicles   --miss--&gt; dao.findAllVehicles() --JsonWriters--&gt; bytes --&gt; cache (off-heap)
+ *                  --hit---&gt; bytes --&gt; response output stream
+ * </pre>
+ * Each entry is stamped with the change sequence of the tables it was read
+ * from (taken before reading) or the version of the entity and is only
+ * returned while the stamp is current, writes make entries stale at once.
+ * ChangeEvents also remove affected entries to release their memory early.
+ *
+ * Responses larger than application.json-cache.gzip-min-size are also held
+ * gzip-compressed and sent with "Content-Encoding: gzip" to clients that
+ * accept it. The cache holds up to application.json-cache.max-size bytes,
+ * the least recently used of a sample of entries are evicted when full.
+ *
+ * Only collections of known size (java.util.Collection) are cached, their
+ * JSON is serialized into a heap buffer that is abandoned as soon as it
+ * exceeds a quarter of max-size. Off-heap memory is only allocated for
+ * entries that fit. Collections that are too large or of unknown size are
+ * written to the response incrementally by the JsonWriters.Converter, a
+ * collection that was too large is not serialized for the cache again
+ * until it has fewer elements.
+ */
+@Component
+class JsonCache implements Metrics {
+
+    /**
+     * Number of entries sampled to find the least recently used entry.
+     */
+    private static final int EVICTION_SAMPLES = 16;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ChangeEvents changeEvents;
+
+    @Value("${application.json-cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Maximum number of bytes (plain and gzip) held by cached entries.
+     */
+    @Value("${application.json-cache.max-size:64MB}")
+    private DataSize maxSize;
+
+    @Value("${application.json-cache.gzip:true}")
+    private boolean gzip;
+
+    /**
+     * Minimum size of responses that are also held gzip-compressed.
+     */
+    @Value("${application.json-cache.gzip-min-size:2KB}")
+    private DataSize gzipMinSize;
+
+    /**
+     * Cached response: stamp, tables it was read from, JSON and optional
+     * gzip-compressed bytes (off-heap for collections, read-only).
+     */
+    private static final class Entry {
+        private final long stamp;
+        private final Class<?>[] types;
+        private final ByteBuffer json;
+        private final ByteBuffer gzip;
+        private volatile long used;
+
+        Entry(long stamp, Class<?>[] types, ByteBuffer json, ByteBuffer gzip) {
+            this.stamp = stamp;
+            this.types = types;
+            this.json = json;
+            this.gzip = gzip;
+            this.used = System.nanoTime();
+        }
+
+        long size() {
+            return json.capacity() + (gzip != null? gzip.capacity() : 0);
+        }
+
+        boolean readsFrom(Class<?> type) {
+            for(Class<?> t : types) {
+                if(t == type)
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Key of a cached entity.
+     */
+    private record Key(Class<?> type, long id) { }
+
+    /**
+     * Cached collection responses by name, e.g. "vehicles".
+     */
+    private final Map<String, Entry> collections = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Cached entity responses by type and id.
+     */
+    private final Map<Key, Entry> entities = new ConcurrentHashMap<Key, Entry>();
+
+    /**
+     * Smallest number of elements of collections by name whose JSON was too
+     * large to be cached.
+     */
+    private final Map<String, Integer> oversized = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * Bytes held by cached entries.
+     */
+    private final AtomicLong size = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong gzipped = new AtomicLong();
+    private final AtomicLong uncached = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+
+    /**
+     * Subscribe to ChangeEvents of written entities.
+     */
+    @PostConstruct
+    void subscribe() {
+        changeEvents.subscribe(Customer.class, e -> invalidate(Customer.class, e.id()));
+        changeEvents.subscribe(Vehicle.class, e -> invalidate(Vehicle.class, e.id()));
+        changeEvents.subscribe(Reservation.class, e -> invalidate(Reservation.class, e.id()));
+    }
+
+
+    /**
+     * Return response with cached JSON of a collection, load and serialize
+     * it when not cached or stale. Collections that cannot be cached are
+     * written incrementally.
+     *
+     * @param request HTTP request, header Accept-Encoding selects gzip.
+     * @param name name of collection, e.g. "vehicles".
+     * @param loader loads the collection from the DAO.
+     * @param types entity types the collection is read from.
+     * @return 200 OK response with JSON body.
+     */
+    ResponseEntity<?> collection(WebRequest request, String name, Supplier<?> loader, Class<?>... types) {
+        if( ! enabled)
+            return ResponseEntity.ok(loader.get());
+        //
+        long stamp = ETags.sequence(changeEvents, types);     // before reading
+        Entry entry = collections.get(name);
+        if(entry != null && entry.stamp == stamp) {
+            hits.incrementAndGet();
+            return respond(request, entry);
+        }
+        misses.incrementAndGet();
+        Object loaded = loader.get();
+        if( ! (loaded instanceof Collection<?> objects) || objects.size() >= oversized.getOrDefault(name, Integer.MAX_VALUE))
+            return uncached(array(loaded, types));
+        //
+        entry = put(collections, name, stamp, types, loaded, true);
+        if(entry == null) {
+            oversized.merge(name, objects.size(), Math::min);
+            return uncached(array(loaded, types));
+        }
+        oversized.remove(name);
+        return respond(request, entry);
+    }
+
+
+    /**
+     * Return response with cached JSON of an entity, serialize it when not
+     * cached or stale.
+     *
+     * @param request HTTP request.
+     * @param type entity type.
+     * @param id entity id.
+     * @param stamp version of the entity or change sequence of its table.
+     * @param loader returns the entity, may throw 404 not found.
+     * @return 200 OK response with JSON body.
+     */
+    ResponseEntity<?> entity(WebRequest request, Class<?> type, long id, long stamp, Supplier<?> loader) {
+        if( ! enabled)
+            return ResponseEntity.ok(loader.get());
+        //
+        Key key = new Key(type, id);
+        Entry entry = entities.get(key);
+        if(entry != null && entry.stamp == stamp) {
+            hits.incrementAndGet();
+            return respond(request, entry);
+        }
+        misses.incrementAndGet();
+        Object loaded = loader.get();
+        entry = put(entities, key, stamp, new Class<?>[] {type}, loaded, false);
+        return entry != null? respond(request, entry) : uncached(loaded);
+    }
+
+
+    /**
+     * Wrap Iterable of Customers, Vehicles or Reservations such that it is
+     * written by the JsonWriters.Converter.
+     */
+    private static Object array(Object loaded, Class<?>[] types) {
+        return loaded instanceof Iterable<?> objects && types.length == 1 && JsonWriters.writes(types[0])?
+            new JsonWriters.Array(objects) : loaded;
+    }
+
+
+    /**
+     * Response with body that is not cached, written by the JsonWriters.Converter.
+     */
+    private ResponseEntity<?> uncached(Object body) {
+        uncached.incrementAndGet();
+        return ResponseEntity.ok(body);
+    }
+
+
+    private ResponseEntity<?> respond(WebRequest request, Entry entry) {
+        entry.used = System.nanoTime();
+        var response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if(entry.gzip != null) {
+            response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if(acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+                gzipped.incrementAndGet();
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(new JsonBytes(entry.gzip));
+            }
+        }
+        return response.body(new JsonBytes(entry.json));
+    }
+
+
+    /**
+     * Test whether Accept-Encoding header lists gzip without q=0.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if(acceptEncoding == null)
+            return false;
+        for(String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if(parts[0].trim().equalsIgnoreCase("gzip")) {
+                for(int i=1; i < parts.length; i++) {
+                    if(parts[i].replace(" ", "").matches("q=0(\\.0*)?"))
+                        return false;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Serialize object and cache it, evict least recently used entries of a
+     * sample until it fits. Off-heap memory is allocated after the entry fits.
+     *
+     * @return cached entry or null if the JSON is larger than a quarter of
+     *      the cache.
+     */
+    private <K> Entry put(Map<K, Entry> map, K key, long stamp, Class<?>[] types, Object obj, boolean offHeap) {
+        long max = maxSize.toBytes() / 4;
+        byte[] json, gz = null;
+        try {
+            json = JsonWriters.toBytes(objectMapper, obj, new Bounded(max));
+            if(gzip && json.length >= gzipMinSize.toBytes()) {
+                Bounded compressed = new Bounded(max - json.length);
+                try(GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                    out.write(json);
+                }
+                gz = compressed.toByteArray();
+            }
+        } catch(Bounded.Overflow ex) {
+            return null;
+        //
+        } catch(IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        long n = json.length + (gz != null? gz.length : 0L);
+        while(size.get() + n > maxSize.toBytes() && evict()) { }
+        Entry entry = new Entry(stamp, types, buffer(json, offHeap), gz != null? buffer(gz, offHeap) : null);
+        Entry old = map.put(key, entry);
+        size.addAndGet(entry.size() - (old != null? old.size() : 0L));
+        return entry;
+    }
+
+
+    private static ByteBuffer buffer(byte[] bytes, boolean offHeap) {
+        if( ! offHeap)
+            return ByteBuffer.wrap(bytes);      // not modified, JsonBytes writes the array
+        //
+        return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip().asReadOnlyBuffer();
+    }
+
+
+    /**
+     * Heap output stream that fails as soon as it exceeds a maximum size.
+     */
+    private static final class Bounded extends ByteArrayOutputStream {
+
+        /**
+         * Thrown when the maximum size is exceeded, without stack trace.
+         */
+        private static final class Overflow extends RuntimeException {
+            Overflow() {
+                super("size exceeded", null, false, false);
+            }
+        }
+
+        private final long max;
+
+        Bounded(long max) {
+            super((int)Math.min(8192L, Math.max(32L, max)));
+            this.max = max;
+        }
+
+        @Override
+        public void write(int b) {
+            check(1);
+            super.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            check(len);
+            super.write(b, off, len);
+        }
+
+        private void check(int len) {
+            if(count + (long)len > max)
+                throw new Overflow();
+        }
+    }
+
+
+    /**
+     * Evict least recently used entry of a sample of entries.
+     *
+     * @return false if the cache is empty.
+     */
+    private boolean evict() {
+        var entity = oldest(entities);
+        var collection = oldest(collections);
+        if(entity == null && collection == null)
+            return false;
+        //
+        boolean removed;
+        Entry victim;
+        if(collection == null || (entity != null && entity.getValue().used < collection.getValue().used)) {
+            victim = entity.getValue();
+            removed = entities.remove(entity.getKey(), victim);
+        } else {
+            victim = collection.getValue();
+            removed = collections.remove(collection.getKey(), victim);
+        }
+        if(removed) {
+            size.addAndGet(-victim.size());
+            evictions.incrementAndGet();
+        }
+        return true;
+    }
+
+
+    private static <K> Map.Entry<K, Entry> oldest(Map<K, Entry> map) {
+        Map.Entry<K, Entry> oldest = null;
+        int n = 0;
+        for(Iterator<Map.Entry<K, Entry>> it = map.entrySet().iterator(); it.hasNext() && n++ < EVICTION_SAMPLES; ) {
+            var e = it.next();
+            if(oldest == null || e.getValue().used < oldest.getValue().used) {
+                oldest = e;
+            }
+        }
+        return oldest;
+    }
+
+
+    /**
+     * Remove cached entity and collections read from the table of a written
+     * entity, their off-heap memory is released when collected.
+     */
+    private void invalidate(Class<?> type, long id) {
+        Entry e = entities.remove(new Key(type, id));
+        if(e != null) {
+            size.addAndGet(-e.size());
+            invalidations.incrementAndGet();
+        }
+        collections.forEach((name, c) -> {
+            if(c.readsFrom(type) && collections.remove(name, c)) {
+                size.addAndGet(-c.size());
+                invalidations.incrementAndGet();
+            }
+        });
+    }
+
+
+    @Override
+    public String metricsName() {
+        return "jsonCache";
+    }
+
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        m.put("enabled", enabled);
+        m.put("collections", collections.size());
+        m.put("entities", entities.size());
+        m.put("bytes", size.get());
+        m.put("maxBytes", maxSize.toBytes());
+        m.put("hits", hits.get());
+        m.put("misses", misses.get());
+        m.put("gzipped", gzipped.get());
+        m.put("uncached", uncached.get());
+        m.put("oversized", oversized.size());
+        m.put("evictions", evictions.get());
+        m.put("invalidations", invalidations.get());
+        return m;
+    }
+}
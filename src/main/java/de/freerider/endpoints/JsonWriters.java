@@ -0,0 +1,316 @@
+package de.freerider.endpoints;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.freerider.datamodel.Customer;
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * Non-public, hand-written JSON writers of datamodel objects that replace
+ * reflection-based Jackson bean serialization. Writers call getters directly
+ * and write field names and enum values from pre-encoded strings, numbers
+ * (begin, end) as numbers; no intermediate maps or property lists are
+ * created. Output is identical to Jackson's, e.g.:
+ * <pre>
+ *  {"id":145373,"begin":1671526800000,"end":1671562800000,"pickup":"Berlin Wedding",
+ *   "dropoff":"Berlin Wedding","status":"Booked","version":0,"customerId":2,"vehicleId":1002}
+ * </pre>
+ * Properties are written in Jackson's order (fields before getter-only
+ * properties such as customerId, fixed by @JsonPropertyOrder of Reservation)
+ * to keep responses unchanged.
+ * Other objects are written by the ObjectMapper (codec of the generator).
+ */
+final class JsonWriters {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString CONTACT = new SerializedString("contact");
+    private static final SerializedString STATUS = new SerializedString("status");
+    private static final SerializedString VERSION = new SerializedString("version");
+    private static final SerializedString MAKE = new SerializedString("make");
+    private static final SerializedString MODEL = new SerializedString("model");
+    private static final SerializedString SEATS = new SerializedString("seats");
+    private static final SerializedString CATEGORY = new SerializedString("category");
+    private static final SerializedString POWER = new SerializedString("power");
+    private static final SerializedString CUSTOMER_ID = new SerializedString("customerId");
+    private static final SerializedString VEHICLE_ID = new SerializedString("vehicleId");
+    private static final SerializedString BEGIN = new SerializedString("begin");
+    private static final SerializedString END = new SerializedString("end");
+    private static final SerializedString PICKUP = new SerializedString("pickup");
+    private static final SerializedString DROPOFF = new SerializedString("dropoff");
+
+    /**
+     * Pre-encoded enum names by ordinal.
+     */
+    private static final SerializedString[] CUSTOMER_STATUS = names(Customer.Status.class);
+    private static final SerializedString[] VEHICLE_CATEGORY = names(Vehicle.Category.class);
+    private static final SerializedString[] VEHICLE_POWER = names(Vehicle.Power.class);
+    private static final SerializedString[] VEHICLE_STATUS = names(Vehicle.Status.class);
+    private static final SerializedString[] RESERVATION_STATUS = names(Reservation.Status.class);
+
+
+    /**
+     * Private constructor, class only has static methods.
+     */
+    private JsonWriters() { }
+
+
+    /**
+     * Test whether objects of a class have a hand-written writer.
+     *
+     * @param clazz class of objects.
+     * @return true for Customer, Vehicle and Reservation.
+     */
+    static boolean writes(Class<?> clazz) {
+        return clazz == Customer.class || clazz == Vehicle.class || clazz == Reservation.class;
+    }
+
+
+    /**
+     * Write object with its hand-written writer, other objects with the
+     * codec of the generator.
+     *
+     * @param gen generator to write to.
+     * @param obj object to write.
+     * @throws IOException when writing fails.
+     */
+    static void write(JsonGenerator gen, Object obj) throws IOException {
+        if(obj instanceof Reservation r) {
+            write(gen, r);
+        } else if(obj instanceof Vehicle v) {
+            write(gen, v);
+        } else if(obj instanceof Customer c) {
+            write(gen, c);
+        } else {
+            gen.writeObject(obj);
+        }
+    }
+
+
+    /**
+     * Write objects of an Iterable as JSON array, one object at a time.
+     *
+     * @param gen generator to write to.
+     * @param objects objects to write.
+     * @throws IOException when writing fails.
+     */
+    static void writeArray(JsonGenerator gen, Iterable<?> objects) throws IOException {
+        gen.writeStartArray();
+        for(Object obj : objects) {
+            write(gen, obj);
+        }
+        gen.writeEndArray();
+    }
+
+
+    /**
+     * Response body of an Iterable of Customers, Vehicles or Reservations
+     * (the element type of a handler method returning ResponseEntity&lt;?&gt;
+     * is unknown), written as JSON array by the Converter.
+     *
+     * @param objects objects to write.
+     */
+    record Array(Iterable<?> objects) { }
+
+
+    /**
+     * Write Customer as JSON object.
+     */
+    static void write(JsonGenerator gen, Customer c) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName(ID);
+        gen.writeNumber(c.getId());
+        gen.writeFieldName(NAME);
+        gen.writeString(c.getName());
+        gen.writeFieldName(CONTACT);
+        gen.writeString(c.getContact());
+        gen.writeFieldName(STATUS);
+        writeEnum(gen, CUSTOMER_STATUS, c.getStatus());
+        gen.writeFieldName(VERSION);
+        gen.writeNumber(c.getVersion());
+        gen.writeEndObject();
+    }
+
+
+    /**
+     * Write Vehicle as JSON object.
+     */
+    static void write(JsonGenerator gen, Vehicle v) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName(ID);
+        gen.writeNumber(v.getId());
+        gen.writeFieldName(MAKE);
+        gen.writeString(v.getMake());
+        gen.writeFieldName(MODEL);
+        gen.writeString(v.getModel());
+        gen.writeFieldName(SEATS);
+        gen.writeNumber(v.getSeats());
+        gen.writeFieldName(CATEGORY);
+        writeEnum(gen, VEHICLE_CATEGORY, v.getCategory());
+        gen.writeFieldName(POWER);
+        writeEnum(gen, VEHICLE_POWER, v.getPower());
+        gen.writeFieldName(STATUS);
+        writeEnum(gen, VEHICLE_STATUS, v.getStatus());
+        gen.writeEndObject();
+    }
+
+
+    /**
+     * Write Reservation as JSON object.
+     */
+    static void write(JsonGenerator gen, Reservation r) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName(ID);
+        gen.writeNumber(r.getId());
+        gen.writeFieldName(BEGIN);
+        gen.writeNumber(r.getBegin());
+        gen.writeFieldName(END);
+        gen.writeNumber(r.getEnd());
+        gen.writeFieldName(PICKUP);
+        gen.writeString(r.getPickup());
+        gen.writeFieldName(DROPOFF);
+        gen.writeString(r.getDropoff());
+        gen.writeFieldName(STATUS);
+        writeEnum(gen, RESERVATION_STATUS, r.getStatus());
+        gen.writeFieldName(VERSION);
+        gen.writeNumber(r.getVersion());
+        gen.writeFieldName(CUSTOMER_ID);
+        gen.writeNumber(r.getCustomerId());
+        gen.writeFieldName(VEHICLE_ID);
+        gen.writeNumber(r.getVehicleId());
+        gen.writeEndObject();
+    }
+
+
+    /**
+     * Serialize object or Iterable (as array) to JSON bytes, e.g. for the
+     * JsonCache.
+     *
+     * @param mapper ObjectMapper that configures the generator and writes
+     *      objects without writer.
+     * @param obj object or Iterable to serialize.
+     * @param bytes stream written to, e.g. one that limits the size.
+     * @return UTF-8 encoded JSON.
+     * @throws IOException when writing fails.
+     */
+    static byte[] toBytes(ObjectMapper mapper, Object obj, ByteArrayOutputStream bytes) throws IOException {
+        try(JsonGenerator gen = mapper.createGenerator(bytes, JsonEncoding.UTF8)) {
+            if(obj instanceof Iterable<?> objects) {
+                writeArray(gen, objects);
+            } else {
+                write(gen, obj);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+
+    private static void writeEnum(JsonGenerator gen, SerializedString[] names, Enum<?> value) throws IOException {
+        if(value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(names[value.ordinal()]);
+        }
+    }
+
+
+    private static <E extends Enum<E>> SerializedString[] names(Class<E> type) {
+        E[] constants = type.getEnumConstants();
+        SerializedString[] names = new SerializedString[constants.length];
+        for(E e : constants) {
+            names[e.ordinal()] = new SerializedString(e.name());
+        }
+        return names;
+    }
+
+
+    /**
+     * HttpMessageConverter that writes Customer, Vehicle and Reservation
+     * response bodies and Iterables of them with the hand-written writers,
+     * picked up by Spring Boot and registered before the Jackson converter.
+     *
+     * Iterables are written incrementally while they are iterated, the
+     * generator passes its buffer to the response output stream when full.
+     * Only Iterables declared with element type Customer, Vehicle or
+     * Reservation (ResponseEntity&lt;Iterable&lt;Vehicle&gt;&gt;) are accepted,
+     * other Iterables, e.g. of ResponseEntity&lt;?&gt;, are left to the Jackson
+     * converter. Bodies of ResponseEntity&lt;?&gt; are wrapped in an Array.
+     */
+    @Component
+    static class Converter extends AbstractGenericHttpMessageConverter<Object> {
+
+        private final ObjectMapper objectMapper;
+
+        Converter(ObjectMapper objectMapper) {
+            super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        protected boolean supports(Class<?> clazz) {
+            return writes(clazz) || clazz == Array.class || Iterable.class.isAssignableFrom(clazz);
+        }
+
+        @Override
+        public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+            return false;
+        }
+
+        @Override
+        public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+            if( ! canWrite(mediaType))
+                return false;
+            if(writes(clazz) || clazz == Array.class)
+                return true;
+            if( ! Iterable.class.isAssignableFrom(clazz))
+                return false;
+            //
+            // element type declared by the handler method, Object if unknown
+            Class<?> element = ResolvableType.forType(type != null? type : clazz)
+                .as(Iterable.class).getGeneric(0).toClass();
+            return writes(element);
+        }
+
+        @Override
+        protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+            try(JsonGenerator gen = objectMapper.createGenerator(
+                    StreamUtils.nonClosing(outputMessage.getBody()), JsonEncoding.UTF8)) {
+                if(body instanceof Array array) {
+                    JsonWriters.writeArray(gen, array.objects());
+                } else if(body instanceof Iterable<?> objects) {
+                    JsonWriters.writeArray(gen, objects);
+                } else {
+                    JsonWriters.write(gen, body);
+                }
+            }
+        }
+
+        @Override
+        public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+            throw new HttpMessageNotReadableException("write-only converter", inputMessage);
+        }
+
+        @Override
+        protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+            throw new HttpMessageNotReadableException("write-only converter", inputMessage);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package de.freerider.endpoints;
+
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+
+/**
+ * Spring Controller interface for /metrics REST endpoint to report runtime
+ * counters of components (caches, batching, import/export etc.).
+ * 
+ * Operations provided by the endpoint:
+ * 
+ * - GET /metrics          - return JSON data with metrics of all components,
+ *                            status: 200 OK.
+ * 
+ * - GET /metrics/{name}   - return JSON data with metrics of one component,
+ *                            e.g. "caches", status: 200 OK, 404 not found.
+ * 
+ */
+
+@RequestMapping("/v1/metrics")
+public interface MetricsEP extends MetricsEPDoc {
+
+    @GetMapping("")
+    @Override
+    Map<String, Object> findAllMetrics();
+
+
+    @GetMapping("/{name}")
+    @Override
+    Map<String, Object> findMetricsByName(@PathVariable String name);
+
+}
@@ -0,0 +1,60 @@
+package de.freerider.endpoints;
+
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.PathVariable;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.media.Content;
+
+
+public interface MetricsEPDoc {
+
+    static final String api_group_metrics = "Metrics endpoint";
+
+
+    /**
+     * Return metrics of all components by name.
+     * 
+     * - GET /metrics
+     * 
+     * @return map with metrics of all components by name.
+     */
+    @Operation(
+        tags = {api_group_metrics},
+        summary = "Return metrics of all components.",
+        description = "Return runtime counters of all components, e.g. cache hits, " +
+            "misses and evictions, by component name."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+    })
+    //
+    Map<String, Object> findAllMetrics();
+
+
+    /**
+     * Return metrics of one component.
+     * 
+     * - GET /metrics/{name}
+     * 
+     * @param name name of component metrics, e.g. "caches".
+     * @return map with metrics of component.
+     * @throws ResponseStatusException 404 not found.
+     */
+    @Operation(
+        tags = {api_group_metrics},
+        summary = "Return metrics of one component by name.",
+        description = "Return runtime counters of a component, e.g. \"caches\", " +
+            "else return error 404 (not found)."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="404", description="Not Found"),
+    })
+    //
+    Map<String, Object> findMetricsByName(@PathVariable String name);
+
+}
@@ -0,0 +1,43 @@
+package de.freerider.endpoints;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import de.freerider.data_jdbc.Metrics;
+
+
+@RestController
+class MetricsRestController implements MetricsEP {
+
+    /**
+     * All components that report metrics, injected by Spring.
+     */
+    @Autowired
+    private List<Metrics> metrics;
+
+
+    @Override
+    public Map<String, Object> findAllMetrics() {
+        Map<String, Object> all = new LinkedHashMap<String, Object>();
+        metrics.forEach(m -> all.put(m.metricsName(), m.metrics()));
+        return all;
+    }
+
+
+    @Override
+    public Map<String, Object> findMetricsByName(@PathVariable String name) {
+        return metrics.stream()
+            .filter(m -> m.metricsName().equals(name))
+            .findFirst()
+            .map(Metrics::metrics)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                String.format("metrics: \"%s\" not found", name)));
+    }
+}
@@ -0,0 +1,116 @@
+package de.freerider.endpoints;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+/**
+ * Non-public helper that writes streams of objects as newline-delimited
+ * JSON (NDJSON, one JSON object per line) into the HTTP response.
+ *
+ * Objects are serialized while they are read from the database, the
+ * response is never held in memory as a whole. Datamodel objects are
+ * written by JsonWriters.
+ *
+ * Streams run as async requests without timeout, since large tables take
+ * longer than spring.mvc.async.request-timeout, which remains in effect for
+ * other async requests.
+ */
+final class NdJson {
+
+    /**
+     * Media type of newline-delimited JSON used in Accept headers.
+     */
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    /**
+     * Flush the response after this many objects (and after the first one)
+     * to push data to the client while the query is still running.
+     */
+    private static final int FLUSH_INTERVAL = 1024;
+
+    /**
+     * Async timeout of streamed responses, -1: no timeout.
+     */
+    private static final long NO_TIMEOUT = -1L;
+
+
+    /**
+     * Private constructor, class only has static methods.
+     */
+    private NdJson() { }
+
+
+    /**
+     * Create response that writes all objects produced by a source as NDJSON.
+     *
+     * The source is a DAO stream method such as dao::streamAllCustomers that
+     * passes each object to a consumer and returns the number of objects.
+     *
+     * @param <T> type of streamed objects.
+     * @param mapper ObjectMapper used to serialize objects.
+     * @param source DAO stream method that feeds objects to a consumer.
+     * @return ResponseEntity with streaming body, status 200 OK.
+     * @throws IllegalStateException when not called in a request thread.
+     */
+    static <T> ResponseEntity<StreamingResponseBody> stream(
+        ObjectMapper mapper, ToLongFunction<Consumer<T>> source)
+    {
+        StreamingResponseBody body = out -> {
+            try(JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+                gen.setRootValueSeparator(null);
+                final long[] n = {0};
+                source.applyAsLong(obj -> {
+                    try {
+                        JsonWriters.write(gen, obj);
+                        gen.writeRaw('\n');
+                        if(n[0]++ % FLUSH_INTERVAL == 0) {
+                            gen.flush();
+                        }
+                    } catch(IOException e) {
+                        // abort query when client disconnects
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        disableAsyncTimeout();
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(MEDIA_TYPE))
+            .body(body);
+    }
+
+
+    /**
+     * Remove the async timeout of the current request only, it is set when
+     * the streaming body starts async processing.
+     */
+    private static void disableAsyncTimeout() {
+        var request = ((ServletRequestAttributes)RequestContextHolder.currentRequestAttributes()).getRequest();
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(NdJson.class,
+            new CallableProcessingInterceptor() {
+                @Override
+                public <T> void beforeConcurrentHandling(NativeWebRequest req, Callable<T> task) {
+                    if(req instanceof AsyncWebRequest asyncRequest) {
+                        asyncRequest.setTimeout(NO_TIMEOUT);
+                    }
+                }
+            });
+    }
+}
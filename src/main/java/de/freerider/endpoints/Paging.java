@@ -0,0 +1,148 @@
+package de.freerider.endpoints;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+
+/**
+ * Non-public helper for keyset (cursor) pagination of collection endpoints.
+ *
+ * Clients request pages with query parameters:
+ * <pre>
+ *  - GET /customers?limit=100                  # first page
+ *  - GET /customers?limit=100&after={cursor}   # following pages
+ * </pre>
+ * The cursor is an opaque string that encodes the sort key(s) of the last
+ * object of the previous page (id, or begin and id for reservations). It is
+ * returned with each page in response header "X-Next-Cursor" and as a
+ * "Link: <...>; rel="next"" header. Both headers are missing on the last page.
+ */
+final class Paging {
+
+    /**
+     * Response header that carries the cursor for the next page.
+     */
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Page size used when only the "after" parameter is given.
+     */
+    static final int DEFAULT_LIMIT = 100;
+
+    /**
+     * Maximum page size, larger limits are reduced to this value.
+     */
+    static final int MAX_LIMIT = 1000;
+
+
+    /**
+     * Private constructor, class only has static methods.
+     */
+    private Paging() { }
+
+
+    /**
+     * Validate limit query parameter and return effective page size.
+     *
+     * @param limit requested page size, null for default.
+     * @return page size in range [1, MAX_LIMIT].
+     * @throws ResponseStatusException 400 bad request for limit < 1.
+     */
+    static int limit(Integer limit) {
+        if(limit == null)
+            return DEFAULT_LIMIT;
+        if(limit < 1)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                String.format("limit: %d, limit < 1", limit));
+        //
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+
+    /**
+     * Encode sort keys of the last object of a page into an opaque cursor.
+     *
+     * @param keys sort keys, e.g. {id} or {begin, id}.
+     * @return URL-safe cursor string.
+     */
+    static String encode(long... keys) {
+        StringBuilder sb = new StringBuilder();
+        for(long key : keys) {
+            sb.append(sb.length() > 0? "." : "").append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(sb.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+
+    /**
+     * Decode cursor into sort keys. Only cursors as returned by encode() are
+     * accepted, altered cursors (e.g. "+1", "01", "1.2." or padding) are
+     * rejected even when their keys could be parsed.
+     *
+     * @param cursor cursor obtained from a previous page.
+     * @param n number of expected sort keys.
+     * @return sort keys.
+     * @throws ResponseStatusException 400 bad request for invalid cursors.
+     */
+    static long[] decode(String cursor, int n) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor),
+                StandardCharsets.US_ASCII).split("\\.", -1);
+            if(parts.length == n) {
+                long[] keys = new long[n];
+                for(int i=0; i < n; i++) {
+                    keys[i] = Long.parseLong(parts[i]);
+                }
+                if(encode(keys).equals(cursor))
+                    return keys;
+            }
+        } catch(IllegalArgumentException | NullPointerException ex) { }
+        //
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            String.format("invalid cursor: \"%s\"", cursor));
+    }
+
+
+    /**
+     * Create response for one page of objects. The DAO is queried for one
+     * more object than the page size to detect whether a next page exists.
+     *
+     * @param <T> type of objects.
+     * @param rows objects returned from the DAO, up to limit + 1.
+     * @param limit page size.
+     * @param keysOf function that returns the sort keys of an object.
+     * @return ResponseEntity with page and next-cursor headers, status 200 OK.
+     */
+    static <T> ResponseEntity<Iterable<T>> page(Iterable<T> rows, int limit, Function<T, long[]> keysOf) {
+        List<T> page = new ArrayList<T>(limit);
+        boolean more = false;
+        for(T row : rows) {
+            if(page.size() == limit) {
+                more = true;
+                break;
+            }
+            page.add(row);
+        }
+        var response = ResponseEntity.ok();
+        if(more) {
+            String next = encode(keysOf.apply(page.get(page.size() - 1)));
+            String link = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("limit", limit)
+                .replaceQueryParam("after", next)
+                .build().toUriString();
+            response.header(NEXT_CURSOR_HEADER, next);
+            response.header(HttpHeaders.LINK, String.format("<%s>; rel=\"next\"", link));
+        }
+        return response.body(page);
+    }
+}
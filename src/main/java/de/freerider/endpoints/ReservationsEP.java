@@ -1,5 +1,6 @@
 package de.freerider.endpoints;
 
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.http.ResponseEntity;
@@ -8,9 +9,14 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import de.freerider.data_jdbc.BatchResult;
 import de.freerider.datamodel.Reservation;
 
 
@@ -23,23 +29,52 @@ import de.freerider.datamodel.Reservation;
  * - GET /reservations         - return JSON data for all Reservation in the repository,
  *                            status: 200 OK.
  * 
- * - GET /reservations/{id}    - return JSON data for Reservation with id,
+ * - GET /reservations?limit=&after= - return one page of Reservations ordered by
+ *                            begin (keyset pagination), cursor for the next page
+ *                            in header X-Next-Cursor,
+ *                            status: 200 OK, 400 bad request (limit, cursor).
+ * 
+ * - GET /reservations         - with header "Accept: application/x-ndjson", stream JSON
+ *                            data for all reservations, one object per line,
+ *                            status: 200 OK.
+ * 
+ * - GET /reservations/pickups?location=&from=&to= - return one page of Reservations
+ *                            picking up at location with begin in [from, to), ordered
+ *                            by begin, cursor for the next page in header X-Next-Cursor,
+ *                            status: 200 OK, 400 bad request (from, to, limit, cursor).
+ * 
+ * - GET /reservations/{id}    - return JSON data for Reservation with id, version
+ *                            of Reservation in header ETag,
  *                            status: 200 OK, 400 bad request (id), 404 not found.
  * 
  * - POST /reservations        - create new objects in the repository from JSON objects
  *                            passed with the request,
  *                            status: 201 created, 400 bad request (json body),
- *                            409 conflict.
+ *                            409 conflict (id exists, vehicle reserved in interval).
+ * 
+ * - POST /reservations/batch  - create new objects from a JSON array of objects with
+ *                            JDBC batch statements, returns per-item results,
+ *                            status: 201 created (all items), 207 multi-status
+ *                            (some items failed), 400 bad request (empty, too large).
  * 
  * - PUT /reservations         - updated existing objects in the repository from JSON
- *                            objects passed with the request,
+ *                            objects passed with the request, only if the version
+ *                            matches header If-Match (optional), new version in
+ *                            header ETag,
  *                            status: 202 accepted, 400 bad request (json body),
- *                            404 not found.
+ *                            404 not found, 409 conflict (vehicle reserved in interval),
+ *                            412 precondition failed (version).
  * 
  * - DELETE /Reservations/{id} - delete Reservation with id,
  *                            status: 202 accepted, 400 bad request (id),
  *                            404 not found, 409 conflict (foreign key dependency).
  * 
+ * GET operations returning JSON are conditional: responses carry headers
+ * ETag and Last-Modified, requests with a matching If-None-Match (or
+ * If-Modified-Since) return 304 not modified without a body. ETags of
+ * collections change with every write to the RESERVATION table, the ETag
+ * of GET /reservations/{id} is the version of the reservation.
+ * 
  * @author majdu94
  *
  */
@@ -49,12 +84,31 @@ public interface ReservationsEP extends ReservationsEPDoc {
 
     @GetMapping("")
     @Override
-    Iterable<Reservation> findAllReservations();
+    ResponseEntity<?> findAllReservations(
+        @RequestParam(required=false) Integer limit,
+        @RequestParam(required=false) String after,
+        WebRequest request);
+
+
+    @GetMapping(value="", produces=NdJson.MEDIA_TYPE)
+    @Override
+    ResponseEntity<StreamingResponseBody> streamAllReservations();
+
+
+    @GetMapping("/pickups")
+    @Override
+    ResponseEntity<Iterable<Reservation>> findReservationsByPickup(
+        @RequestParam String location,
+        @RequestParam String from,
+        @RequestParam String to,
+        @RequestParam(required=false) Integer limit,
+        @RequestParam(required=false) String after,
+        WebRequest request);
 
 
     @GetMapping("/{id}")
     @Override
-    Reservation findReservationById(@PathVariable long id);
+    ResponseEntity<?> findReservationById(@PathVariable long id, WebRequest request);
 
 
     @PostMapping("")
@@ -62,9 +116,16 @@ public interface ReservationsEP extends ReservationsEPDoc {
     ResponseEntity<Reservation> createReservation(@RequestBody Map<String, Object> jsonData);
 
 
+    @PostMapping("/batch")
+    @Override
+    ResponseEntity<List<BatchResult>> createReservations(@RequestBody List<Map<String, Object>> jsonData);
+
+
     @PutMapping("")
     @Override
-    ResponseEntity<?> updateReservation(@RequestBody Map<String, Object> jsonData);
+    ResponseEntity<?> updateReservation(
+        @RequestBody Map<String, Object> jsonData,
+        @RequestHeader(value="If-Match", required=false) String ifMatch);
 
 
     @DeleteMapping("/{id}")
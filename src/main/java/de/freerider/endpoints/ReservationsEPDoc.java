@@ -1,19 +1,27 @@
 package de.freerider.endpoints;
 
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 
+import de.freerider.data_jdbc.BatchResult;
 import de.freerider.datamodel.Reservation;
 
 
@@ -27,7 +35,13 @@ public interface ReservationsEPDoc {
      * 
      * - GET /reservations
      * 
-     * @return iterable with all Reservations.
+     * - GET /reservations?limit=100&after={cursor}
+     * 
+     * @param limit page size, null returns all reservations unless after is given.
+     * @param after opaque cursor of the previous page (begin and id of its last Reservation).
+     * @param request HTTP request with headers If-None-Match, If-Modified-Since.
+     * @return iterable with all Reservations or one page of Reservations.
+     * @throws ResponseStatusException 400 bad request (limit, cursor).
      */
     @Operation(
         // group name where this operation appears and defines swagger tag
@@ -38,13 +52,86 @@ public interface ReservationsEPDoc {
         summary = "Return all reservations.",
 
         // detailed description inside API
-        description = "Return all reservations (no limit, no pagination)."
+        description = "Return all reservations (no limit, no pagination) or, with query " +
+            "parameters limit and/or after, one page of reservations ordered by begin and id. The cursor " +
+            "for the next page is returned in response header X-Next-Cursor."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json", array=@ArraySchema(schema=@Schema(implementation=Reservation.class)))),
+        @ApiResponse(responseCode="304", description="Not Modified"),
+        @ApiResponse(responseCode="400", description="Bad Request"),
+    })
+    //
+    ResponseEntity<?> findAllReservations(
+        @Parameter(description="maximum number of reservations returned (page size, max: 1000)")
+        @RequestParam(required=false) Integer limit,
+        @Parameter(description="cursor from header X-Next-Cursor of the previous page")
+        @RequestParam(required=false) String after,
+        WebRequest request);
+
+
+    /**
+     * Stream all reservations as newline-delimited JSON (one Reservation per line).
+     * 
+     * - GET /reservations with header "Accept: application/x-ndjson"
+     * 
+     * Rows are written to the response as they are read from the database,
+     * memory use is constant regardless of the number of reservations.
+     * 
+     * @return ResponseEntity with streaming body.
+     */
+    @Operation(
+        tags = {api_group_Reservations},
+        summary = "Stream all reservations as NDJSON.",
+        description = "Stream all reservations with one JSON object per line when requested " +
+            "with header \"Accept: application/x-ndjson\" (no limit, constant memory)."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/x-ndjson")),
+    })
+    //
+    ResponseEntity<StreamingResponseBody> streamAllReservations();
+
+
+    /**
+     * Return reservations picking up at a location during an interval.
+     * 
+     * - GET /reservations/pickups?location=Berlin Wedding&from=2022-12-04 00:00:00&to=2022-12-05 00:00:00
+     * 
+     * @param location pickup location.
+     * @param from lower bound of begin, format: "yyyy-MM-dd HH:mm:ss".
+     * @param to upper bound of begin (exclusive), after from.
+     * @param limit page size, null for default (100).
+     * @param after opaque cursor of the previous page (begin and id of its last Reservation).
+     * @param request HTTP request with headers If-None-Match, If-Modified-Since.
+     * @return one page of Reservations ordered by begin and id.
+     * @throws ResponseStatusException 400 bad request (from, to, limit, cursor).
+     */
+    @Operation(
+        tags = {api_group_Reservations},
+        summary = "Return reservations picking up at a location during an interval.",
+        description = "Return reservations with pickup location and begin in [from, to), " +
+            "ordered by begin and id, from an in-memory index by pickup location. The cursor " +
+            "for the next page is returned in response header X-Next-Cursor."
     )
     @ApiResponses(value={
         @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="304", description="Not Modified"),
+        @ApiResponse(responseCode="400", description="Bad Request"),
     })
     //
-    Iterable<Reservation> findAllReservations();
+    ResponseEntity<Iterable<Reservation>> findReservationsByPickup(
+        @Parameter(description="pickup location, e.g. Berlin Wedding")
+        @RequestParam String location,
+        @Parameter(description="lower bound of begin, e.g. 2022-12-04 00:00:00")
+        @RequestParam String from,
+        @Parameter(description="upper bound of begin (exclusive), e.g. 2022-12-05 00:00:00")
+        @RequestParam String to,
+        @Parameter(description="maximum number of reservations returned (page size, max: 1000)")
+        @RequestParam(required=false) Integer limit,
+        @Parameter(description="cursor from header X-Next-Cursor of the previous page")
+        @RequestParam(required=false) String after,
+        WebRequest request);
 
 
     /**
@@ -53,22 +140,25 @@ public interface ReservationsEPDoc {
      * - GET /reservations/{id}
      * 
      * @param id of Reservation, id must not be negative.
-     * @return Reservation with id.
+     * @param request HTTP request with headers If-None-Match, If-Modified-Since.
+     * @return Reservation with id, version in header ETag.
      * @throws ResponseStatusException 400 bad request, 404 not found.
      */
     @Operation(
         tags = {api_group_Reservations},
         summary = "Return Reservation by id, id must not be negative.",
-        description = "Return Reservation if id exists, else return error 404 (not found)."
+        description = "Return Reservation if id exists, else return error 404 (not found). " +
+            "Header ETag carries the version of the Reservation for updates with If-Match."
         // parameters = {@Parameter(name="id", in=ParameterIn.QUERY, schema=@Schema(implementation=Long.class)) }
     )
     @ApiResponses(value={
-        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json", schema=@Schema(implementation=Reservation.class))),
+        @ApiResponse(responseCode="304", description="Not Modified"),
         @ApiResponse(responseCode="400", description="Bad Request"),
         @ApiResponse(responseCode="404", description="Not Found"),
     })
     //
-    Reservation findReservationById(@PathVariable long id);
+    ResponseEntity<?> findReservationById(@PathVariable long id, WebRequest request);
 
 
 
@@ -86,7 +176,8 @@ public interface ReservationsEPDoc {
      * 
      * @param jsonData serialized JSON received with the Request.
      * @return ResponseEntity with serialized Reservation object and status code.
-     * @throws ResponseStatusException 400 bad request, 409 conflict (Reservation present).
+     * @throws ResponseStatusException 400 bad request, 409 conflict (Reservation present,
+     * vehicle is reserved by another InquiryConfirmed or Booked Reservation in the interval).
      */
     @Operation(
         tags = {api_group_Reservations},
@@ -121,6 +212,36 @@ public interface ReservationsEPDoc {
     ResponseEntity<Reservation> createReservation(@RequestBody Map<String, Object> jsonData);
 
 
+    /**
+     * Create new Reservations in database from a JSON array received in
+     * Request-Body, inserted with JDBC batch statements.
+     * 
+     * - POST /reservations/batch
+     * 
+     * Items are validated individually, invalid items do not prevent valid
+     * items from being created. The result of each item is returned in order
+     * of the array: Created (201), BadRequest (400), Conflict (409).
+     * 
+     * @param jsonData JSON array of Reservation objects.
+     * @return ResponseEntity with per-item results.
+     * @throws ResponseStatusException 400 bad request (empty or too large array).
+     */
+    @Operation(
+        tags = {api_group_Reservations},
+        summary = "Create new Reservations from a JSON array (batch).",
+        description = "Create new Reservations from a JSON array with JDBC batch statements " +
+            "and return the result of each item (Created, BadRequest, Conflict). Status " +
+            "201 if all items were created, 207 if some items failed."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="201", description="Created", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="207", description="Multi-Status", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="400", description="Bad Request"),
+    })
+    //
+    ResponseEntity<List<BatchResult>> createReservations(@RequestBody List<Map<String, Object>> jsonData);
+
+
     /**
      * Update existing Reservation in database from JSON data received in Request-Body.
      * 
@@ -130,14 +251,23 @@ public interface ReservationsEPDoc {
      * validated, in particular the id-value, which MUST must exist in the
      * database in order to update the corresponding database object.
      * 
+     * With header If-Match (ETag from GET /reservations/{id}), the Reservation
+     * is only updated if its version has not changed (optimistic concurrency).
+     * 
      * @param jsonData serialized JSON received with the Request.
-     * @return empty ResponseEntity with status code.
-     * @throws ResponseStatusException 400 bad request, 404 conflict (not found).
+     * @param ifMatch expected version as returned in ETag, null or "*" for any version.
+     * @return empty ResponseEntity with status code, new version in header ETag
+     * if updated with If-Match.
+     * @throws ResponseStatusException 400 bad request, 404 conflict (not found),
+     * 409 conflict (vehicle is reserved by another Reservation in the interval),
+     * 412 precondition failed (version has changed).
      */
     @Operation(
         tags = {api_group_Reservations},
         summary = "Create new Reservation, Reservation id must not exist.",
-        description = "Create new Reservation from JSON data received in the Request-Body."
+        description = "Create new Reservation from JSON data received in the Request-Body. " +
+            "With header If-Match, the Reservation is only updated if its version matches, " +
+            "else error 412 (precondition failed) is returned."
     )
     @RequestBody(
         description = "JSON data from which Reservation object to update is deserialized.",
@@ -147,9 +277,14 @@ public interface ReservationsEPDoc {
         @ApiResponse(responseCode="202", description="Accepted"),
         @ApiResponse(responseCode="400", description="Bad Request"),
         @ApiResponse(responseCode="404", description="Not Found"),
+        @ApiResponse(responseCode="409", description="Conflict"),
+        @ApiResponse(responseCode="412", description="Precondition Failed"),
     })
     //
-    ResponseEntity<?> updateReservation(@RequestBody Map<String, Object> jsonData);
+    ResponseEntity<?> updateReservation(
+        @RequestBody Map<String, Object> jsonData,
+        @Parameter(description="ETag of Reservation from GET /reservations/{id}, e.g. \"3\"")
+        @RequestHeader(value="If-Match", required=false) String ifMatch);
 
 
     /**
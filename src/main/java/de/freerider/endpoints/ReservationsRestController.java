@@ -1,19 +1,28 @@
 package de.freerider.endpoints;
 
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.freerider.data_jdbc.BatchResult;
+import de.freerider.data_jdbc.ChangeEvents;
 import de.freerider.data_jdbc.DataAccessException;
 import de.freerider.data_jdbc.DataAccessReservations;
+import de.freerider.datamodel.DateTimeCodec;
 import de.freerider.datamodel.Reservation;
 
 
@@ -33,18 +42,93 @@ class ReservationsRestController implements ReservationsEP {
     @Autowired
     private DataAccessReservations reservations_dao;
 
+    /**
+     * ObjectMapper used by Spring to serialize objects to JSON, used for
+     * streamed responses.
+     */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Source of change sequences validating conditional GETs.
+     */
+    @Autowired
+    private ChangeEvents changeEvents;
+
+    /**
+     * Cache of serialized JSON responses.
+     */
+    @Autowired
+    private JsonCache jsonCache;
+
+    /**
+     * Maximum number of Reservations accepted by POST /reservations/batch.
+     */
+    @Value("${application.reservations.batch.max-size:10000}")
+    private int batchMaxSize;
+
+
+    @Override
+    public ResponseEntity<?> findAllReservations(Integer limit, String after, WebRequest request) {
+        //
+        if(limit == null && after == null) {
+            if(ETags.notModified(request, changeEvents, Reservation.class))
+                return null;    // 304 not modified
+            return jsonCache.collection(request, "reservations", reservations_dao::findAllReservations, Reservation.class);
+        }
+        int n = Paging.limit(limit);
+        logger.info(String.format("--- received request: GET /reservations?limit=%d&after=%s", n, after));
+        //
+        long[] keys = after != null? Paging.decode(after, 2) : new long[] {-1L, -1L};
+        if(ETags.notModified(request, changeEvents, Reservation.class))
+            return null;
+        return Paging.page(reservations_dao.findReservationsAfter(keys[0], keys[1], n + 1), n,
+            r -> new long[] {r.getBegin(), r.getId()});
+    }
+
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> streamAllReservations() {
+        //
+        logger.info(String.format("--- received request: GET /reservations (%s)", NdJson.MEDIA_TYPE));
+        //
+        return NdJson.stream(objectMapper, reservations_dao::streamAllReservations);
+    }
+
 
     @Override
-    public Iterable<Reservation> findAllReservations() {
-        return reservations_dao.findAllReservations();
+    public ResponseEntity<Iterable<Reservation>> findReservationsByPickup(
+            String location, String from, String to, Integer limit, String after, WebRequest request) {
+        //
+        int n = Paging.limit(limit);
+        logger.info(String.format("--- received request: GET /reservations/pickups?location=%s&from=%s&to=%s&limit=%d",
+            location, from, to, n));
+        //
+        long begin, end;
+        try {
+            begin = DateTimeCodec.parse(from);
+            end = DateTimeCodec.parse(to);
+        } catch(IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+        if(begin >= end)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                String.format("from: \"%s\" not before to: \"%s\"", from, to));
+        //
+        long[] keys = after != null? Paging.decode(after, 2) : new long[] {-1L, -1L};
+        if(ETags.notModified(request, changeEvents, Reservation.class))
+            return null;
+        return Paging.page(reservations_dao.findReservationsByPickup(location, begin, end, keys[0], keys[1], n + 1), n,
+            r -> new long[] {r.getBegin(), r.getId()});
     }
 
 
     @Override
-    public Reservation findReservationById(@PathVariable long id) {
+    public ResponseEntity<?> findReservationById(@PathVariable long id, WebRequest request) {
         //
         logger.info(String.format("--- received request: GET /Reservation/%d", id));
         //
+        long lastModified = changeEvents.lastModified(Reservation.class);
         if(id < 0L)
             // throw error 400 (bad request)
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
@@ -61,7 +145,9 @@ class ReservationsRestController implements ReservationsEP {
         //
         logger.info(String.format("--- found: Reservation(id: %d, customer_id: %d, vehicle_id: %d, begin: %d, end: %d, pickup: %s, dropoff: %s, status: %s)", found.getId(), found.getCustomerId(), found.getVehicleId(), found.getBegin(), found.getEnd(), found.getPickup(), found.getDropoff(), found.getStatus()));
         //
-        return found;
+        if(ETags.notModified(request, found.getVersion(), lastModified))
+            return null;    // 304 not modified, no JSON serialization
+        return jsonCache.entity(request, Reservation.class, id, found.getVersion(), () -> found);
     }
 
 
@@ -89,20 +175,46 @@ class ReservationsRestController implements ReservationsEP {
 
 
     @Override
-    public ResponseEntity<?> updateReservation(Map<String, Object> jsonData) {
+    public ResponseEntity<List<BatchResult>> createReservations(@RequestBody List<Map<String, Object>> jsonData) {
         //
-        logger.info(String.format("--- received PUT (update): Reservation JSON data:"));
+        logger.info(String.format("--- received POST (create batch): %d Reservations",
+            jsonData != null? jsonData.size() : 0));
         //
-        var respCode = HttpStatus.NOT_IMPLEMENTED;
+        if(jsonData == null || jsonData.isEmpty() || jsonData.size() > batchMaxSize)
+            // throw error 400 (bad request)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                String.format("batch size: %d, expected: 1..%d", jsonData != null? jsonData.size() : 0, batchMaxSize));
+        //
+        List<BatchResult> results = reservations_dao.createReservations(jsonData);
+        long created = results.stream().filter(r -> r.status() == BatchResult.Status.Created).count();
+        //
+        logger.info(String.format("--- %d of %d Reservations created", created, results.size()));
+        //
+        return ResponseEntity
+            .status(created == results.size()? HttpStatus.CREATED : HttpStatus.MULTI_STATUS)
+            .body(results);
+    }
+
+
+    @Override
+    public ResponseEntity<?> updateReservation(Map<String, Object> jsonData, String ifMatch) {
+        //
+        logger.info(String.format("--- received PUT (update): Reservation JSON data, If-Match: %s", ifMatch));
+        //
+        long version = ETags.ifMatch(ifMatch);     // 412 for unparsable ETag
         try {
-            reservations_dao.updateReservation(jsonData);
+            reservations_dao.updateReservation(jsonData, version);
             logger.info(String.format("--- Reservation object updated"));
-            respCode = HttpStatus.ACCEPTED;
+            var response = ResponseEntity.status(HttpStatus.ACCEPTED);
+            if(version != ETags.ANY) {
+                response.eTag(ETags.of(version + 1));
+            }
+            return response.build();
         //
         } catch(DataAccessException dax) {
             reThrow(dax, "DataAccessException dax: " + dax.getMessage());
         }
-        return ResponseEntity.status(respCode).build();
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
     }
 
 
@@ -137,6 +249,7 @@ class ReservationsRestController implements ReservationsEP {
             case BadRequest: respCode = HttpStatus.BAD_REQUEST; break;
             case NotFound:   respCode = HttpStatus.NOT_FOUND; break;
             case Conflict:   respCode = HttpStatus.CONFLICT; break;
+            case PreconditionFailed: respCode = HttpStatus.PRECONDITION_FAILED; break;
         }
         throw new ResponseStatusException(respCode, msg);
     }
@@ -1,9 +1,13 @@
 package de.freerider.endpoints;
 
 
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import de.freerider.datamodel.Vehicle;
 
@@ -17,9 +21,32 @@ import de.freerider.datamodel.Vehicle;
  * - GET /vehicles         - return JSON data for all Vehicle in the repository,
  *                            status: 200 OK.
  * 
+ * - GET /vehicles?limit=&after= - return one page of Vehicles (keyset pagination),
+ *                            cursor for the next page in header X-Next-Cursor,
+ *                            status: 200 OK, 400 bad request (limit, cursor).
+ * 
+ * - GET /vehicles?category=&power=&status=&seats= - return vehicles matching
+ *                            attributes (seats: minimum) from the in-memory
+ *                            catalog, with or without limit and after,
+ *                            status: 200 OK, 400 bad request (attributes).
+ * 
+ * - GET /vehicles         - with header "Accept: application/x-ndjson", stream JSON
+ *                            data for all vehicles, one object per line,
+ *                            status: 200 OK.
+ * 
+ * - GET /vehicles/available?from=&to=&category=&power=&seats= - return Active
+ *                            vehicles not reserved during [from, to) matching
+ *                            category, power and minimum seats (optional),
+ *                            status: 200 OK, 400 bad request (from, to, attributes).
+ * 
  * - GET /vehicles/{id}    - return JSON data for Vehicle with id,
  *                            status: 200 OK, 400 bad request (id), 404 not found.
  * 
+ * GET operations returning JSON are conditional: responses carry headers
+ * ETag and Last-Modified, requests with a matching If-None-Match (or
+ * If-Modified-Since) return 304 not modified without a body. ETags change
+ * with every write to the VEHICLE (and, for /vehicles/available, the
+ * RESERVATION) table.
  * 
  * @author sgra64
  *
@@ -30,11 +57,34 @@ public interface VehiclesEP extends VehiclesEPDoc {
 
     @GetMapping("")
     @Override
-    Iterable<Vehicle> findAllVehicles();
+    ResponseEntity<?> findAllVehicles(
+        @RequestParam(required=false) Integer limit,
+        @RequestParam(required=false) String after,
+        @RequestParam(required=false) String category,
+        @RequestParam(required=false) String power,
+        @RequestParam(required=false) String status,
+        @RequestParam(required=false) Integer seats,
+        WebRequest request);
+
+
+    @GetMapping(value="", produces=NdJson.MEDIA_TYPE)
+    @Override
+    ResponseEntity<StreamingResponseBody> streamAllVehicles();
+
+
+    @GetMapping("/available")
+    @Override
+    Iterable<Vehicle> findAvailableVehicles(
+        @RequestParam String from,
+        @RequestParam String to,
+        @RequestParam(required=false) String category,
+        @RequestParam(required=false) String power,
+        @RequestParam(required=false) Integer seats,
+        WebRequest request);
 
 
     @GetMapping("/{id}")
     @Override
-    Vehicle findVehicleById(@PathVariable long id);
+    ResponseEntity<?> findVehicleById(@PathVariable long id, WebRequest request);
 
 }
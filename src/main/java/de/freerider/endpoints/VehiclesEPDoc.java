@@ -1,11 +1,18 @@
 package de.freerider.endpoints;
 
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 
 import de.freerider.datamodel.Vehicle;
 
@@ -20,7 +27,19 @@ public interface VehiclesEPDoc {
      * 
      * - GET /vehicles
      * 
-     * @return iterable with all Vehicles.
+     * - GET /vehicles?limit=100&after={cursor}
+     * 
+     * - GET /vehicles?category=SUV&power=Electric&status=Active&seats=5
+     * 
+     * @param limit page size, null returns all vehicles unless after is given.
+     * @param after opaque cursor of the previous page (id of its last Vehicle).
+     * @param category vehicle category or null for any.
+     * @param power power source or null for any.
+     * @param status vehicle status or null for any.
+     * @param seats minimum number of seats or null for any.
+     * @param request HTTP request with headers If-None-Match, If-Modified-Since.
+     * @return iterable with all (matching) Vehicles or one page of Vehicles.
+     * @throws ResponseStatusException 400 bad request (limit, cursor, attributes).
      */
     @Operation(
         // group name where this operation appears and defines swagger tag
@@ -31,13 +50,96 @@ public interface VehiclesEPDoc {
         summary = "Return all vehicles.",
 
         // detailed description inside API
-        description = "Return all vehicles (no limit, no pagination)."
+        description = "Return all vehicles (no limit, no pagination) or, with query " +
+            "parameters limit and/or after, one page of vehicles ordered by id. The cursor " +
+            "for the next page is returned in response header X-Next-Cursor. With query " +
+            "parameters category, power, status or seats (minimum), only matching vehicles " +
+            "are returned from the in-memory vehicle catalog."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json", array=@ArraySchema(schema=@Schema(implementation=Vehicle.class)))),
+        @ApiResponse(responseCode="304", description="Not Modified"),
+        @ApiResponse(responseCode="400", description="Bad Request"),
+    })
+    //
+    ResponseEntity<?> findAllVehicles(
+        @Parameter(description="maximum number of vehicles returned (page size, max: 1000)")
+        @RequestParam(required=false) Integer limit,
+        @Parameter(description="cursor from header X-Next-Cursor of the previous page")
+        @RequestParam(required=false) String after,
+        @Parameter(description="Sedan, SUV, Convertible, Van, Bike")
+        @RequestParam(required=false) String category,
+        @Parameter(description="Gasoline, Diesel, Electric, Hybrid, Hydrogen")
+        @RequestParam(required=false) String power,
+        @Parameter(description="Active, Serviced, Terminated")
+        @RequestParam(required=false) String status,
+        @Parameter(description="minimum number of seats")
+        @RequestParam(required=false) Integer seats,
+        WebRequest request);
+
+
+    /**
+     * Stream all vehicles as newline-delimited JSON (one Vehicle per line).
+     * 
+     * - GET /vehicles with header "Accept: application/x-ndjson"
+     * 
+     * Rows are written to the response as they are read from the database,
+     * memory use is constant regardless of the number of vehicles.
+     * 
+     * @return ResponseEntity with streaming body.
+     */
+    @Operation(
+        tags = {api_group_vehicles},
+        summary = "Stream all vehicles as NDJSON.",
+        description = "Stream all vehicles with one JSON object per line when requested " +
+            "with header \"Accept: application/x-ndjson\" (no limit, constant memory)."
+    )
+    @ApiResponses(value={
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/x-ndjson")),
+    })
+    //
+    ResponseEntity<StreamingResponseBody> streamAllVehicles();
+
+
+    /**
+     * Return vehicles that are free during an interval.
+     * 
+     * - GET /vehicles/available?from=2022-12-04 20:00:00&to=2022-12-05 08:00:00&category=SUV
+     * 
+     * @param from begin of interval, format: "yyyy-MM-dd HH:mm:ss".
+     * @param to end of interval (exclusive), after from.
+     * @param category vehicle category or null for any.
+     * @param power power source or null for any.
+     * @param seats minimum number of seats or null for any.
+     * @param request HTTP request with headers If-None-Match, If-Modified-Since.
+     * @return Active vehicles not reserved during the interval, in order of id.
+     * @throws ResponseStatusException 400 bad request (from, to, category, power, seats).
+     */
+    @Operation(
+        tags = {api_group_vehicles},
+        summary = "Return vehicles available during an interval.",
+        description = "Return Active vehicles that have no InquiryConfirmed or Booked " +
+            "reservation overlapping [from, to) and match category, power and minimum " +
+            "number of seats if given. Answered from memory without database queries."
     )
     @ApiResponses(value={
         @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="304", description="Not Modified"),
+        @ApiResponse(responseCode="400", description="Bad Request"),
     })
     //
-    Iterable<Vehicle> findAllVehicles();
+    Iterable<Vehicle> findAvailableVehicles(
+        @Parameter(description="begin of interval, e.g. 2022-12-04 20:00:00")
+        @RequestParam String from,
+        @Parameter(description="end of interval (exclusive), e.g. 2022-12-05 08:00:00")
+        @RequestParam String to,
+        @Parameter(description="Sedan, SUV, Convertible, Van, Bike")
+        @RequestParam(required=false) String category,
+        @Parameter(description="Gasoline, Diesel, Electric, Hybrid, Hydrogen")
+        @RequestParam(required=false) String power,
+        @Parameter(description="minimum number of seats")
+        @RequestParam(required=false) Integer seats,
+        WebRequest request);
 
 
     /**
@@ -46,6 +148,7 @@ public interface VehiclesEPDoc {
      * - GET /vehicles/{id}
      * 
      * @param id of Vehicle, id must not be negative.
+     * @param request HTTP request with headers If-None-Match, If-Modified-Since.
      * @return Vehicle with id.
      * @throws ResponseStatusException 400 bad request, 404 not found.
      */
@@ -56,11 +159,12 @@ public interface VehiclesEPDoc {
         // parameters = {@Parameter(name="id", in=ParameterIn.QUERY, schema=@Schema(implementation=Long.class)) }
     )
     @ApiResponses(value={
-        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json")),
+        @ApiResponse(responseCode="200", description="OK", content=@Content(mediaType="application/json", schema=@Schema(implementation=Vehicle.class))),
+        @ApiResponse(responseCode="304", description="Not Modified"),
         @ApiResponse(responseCode="400", description="Bad Request"),
         @ApiResponse(responseCode="404", description="Not Found"),
     })
     //
-    Vehicle findVehicleById(@PathVariable long id);
+    ResponseEntity<?> findVehicleById(@PathVariable long id, WebRequest request);
 
 }
@@ -4,17 +4,24 @@ package de.freerider.endpoints;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-//import org.springframework.http.ResponseEntity;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 //import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.freerider.data_jdbc.ChangeEvents;
 //import de.freerider.data_jdbc.DataAccess;
 //import de.freerider.data_jdbc.DataAccessException;
 import de.freerider.data_jdbc.DataAccessVehicles;
+import de.freerider.datamodel.DateTimeCodec;
+import de.freerider.datamodel.Reservation;
 import de.freerider.datamodel.Vehicle;
 
 
@@ -34,15 +41,105 @@ class VehiclesRestController implements VehiclesEP {
     @Autowired
     private DataAccessVehicles vehicle_dao;
 
+    /**
+     * ObjectMapper used by Spring to serialize objects to JSON, used for
+     * streamed responses.
+     */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Source of change sequences validating conditional GETs.
+     */
+    @Autowired
+    private ChangeEvents changeEvents;
+
+    /**
+     * Cache of serialized JSON responses.
+     */
+    @Autowired
+    private JsonCache jsonCache;
+
+
+    @Override
+    public ResponseEntity<?> findAllVehicles(Integer limit, String after,
+            String category, String power, String status, Integer seats, WebRequest request) {
+        //
+        boolean filtered = category != null || power != null || status != null || seats != null;
+        if(limit == null && after == null && ! filtered) {
+            if(ETags.notModified(request, changeEvents, Vehicle.class))
+                return null;    // 304 not modified, no query, no JSON serialization
+            return jsonCache.collection(request, "vehicles", vehicle_dao::findAllVehicles, Vehicle.class);
+        }
+        long after_id = after != null? Paging.decode(after, 1)[0] : -1L;
+        if(filtered) {
+            logger.info(String.format("--- received request: GET /vehicles?category=%s&power=%s&status=%s&seats=%s",
+                category, power, status, seats));
+            if(seats != null && seats < 0)
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("seats: %d negative", seats));
+            var c = parseEnum(Vehicle.Category.class, "category", category);
+            var p = parseEnum(Vehicle.Power.class, "power", power);
+            var s = parseEnum(Vehicle.Status.class, "status", status);
+            int minSeats = seats != null? seats : 0;
+            if(ETags.notModified(request, changeEvents, Vehicle.class))
+                return null;
+            if(limit == null && after == null)
+                return ResponseEntity.ok(vehicle_dao.findVehiclesByAttributes(c, p, s, minSeats, -1L, 0));
+            //
+            int n = Paging.limit(limit);
+            return Paging.page(vehicle_dao.findVehiclesByAttributes(c, p, s, minSeats, after_id, n + 1), n,
+                v -> new long[] {v.getId()});
+        }
+        int n = Paging.limit(limit);
+        logger.info(String.format("--- received request: GET /vehicles?limit=%d&after=%s", n, after));
+        //
+        if(ETags.notModified(request, changeEvents, Vehicle.class))
+            return null;
+        return Paging.page(vehicle_dao.findVehiclesAfter(after_id, n + 1), n,
+            v -> new long[] {v.getId()});
+    }
+
 
     @Override
-    public Iterable<Vehicle> findAllVehicles() {
-        return vehicle_dao.findAllVehicles();
+    public ResponseEntity<StreamingResponseBody> streamAllVehicles() {
+        //
+        logger.info(String.format("--- received request: GET /vehicles (%s)", NdJson.MEDIA_TYPE));
+        //
+        return NdJson.stream(objectMapper, vehicle_dao::streamAllVehicles);
     }
 
 
     @Override
-    public Vehicle findVehicleById(@PathVariable long id) {
+    public Iterable<Vehicle> findAvailableVehicles(String from, String to,
+            String category, String power, Integer seats, WebRequest request) {
+        //
+        logger.info(String.format("--- received request: GET /vehicles/available?from=%s&to=%s", from, to));
+        //
+        long begin, end;
+        try {
+            begin = DateTimeCodec.parse(from);
+            end = DateTimeCodec.parse(to);
+        } catch(IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+        if(begin >= end)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                String.format("from: \"%s\" not before to: \"%s\"", from, to));
+        if(seats != null && seats < 0)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                String.format("seats: %d negative", seats));
+        var c = parseEnum(Vehicle.Category.class, "category", category);
+        var p = parseEnum(Vehicle.Power.class, "power", power);
+        //
+        if(ETags.notModified(request, changeEvents, Vehicle.class, Reservation.class))
+            return null;
+        return vehicle_dao.findAvailableVehicles(begin, end, c, p, seats != null? seats : 0);
+    }
+
+
+    @Override
+    public ResponseEntity<?> findVehicleById(@PathVariable long id, WebRequest request) {
         //
         logger.info(String.format("--- received request: GET /Vehicle/%d", id));
         //
@@ -52,17 +149,23 @@ class VehiclesRestController implements VehiclesEP {
                 String.format("Vehicle id: %d negative", id, HttpStatus.BAD_REQUEST.value())
             );
         //
-        Vehicle found = vehicle_dao.findVehicleById(id)
-            .map(c -> c)    // return Vehicle{id}, if found
-            //
-            //              // else throw error 404 (not found)
-            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                String.format("Vehicle id: %d not found, error %d", id, HttpStatus.NOT_FOUND.value())
-            ));
-        //
-        logger.info(String.format("--- found: Vehicle(id: %d, name: %s)", found.getId(), found.getMake()));
+        if(ETags.notModified(request, changeEvents, Vehicle.class))
+            return null;    // 304 not modified
         //
-        return found;
+        // vehicles have no version, cached JSON is valid until the VEHICLE table changes
+        return jsonCache.entity(request, Vehicle.class, id, ETags.sequence(changeEvents, Vehicle.class), () -> {
+            Vehicle found = vehicle_dao.findVehicleById(id)
+                .map(c -> c)    // return Vehicle{id}, if found
+                //
+                //              // else throw error 404 (not found)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    String.format("Vehicle id: %d not found, error %d", id, HttpStatus.NOT_FOUND.value())
+                ));
+            //
+            logger.info(String.format("--- found: Vehicle(id: %d, name: %s)", found.getId(), found.getMake()));
+            //
+            return found;
+        });
     }
 
 /* 
@@ -124,6 +227,27 @@ class VehiclesRestController implements VehiclesEP {
     }
 */
 
+    /**
+     * Parse enum value of a query parameter, ignoring case.
+     * 
+     * @param type enum class.
+     * @param param name of query parameter.
+     * @param value value of query parameter or null.
+     * @return enum value or null if value is null.
+     * @throws ResponseStatusException 400 bad request for values not matching.
+     */
+    static <E extends Enum<E>> E parseEnum(Class<E> type, String param, String value) {
+        if(value == null)
+            return null;
+        for(E e : type.getEnumConstants()) {
+            if(e.name().equalsIgnoreCase(value))
+                return e;
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            String.format("%s: \"%s\" invalid", param, value));
+    }
+
+
     /**
      * Map exceptions of type DataAccessException used in the data access layer
      * to HTTP ResponseStatusExceptions used in the Controller layer.
@@ -0,0 +1,7 @@
+-- Index for keyset pagination of GET /v1/reservations?limit=&after=
+-- (DataAccessReservations.findReservationsAfter), pages are read as
+-- range scans from the previous page's BEGIN:
+--   WHERE BEGIN >= ? AND (BEGIN > ? OR ID > ?) ORDER BY BEGIN, ID LIMIT ?
+-- (MySQL does not range-optimize the row comparison (BEGIN, ID) > (?, ?))
+--
+CREATE INDEX RESERVATION_BEGIN_ID ON RESERVATION (BEGIN, ID);
@@ -0,0 +1,7 @@
+-- Version of CUSTOMER and RESERVATION records for optimistic concurrency
+-- (ETag / If-Match), incremented by every update:
+-- UPDATE ... SET ..., VERSION = VERSION + 1 WHERE ID = ? AND VERSION = ?
+-- Existing records start with version 0.
+--
+ALTER TABLE CUSTOMER ADD COLUMN VERSION INT NOT NULL DEFAULT 0;
+ALTER TABLE RESERVATION ADD COLUMN VERSION INT NOT NULL DEFAULT 0;
@@ -0,0 +1,170 @@
+package de.freerider.data_jdbc;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+
+/**
+ * Harness comparing the SQL statements of BatchLookup with those of the
+ * former String.format lookup: SELECT * FROM VEHICLE WHERE ID IN (23, 48, 96).
+ *
+ * Not a JUnit test (not run by surefire). Run with:
+ * <pre>
+ *  mvn test-compile
+ *  java -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath \
+ *      -Dmdep.outputFile=/dev/stdout)" de.freerider.data_jdbc.BatchLookupStatementCacheSimulation
+ * </pre>
+ * Without arguments, no database is used: the statement texts of both
+ * lookups are replayed through a simulated per-connection statement cache
+ * (LRU, size of prepStmtCacheSize). It reports the number of distinct
+ * statements and the simulated cache hit rate, and the time spent building
+ * SQL texts, which is not a query latency. Latencies are only measured with
+ * -Djdbc.url=jdbc:mysql://localhost:3306/FREERIDER_DB?useServerPrepStmts=true&amp;cachePrepStmts=true
+ * (and -Djdbc.user, -Djdbc.password), when lookups are run against the database.
+ */
+class BatchLookupStatementCacheSimulation {
+
+    static final int LOOKUPS = 100_000;
+    static final int MAX_IDS = 600;
+    static final int ID_RANGE = 100_000;
+    static final int STATEMENT_CACHE_SIZE = 256;
+
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        List<List<Long>> workload = new ArrayList<>(LOOKUPS);
+        for(int i=0; i < LOOKUPS; i++) {
+            int n = 1 + (int)Math.abs(random.nextGaussian() * MAX_IDS / 4) % MAX_IDS;
+            List<Long> ids = new ArrayList<>(n);
+            for(int j=0; j < n; j++) {
+                ids.add(1L + random.nextInt(ID_RANGE));
+            }
+            workload.add(ids);
+        }
+        //
+        System.out.println(String.format("workload: %,d lookups, 1..%d ids each, statement cache: %d",
+            LOOKUPS, MAX_IDS, STATEMENT_CACHE_SIZE));
+        System.out.println("-".repeat(80));
+        //
+        // former implementation: one statement text per id list
+        var legacyCache = new StatementCache(STATEMENT_CACHE_SIZE);
+        long t0 = System.nanoTime();
+        for(List<Long> ids : workload) {
+            legacyCache.execute(legacySql(ids));
+        }
+        long legacyNanos = System.nanoTime() - t0;
+        report("String.format IN (...)", legacyCache, legacyNanos, LOOKUPS);
+        //
+        // BatchLookup: power-of-two buckets
+        var lookup = new BatchLookup("VEHICLE");
+        var bucketCache = new StatementCache(STATEMENT_CACHE_SIZE);
+        t0 = System.nanoTime();
+        for(List<Long> ids : workload) {
+            for(var chunk : lookup.plan(ids)) {
+                bucketCache.execute(chunk.sql());
+            }
+        }
+        long bucketNanos = System.nanoTime() - t0;
+        report("BatchLookup buckets", bucketCache, bucketNanos, LOOKUPS);
+        var stats = lookup.stats();
+        System.out.println(String.format("  BatchLookup.stats: ids requested: %,d, queried (distinct): %,d, " +
+            "executions: %,d, statement reuse: %.4f",
+            stats.idsRequested(), stats.idsQueried(), stats.executions(), stats.hitRate()));
+        //
+        String url = System.getProperty("jdbc.url");
+        if(url != null) {
+            live(url, workload.subList(0, Math.min(2_000, workload.size())));
+        }
+    }
+
+
+    /**
+     * Run lookups against the database with both implementations.
+     */
+    static void live(String url, List<List<Long>> workload) {
+        var ds = new SingleConnectionDataSource(url,
+            System.getProperty("jdbc.user", "freerider"),
+            System.getProperty("jdbc.password", "free.ride"), true);
+        var jdbc = new JdbcTemplate(ds);
+        var lookup = new BatchLookup("VEHICLE");
+        System.out.println("-".repeat(80));
+        for(int round=0; round < 2; round++) {     // round 0 is warm-up
+            long t0 = System.nanoTime();
+            long rows = 0;
+            for(List<Long> ids : workload) {
+                rows += jdbc.queryForList(legacySql(ids)).size();
+            }
+            long legacyNanos = System.nanoTime() - t0;
+            t0 = System.nanoTime();
+            for(List<Long> ids : workload) {
+                rows -= lookup.findAll(jdbc, ids, (rs, n) -> Optional.of(rs.getLong("ID"))).size();
+            }
+            long bucketNanos = System.nanoTime() - t0;
+            if(round > 0) {
+                System.out.println(String.format("live %s: String.format: %.1f us/lookup, BatchLookup: %.1f us/lookup, rows diff: %d",
+                    url, legacyNanos / 1e3 / workload.size(), bucketNanos / 1e3 / workload.size(), rows));
+            }
+        }
+        ds.destroy();
+    }
+
+
+    static String legacySql(List<Long> ids) {
+        String idsStr = ids.stream().map(id -> String.valueOf(id)).collect(Collectors.joining(", "));
+        return String.format("SELECT * FROM VEHICLE WHERE ID IN (%s)", idsStr);
+    }
+
+
+    static void report(String name, StatementCache cache, long nanos, int lookups) {
+        System.out.println(String.format("%-24s executions: %,9d  distinct statements: %,9d  " +
+            "simulated cache hit rate: %.4f  sql build (no query): %.2f us/lookup",
+            name, cache.executions, cache.distinct, cache.hitRate(), nanos / 1e3 / lookups));
+    }
+
+
+    /**
+     * Simulated per-connection prepared statement cache (LRU by SQL text),
+     * as Connector/J with cachePrepStmts=true.
+     */
+    static class StatementCache extends LinkedHashMap<String, Boolean> {
+        final int capacity;
+        long executions, hits, distinct;
+        final Set<Long> seen = new HashSet<>();  // (hash, length) of SQL
+
+        StatementCache(int capacity) {
+            super(capacity, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        void execute(String sql) {
+            executions++;
+            if(get(sql) != null) {
+                hits++;
+            } else {
+                put(sql, Boolean.TRUE);
+            }
+            if(seen.add(((long)sql.hashCode() << 32) | sql.length())) {
+                distinct++;
+            }
+        }
+
+        double hitRate() {
+            return executions == 0? 0.0 : (double)hits / executions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > capacity;
+        }
+    }
+}
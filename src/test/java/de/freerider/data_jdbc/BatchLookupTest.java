@@ -0,0 +1,132 @@
+package de.freerider.data_jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+
+/**
+ * JUnit 5 tests of BatchLookup bucket planning (no database).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class BatchLookupTest {
+
+    private static final String PREFIX = "SELECT * FROM VEHICLE WHERE ID IN (";
+
+
+    /*
+     * Test cases 100: no ids, no statements.
+     */
+    @Test @Order(100)
+    void test_100_empty() {
+        BatchLookup lookup = new BatchLookup("VEHICLE");
+        assertEquals(0, lookup.plan(List.of()).size());
+        assertEquals(0, lookup.plan(Arrays.asList((Long)null, null)).size());
+        assertEquals(0L, lookup.stats().executions());
+    }
+
+
+    /*
+     * Test cases 110: ids are deduplicated, sorted and padded with the last
+     * id to the next power of two placeholders.
+     */
+    @Test @Order(110)
+    void test_110_dedup_sort_pad() {
+        BatchLookup lookup = new BatchLookup("VEHICLE");
+        List<BatchLookup.Chunk> chunks = lookup.plan(Arrays.asList(8003L, 8001L, null, 8003L, 8002L, 8001L));
+        assertEquals(1, chunks.size());
+        assertEquals(PREFIX + "?, ?, ?, ?)", chunks.get(0).sql());
+        assertArrayEquals(new long[] {8001L, 8002L, 8003L, 8003L}, chunks.get(0).ids());
+        //
+        chunks = lookup.plan(List.of(5L));
+        assertEquals(PREFIX + "?)", chunks.get(0).sql());
+        assertArrayEquals(new long[] {5L}, chunks.get(0).ids());
+        //
+        var stats = lookup.stats();
+        assertEquals(2L, stats.lookups());
+        assertEquals(6L, stats.idsRequested());
+        assertEquals(4L, stats.idsQueried());
+        assertEquals(2L, stats.executions());
+    }
+
+
+    /*
+     * Test cases 200: bucket sizes for 1..MAX_BUCKET ids are the next power
+     * of two, only log2(MAX_BUCKET) + 1 statements are created.
+     */
+    @Test @Order(200)
+    void test_200_bucket_sizes() {
+        BatchLookup lookup = new BatchLookup("VEHICLE");
+        Set<String> statements = new HashSet<String>();
+        for(int n=1; n <= BatchLookup.MAX_BUCKET; n++) {
+            List<BatchLookup.Chunk> chunks = lookup.plan(ids(n));
+            assertEquals(1, chunks.size());
+            int size = Integer.highestOneBit(n) == n? n : Integer.highestOneBit(n) << 1;
+            assertEquals(size, chunks.get(0).ids().length, "n: " + n);
+            assertEquals(size, placeholders(chunks.get(0).sql()), "n: " + n);
+            statements.add(chunks.get(0).sql());
+        }
+        int buckets = Integer.numberOfTrailingZeros(BatchLookup.MAX_BUCKET) + 1;
+        assertEquals(buckets, statements.size());
+        assertEquals(buckets, lookup.stats().statementMisses());
+        assertEquals(BatchLookup.MAX_BUCKET - buckets, lookup.stats().statementHits());
+    }
+
+
+    /*
+     * Test cases 300: more than MAX_BUCKET ids are split into full chunks and
+     * one padded chunk that together contain every id once.
+     */
+    @Test @Order(300)
+    void test_300_chunks() {
+        BatchLookup lookup = new BatchLookup("VEHICLE");
+        int n = 2 * BatchLookup.MAX_BUCKET + 3;
+        List<Long> ids = ids(n);
+        Collections.shuffle(ids, new Random(42));
+        List<BatchLookup.Chunk> chunks = lookup.plan(ids);
+        assertEquals(3, chunks.size());
+        assertEquals(BatchLookup.MAX_BUCKET, chunks.get(0).ids().length);
+        assertEquals(BatchLookup.MAX_BUCKET, chunks.get(1).ids().length);
+        assertEquals(4, chunks.get(2).ids().length);
+        assertSame(chunks.get(0).sql(), chunks.get(1).sql());     // same statement instance
+        //
+        List<Long> planned = new ArrayList<Long>();
+        for(BatchLookup.Chunk chunk : chunks) {
+            for(long id : chunk.ids()) {
+                if(planned.isEmpty() || planned.get(planned.size() - 1) != id) {
+                    planned.add(id);
+                }
+            }
+        }
+        assertEquals(ids(n), planned);      // sorted, each id once apart from padding
+    }
+
+
+    private static List<Long> ids(int n) {
+        List<Long> ids = new ArrayList<Long>(n);
+        for(int i=0; i < n; i++) {
+            ids.add(1000L + i);
+        }
+        return ids;
+    }
+
+
+    private static int placeholders(String sql) {
+        assertTrue(sql.startsWith(PREFIX) && sql.endsWith(")"), sql);
+        return (int)sql.chars().filter(c -> c == '?').count();
+    }
+}
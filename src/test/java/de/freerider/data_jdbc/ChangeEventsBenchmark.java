@@ -0,0 +1,142 @@
+package de.freerider.data_jdbc;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import de.freerider.datamodel.Customer;
+
+
+/**
+ * Benchmark harness of ChangeEvents: time writers spend publishing events
+ * with a slow subscriber (1 msec per event) subscribed synchronously and
+ * asynchronously, and delivery of events from several writing threads to
+ * several asynchronous subscribers through ring buffers of 8192 and 1M
+ * events. Events of each writer must arrive in order, events lost by
+ * subscribers that lag by more than the ring size must be counted.
+ *
+ * Not a JUnit test (not run by surefire). Run with:
+ * <pre>
+ *  mvn test-compile
+ *  java -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath \
+ *      -Dmdep.outputFile=/dev/stdout)" de.freerider.data_jdbc.ChangeEventsBenchmark
+ * </pre>
+ * Sizes can be changed with -Dwriters=4 -Devents=1000000.
+ */
+class ChangeEventsBenchmark {
+
+    static final int WRITERS = Integer.getInteger("writers", 4);
+    static final int EVENTS = Integer.getInteger("events", 1_000_000);
+    static final int SUBSCRIBERS = 3;
+    static final int SLOW_EVENTS = 200;
+
+
+    public static void main(String[] args) throws ReflectiveOperationException, InterruptedException {
+        //
+        // 1. slow subscriber, synchronous vs asynchronous
+        for(boolean async : new boolean[] { false, true }) {
+            ChangeEvents events = new ChangeEvents();
+            if(async) {
+                events.subscribeAsync(Customer.class, "slow", e -> sleep(1));
+            } else {
+                events.subscribe(Customer.class, e -> sleep(1));
+            }
+            long t0 = System.nanoTime();
+            for(int i=0; i < SLOW_EVENTS; i++) {
+                events.publish(ChangeEvent.deleted(Customer.class, i, null));
+            }
+            long micros = (System.nanoTime() - t0) / 1000L;
+            System.out.println(String.format("slow subscriber %-5s: %,8d usec to publish %d events (%.1f usec/event)",
+                async? "async" : "sync", micros, SLOW_EVENTS, micros / (double)SLOW_EVENTS));
+            events.shutdown();
+        }
+        System.out.println("-".repeat(80));
+        //
+        // 2. writers -> ring buffer -> asynchronous subscribers, writers
+        // publish without pause and overrun small rings on few cores
+        for(int ringSize : new int[] { 8192, 1 << 20 }) {
+            deliver(ringSize);
+        }
+    }
+
+
+    static void deliver(int ringSize) throws ReflectiveOperationException, InterruptedException {
+        ChangeEvents events = new ChangeEvents();
+        Field field = ChangeEvents.class.getDeclaredField("ringSize");
+        field.setAccessible(true);
+        field.setInt(events, ringSize);
+        List<AtomicLong> received = new ArrayList<AtomicLong>();
+        AtomicLong disorder = new AtomicLong();
+        for(int s=0; s < SUBSCRIBERS; s++) {
+            long[] l = new long[WRITERS];
+            Arrays.fill(l, -1L);
+            AtomicLong n = new AtomicLong();
+            received.add(n);
+            events.subscribeAsync(Customer.class, "subscriber-" + s, e -> {
+                // id encodes writer and sequence of writer
+                int writer = (int)(e.id() % WRITERS);
+                long seq = e.id() / WRITERS;
+                if(seq <= l[writer]) {
+                    disorder.incrementAndGet();
+                }
+                l[writer] = seq;
+                n.incrementAndGet();
+            });
+        }
+        long t0 = System.nanoTime();
+        Thread[] writers = new Thread[WRITERS];
+        for(int w=0; w < WRITERS; w++) {
+            final int writer = w;
+            writers[w] = new Thread(() -> {
+                for(long i=0; i < EVENTS / WRITERS; i++) {
+                    events.publish(ChangeEvent.deleted(Customer.class, i * WRITERS + writer, null));
+                }
+            });
+            writers[w].start();
+        }
+        for(Thread w : writers) {
+            w.join();
+        }
+        long publishMillis = (System.nanoTime() - t0) / 1_000_000L;
+        events.shutdown();
+        long drainMillis = (System.nanoTime() - t0) / 1_000_000L;
+        //
+        long total = (long)(EVENTS / WRITERS) * WRITERS;
+        long lost = 0;
+        for(int s=0; s < SUBSCRIBERS; s++) {
+            lost += total - received.get(s).get();
+        }
+        if(disorder.get() != 0)
+            throw new IllegalStateException("events out of order: " + disorder.get());
+        if(lost != lost(events))
+            throw new IllegalStateException("lost events not counted");
+        System.out.println(String.format("ring: %,9d  %d writers, %d subscribers, %,d events: published in %4d ms (%,10.0f events/sec), delivered in %4d ms, lost: %,d",
+            ringSize, WRITERS, SUBSCRIBERS, total, publishMillis, total * 1000.0 / Math.max(1, publishMillis), drainMillis, lost));
+    }
+
+
+    @SuppressWarnings("unchecked")
+    static long lost(ChangeEvents events) {
+        long lost = 0;
+        for(Object s : ((Map<String, Object>)events.metrics().get("async")).values()) {
+            lost += (Long)((Map<String, Object>)s).get("lost");
+        }
+        return lost;
+    }
+
+
+    /**
+     * Sleep without throwing InterruptedException.
+     */
+    static void sleep(long millis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        for(long left; (left = deadline - System.nanoTime()) > 0; ) {
+            LockSupport.parkNanos(left);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package de.freerider.data_jdbc;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import de.freerider.datamodel.DataFactory;
+
+
+/**
+ * Benchmark harness of CustomerSearchIndex behind GET /customers/search,
+ * loaded in memory with generated Customers (no database): names from
+ * lists of first and last names, contacts "first.last{n}@domain".
+ *
+ * Not a JUnit test (not run by surefire). Run with:
+ * <pre>
+ *  mvn test-compile
+ *  java -Xmx4g -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath \
+ *      -Dmdep.outputFile=/dev/stdout)" de.freerider.data_jdbc.CustomerSearchBenchmark
+ * </pre>
+ * The number of Customers can be changed with -Dcustomers=5000000.
+ */
+class CustomerSearchBenchmark {
+
+    static final int CUSTOMERS = Integer.getInteger("customers", 5_000_000);
+    static final int QUERIES = 20_000;
+    static final int LIMIT = 10;
+
+    static final String[] FIRST = {
+        "Eric", "Anne", "Tim", "Sara", "Jonas", "Lena", "Paul", "Mia", "Felix", "Emma",
+        "Lukas", "Hannah", "Leon", "Sophie", "Noah", "Marie", "Elias", "Laura", "Ben", "Julia",
+        "Finn", "Lea", "Max", "Clara", "Jan", "Nele", "Tom", "Ida", "Moritz", "Greta",
+    };
+    static final String[] LAST = {
+        "Meyer", "Schulz", "Bauer", "Meier", "Neumann", "Schmidt", "Fischer", "Weber", "Wagner", "Becker",
+        "Hoffmann", "Koch", "Richter", "Klein", "Wolf", "Schroeder", "Zimmermann", "Braun", "Krueger", "Hofmann",
+        "Hartmann", "Lange", "Schmitt", "Werner", "Krause", "Lehmann", "Koehler", "Maier", "Herrmann", "Walter",
+    };
+    static final String[] DOMAINS = { "gmail.com", "web.de", "gmx.net", "outlook.com", "t-online.de" };
+
+    static final List<String> QUERY_TERMS = List.of(
+        "meyer",            // word
+        "hoff",             // prefix
+        "mann",             // substring
+        "eric meyer",       // two words
+        "lena.neumann12",   // e-mail part
+        "chmi gmx",         // substring and word
+        "zz"                // no match
+    );
+
+
+    public static void main(String[] args) {
+        DataFactory dataFactory;
+        try(var context = new AnnotationConfigApplicationContext("de.freerider.datamodel")) {
+            dataFactory = context.getBean(DataFactory.class);
+        }
+        Random random = new Random(42);
+        var index = new CustomerSearchIndex(null, dataFactory, new ChangeEvents());
+        long t0 = System.nanoTime();
+        index.load(rows -> {
+            for(int i=0; i < CUSTOMERS; i++) {
+                String first = FIRST[random.nextInt(FIRST.length)];
+                String last = LAST[random.nextInt(LAST.length)];
+                String contact = String.format("%s.%s%d@%s", first, last, random.nextInt(10_000),
+                    DOMAINS[random.nextInt(DOMAINS.length)]).toLowerCase();
+                dataFactory.createCustomer(i + 1, last + ", " + first, contact, "Active").ifPresent(rows);
+            }
+        });
+        System.out.println(String.format("index: %,d customers loaded in %d ms, heap used: %,d MB",
+            CUSTOMERS, (System.nanoTime() - t0) / 1_000_000L, usedHeapMB()));
+        System.out.println(index.metrics());
+        System.out.println("-".repeat(80));
+        //
+        for(String q : QUERY_TERMS) {
+            for(int round=0; round < 2; round++) {     // round 0 is warm-up
+                long[] nanos = new long[QUERIES / QUERY_TERMS.size()];
+                int found = 0;
+                for(int i=0; i < nanos.length; i++) {
+                    long q0 = System.nanoTime();
+                    found = index.search(q, LIMIT).size();
+                    nanos[i] = System.nanoTime() - q0;
+                }
+                if(round > 0) {
+                    Arrays.sort(nanos);
+                    System.out.println(String.format("q=%-18s p50: %7.1f us  p99: %7.1f us  max: %7.1f us  found: %d",
+                        "\"" + q + "\"", nanos[nanos.length / 2] / 1e3, nanos[nanos.length * 99 / 100] / 1e3,
+                        nanos[nanos.length - 1] / 1e3, found));
+                }
+            }
+        }
+    }
+
+
+    static long usedHeapMB() {
+        System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return (rt.totalMemory() - rt.freeMemory()) >> 20;
+    }
+}
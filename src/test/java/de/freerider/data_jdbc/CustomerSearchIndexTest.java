@@ -0,0 +1,144 @@
+package de.freerider.data_jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import de.freerider.datamodel.Customer;
+import de.freerider.datamodel.DataFactory;
+
+
+/**
+ * JUnit 5 tests of the CustomerSearchIndex tokenizer and of searches on an
+ * index loaded from a list of Customers (no database).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class CustomerSearchIndexTest {
+
+    private static DataFactory dataFactory;
+
+
+    @BeforeAll
+    static void createDataFactory() {
+        try(var context = new AnnotationConfigApplicationContext("de.freerider.datamodel")) {
+            dataFactory = context.getBean(DataFactory.class);
+        }
+    }
+
+
+    /*
+     * Test cases 100: text is split at characters other than letters and
+     * digits into distinct lower-case tokens in order of first occurrence.
+     */
+    @Test @Order(100)
+    void test_100_tokenize() {
+        assertTokens("Eric.Meyer@gmail.com", "eric", "meyer", "gmail", "com");
+        assertTokens("Meyer, Eric", "meyer", "eric");
+        assertTokens("  --Meyer--  ", "meyer");
+        assertTokens("meyer MEYER Meyer", "meyer");
+        assertTokens("R2D2 +49 (030) 123-456", "r2d2", "49", "030", "123", "456");
+        assertTokens("Müller-Lüdenscheidt", "müller", "lüdenscheidt");
+        assertTokens("Łódź 東京", "łódź", "東京");
+        assertTokens("a_b\tc\nd", "a", "b", "c", "d");
+    }
+
+
+    /*
+     * Test cases 110: empty and null text have no tokens.
+     */
+    @Test @Order(110)
+    void test_110_tokenize_empty() {
+        assertTokens(null);
+        assertTokens("");
+        assertTokens(" .,;@-_ ");
+    }
+
+
+    /*
+     * Test cases 120: tokens do not depend on the default locale.
+     */
+    @Test @Order(120)
+    void test_120_tokenize_locale() {
+        Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr"));
+            assertTokens("IRIS Ivanova", "iris", "ivanova");
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+
+    /*
+     * Test cases 200: exact matches rank before prefix and substring
+     * matches, all terms must match, ties are ordered by id.
+     */
+    @Test @Order(200)
+    void test_200_search() {
+        CustomerSearchIndex index = index(
+            customer(1L, "Meyer, Eric", "eric.meyer@gmail.com"),
+            customer(2L, "Meyerhoff, Anne", "anne@web.de"),
+            customer(3L, "Schmeyer, Tim", "tim@gmail.com"),
+            customer(4L, "Meyer, Anne", ""));
+        assertEquals(List.of(1L, 4L, 2L, 3L), index.search("meyer", 10));
+        assertEquals(List.of(1L, 4L), index.search("meyer", 2));
+        assertEquals(List.of(2L, 4L), index.search("ANNE mey", 10));      // same score, by id
+        assertEquals(List.of(4L, 2L), index.search("ANNE meyer", 10));
+        assertEquals(List.of(1L, 3L), index.search("gmail", 10));
+        assertEquals(List.of(3L), index.search("gmail hmey", 10));
+        assertEquals(List.of(2L), index.search("mey anne web", 10));
+        assertEquals(List.of(), index.search("meyer xyz", 10));
+        assertEquals(List.of(), index.search(" .. ", 10));
+        assertEquals(List.of(), index.search("meyer", 0));
+    }
+
+
+    /*
+     * Test cases 300: updates and deletes from ChangeEvents are visible in
+     * searches.
+     */
+    @Test @Order(300)
+    void test_300_changes() {
+        Customer eric = customer(1L, "Meyer, Eric", "eric.meyer@gmail.com");
+        CustomerSearchIndex index = index(eric, customer(2L, "Schulze, Tina", ""));
+        assertEquals(List.of(1L), index.search("eric", 10));
+        //
+        Customer renamed = customer(1L, "Bauer, Eric", "eric.bauer@web.de");
+        index.apply(ChangeEvent.updated(Customer.class, 1L, eric, renamed));
+        assertEquals(List.of(), index.search("meyer", 10));
+        assertEquals(List.of(1L), index.search("bauer eric", 10));
+        //
+        index.apply(ChangeEvent.created(Customer.class, 3L, customer(3L, "Bauer, Tina", "")));
+        assertEquals(List.of(1L, 3L), index.search("bauer", 10));
+        assertEquals(List.of(2L, 3L), index.search("tina", 10));
+        //
+        index.apply(ChangeEvent.deleted(Customer.class, 1L, renamed));
+        assertEquals(List.of(3L), index.search("bauer", 10));
+    }
+
+
+    private static CustomerSearchIndex index(Customer... customers) {
+        CustomerSearchIndex index = new CustomerSearchIndex(null, dataFactory, new ChangeEvents());
+        index.load(rows -> List.of(customers).forEach(rows));
+        return index;
+    }
+
+
+    private static Customer customer(long id, String name, String contact) {
+        return dataFactory.createCustomer(id, name, contact, "Active").get();
+    }
+
+
+    private static void assertTokens(String text, String... expected) {
+        assertEquals(List.of(expected), new ArrayList<String>(CustomerSearchIndex.tokenize(text)));
+    }
+}
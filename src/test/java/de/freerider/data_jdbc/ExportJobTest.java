@@ -0,0 +1,199 @@
+package de.freerider.data_jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+
+/**
+ * JUnit 5 tests of ExportJob segments, failures and resumes with a
+ * JdbcTemplate that streams customer rows 1..7 (no database).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ExportJobTest {
+
+    @TempDir
+    Path directory;
+
+
+    /*
+     * Test cases 100: export without failure, segments of 3 rows.
+     */
+    @Test @Order(100)
+    void test_100_export() throws IOException {
+        Rows rows = new Rows(7, -1);
+        ExportJob job = new ExportJob(1L, ImportTable.Customers, ImportJob.Format.NDJSON, directory, 3);
+        job.start();
+        job.run(rows);
+        ExportStatus status = job.status();
+        assertEquals(ExportStatus.State.Completed, status.state());
+        assertEquals(7L, status.rowsWritten());
+        assertSegments(job, new long[] {3, 3, 1}, new long[] {3, 6, 7});
+        assertEquals(List.of(Long.MIN_VALUE), rows.after);
+    }
+
+
+    /*
+     * Test cases 200: failure right after a finished segment keeps the rows
+     * of the segment, resume continues after its last id.
+     */
+    @Test @Order(200)
+    void test_200_fail_after_segment_resume() throws IOException {
+        Rows rows = new Rows(7, 4);
+        ExportJob job = new ExportJob(2L, ImportTable.Customers, ImportJob.Format.NDJSON, directory, 3);
+        job.start();
+        job.run(rows);
+        ExportStatus status = job.status();
+        assertEquals(ExportStatus.State.Failed, status.state());
+        assertEquals("connection lost", status.error());
+        assertEquals(3L, status.rowsWritten());
+        assertSegments(job, new long[] {3}, new long[] {3});
+        //
+        rows.failAt = -1;
+        job.start();
+        job.run(rows);
+        status = job.status();
+        assertEquals(ExportStatus.State.Completed, status.state());
+        assertNull(status.error());
+        assertEquals(7L, status.rowsWritten());
+        assertSegments(job, new long[] {3, 3, 1}, new long[] {3, 6, 7});
+        assertEquals(List.of(Long.MIN_VALUE, 3L), rows.after);
+    }
+
+
+    /*
+     * Test cases 210: failure within a segment discards the unfinished
+     * segment and its rows, resume rewrites them.
+     */
+    @Test @Order(210)
+    void test_210_fail_within_segment_resume() throws IOException {
+        Rows rows = new Rows(7, 6);
+        ExportJob job = new ExportJob(3L, ImportTable.Customers, ImportJob.Format.CSV, directory, 3);
+        job.start();
+        job.run(rows);
+        assertEquals(ExportStatus.State.Failed, job.status().state());
+        assertEquals(3L, job.status().rowsWritten());
+        assertSegments(job, new long[] {3}, new long[] {3});
+        //
+        rows.failAt = -1;
+        job.start();
+        job.run(rows);
+        assertEquals(ExportStatus.State.Completed, job.status().state());
+        assertEquals(7L, job.status().rowsWritten());
+        assertSegments(job, new long[] {3, 3, 1}, new long[] {3, 6, 7});
+        assertEquals(List.of("id,name,contact,status", "4,Name 4,c4@mail.de,Active",
+            "5,Name 5,c5@mail.de,Active", "6,Name 6,c6@mail.de,Active"), lines(job.segment(1)));
+    }
+
+
+    /**
+     * Assert finished segments and that no ".part" file is left.
+     */
+    private void assertSegments(ExportJob job, long[] rows, long[] lastIds) throws IOException {
+        List<ExportStatus.Segment> segments = job.status().segments();
+        assertEquals(rows.length, segments.size());
+        long rowsTotal = 0L;
+        for(int i=0; i < rows.length; i++) {
+            ExportStatus.Segment s = segments.get(i);
+            assertEquals(rows[i], s.rows());
+            assertEquals(lastIds[i], s.lastId());
+            assertEquals(lastIds[i] - rows[i] + 1, s.firstId());
+            assertEquals(rows[i] + (job.format == ImportJob.Format.CSV? 1 : 0), lines(job.segment(i)).size());
+            rowsTotal += s.rows();
+        }
+        assertEquals(rowsTotal, job.status().rowsWritten());
+        try(Stream<Path> files = Files.walk(directory)) {
+            assertTrue(files.noneMatch(f -> f.toString().endsWith(".part")));
+        }
+    }
+
+
+    private static List<String> lines(Path segment) throws IOException {
+        try(var in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(segment)), StandardCharsets.UTF_8))) {
+            return in.lines().toList();
+        }
+    }
+
+
+    /**
+     * JdbcTemplate that streams CUSTOMER rows with ids 1..n after the id
+     * bound to the query, fails before row failAt (-1: no failure).
+     */
+    private static class Rows extends JdbcTemplate {
+        private final int n;
+        private int failAt;
+        private final List<Object> after = new ArrayList<Object>();
+
+        Rows(int n, int failAt) {
+            this.n = n;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+            try {
+                Object[] arg = new Object[1];
+                PreparedStatement ps = proxy(PreparedStatement.class, (method, args) -> {
+                    if(method.equals("setObject")) {
+                        arg[0] = args[1];
+                    }
+                    return null;
+                });
+                psc.createPreparedStatement(proxy(Connection.class, (method, args) -> ps));
+                after.add(arg[0]);
+                //
+                for(long id=Math.max(0L, (Long)arg[0]) + 1; id <= n; id++) {
+                    if(id == failAt)
+                        throw new DataAccessResourceFailureException("connection lost");
+                    long rowId = id;
+                    rch.processRow(proxy(ResultSet.class, (method, args) -> switch((String)args[0]) {
+                        case "ID" -> rowId;
+                        case "NAME" -> "Name " + rowId;
+                        case "CONTACT" -> "c" + rowId + "@mail.de";
+                        default -> "Active";
+                    }));
+                }
+            } catch(SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+
+    private interface Call {
+        Object invoke(String method, Object[] args);
+    }
+
+
+    private static <T> T proxy(Class<T> type, Call call) {
+        return type.cast(Proxy.newProxyInstance(ExportJobTest.class.getClassLoader(), new Class<?>[] {type},
+            (p, method, args) -> call.invoke(method.getName(), args)));
+    }
+}
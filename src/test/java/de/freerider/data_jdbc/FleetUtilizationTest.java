@@ -0,0 +1,188 @@
+package de.freerider.data_jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.Locations;
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * JUnit 5 tests of FleetUtilization clipping reservations to local days,
+ * on ReservationColumns loaded from rows (no database). Day boundaries are
+ * computed in Europe/Berlin independent of the default time zone.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class FleetUtilizationTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+
+    private static final int BOOKED = Reservation.Status.Booked.ordinal();
+
+    private static DataFactory dataFactory;
+
+    private static ForkJoinPool pool;
+
+
+    @BeforeAll
+    static void createDataFactory() {
+        try(var context = new AnnotationConfigApplicationContext("de.freerider.datamodel")) {
+            dataFactory = context.getBean(DataFactory.class);
+        }
+        pool = new ForkJoinPool(4);
+    }
+
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdown();
+    }
+
+
+    /*
+     * Test cases 100: a reservation spanning midnight is split at the day
+     * boundary, reservations are clipped to [from, to).
+     */
+    @Test @Order(100)
+    void test_100_midnight() {
+        long[] dayStarts = dayStarts("2023-06-10", 3);
+        ReservationColumns columns = columns(
+            row(1L, 8001L, "2023-06-10T22:00", "2023-06-11T04:00", BOOKED),
+            row(2L, 8001L, "2023-06-09T20:00", "2023-06-10T02:00", BOOKED),     // starts before from
+            row(3L, 8001L, "2023-06-12T21:00", "2023-06-13T03:00", BOOKED),     // ends after to
+            row(4L, 8001L, "2023-06-11T08:00", "2023-06-11T09:00",
+                Reservation.Status.Inquired.ordinal()));                        // does not hold the vehicle
+        FleetUtilization u = compute(columns, dayStarts, List.of(vehicle(8001L, Vehicle.Category.Van)));
+        assertArrayEquals(new long[] {4 * HOUR, 4 * HOUR, 3 * HOUR}, u.bookedByVehicle(0));
+        assertEquals(4 * HOUR, u.booked(Vehicle.Category.Van.ordinal(), 0));
+        assertEquals(4 * HOUR, u.booked(Vehicle.Category.Van.ordinal(), 1));
+        assertEquals(3 * HOUR, u.booked(Vehicle.Category.Van.ordinal(), 2));
+        assertEquals(0L, u.booked(Vehicle.Category.Sedan.ordinal(), 0));
+    }
+
+
+    /*
+     * Test cases 200: daylight saving time starts on 2023-03-26, the day
+     * has 23 hours, 00:00 to 04:00 local time are 3 hours.
+     */
+    @Test @Order(200)
+    void test_200_dst_23h() {
+        long[] dayStarts = dayStarts("2023-03-25", 3);
+        ReservationColumns columns = columns(
+            row(1L, 8001L, "2023-03-25T22:00", "2023-03-26T04:00", BOOKED),
+            row(2L, 8002L, "2023-03-26T00:00", "2023-03-27T00:00", BOOKED));
+        FleetUtilization u = compute(columns, dayStarts,
+            List.of(vehicle(8001L, Vehicle.Category.Sedan), vehicle(8002L, Vehicle.Category.Sedan)));
+        assertEquals(23 * HOUR, u.dayLength(1));
+        assertArrayEquals(new long[] {2 * HOUR, 3 * HOUR, 0L}, u.bookedByVehicle(0));
+        assertArrayEquals(new long[] {0L, 23 * HOUR, 0L}, u.bookedByVehicle(1));
+        assertEquals(26 * HOUR, u.booked(Vehicle.Category.Sedan.ordinal(), 1));
+    }
+
+
+    /*
+     * Test cases 210: daylight saving time ends on 2023-10-29, the day has
+     * 25 hours, 01:00 to 04:00 local time are 4 hours.
+     */
+    @Test @Order(210)
+    void test_210_dst_25h() {
+        long[] dayStarts = dayStarts("2023-10-28", 3);
+        ReservationColumns columns = columns(
+            row(1L, 8001L, "2023-10-29T01:00", "2023-10-29T04:00", BOOKED),
+            row(2L, 8002L, "2023-10-28T12:00", "2023-10-30T12:00", BOOKED),
+            row(3L, 8003L, "2023-10-29T12:00", "2023-10-29T13:00", BOOKED));     // vehicle not included
+        FleetUtilization u = compute(columns, dayStarts,
+            List.of(vehicle(8001L, Vehicle.Category.SUV), vehicle(8002L, Vehicle.Category.Bike)));
+        assertEquals(25 * HOUR, u.dayLength(1));
+        assertArrayEquals(new long[] {0L, 4 * HOUR, 0L}, u.bookedByVehicle(0));
+        assertArrayEquals(new long[] {12 * HOUR, 25 * HOUR, 12 * HOUR}, u.bookedByVehicle(1));
+        assertEquals(4 * HOUR, u.booked(Vehicle.Category.SUV.ordinal(), 1));
+        assertEquals(25 * HOUR, u.booked(Vehicle.Category.Bike.ordinal(), 1));
+    }
+
+
+    /*
+     * Test cases 300: results do not depend on the number of partitions,
+     * vehicles without reservations have no booked times.
+     */
+    @Test @Order(300)
+    void test_300_partitions() {
+        long[] dayStarts = dayStarts("2023-03-25", 3);
+        ReservationColumns columns = columns(
+            row(1L, 8001L, "2023-03-25T22:00", "2023-03-26T04:00", BOOKED),
+            row(2L, 8003L, "2023-03-26T00:00", "2023-03-27T00:00", BOOKED));
+        List<Vehicle> vehicles = List.of(vehicle(8001L, Vehicle.Category.Van),
+            vehicle(8002L, Vehicle.Category.Van), vehicle(8003L, Vehicle.Category.Van));
+        for(int parallelism : new int[] {1, 2, 8}) {
+            FleetUtilization u = columns.scan(chunks ->
+                new FleetUtilization(dayStarts, vehicles, true, parallelism).compute(chunks, pool));
+            assertEquals(2 * HOUR, u.booked(Vehicle.Category.Van.ordinal(), 0), "parallelism: " + parallelism);
+            assertEquals(26 * HOUR, u.booked(Vehicle.Category.Van.ordinal(), 1), "parallelism: " + parallelism);
+            assertNull(u.bookedByVehicle(1), "parallelism: " + parallelism);
+        }
+    }
+
+
+    private static FleetUtilization compute(ReservationColumns columns, long[] dayStarts, List<Vehicle> vehicles) {
+        return columns.scan(chunks ->
+            new FleetUtilization(dayStarts, vehicles, true, pool.getParallelism()).compute(chunks, pool));
+    }
+
+
+    /**
+     * UTC msec of days + 1 local midnights in Europe/Berlin from first.
+     */
+    private static long[] dayStarts(String first, int days) {
+        long[] dayStarts = new long[days + 1];
+        for(int d=0; d <= days; d++) {
+            dayStarts[d] = LocalDate.parse(first).plusDays(d).atStartOfDay(BERLIN).toInstant().toEpochMilli();
+        }
+        return dayStarts;
+    }
+
+
+    private static long[] row(long id, long vehicleId, String begin, String end, int status) {
+        return new long[] {id, vehicleId, millis(begin), millis(end), status};
+    }
+
+
+    private static long millis(String localDateTime) {
+        return LocalDateTime.parse(localDateTime).atZone(BERLIN).toInstant().toEpochMilli();
+    }
+
+
+    private static ReservationColumns columns(long[]... rows) {
+        ReservationColumns columns = new ReservationColumns(null, new ChangeEvents());
+        int berlin = Locations.code("Berlin");
+        columns.load(sink -> {
+            for(long[] r : rows) {
+                sink.accept(r[0], 1L, r[1], r[2], r[3], berlin, berlin, (int)r[4]);
+            }
+        });
+        return columns;
+    }
+
+
+    private static Vehicle vehicle(long id, Vehicle.Category category) {
+        return dataFactory.createVehicle(id, "Make", "Model", 4, category.name(), "Electric", "Active").get();
+    }
+}
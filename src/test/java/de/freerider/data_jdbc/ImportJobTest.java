@@ -0,0 +1,302 @@
+package de.freerider.data_jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.freerider.datamodel.Customer;
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * JUnit 5 tests of CSV parsing, attribute validation, rejects and chunk
+ * fallback of ImportJob with a JdbcTemplate that keeps inserted ids of the
+ * CUSTOMER table in memory (no database).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ImportJobTest {
+
+    private static DataFactory dataFactory;
+
+    private static ExecutorService executor;
+
+    @TempDir
+    Path directory;
+
+
+    @BeforeAll
+    static void createDataFactory() {
+        try(var context = new AnnotationConfigApplicationContext("de.freerider.datamodel")) {
+            dataFactory = context.getBean(DataFactory.class);
+        }
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+
+    @AfterAll
+    static void shutdownExecutor() {
+        executor.shutdown();
+    }
+
+
+    /*
+     * Test cases 100: splitCsv() with quoted fields, escaped quotes and
+     * empty fields (RFC 4180 without line breaks in fields).
+     */
+    @Test @Order(100)
+    void test_100_split_csv() {
+        assertEquals(List.of("1", "Meyer", "Active"), ImportJob.splitCsv("1,Meyer,Active"));
+        assertEquals(List.of("1", "Meyer, Eric", "Active"), ImportJob.splitCsv("1,\"Meyer, Eric\",Active"));
+        assertEquals(List.of("say \"hi\"", ""), ImportJob.splitCsv("\"say \"\"hi\"\"\","));
+        assertEquals(List.of("", "", ""), ImportJob.splitCsv(",,"));
+        assertEquals(List.of(""), ImportJob.splitCsv(""));
+        assertEquals(List.of("\"", "1"), ImportJob.splitCsv("\"\"\"\",1"));
+        assertThrows(IllegalArgumentException.class, () -> ImportJob.splitCsv("1,\"Meyer, Eric"));
+    }
+
+
+    /*
+     * Test cases 200: ImportTable.create() with case-insensitive names and
+     * numeric coercion of ID, *_ID and SEATS from Numbers and Strings.
+     */
+    @Test @Order(200)
+    void test_200_create() {
+        Customer c = (Customer)ImportTable.Customers.create(
+            row("id", " 42 ", "Name", "Meyer, Eric", "CONTACT", "eme22@gmail.com", "status", "Active"),
+            dataFactory).get();
+        assertEquals(42L, c.getId());
+        assertEquals("Meyer, Eric", c.getName());
+        //
+        Vehicle v = (Vehicle)ImportTable.Vehicles.create(
+            row("ID", 8001, "MAKE", "VW", "MODEL", "ID.4", "SEATS", "5",
+                "CATEGORY", "SUV", "POWER", "Electric", "STATUS", "Active", "COLOR", "blue"),
+            dataFactory).get();
+        assertEquals(8001L, v.getId());
+        assertEquals(5, v.getSeats());
+        // not numeric, missing, not a String, invalid enum value
+        assertTrue(ImportTable.Customers.create(
+            row("ID", "4x", "NAME", "Meyer", "CONTACT", "eme22@gmail.com", "STATUS", "Active"), dataFactory).isEmpty());
+        assertTrue(ImportTable.Customers.create(
+            row("ID", 1, "NAME", "Meyer", "STATUS", "Active"), dataFactory).isEmpty());
+        assertTrue(ImportTable.Customers.create(
+            row("ID", 1, "NAME", 7, "CONTACT", "eme22@gmail.com", "STATUS", "Active"), dataFactory).isEmpty());
+        assertTrue(ImportTable.Customers.create(
+            row("ID", 1, "NAME", "Meyer", "CONTACT", "eme22@gmail.com", "STATUS", "Unknown"), dataFactory).isEmpty());
+    }
+
+
+    /*
+     * Test cases 300: CSV source with byte order mark, rows with wrong
+     * field counts, unterminated quotes and invalid attributes are written
+     * to the reject file with line number and reason.
+     */
+    @Test @Order(300)
+    void test_300_csv_rejects() throws IOException {
+        Table table = new Table();
+        ImportJob job = job(1L, ImportJob.Format.CSV, table, 100);
+        job.run(new StringReader(String.join("\n",
+            "\uFEFFid,name,contact,status",
+            "1,\"Meyer, Eric\",eme22@gmail.com,Active",
+            "2,Sommer,030 22458 29425",
+            "",
+            "3,\"Schulze, Tim,+49 171 2358124,Active",
+            "4,Bauer,bauer@mail.de,Unknown",
+            "5,\"Lang \"\"Joe\"\"\",joe@mail.de,Active")), executor);
+        ImportStatus status = job.status();
+        assertEquals(ImportStatus.State.Completed, status.state());
+        assertNull(status.error());
+        assertEquals(5L, status.rowsRead());
+        assertEquals(2L, status.rowsInserted());
+        assertEquals(3L, status.rowsRejected());
+        assertEquals(List.of(1L, 5L), table.ids());
+        assertEquals(job.rejectPath().toString(), status.rejectFile());
+        assertEquals(List.of(
+            "#line\treason\trecord",
+            "3\tunparsable: 3 fields, expected: 4\t2,Sommer,030 22458 29425",
+            "5\tunparsable: unterminated quote\t3,\"Schulze, Tim,+49 171 2358124,Active",
+            "6\tinvalid or incomplete attributes\t4,Bauer,bauer@mail.de,Unknown"),
+            Files.readAllLines(job.rejectPath()));
+    }
+
+
+    /*
+     * Test cases 310: NDJSON source without rejects, numbers and numeric
+     * Strings are accepted as ids, no reject file is written.
+     */
+    @Test @Order(310)
+    void test_310_ndjson() {
+        Table table = new Table();
+        ImportJob job = job(2L, ImportJob.Format.NDJSON, table, 100);
+        job.run(new StringReader(String.join("\n",
+            "{\"id\": 1, \"name\": \"Meyer\", \"contact\": \"eme22@gmail.com\", \"status\": \"Active\"}",
+            "{\"ID\": \"2\", \"NAME\": \"Sommer\", \"CONTACT\": \"030 22458 29425\", \"STATUS\": \"Active\"}")), executor);
+        ImportStatus status = job.status();
+        assertEquals(ImportStatus.State.Completed, status.state());
+        assertEquals(2L, status.rowsInserted());
+        assertEquals(0L, status.rowsRejected());
+        assertNull(status.rejectFile());
+        assertFalse(Files.exists(job.rejectPath()));
+    }
+
+
+    /*
+     * Test cases 400: a chunk with a duplicate id fails as a whole and is
+     * inserted row by row, only the duplicate is rejected and ChangeEvents
+     * are published for inserted rows.
+     */
+    @Test @Order(400)
+    void test_400_chunk_fallback() throws IOException {
+        Table table = new Table();
+        table.ids.add(5L);
+        List<Long> published = new ArrayList<Long>();
+        ImportJob job = job(3L, ImportJob.Format.CSV, table, 3, published);
+        StringBuilder csv = new StringBuilder("id,name,contact,status\n");
+        for(int id=1; id <= 7; id++) {
+            csv.append(String.format("%d,Name %d,c%d@mail.de,Active\n", id, id, id));
+        }
+        job.run(new StringReader(csv.toString()), executor);
+        ImportStatus status = job.status();
+        assertEquals(ImportStatus.State.Completed, status.state());
+        assertEquals(7L, status.rowsRead());
+        assertEquals(6L, status.rowsInserted());
+        assertEquals(1L, status.rowsRejected());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), table.ids());
+        // chunks [1, 2, 3] and [7] in one batch each, [4, 5, 6] row by row
+        assertEquals(3, table.batches);
+        assertEquals(3, table.updates);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 6L, 7L), published);
+        List<String> rejects = Files.readAllLines(job.rejectPath());
+        assertEquals(2, rejects.size());
+        assertEquals("6\tINSERT failed: Duplicate entry '5' for key 'PRIMARY'\t5,Name 5,c5@mail.de,Active", rejects.get(1));
+    }
+
+
+    private ImportJob job(long id, ImportJob.Format format, Table table, int chunkSize) {
+        return job(id, format, table, chunkSize, new ArrayList<Long>());
+    }
+
+
+    private ImportJob job(long id, ImportJob.Format format, Table table, int chunkSize, List<Long> published) {
+        ChangeEvents changeEvents = new ChangeEvents();
+        changeEvents.subscribe(Customer.class, event -> published.add(event.id()));
+        return new ImportJob(id, ImportTable.Customers, format, "test", directory.resolve("import-" + id + ".rejects"),
+            chunkSize, 2, dataFactory, table, new Transactions(), changeEvents, new ObjectMapper(), null);
+    }
+
+
+    private static Map<String, Object> row(Object... nameValues) {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        for(int i=0; i < nameValues.length; i += 2) {
+            map.put((String)nameValues[i], nameValues[i + 1]);
+        }
+        return map;
+    }
+
+
+    /**
+     * JdbcTemplate with the ids of inserted rows, a batch with a duplicate
+     * id fails without inserting any row.
+     */
+    private static class Table extends JdbcTemplate {
+        private final TreeSet<Long> ids = new TreeSet<Long>();
+        private int batches = 0;
+        private int updates = 0;
+
+        @Override
+        public synchronized <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                ParameterizedPreparedStatementSetter<T> pss) {
+            batches++;
+            List<Long> batch = new ArrayList<Long>();
+            for(T arg : batchArgs) {
+                long id = idOf(ps -> pss.setValues(ps, arg));
+                if(ids.contains(id) || batch.contains(id))
+                    throw duplicate(id);
+                batch.add(id);
+            }
+            ids.addAll(batch);
+            return new int[][] {new int[batch.size()]};
+        }
+
+        @Override
+        public synchronized int update(String sql, PreparedStatementSetter pss) {
+            updates++;
+            long id = idOf(pss);
+            if( ! ids.add(id))
+                throw duplicate(id);
+            return 1;
+        }
+
+        synchronized List<Long> ids() {
+            return new ArrayList<Long>(ids);
+        }
+
+        private static long idOf(PreparedStatementSetter pss) {
+            long[] id = new long[1];
+            try {
+                pss.setValues((PreparedStatement)Proxy.newProxyInstance(ImportJobTest.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, (p, method, args) -> {
+                        if(method.getName().equals("setLong") && (Integer)args[0] == 1) {
+                            id[0] = (Long)args[1];
+                        }
+                        return null;
+                    }));
+            } catch(SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+            return id[0];
+        }
+
+        private static DuplicateKeyException duplicate(long id) {
+            return new DuplicateKeyException(String.format("Duplicate entry '%d' for key 'PRIMARY'", id));
+        }
+    }
+
+
+    /**
+     * TransactionTemplate without transaction manager, runs callbacks directly.
+     */
+    private static class Transactions extends TransactionTemplate {
+        @Override
+        public <T> T execute(TransactionCallback<T> action) throws TransactionException {
+            return action.doInTransaction(new SimpleTransactionStatus());
+        }
+    }
+}
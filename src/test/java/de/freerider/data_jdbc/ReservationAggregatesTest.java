@@ -0,0 +1,138 @@
+package de.freerider.data_jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.NavigableMap;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * JUnit 5 tests of ReservationAggregates moving counts between buckets of
+ * (day, status, category) on ChangeEvents. Counts are loaded from an empty
+ * table (no database), vehicles from rows.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReservationAggregatesTest {
+
+    private static final LocalDate DAY = LocalDate.parse("2023-06-10");
+
+    private static final int INQUIRED_VAN = ReservationAggregates.index(Reservation.Status.Inquired, Vehicle.Category.Van);
+
+    private static final int BOOKED_VAN = ReservationAggregates.index(Reservation.Status.Booked, Vehicle.Category.Van);
+
+    private static final int BOOKED_BIKE = ReservationAggregates.index(Reservation.Status.Booked, Vehicle.Category.Bike);
+
+    private static DataFactory dataFactory;
+
+
+    @BeforeAll
+    static void createDataFactory() {
+        try(var context = new AnnotationConfigApplicationContext("de.freerider.datamodel")) {
+            dataFactory = context.getBean(DataFactory.class);
+        }
+    }
+
+
+    /*
+     * Test cases 100: Create adds to the bucket of the after image, Update
+     * moves the count from Inquired to Booked, Delete removes it.
+     */
+    @Test @Order(100)
+    void test_100_create_update_delete() {
+        ReservationAggregates aggregates = emptyAggregates();
+        assertTrue(aggregates.counts(DAY, DAY.plusDays(1)).isEmpty());
+        //
+        Reservation inquired = reservation(1L, 8001L, "2023-06-10 10:00:00", "Inquired");
+        aggregates.apply(ChangeEvent.created(Reservation.class, 1L, inquired));
+        long[] counts = counts(aggregates, DAY);
+        assertEquals(1L, counts[INQUIRED_VAN]);
+        assertEquals(0L, counts[BOOKED_VAN]);
+        assertEquals(1L, total(counts));
+        //
+        Reservation booked = reservation(1L, 8001L, "2023-06-10 10:00:00", "Booked");
+        aggregates.apply(ChangeEvent.updated(Reservation.class, 1L, inquired, booked));
+        counts = counts(aggregates, DAY);
+        assertEquals(0L, counts[INQUIRED_VAN]);
+        assertEquals(1L, counts[BOOKED_VAN]);
+        assertEquals(1L, total(counts));
+        //
+        aggregates.apply(ChangeEvent.deleted(Reservation.class, 1L, booked));
+        assertTrue(aggregates.counts(DAY, DAY.plusDays(1)).isEmpty());
+    }
+
+
+    /*
+     * Test cases 200: Update of begin and vehicle moves the count to another
+     * day and category, reservations of unknown vehicles are not counted.
+     */
+    @Test @Order(200)
+    void test_200_move_day_and_category() {
+        ReservationAggregates aggregates = emptyAggregates();
+        assertTrue(aggregates.counts(DAY, DAY.plusDays(2)).isEmpty());
+        Reservation r = reservation(1L, 8001L, "2023-06-10 23:00:00", "Booked");
+        aggregates.apply(ChangeEvent.created(Reservation.class, 1L, r));
+        aggregates.apply(ChangeEvent.created(Reservation.class, 2L,
+            reservation(2L, 9999L, "2023-06-10 12:00:00", "Booked")));
+        assertEquals(1L, total(counts(aggregates, DAY)));
+        //
+        Reservation moved = reservation(1L, 8002L, "2023-06-11 01:00:00", "Booked");
+        aggregates.apply(ChangeEvent.updated(Reservation.class, 1L, r, moved));
+        NavigableMap<LocalDate, long[]> days = aggregates.counts(DAY, DAY.plusDays(2));
+        assertEquals(1, days.size());
+        long[] counts = days.get(DAY.plusDays(1));
+        assertEquals(0L, counts[BOOKED_VAN]);
+        assertEquals(1L, counts[BOOKED_BIKE]);
+        assertEquals(1L, total(counts));
+        // [from, to) excludes to
+        assertTrue(aggregates.counts(DAY, DAY.plusDays(1)).isEmpty());
+    }
+
+
+    private static ReservationAggregates emptyAggregates() {
+        JdbcTemplate empty = new JdbcTemplate() {
+            @Override
+            public void query(String sql, RowCallbackHandler rch) { }
+        };
+        ChangeEvents changeEvents = new ChangeEvents();
+        VehicleCatalog catalog = new VehicleCatalog(null, dataFactory, changeEvents);
+        catalog.load(rows -> {
+            dataFactory.createVehicle(8001L, "Make", "Model", 8, "Van", "Diesel", "Active").ifPresent(rows);
+            dataFactory.createVehicle(8002L, "Make", "Model", 1, "Bike", "Electric", "Active").ifPresent(rows);
+        });
+        return new ReservationAggregates(empty, catalog, changeEvents);
+    }
+
+
+    private static Reservation reservation(long id, long vehicleId, String begin, String status) {
+        return dataFactory.createReservation(id, 1L, vehicleId, begin, begin.substring(0, 11) + "23:59:00",
+            "Berlin", "Berlin", status).get();
+    }
+
+
+    private static long[] counts(ReservationAggregates aggregates, LocalDate day) {
+        return aggregates.counts(day, day.plusDays(1)).get(day);
+    }
+
+
+    private static long total(long[] counts) {
+        long total = 0;
+        for(long c : counts) {
+            total += c;
+        }
+        return total;
+    }
+}
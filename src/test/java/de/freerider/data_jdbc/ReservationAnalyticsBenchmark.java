@@ -0,0 +1,121 @@
+package de.freerider.data_jdbc;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.DateTimeCodec;
+import de.freerider.datamodel.Locations;
+import de.freerider.datamodel.Reservation;
+
+
+/**
+ * Benchmark harness of GET /analytics/reservations: aggregates computed by
+ * ReservationAnalytics from the off-heap ReservationColumns compared to the
+ * same aggregates computed from Reservation objects as returned by
+ * findAllReservations(), both from generated data (no database). Reports
+ * scan times and time spent in garbage collection.
+ *
+ * Not a JUnit test (not run by surefire). Run with:
+ * <pre>
+ *  mvn test-compile
+ *  java -Xmx6g -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath \
+ *      -Dmdep.outputFile=/dev/stdout)" de.freerider.data_jdbc.ReservationAnalyticsBenchmark
+ * </pre>
+ * Size can be changed with -Dreservations=10000000.
+ */
+class ReservationAnalyticsBenchmark {
+
+    static final int RESERVATIONS = Integer.getInteger("reservations", 10_000_000);
+    static final int LOCATIONS = 200;
+    static final int ROUNDS = 5;
+
+    static final long HOUR = 3_600_000L;
+    static final long START = DateTimeCodec.parse("2023-01-01 00:00:00");
+    static final long SPAN = 2 * 365 * 24 * HOUR;
+
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        DataFactory dataFactory;
+        try(var context = new AnnotationConfigApplicationContext("de.freerider.datamodel")) {
+            dataFactory = context.getBean(DataFactory.class);
+        }
+        var columns = new ReservationColumns(null, new ChangeEvents());
+        var analytics = new ReservationAnalytics();
+        var field = ReservationAnalytics.class.getDeclaredField("columns");
+        field.setAccessible(true);
+        field.set(analytics, columns);
+        //
+        Random random = new Random(42);
+        String[] statuses = Arrays.stream(Reservation.Status.values()).map(Enum::name).toArray(String[]::new);
+        List<Reservation> objects = new ArrayList<Reservation>(RESERVATIONS);
+        long t0 = System.nanoTime();
+        columns.load(rows -> {
+            for(int i=0; i < RESERVATIONS; i++) {
+                long begin = START + (long)(random.nextDouble() * SPAN);
+                long end = begin + (1 + random.nextInt(72)) * HOUR;
+                String pickup = Locations.intern("Location " + random.nextInt(LOCATIONS));   // as read from the database
+                String status = statuses[random.nextInt(statuses.length)];
+                dataFactory.createReservation(i, 1 + random.nextInt(100_000), 8000 + random.nextInt(50_000),
+                    begin, end, pickup, pickup, status).ifPresent(r -> {
+                        objects.add(r);
+                        rows.accept(r.getId(), r.getCustomerId(), r.getVehicleId(), r.getBegin(), r.getEnd(),
+                            r.pickupCode(), r.dropoffCode(), r.getStatus().ordinal());
+                    });
+            }
+        });
+        System.out.println(String.format("%,d reservations generated in %d ms, columns: %s",
+            RESERVATIONS, (System.nanoTime() - t0) / 1_000_000L, columns.metrics()));
+        System.out.println("-".repeat(80));
+        //
+        long from = START, to = START + SPAN / 2;
+        for(int round=0; round < ROUNDS; round++) {
+            long gc0 = gcMillis();
+            t0 = System.nanoTime();
+            ReservationStats stats = analytics.reservationStats(from, to);
+            long columnsMillis = (System.nanoTime() - t0) / 1_000_000L;
+            long columnsGc = gcMillis() - gc0;
+            //
+            // same aggregates from objects, as with findAllReservations()
+            gc0 = gcMillis();
+            t0 = System.nanoTime();
+            long n = 0;
+            Map<Reservation.Status, Long> byStatus = new HashMap<Reservation.Status, Long>();
+            long[] byHour = new long[24];
+            Map<String, Long> byPickup = new HashMap<String, Long>();
+            for(Reservation r : objects) {
+                if(r.getBegin() < from || r.getBegin() >= to)
+                    continue;
+                n++;
+                byStatus.merge(r.getStatus(), 1L, Long::sum);
+                byHour[(int)(Math.floorMod(DateTimeCodec.localSeconds(r.getBegin()), 86_400L) / 3600)]++;
+                byPickup.merge(r.getPickup(), 1L, Long::sum);
+            }
+            long objectsMillis = (System.nanoTime() - t0) / 1_000_000L;
+            long objectsGc = gcMillis() - gc0;
+            //
+            if(n != stats.reservations() || ! Arrays.equals(byHour, stats.byHour()))
+                throw new IllegalStateException("aggregates differ");
+            System.out.println(String.format("round %d: %,d matching, columns: %4d ms (gc %3d ms)  objects: %4d ms (gc %3d ms)",
+                round, n, columnsMillis, columnsGc, objectsMillis, objectsGc));
+        }
+        System.out.println(String.format("locations: %d", Locations.size()));
+    }
+
+
+    static long gcMillis() {
+        long ms = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ms += Math.max(0, gc.getCollectionTime());
+        }
+        return ms;
+    }
+}
@@ -0,0 +1,93 @@
+package de.freerider.data_jdbc;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+/**
+ * Benchmark harness comparing single-row INSERTs (one statement and commit
+ * per Reservation, as POST /reservations) with JDBC batch INSERTs in chunks
+ * (as POST /reservations/batch) against a live database.
+ *
+ * Not a JUnit test (not run by surefire). Run with:
+ * <pre>
+ *  mvn test-compile
+ *  java -Djdbc.url="jdbc:mysql://localhost:3306/FREERIDER_DB?rewriteBatchedStatements=true" \
+ *      -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath \
+ *      -Dmdep.outputFile=/dev/stdout)" de.freerider.data_jdbc.ReservationBatchInsertBenchmark
+ * </pre>
+ * Rows are inserted with ids from 1,000,000,000 upward and deleted after
+ * each round. Requires one CUSTOMER and one VEHICLE row (-Dcustomer, -Dvehicle,
+ * default: 1).
+ */
+class ReservationBatchInsertBenchmark {
+
+    static final int ROWS = Integer.getInteger("rows", 10_000);
+    static final int CHUNK = Integer.getInteger("chunk", 500);
+    static final long ID_BASE = 1_000_000_000L;
+
+    static final String INSERT_SQL =
+        "INSERT INTO RESERVATION (ID, CUSTOMER_ID, VEHICLE_ID, BEGIN, END, PICKUP, DROPOFF, STATUS) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+
+    public static void main(String[] args) {
+        String url = System.getProperty("jdbc.url");
+        if(url == null) {
+            System.out.println("set -Djdbc.url=jdbc:mysql://...?rewriteBatchedStatements=true to run benchmark");
+            return;
+        }
+        var ds = new SingleConnectionDataSource(url,
+            System.getProperty("jdbc.user", "freerider"),
+            System.getProperty("jdbc.password", "free.ride"), true);
+        var jdbc = new JdbcTemplate(ds);
+        var tx = new TransactionTemplate(new DataSourceTransactionManager(ds));
+        long customer = Long.getLong("customer", 1L);
+        long vehicle = Long.getLong("vehicle", 1L);
+        //
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        long begin = System.currentTimeMillis();
+        for(int i=0; i < ROWS; i++) {
+            rows.add(new Object[] { ID_BASE + i, customer, vehicle,
+                new Timestamp(begin + i * 3_600_000L), new Timestamp(begin + i * 3_600_000L + 1_800_000L),
+                "Berlin", "Hamburg", "Booked" });
+        }
+        System.out.println(String.format("%s, %,d rows, chunk: %d", url, ROWS, CHUNK));
+        System.out.println("-".repeat(80));
+        //
+        for(int round=0; round < 2; round++) {     // round 0 is warm-up
+            cleanup(jdbc);
+            long t0 = System.nanoTime();
+            for(Object[] row : rows) {
+                jdbc.update(INSERT_SQL, row);
+            }
+            long singleNanos = System.nanoTime() - t0;
+            cleanup(jdbc);
+            t0 = System.nanoTime();
+            for(int from=0; from < rows.size(); from += CHUNK) {
+                List<Object[]> part = rows.subList(from, Math.min(rows.size(), from + CHUNK));
+                tx.executeWithoutResult(status -> jdbc.batchUpdate(INSERT_SQL, part));
+            }
+            long batchNanos = System.nanoTime() - t0;
+            cleanup(jdbc);
+            if(round > 0) {
+                double single = ROWS / (singleNanos / 1e9);
+                double batch = ROWS / (batchNanos / 1e9);
+                System.out.println(String.format("single INSERT: %,12.0f rows/sec", single));
+                System.out.println(String.format("batch INSERT:  %,12.0f rows/sec  (%.1fx)", batch, batch / single));
+            }
+        }
+        ds.destroy();
+    }
+
+
+    static void cleanup(JdbcTemplate jdbc) {
+        jdbc.update("DELETE FROM RESERVATION WHERE ID >= ?", ID_BASE);
+    }
+}
@@ -0,0 +1,150 @@
+package de.freerider.data_jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+
+/**
+ * JUnit 5 tests of ReservationIntervals with many threads booking the same
+ * vehicle. The index is loaded from an empty table (no database).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReservationIntervalsTest {
+
+    private static final long VEHICLE = 8001L;
+
+    private static final int THREADS = 16;
+
+    private static final int CLAIMS_PER_THREAD = 2000;
+
+
+    /*
+     * Test cases 100: overlap rules of half-open intervals [begin, end).
+     */
+    @Test @Order(100)
+    void test_100_overlap() throws DataAccessException {
+        ReservationIntervals index = emptyIndex();
+        index.claim(1L, VEHICLE, 100L, 200L);
+        assertEquals(1L, index.findOverlap(VEHICLE, 150L, 160L));
+        assertEquals(1L, index.findOverlap(VEHICLE, 50L, 101L));
+        assertEquals(1L, index.findOverlap(VEHICLE, 199L, 300L));
+        assertEquals(-1L, index.findOverlap(VEHICLE, 200L, 300L));
+        assertEquals(-1L, index.findOverlap(VEHICLE, 0L, 100L));
+        assertEquals(-1L, index.findOverlap(VEHICLE + 1, 100L, 200L));
+        //
+        index.claim(2L, VEHICLE, 200L, 300L);
+        assertConflict(() -> index.claim(3L, VEHICLE, 150L, 250L));
+        assertConflict(() -> index.claim(1L, VEHICLE + 1, 0L, 10L));
+        //
+        // moving reservation 1 excludes its own interval, restore undoes the move
+        ReservationIntervals.Interval previous = index.claimUpdate(1L, VEHICLE, 50L, 150L);
+        assertEquals(1L, index.findOverlap(VEHICLE, 60L, 70L));
+        index.restore(1L, previous);
+        assertEquals(-1L, index.findOverlap(VEHICLE, 60L, 70L));
+        assertEquals(1L, index.findOverlap(VEHICLE, 150L, 160L));
+        //
+        index.restore(2L, null);
+        assertEquals(-1L, index.findOverlap(VEHICLE, 200L, 300L));
+    }
+
+
+    /*
+     * Test cases 200: concurrent claims on the same vehicle, accepted
+     * intervals never overlap and each rejected interval overlaps an
+     * accepted one.
+     */
+    @Test @Order(200)
+    void test_200_concurrent_claims() throws InterruptedException {
+        ReservationIntervals index = emptyIndex();
+        ConcurrentLinkedQueue<ReservationIntervals.Interval> accepted = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<ReservationIntervals.Interval> rejected = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for(int t=0; t < THREADS; t++) {
+            final int thread = t;
+            executor.execute(() -> {
+                Random random = new Random(thread);
+                try {
+                    start.await();
+                    for(int i=0; i < CLAIMS_PER_THREAD; i++) {
+                        long id = (long)thread * CLAIMS_PER_THREAD + i;
+                        long begin = random.nextInt(1_000_000);
+                        long end = begin + 1 + random.nextInt(500);
+                        ReservationIntervals.Interval iv = new ReservationIntervals.Interval(id, VEHICLE, begin, end);
+                        try {
+                            index.claim(id, VEHICLE, begin, end);
+                            accepted.add(iv);
+                        } catch(DataAccessException dax) {
+                            assertEquals(DataAccessException.Code.Conflict, dax.code);
+                            rejected.add(iv);
+                        }
+                    }
+                } catch(InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        assertEquals(THREADS * CLAIMS_PER_THREAD, accepted.size() + rejected.size());
+        assertNotEquals(0, rejected.size());
+        //
+        List<ReservationIntervals.Interval> sorted = new ArrayList<>(accepted);
+        sorted.sort((a, b) -> Long.compare(a.begin(), b.begin()));
+        for(int i=1; i < sorted.size(); i++) {
+            assertTrue(sorted.get(i - 1).end() <= sorted.get(i).begin(),
+                "accepted intervals overlap: " + sorted.get(i - 1) + ", " + sorted.get(i));
+        }
+        for(ReservationIntervals.Interval iv : rejected) {
+            assertTrue(sorted.stream().anyMatch(a -> a.begin() < iv.end() && iv.begin() < a.end()),
+                "rejected interval overlaps no accepted interval: " + iv);
+            assertNotEquals(-1L, index.findOverlap(VEHICLE, iv.begin(), iv.end()));
+        }
+    }
+
+
+    /**
+     * Return index loaded from an empty RESERVATION table.
+     */
+    private static ReservationIntervals emptyIndex() {
+        JdbcTemplate empty = new JdbcTemplate() {
+            @Override
+            public void query(PreparedStatementCreator psc, RowCallbackHandler rch) { }
+        };
+        return new ReservationIntervals(empty, new ChangeEvents());
+    }
+
+
+    private static void assertConflict(Claim claim) {
+        try {
+            claim.run();
+            throw new AssertionError("expected conflict");
+        } catch(DataAccessException dax) {
+            assertEquals(DataAccessException.Code.Conflict, dax.code);
+        }
+    }
+
+
+    private interface Claim {
+        void run() throws DataAccessException;
+    }
+}
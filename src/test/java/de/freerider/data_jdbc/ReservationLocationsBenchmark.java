@@ -0,0 +1,123 @@
+package de.freerider.data_jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.DateTimeCodec;
+import de.freerider.datamodel.Locations;
+import de.freerider.datamodel.Reservation;
+
+
+/**
+ * Benchmark harness of the Locations dictionary and the pickup location
+ * index behind GET /reservations/pickups: heap used by Reservations created
+ * from per-row location Strings (as read by JDBC), then queries of
+ * ReservationLocations loaded from generated data (no database) while
+ * reservations are moved between locations.
+ *
+ * Not a JUnit test (not run by surefire). Run with:
+ * <pre>
+ *  mvn test-compile
+ *  java -Xmx4g -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath \
+ *      -Dmdep.outputFile=/dev/stdout)" de.freerider.data_jdbc.ReservationLocationsBenchmark
+ * </pre>
+ * Sizes can be changed with -Dlocations=200 -Dreservations=10000000.
+ */
+class ReservationLocationsBenchmark {
+
+    static final int LOCATIONS = Integer.getInteger("locations", 200);
+    static final int RESERVATIONS = Integer.getInteger("reservations", 10_000_000);
+    static final int OBJECTS = 1_000_000;
+    static final int QUERIES = 20_000;
+
+    static final long HOUR = 3_600_000L;
+    static final long START = DateTimeCodec.parse("2023-01-01 00:00:00");
+    static final long SPAN = 2 * 365 * 24 * HOUR;
+
+
+    public static void main(String[] args) {
+        DataFactory dataFactory;
+        try(var context = new AnnotationConfigApplicationContext("de.freerider.datamodel")) {
+            dataFactory = context.getBean(DataFactory.class);
+        }
+        Random random = new Random(42);
+        //
+        // heap of Reservations with new location Strings per row, interned
+        // as by the row mappers
+        long heap0 = usedHeap();
+        List<Reservation> objects = new ArrayList<Reservation>(OBJECTS);
+        for(int i=0; i < OBJECTS; i++) {
+            long begin = START + (long)(random.nextDouble() * SPAN);
+            dataFactory.createReservation(i, 1, 8000 + i % 1000, begin, begin + 24 * HOUR,
+                Locations.intern(new String(location(random.nextInt(LOCATIONS)).toCharArray())),
+                Locations.intern(new String(location(random.nextInt(LOCATIONS)).toCharArray())), "Booked")
+            .ifPresent(objects::add);
+        }
+        long heap1 = usedHeap();
+        System.out.println(String.format("%,d Reservations: %,d bytes heap, %d bytes per Reservation (list included)",
+            objects.size(), heap1 - heap0, (heap1 - heap0) / objects.size()));
+        objects = null;
+        //
+        // pickups spread over locations and two years
+        var index = new ReservationLocations(null, new ChangeEvents());
+        long t0 = System.nanoTime();
+        index.load(rows -> {
+            for(int i=0; i < RESERVATIONS; i++) {
+                rows.accept(new ReservationLocations.Pickup(i, Locations.code(
+                    location(random.nextInt(LOCATIONS))), START + (long)(random.nextDouble() * SPAN)));
+            }
+        });
+        System.out.println(String.format("index: %,d reservations at %d locations loaded in %d ms",
+            RESERVATIONS, LOCATIONS, (System.nanoTime() - t0) / 1_000_000L));
+        System.out.println("-".repeat(80));
+        //
+        long[] windows = {HOUR, 24 * HOUR, 7 * 24 * HOUR};
+        for(long window : windows) {
+            for(int round=0; round < 2; round++) {     // round 0 is warm-up
+                long[] nanos = new long[QUERIES];
+                long found = 0;
+                for(int q=0; q < QUERIES; q++) {
+                    // every 4th query follows a write moving a reservation
+                    if(q % 4 == 0) {
+                        long id = random.nextInt(RESERVATIONS);
+                        long begin = START + (long)(random.nextDouble() * SPAN);
+                        dataFactory.createReservation(id, 1, 8000, begin, begin + HOUR,
+                            location(random.nextInt(LOCATIONS)), "Berlin", "Booked")
+                        .ifPresent(r -> index.apply(ChangeEvent.updated(Reservation.class, id, null, r)));
+                    }
+                    String location = location(random.nextInt(LOCATIONS));
+                    long from = START + (long)(random.nextDouble() * (SPAN - window));
+                    long q0 = System.nanoTime();
+                    found += index.find(location, from, from + window, -1L, -1L, 100).size();
+                    nanos[q] = System.nanoTime() - q0;
+                }
+                if(round > 0) {
+                    Arrays.sort(nanos);
+                    System.out.println(String.format("window: %4d h, limit 100  p50: %6.1f us  p99: %6.1f us  max: %8.1f us  avg found: %d",
+                        window / HOUR, nanos[QUERIES / 2] / 1e3, nanos[QUERIES * 99 / 100] / 1e3,
+                        nanos[QUERIES - 1] / 1e3, found / QUERIES));
+                }
+            }
+        }
+        System.out.println(index.metrics());
+    }
+
+
+    static String location(int i) {
+        return "Location " + i;
+    }
+
+
+    static long usedHeap() {
+        for(int i=0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,149 @@
+package de.freerider.data_jdbc;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.DateTimeCodec;
+import de.freerider.datamodel.Locations;
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * Benchmark harness of GET /analytics/utilization: utilization of one year
+ * computed by ReservationAnalytics with fork/join pools of 1, 2, 4 ... up to
+ * the number of cores (or -Dthreads=1,2,4,8), from VehicleCatalog and
+ * ReservationColumns loaded with generated data (no database). The booked
+ * hours of the fleet are checked against a sequential sum of clipped
+ * reservations.
+ *
+ * Not a JUnit test (not run by surefire). Run with:
+ * <pre>
+ *  mvn test-compile
+ *  java -Xmx4g -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath \
+ *      -Dmdep.outputFile=/dev/stdout)" de.freerider.data_jdbc.UtilizationBenchmark
+ * </pre>
+ * Sizes can be changed with -Dvehicles=50000 -Dreservations=10000000.
+ */
+class UtilizationBenchmark {
+
+    static final int VEHICLES = Integer.getInteger("vehicles", 50_000);
+    static final int RESERVATIONS = Integer.getInteger("reservations", 10_000_000);
+    static final int ROUNDS = 5;
+
+    static final long HOUR = 3_600_000L;
+    static final long START = DateTimeCodec.parse("2023-01-01 00:00:00");
+
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        DataFactory dataFactory;
+        try(var context = new AnnotationConfigApplicationContext("de.freerider.datamodel")) {
+            dataFactory = context.getBean(DataFactory.class);
+        }
+        Random random = new Random(42);
+        var changeEvents = new ChangeEvents();
+        var catalog = new VehicleCatalog(null, dataFactory, changeEvents);
+        catalog.load(rows -> {
+            var categories = Vehicle.Category.values();
+            for(int i=0; i < VEHICLES; i++) {
+                dataFactory.createVehicle(8000L + i, "Make", "Model", 4,
+                    categories[random.nextInt(categories.length)].name(), "Electric", "Active")
+                .ifPresent(rows);
+            }
+        });
+        //
+        // non-overlapping reservations per vehicle: 1..72 hours, gaps of 0..48 hours
+        var columns = new ReservationColumns(null, changeEvents);
+        int perVehicle = RESERVATIONS / VEHICLES;
+        int pickup = Locations.code("Berlin");
+        long t0 = System.nanoTime();
+        columns.load(rows -> {
+            long id = 1L;
+            for(int v=0; v < VEHICLES; v++) {
+                long t = START;
+                for(int i=0; i < perVehicle; i++) {
+                    t += random.nextInt(49) * HOUR;
+                    long end = t + (1 + random.nextInt(72)) * HOUR;
+                    rows.accept(id++, 1L, 8000L + v, t, end, pickup, pickup, random.nextInt(4));
+                    t = end;
+                }
+            }
+        });
+        System.out.println(String.format("%,d vehicles, %,d reservations loaded in %d ms",
+            VEHICLES, (long)perVehicle * VEHICLES, (System.nanoTime() - t0) / 1_000_000L));
+        //
+        var analytics = new ReservationAnalytics();
+        set(analytics, "columns", columns);
+        set(analytics, "catalog", catalog);
+        LocalDate from = LocalDate.of(2023, 1, 1), to = LocalDate.of(2024, 1, 1);
+        double expected = bookedHours(columns, DateTimeCodec.parse(from + " 00:00:00"),
+            DateTimeCodec.parse(to + " 00:00:00"));
+        System.out.println(String.format("utilization %s .. %s, %d cores", from, to,
+            Runtime.getRuntime().availableProcessors()));
+        System.out.println("-".repeat(80));
+        //
+        double base = 0;
+        for(int threads : threads()) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long[] millis = new long[ROUNDS];
+            UtilizationReport report = null;
+            for(int round=0; round < ROUNDS; round++) {
+                t0 = System.nanoTime();
+                report = analytics.utilization(from, to, null, false, pool);
+                millis[round] = (System.nanoTime() - t0) / 1_000_000L;
+            }
+            pool.shutdown();
+            double booked = Arrays.stream(report.fleet().bookedHours()).sum();
+            if(Math.abs(booked - expected) > 1e-6 * expected)
+                throw new IllegalStateException(String.format("booked hours: %f, expected: %f", booked, expected));
+            Arrays.sort(millis);
+            double median = millis[ROUNDS / 2];
+            base = base == 0? median : base;
+            System.out.println(String.format("threads: %2d  median: %5.0f ms  min: %5d ms  speedup: %4.2f  fleet: %.3f",
+                threads, median, millis[0], base / median,
+                Arrays.stream(report.fleet().utilization()).average().orElse(0)));
+        }
+    }
+
+
+    /**
+     * Booked hours of held reservations clipped to [from, to), sequential.
+     */
+    static double bookedHours(ReservationColumns columns, long from, long to) {
+        return columns.scan(chunks -> {
+            long booked = 0;
+            for(var c : chunks) {
+                for(int r=0; r < ReservationColumns.CHUNK_ROWS; r++) {
+                    byte s = c.status(r);
+                    if(s == ReservationColumns.FREE || ! ReservationIntervals.holdsVehicle(Reservation.Status.values()[s]))
+                        continue;
+                    booked += Math.max(0, Math.min(c.end(r), to) - Math.max(c.begin(r), from));
+                }
+            }
+            return booked / (double)HOUR;
+        });
+    }
+
+
+    static int[] threads() {
+        String list = System.getProperty("threads");
+        if(list != null)
+            return Arrays.stream(list.split(",")).mapToInt(Integer::parseInt).toArray();
+        int cores = Runtime.getRuntime().availableProcessors();
+        return IntStream.iterate(1, n -> n <= Math.max(cores, 1), n -> n * 2).toArray();
+    }
+
+
+    static void set(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,116 @@
+package de.freerider.data_jdbc;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.DateTimeCodec;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * Benchmark harness of the availability search behind
+ * GET /vehicles/available: VehicleCatalog filters attributes, each match
+ * is tested against ReservationIntervals, both loaded in memory from
+ * generated data (no database).
+ *
+ * Not a JUnit test (not run by surefire). Run with:
+ * <pre>
+ *  mvn test-compile
+ *  java -Xmx4g -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath \
+ *      -Dmdep.outputFile=/dev/stdout)" de.freerider.data_jdbc.VehicleAvailabilityBenchmark
+ * </pre>
+ * Sizes can be changed with -Dvehicles=50000 -Dreservations=10000000.
+ */
+class VehicleAvailabilityBenchmark {
+
+    static final int VEHICLES = Integer.getInteger("vehicles", 50_000);
+    static final int RESERVATIONS = Integer.getInteger("reservations", 10_000_000);
+    static final int QUERIES = 2_000;
+
+    static final long HOUR = 3_600_000L;
+    static final long START = DateTimeCodec.parse("2023-01-01 00:00:00");
+
+
+    public static void main(String[] args) {
+        DataFactory dataFactory;
+        try(var context = new AnnotationConfigApplicationContext("de.freerider.datamodel")) {
+            dataFactory = context.getBean(DataFactory.class);
+        }
+        Random random = new Random(42);
+        var changeEvents = new ChangeEvents();
+        //
+        // vehicles with random attributes, 90% Active
+        var catalog = new VehicleCatalog(null, dataFactory, changeEvents);
+        long t0 = System.nanoTime();
+        catalog.load(rows -> {
+            var categories = Vehicle.Category.values();
+            var powers = Vehicle.Power.values();
+            for(int i=0; i < VEHICLES; i++) {
+                dataFactory.createVehicle(8000L + i, "Make", "Model", 1 + random.nextInt(9),
+                    categories[random.nextInt(categories.length)].name(),
+                    powers[random.nextInt(powers.length)].name(),
+                    random.nextInt(10) == 0? "Serviced" : "Active")
+                .ifPresent(rows);
+            }
+        });
+        System.out.println(String.format("catalog: %,d vehicles loaded in %d ms",
+            VEHICLES, (System.nanoTime() - t0) / 1_000_000L));
+        //
+        // non-overlapping reservations per vehicle: 1..72 hours, gaps of 0..48 hours
+        var intervals = new ReservationIntervals(null, changeEvents);
+        int perVehicle = RESERVATIONS / VEHICLES;
+        long[] horizon = new long[1];
+        t0 = System.nanoTime();
+        intervals.load(rows -> {
+            long id = 1L;
+            for(int v=0; v < VEHICLES; v++) {
+                long t = START;
+                for(int i=0; i < perVehicle; i++) {
+                    t += random.nextInt(49) * HOUR;
+                    long end = t + (1 + random.nextInt(72)) * HOUR;
+                    rows.accept(new ReservationIntervals.Interval(id++, 8000L + v, t, end));
+                    t = end;
+                }
+                horizon[0] = Math.max(horizon[0], t);
+            }
+        });
+        System.out.println(String.format("intervals: %,d reservations loaded in %d ms, until %s",
+            (long)perVehicle * VEHICLES, (System.nanoTime() - t0) / 1_000_000L, DateTimeCodec.format(horizon[0])));
+        System.out.println("-".repeat(80));
+        //
+        List<VehicleCatalog.Filter> filters = List.of(
+            new VehicleCatalog.Filter(null, null, Vehicle.Status.Active, 0),
+            new VehicleCatalog.Filter(Vehicle.Category.SUV, null, Vehicle.Status.Active, 0),
+            new VehicleCatalog.Filter(Vehicle.Category.SUV, Vehicle.Power.Electric, Vehicle.Status.Active, 0),
+            new VehicleCatalog.Filter(Vehicle.Category.Van, Vehicle.Power.Diesel, Vehicle.Status.Active, 7)
+        );
+        for(var filter : filters) {
+            for(int round=0; round < 2; round++) {     // round 0 is warm-up
+                long[] nanos = new long[QUERIES];
+                long found = 0;
+                for(int q=0; q < QUERIES; q++) {
+                    long from = START + (long)(random.nextDouble() * (horizon[0] - START));
+                    long to = from + (1 + random.nextInt(7 * 24)) * HOUR;
+                    long q0 = System.nanoTime();
+                    found += catalog.find(filter, id -> intervals.findOverlap(id, from, to) < 0).size();
+                    nanos[q] = System.nanoTime() - q0;
+                }
+                if(round > 0) {
+                    Arrays.sort(nanos);
+                    System.out.println(String.format("%-48s p50: %6.2f ms  p99: %6.2f ms  max: %6.2f ms  avg found: %,d",
+                        label(filter), nanos[QUERIES / 2] / 1e6, nanos[QUERIES * 99 / 100] / 1e6,
+                        nanos[QUERIES - 1] / 1e6, found / QUERIES));
+                }
+            }
+        }
+    }
+
+
+    static String label(VehicleCatalog.Filter f) {
+        return String.format("category=%s, power=%s, seats>=%d", f.category(), f.power(), f.minSeats());
+    }
+}
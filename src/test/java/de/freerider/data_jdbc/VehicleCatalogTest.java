@@ -0,0 +1,195 @@
+package de.freerider.data_jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * JUnit 5 tests of VehicleCatalog bitmaps and filters, compared with
+ * filtering a list of the same Vehicles. The catalog is loaded from rows
+ * (no database).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class VehicleCatalogTest {
+
+    /**
+     * Number of Vehicles, spans three words of bitmaps.
+     */
+    private static final int VEHICLES = 150;
+
+    private static DataFactory dataFactory;
+
+
+    @BeforeAll
+    static void createDataFactory() {
+        try(var context = new AnnotationConfigApplicationContext("de.freerider.datamodel")) {
+            dataFactory = context.getBean(DataFactory.class);
+        }
+    }
+
+
+    /*
+     * Test cases 100: Bitmap set, clear, intersection and union across
+     * words of different lengths.
+     */
+    @Test @Order(100)
+    void test_100_bitmap() {
+        VehicleCatalog.Bitmap a = new VehicleCatalog.Bitmap();
+        for(int bit : new int[] {0, 63, 64, 130}) {
+            a.set(bit);
+        }
+        long[] bits = a.copy();
+        assertTrue(bits.length >= 3);
+        assertEquals(1L | 1L << 63, bits[0]);
+        assertEquals(1L, bits[1]);
+        assertEquals(1L << 2, bits[2]);
+        //
+        VehicleCatalog.Bitmap b = new VehicleCatalog.Bitmap();
+        b.set(63);
+        b.set(64);
+        b.set(65);
+        b.andTo(bits);      // words missing in b are zero
+        assertArrayEquals(new long[] {1L << 63, 1L}, Arrays.copyOf(bits, 2));
+        for(int i=2; i < bits.length; i++) {
+            assertEquals(0L, bits[i]);
+        }
+        b.orTo(bits);
+        assertEquals(1L << 63, bits[0]);
+        assertEquals(3L, bits[1]);
+        //
+        a.clear(64);
+        a.clear(1000);      // beyond words, no effect
+        assertEquals(0L, a.copy()[1]);
+        assertEquals(8L * a.copy().length, a.bytes());
+        a.reset();
+        assertEquals(0, a.copy().length);
+    }
+
+
+    /*
+     * Test cases 200: filters intersect attribute bitmaps (AND), seats >= n
+     * unites bitmaps of seats n..100 (OR), the predicate is tested on ids.
+     */
+    @Test @Order(200)
+    void test_200_find() {
+        List<Vehicle> vehicles = vehicles();
+        VehicleCatalog catalog = catalog(vehicles);
+        assertEquals(vehicles, catalog.find(filter(null, null, null, 0), id -> true));
+        for(Vehicle.Category c : new Vehicle.Category[] {null, Vehicle.Category.SUV, Vehicle.Category.Bike}) {
+            for(Vehicle.Power p : new Vehicle.Power[] {null, Vehicle.Power.Electric, Vehicle.Power.Diesel}) {
+                for(Vehicle.Status s : new Vehicle.Status[] {null, Vehicle.Status.Active}) {
+                    for(int minSeats : new int[] {0, 1, 5, 9, 10}) {
+                        VehicleCatalog.Filter filter = filter(c, p, s, minSeats);
+                        assertEquals(expected(vehicles, filter, id -> true), catalog.find(filter, id -> true),
+                            filter.toString());
+                    }
+                }
+            }
+        }
+        VehicleCatalog.Filter suv = filter(Vehicle.Category.SUV, null, null, 4);
+        LongPredicate even = id -> id % 2 == 0;
+        List<Vehicle> found = catalog.find(suv, even);
+        assertTrue(found.size() > 0);
+        assertEquals(expected(vehicles, suv, even), found);
+        assertTrue(catalog.find(filter(null, null, null, 10), id -> true).isEmpty());
+    }
+
+
+    /*
+     * Test cases 300: ChangeEvents move Vehicles between bitmaps, slots of
+     * deleted Vehicles are reused by created Vehicles.
+     */
+    @Test @Order(300)
+    void test_300_events() {
+        List<Vehicle> vehicles = vehicles();
+        VehicleCatalog catalog = catalog(vehicles);
+        VehicleCatalog.Filter vans = filter(Vehicle.Category.Van, null, null, 0);
+        int vanCount = catalog.find(vans, id -> true).size();
+        // update: Bike 1004 becomes a Van with 10 seats
+        Vehicle before = catalog.findById(1004L).get();
+        assertEquals(Vehicle.Category.Bike, before.getCategory());
+        Vehicle after = vehicle(1004L, 10, Vehicle.Category.Van, Vehicle.Power.Electric, Vehicle.Status.Active);
+        catalog.apply(ChangeEvent.updated(Vehicle.class, 1004L, before, after));
+        assertEquals(vanCount + 1, catalog.find(vans, id -> true).size());
+        assertTrue(catalog.find(filter(Vehicle.Category.Bike, null, null, 0), id -> true).stream()
+            .noneMatch(v -> v.getId() == 1004L));
+        assertEquals(List.of(after), catalog.find(filter(null, null, null, 10), id -> true));
+        //
+        // delete: removed from all bitmaps, deleting an unknown id has no effect
+        catalog.apply(ChangeEvent.deleted(Vehicle.class, 1004L, after));
+        catalog.apply(ChangeEvent.deleted(Vehicle.class, 9999L, after));
+        assertTrue(catalog.findById(1004L).isEmpty());
+        assertEquals(vanCount, catalog.find(vans, id -> true).size());
+        assertEquals(VEHICLES - 1, catalog.find(filter(null, null, null, 0), id -> true).size());
+        assertEquals(VEHICLES - 1, catalog.metrics().get("vehicles"));
+        //
+        // create: takes the free slot
+        Vehicle created = vehicle(2000L, 2, Vehicle.Category.Convertible, Vehicle.Power.Hydrogen, Vehicle.Status.Serviced);
+        catalog.apply(ChangeEvent.created(Vehicle.class, 2000L, created));
+        assertEquals(VEHICLES, catalog.metrics().get("vehicles"));
+        assertEquals(VEHICLES, catalog.metrics().get("slots"));
+        assertEquals(List.of(created), catalog.find(
+            filter(Vehicle.Category.Convertible, Vehicle.Power.Hydrogen, Vehicle.Status.Serviced, 2), id -> true));
+        assertEquals(created, catalog.find(filter(null, null, null, 0), id -> true).get(VEHICLES - 1));
+    }
+
+
+    /**
+     * Vehicles with ids 1000.. and attributes varying with different periods.
+     */
+    private static List<Vehicle> vehicles() {
+        Vehicle.Category[] categories = Vehicle.Category.values();
+        Vehicle.Power[] powers = Vehicle.Power.values();
+        Vehicle.Status[] statuses = Vehicle.Status.values();
+        List<Vehicle> vehicles = new ArrayList<Vehicle>();
+        for(int i=0; i < VEHICLES; i++) {
+            vehicles.add(vehicle(1000L + i, 1 + i % 9, categories[i % categories.length],
+                powers[(i / 2) % powers.length], statuses[i % statuses.length]));
+        }
+        return vehicles;
+    }
+
+
+    private static Vehicle vehicle(long id, int seats, Vehicle.Category category, Vehicle.Power power, Vehicle.Status status) {
+        return dataFactory.createVehicle(id, "Make", "Model", seats, category.name(), power.name(), status.name()).get();
+    }
+
+
+    private static VehicleCatalog catalog(List<Vehicle> vehicles) {
+        VehicleCatalog catalog = new VehicleCatalog(null, dataFactory, new ChangeEvents());
+        catalog.load(rows -> vehicles.forEach(rows));
+        return catalog;
+    }
+
+
+    private static VehicleCatalog.Filter filter(Vehicle.Category c, Vehicle.Power p, Vehicle.Status s, int minSeats) {
+        return new VehicleCatalog.Filter(c, p, s, minSeats);
+    }
+
+
+    private static List<Vehicle> expected(List<Vehicle> vehicles, VehicleCatalog.Filter f, LongPredicate and) {
+        return vehicles.stream()
+            .filter(v -> f.category() == null || v.getCategory() == f.category())
+            .filter(v -> f.power() == null || v.getPower() == f.power())
+            .filter(v -> f.status() == null || v.getStatus() == f.status())
+            .filter(v -> v.getSeats() >= f.minSeats())
+            .filter(v -> and.test(v.getId()))
+            .toList();
+    }
+}
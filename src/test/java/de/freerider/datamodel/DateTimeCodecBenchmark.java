@@ -0,0 +1,144 @@
+package de.freerider.datamodel;
+
+import java.lang.management.ManagementFactory;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Benchmark harness comparing DateTimeCodec with the former shared
+ * SimpleDateFormat path (Reservation.reservationDateFormat) on 1M rows:
+ * parse BEGIN/END Strings, format long values, and parse/format from 8
+ * threads sharing one instance (correctness).
+ *
+ * Not a JUnit test (not run by surefire). Run with:
+ * <pre>
+ *  mvn test-compile
+ *  java -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath \
+ *      -Dmdep.outputFile=/dev/stdout)" de.freerider.datamodel.DateTimeCodecBenchmark
+ * </pre>
+ */
+class DateTimeCodecBenchmark {
+
+    static final int ROWS = 1_000_000;
+    static final int ROUNDS = 5;        // first rounds are warm-up
+    static final int THREADS = 8;
+
+    static final long LOWER = 1577833200000L;   // 2020-01-01 00:00:00
+    static final long UPPER = 1893452399000L;   // 2029-12-31 23:59:59
+
+    static final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(42);
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        long[] values = new long[ROWS];
+        String[] strings = new String[ROWS];
+        long[] parsed = new long[ROWS];     // differs from values for local times in DST overlaps
+        for(int i=0; i < ROWS; i++) {
+            values[i] = (LOWER + (long)(random.nextDouble() * (UPPER - LOWER))) / 1000L * 1000L;
+            strings[i] = sdf.format(new Date(values[i]));
+            parsed[i] = sdf.parse(strings[i]).getTime();
+        }
+        System.out.println(String.format("rows: %,d, zone: %s", ROWS, java.time.ZoneId.systemDefault()));
+        System.out.println("-".repeat(80));
+        //
+        for(int round=0; round < ROUNDS; round++) {
+            boolean report = round == ROUNDS - 1;
+            measure(report, "parse  SimpleDateFormat", () -> {
+                long sum = 0;
+                for(String s : strings) {
+                    try { sum += sdf.parse(s).getTime(); } catch(ParseException e) { throw new RuntimeException(e); }
+                }
+                return sum;
+            });
+            measure(report, "parse  DateTimeCodec", () -> {
+                long sum = 0;
+                for(String s : strings) {
+                    sum += DateTimeCodec.parse(s);
+                }
+                return sum;
+            });
+            measure(report, "format SimpleDateFormat", () -> {
+                long sum = 0;
+                for(long v : values) {
+                    sum += sdf.format(new Date(v)).length();
+                }
+                return sum;
+            });
+            measure(report, "format DateTimeCodec", () -> {
+                long sum = 0;
+                for(long v : values) {
+                    sum += DateTimeCodec.format(v).length();
+                }
+                return sum;
+            });
+            char[] buf = new char[DateTimeCodec.LENGTH];
+            measure(report, "formatTo DateTimeCodec", () -> {
+                long sum = 0;
+                for(long v : values) {
+                    DateTimeCodec.formatTo(v, buf, 0);
+                    sum += buf[18];
+                }
+                return sum;
+            });
+        }
+        //
+        // correctness: results must be identical to single-threaded SimpleDateFormat
+        for(int i=0; i < ROWS; i++) {
+            if(DateTimeCodec.parse(strings[i]) != parsed[i] || ! DateTimeCodec.format(values[i]).equals(strings[i]))
+                throw new AssertionError("mismatch at row " + i + ": " + strings[i]);
+        }
+        System.out.println("-".repeat(80));
+        System.out.println(String.format("%d threads, 1 shared instance, %,d rows each:", THREADS, ROWS / 10));
+        System.out.println(String.format("  SimpleDateFormat errors: %,d", concurrentErrors(strings, parsed, s -> {
+            try { return sdf.parse(s).getTime(); } catch(Exception e) { return -1L; }
+        })));
+        System.out.println(String.format("  DateTimeCodec errors:    %,d", concurrentErrors(strings, parsed, DateTimeCodec::parse)));
+    }
+
+
+    interface Run { long run(); }
+
+
+    static void measure(boolean report, String name, Run run) {
+        long tid = Thread.currentThread().getId();
+        long a0 = threads.getThreadAllocatedBytes(tid);
+        long t0 = System.nanoTime();
+        long sink = run.run();
+        long nanos = System.nanoTime() - t0;
+        long bytes = threads.getThreadAllocatedBytes(tid) - a0;
+        if(report) {
+            System.out.println(String.format("%-24s %7.1f ms  %6.1f ns/row  %6.1f bytes/row  (%d)",
+                name, nanos / 1e6, (double)nanos / ROWS, (double)bytes / ROWS, sink % 10));
+        }
+    }
+
+
+    static long concurrentErrors(String[] strings, long[] expected, java.util.function.ToLongFunction<String> parse)
+        throws InterruptedException
+    {
+        AtomicLong errors = new AtomicLong();
+        Thread[] workers = new Thread[THREADS];
+        for(int t=0; t < THREADS; t++) {
+            final int offset = t;
+            workers[t] = new Thread(() -> {
+                for(int i=offset; i < ROWS / 10 + offset; i++) {
+                    if(parse.applyAsLong(strings[i]) != expected[i]) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for(Thread w : workers) {
+            w.join();
+        }
+        return errors.get();
+    }
+}
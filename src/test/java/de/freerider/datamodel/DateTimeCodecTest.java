@@ -0,0 +1,113 @@
+package de.freerider.datamodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+
+/**
+ * JUnit 5 tests of DateTimeCodec against java.time in the system default
+ * time zone.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class DateTimeCodecTest {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+
+    /*
+     * Test cases 100: parse "yyyy-MM-dd HH:mm:ss" as java.time does.
+     */
+    @Test @Order(100)
+    void test_100_parse() {
+        for(String s : new String[] {"1970-01-01 00:00:00", "2020-01-01 00:00:00", "2022-12-20 10:00:00",
+                "2024-02-29 23:59:59", "2000-02-29 12:00:00", "2029-12-31 23:59:59", "2023-07-15 08:30:05"}) {
+            assertEquals(expected(s), DateTimeCodec.parse(s), s);
+        }
+    }
+
+
+    /*
+     * Test cases 110: 'T' separator and fractions of seconds (truncated to msec).
+     */
+    @Test @Order(110)
+    void test_110_parse_T_and_fraction() {
+        long t = DateTimeCodec.parse("2022-12-20 10:00:00");
+        assertEquals(t, DateTimeCodec.parse("2022-12-20T10:00:00"));
+        assertEquals(t + 500L, DateTimeCodec.parse("2022-12-20T10:00:00.5"));
+        assertEquals(t + 500L, DateTimeCodec.parse("2022-12-20 10:00:00.5"));
+        assertEquals(t + 50L, DateTimeCodec.parse("2022-12-20 10:00:00.05"));
+        assertEquals(t + 123L, DateTimeCodec.parse("2022-12-20T10:00:00.123"));
+        assertEquals(t + 123L, DateTimeCodec.parse("2022-12-20T10:00:00.123999"));
+        assertEquals(t, DateTimeCodec.parse("2022-12-20T10:00:00.000"));
+    }
+
+
+    /*
+     * Test cases 200: invalid dates are rejected, e.g. Feb 29 of 2023.
+     */
+    @Test @Order(200)
+    void test_200_invalid_dates() {
+        for(String s : new String[] {"2023-02-29 00:00:00", "1900-02-29 00:00:00", "2023-02-30 00:00:00",
+                "2023-04-31 00:00:00", "2023-13-01 00:00:00", "2023-00-10 00:00:00", "2023-01-00 00:00:00",
+                "2023-01-32 00:00:00", "2023-01-01 24:00:00", "2023-01-01 23:60:00", "2023-01-01 23:59:60"}) {
+            assertThrows(IllegalArgumentException.class, () -> DateTimeCodec.parse(s), s);
+        }
+    }
+
+
+    /*
+     * Test cases 210: malformed Strings are rejected.
+     */
+    @Test @Order(210)
+    void test_210_malformed() {
+        assertThrows(IllegalArgumentException.class, () -> DateTimeCodec.parse(null));
+        for(String s : new String[] {"", "2023-01-01", "2023-01-01 00:00", "2023/01/01 00:00:00",
+                "2023-01-01_00:00:00", "2023-01-01 00:00:00.", "2023-01-01 00:00:00,5", "2023-01-01 00:00:00Z",
+                "2023-01-01 00:00:00.5x", "2O23-01-01 00:00:00", "2023-1-01 00:00:00", " 2023-01-01 00:00:00",
+                "+023-01-01 00:00:00", "2023-01-01 0a:00:00"}) {
+            assertThrows(IllegalArgumentException.class, () -> DateTimeCodec.parse(s), s);
+        }
+    }
+
+
+    /*
+     * Test cases 300: format and parse are inverse and agree with java.time
+     * for random times 2020..2029, including daylight saving time changes.
+     */
+    @Test @Order(300)
+    void test_300_format_roundtrip() {
+        Random random = new Random(42);
+        long lower = DateTimeCodec.parse("2020-01-01 00:00:00");
+        long upper = DateTimeCodec.parse("2029-12-31 23:59:59");
+        for(int i=0; i < 100_000; i++) {
+            long t = (lower + (long)(random.nextDouble() * (upper - lower))) / 1000L * 1000L;
+            String s = DateTimeCodec.format(t);
+            assertEquals(LocalDateTime.ofInstant(Instant.ofEpochMilli(t), ZoneId.systemDefault())
+                .format(FORMAT), s);
+            assertEquals(expected(s), DateTimeCodec.parse(s), s);
+        }
+        assertEquals(LocalDateTime.ofInstant(Instant.EPOCH, ZoneId.systemDefault()).format(FORMAT),
+            DateTimeCodec.format(0L));
+        assertThrows(IllegalArgumentException.class, () -> DateTimeCodec.format(-1L));
+    }
+
+
+    /**
+     * Epoch msec of a local date/time, later offset at overlaps (as parse).
+     */
+    private static long expected(String datetime) {
+        return LocalDateTime.parse(datetime, FORMAT).atZone(ZoneId.systemDefault())
+            .withLaterOffsetAtOverlap().toInstant().toEpochMilli();
+    }
+}
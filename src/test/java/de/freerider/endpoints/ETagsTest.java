@@ -0,0 +1,117 @@
+package de.freerider.endpoints;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import de.freerider.data_jdbc.ChangeEvent;
+import de.freerider.data_jdbc.ChangeEvents;
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * JUnit 5 tests of ETags: If-Match parsing and conditional GETs.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ETagsTest {
+
+
+    /*
+     * Test cases 100: If-Match with a strong ETag returns its version,
+     * missing header and "*" match any version.
+     */
+    @Test @Order(100)
+    void test_100_ifMatch() {
+        assertEquals("\"3\"", ETags.of(3L));
+        assertEquals(3L, ETags.ifMatch(ETags.of(3L)));
+        assertEquals(0L, ETags.ifMatch("\"0\""));
+        assertEquals(42L, ETags.ifMatch("  \"42\" "));
+        assertEquals(Long.MAX_VALUE, ETags.ifMatch(ETags.of(Long.MAX_VALUE)));
+        assertEquals(ETags.ANY, ETags.ifMatch(null));
+        assertEquals(ETags.ANY, ETags.ifMatch("*"));
+        assertEquals(ETags.ANY, ETags.ifMatch(" * "));
+    }
+
+
+    /*
+     * Test cases 110: weak, multiple, negative and unparsable ETags never
+     * match a version, 412 precondition failed.
+     */
+    @Test @Order(110)
+    void test_110_ifMatch_412() {
+        for(String ifMatch : new String[] {"", "\"\"", "3", "\"3", "3\"", "W/\"3\"", "\"3\", \"4\"",
+                "\"-1\"", "\"x\"", "\"3.0\"", "\"+3\"x", "\"99999999999999999999\"", "W/\"18b2c3d4e5f-42\""}) {
+            var ex = assertThrows(ResponseStatusException.class, () -> ETags.ifMatch(ifMatch), ifMatch);
+            assertEquals(HttpStatus.PRECONDITION_FAILED, ex.getStatusCode(), ifMatch);
+        }
+    }
+
+
+    /*
+     * Test cases 200: conditional GET of a single resource by version.
+     */
+    @Test @Order(200)
+    void test_200_notModified_version() {
+        var response = new MockHttpServletResponse();
+        assertFalse(ETags.notModified(request(null, response), 3L, 0L));
+        assertEquals("\"3\"", response.getHeader(HttpHeaders.ETAG));
+        //
+        response = new MockHttpServletResponse();
+        assertTrue(ETags.notModified(request("\"3\"", response), 3L, 0L));
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        //
+        response = new MockHttpServletResponse();
+        assertFalse(ETags.notModified(request("\"3\"", response), 4L, 0L));
+        assertEquals("\"4\"", response.getHeader(HttpHeaders.ETAG));
+    }
+
+
+    /*
+     * Test cases 300: weak ETags of collections change with every event of
+     * the tables they are read from, not with events of other tables.
+     */
+    @Test @Order(300)
+    void test_300_notModified_collection() {
+        ChangeEvents changeEvents = new ChangeEvents();
+        var response = new MockHttpServletResponse();
+        assertFalse(ETags.notModified(request(null, response), changeEvents, Vehicle.class));
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        assertTrue(etag.startsWith("W/\""), etag);
+        //
+        response = new MockHttpServletResponse();
+        assertTrue(ETags.notModified(request(etag, response), changeEvents, Vehicle.class));
+        //
+        changeEvents.publish(ChangeEvent.deleted(Reservation.class, 1L, null));
+        response = new MockHttpServletResponse();
+        assertTrue(ETags.notModified(request(etag, response), changeEvents, Vehicle.class));
+        assertEquals(1L, ETags.sequence(changeEvents, Vehicle.class, Reservation.class));
+        //
+        changeEvents.publish(ChangeEvent.deleted(Vehicle.class, 8001L, null));
+        response = new MockHttpServletResponse();
+        assertFalse(ETags.notModified(request(etag, response), changeEvents, Vehicle.class));
+        assertNotEquals(etag, response.getHeader(HttpHeaders.ETAG));
+    }
+
+
+    private static ServletWebRequest request(String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/vehicles");
+        if(ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(request, response);
+    }
+}
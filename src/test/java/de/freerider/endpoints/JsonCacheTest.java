@@ -0,0 +1,164 @@
+package de.freerider.endpoints;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.freerider.data_jdbc.ChangeEvents;
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * JUnit 5 tests of JsonCache with collections of Vehicles (no database).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class JsonCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+
+    /*
+     * Test cases 100: Accept-Encoding headers that accept gzip.
+     */
+    @Test @Order(100)
+    void test_100_acceptsGzip() {
+        assertTrue(JsonCache.acceptsGzip("gzip"));
+        assertTrue(JsonCache.acceptsGzip("gzip, deflate, br"));
+        assertTrue(JsonCache.acceptsGzip("deflate, GZIP"));
+        assertTrue(JsonCache.acceptsGzip("gzip;q=0.5"));
+        assertTrue(JsonCache.acceptsGzip("gzip; q=1.0"));
+        assertTrue(JsonCache.acceptsGzip("gzip;q=0.01"));
+    }
+
+
+    /*
+     * Test cases 110: Accept-Encoding headers that do not accept gzip.
+     */
+    @Test @Order(110)
+    void test_110_acceptsGzip_rejected() {
+        assertFalse(JsonCache.acceptsGzip(null));
+        assertFalse(JsonCache.acceptsGzip(""));
+        assertFalse(JsonCache.acceptsGzip("deflate, br"));
+        assertFalse(JsonCache.acceptsGzip("x-gzip"));
+        assertFalse(JsonCache.acceptsGzip("gzip;q=0"));
+        assertFalse(JsonCache.acceptsGzip("gzip; q=0.000"));
+        assertFalse(JsonCache.acceptsGzip("br, gzip ; q = 0"));
+    }
+
+
+    /*
+     * Test cases 200: collections are cached as JSON until their table changes.
+     */
+    @Test @Order(200)
+    void test_200_collection_cached() throws IOException {
+        List<Vehicle> vehicles = vehicles(100);
+        JsonCache cache = cache(DataSize.ofMegabytes(1));
+        int[] loads = {0};
+        //
+        var first = cache.collection(request(), "vehicles", () -> { loads[0]++; return vehicles; }, Vehicle.class);
+        var second = cache.collection(request(), "vehicles", () -> { loads[0]++; return vehicles; }, Vehicle.class);
+        assertEquals(1, loads[0]);
+        assertEquals(new String(JsonWriters.toBytes(objectMapper, vehicles, new ByteArrayOutputStream())), body(first));
+        assertEquals(body(first), body(second));
+        assertEquals(1, cache.metrics().get("collections"));
+        assertEquals(1L, cache.metrics().get("hits"));
+    }
+
+
+    /*
+     * Test cases 300: Iterables of unknown size are not cached.
+     */
+    @Test @Order(300)
+    void test_300_collection_unknown_size() {
+        List<Vehicle> vehicles = vehicles(10);
+        Iterable<Vehicle> iterable = vehicles::iterator;
+        JsonCache cache = cache(DataSize.ofMegabytes(1));
+        //
+        var response = cache.collection(request(), "vehicles", () -> iterable, Vehicle.class);
+        assertSame(iterable, ((JsonWriters.Array)response.getBody()).objects());
+        assertEquals(0, cache.metrics().get("collections"));
+        assertEquals(0L, cache.metrics().get("bytes"));
+    }
+
+
+    /*
+     * Test cases 400: collections larger than a quarter of the cache are not
+     * cached and not serialized again until they have fewer elements.
+     */
+    @Test @Order(400)
+    void test_400_collection_oversized() {
+        List<Vehicle> vehicles = vehicles(100);
+        JsonCache cache = cache(DataSize.ofKilobytes(16));
+        //
+        var response = cache.collection(request(), "vehicles", () -> vehicles, Vehicle.class);
+        assertSame(vehicles, ((JsonWriters.Array)response.getBody()).objects());
+        assertEquals(1, cache.metrics().get("oversized"));
+        assertEquals(0L, cache.metrics().get("bytes"));
+        //
+        response = cache.collection(request(), "vehicles", () -> vehicles, Vehicle.class);
+        assertSame(vehicles, ((JsonWriters.Array)response.getBody()).objects());
+        assertEquals(2L, cache.metrics().get("uncached"));
+        //
+        List<Vehicle> fewer = new ArrayList<Vehicle>(vehicles.subList(0, 10));
+        response = cache.collection(request(), "vehicles", () -> fewer, Vehicle.class);
+        assertTrue(response.getBody() instanceof JsonBytes);
+        assertEquals(0, cache.metrics().get("oversized"));
+    }
+
+
+    private JsonCache cache(DataSize maxSize) {
+        JsonCache cache = new JsonCache();
+        ReflectionTestUtils.setField(cache, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(cache, "changeEvents", new ChangeEvents());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", maxSize);
+        ReflectionTestUtils.setField(cache, "gzip", true);
+        ReflectionTestUtils.setField(cache, "gzipMinSize", DataSize.ofKilobytes(2));
+        return cache;
+    }
+
+
+    private static ServletWebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/v1/vehicles"));
+    }
+
+
+    private static String body(ResponseEntity<?> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((JsonBytes)response.getBody()).writeTo(out);
+        return out.toString();
+    }
+
+
+    private static List<Vehicle> vehicles(int n) {
+        try(var context = new AnnotationConfigApplicationContext("de.freerider.datamodel")) {
+            DataFactory dataFactory = context.getBean(DataFactory.class);
+            List<Vehicle> vehicles = new ArrayList<Vehicle>(n);
+            for(int i=0; i < n; i++) {
+                dataFactory.createVehicle(8000 + i, "VW", "ID.3", 4, "Sedan", "Electric", "Active")
+                    .ifPresent(vehicles::add);
+            }
+            return vehicles;
+        }
+    }
+}
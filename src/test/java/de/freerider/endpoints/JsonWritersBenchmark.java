@@ -0,0 +1,141 @@
+package de.freerider.endpoints;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.DateTimeCodec;
+import de.freerider.datamodel.Reservation;
+
+
+/**
+ * Benchmark harness of JsonWriters: serialization of Customers, Vehicles
+ * and 1M Reservations (as GET /reservations) with Jackson bean serialization
+ * and with the hand-written writers into an output stream that discards
+ * bytes. Reports time, throughput and bytes allocated per object by the
+ * serializing thread. Output of both must be identical.
+ *
+ * Not a JUnit test (not run by surefire). Run with:
+ * <pre>
+ *  mvn test-compile
+ *  java -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath \
+ *      -Dmdep.outputFile=/dev/stdout)" de.freerider.endpoints.JsonWritersBenchmark
+ * </pre>
+ * Sizes can be changed with -Dreservations=1000000 -Drounds=5.
+ */
+class JsonWritersBenchmark {
+
+    static final int RESERVATIONS = Integer.getInteger("reservations", 1_000_000);
+    static final int OBJECTS = 100_000;
+    static final int ROUNDS = Integer.getInteger("rounds", 5);
+
+    static final long HOUR = 3_600_000L;
+    static final long START = DateTimeCodec.parse("2023-01-01 00:00:00");
+
+    static final String[] LOCATIONS = {"Berlin Wedding", "Berlin Mitte", "Potsdam Hbf", "Berlin Köpenick"};
+
+    static final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+
+    public static void main(String[] args) throws IOException {
+        DataFactory dataFactory;
+        try(var context = new AnnotationConfigApplicationContext("de.freerider.datamodel")) {
+            dataFactory = context.getBean(DataFactory.class);
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        Random random = new Random(42);
+        //
+        List<Object> customers = new ArrayList<Object>(OBJECTS);
+        List<Object> vehicles = new ArrayList<Object>(OBJECTS);
+        for(int i=0; i < OBJECTS; i++) {
+            dataFactory.createCustomer(i, "Meyer, Eric " + i, i % 3 == 0? "" : "eme" + i + "@gmail.com",
+                i % 2 == 0? "Active" : "InRegistration").ifPresent(customers::add);
+            dataFactory.createVehicle(8000 + i, "VW", "ID.3 \"Pro\"", 4, "Sedan", "Electric", "Active")
+                .ifPresent(vehicles::add);
+        }
+        List<Object> reservations = new ArrayList<Object>(RESERVATIONS);
+        Reservation.Status[] statuses = Reservation.Status.values();
+        for(int i=0; i < RESERVATIONS; i++) {
+            long begin = START + random.nextInt(2 * 365 * 24) * HOUR;
+            dataFactory.createReservation(100_000 + i, i % OBJECTS, 8000 + i % OBJECTS, begin, begin + 24 * HOUR,
+                LOCATIONS[random.nextInt(LOCATIONS.length)], LOCATIONS[random.nextInt(LOCATIONS.length)],
+                statuses[i % statuses.length].name())
+            .ifPresent(reservations::add);
+        }
+        //
+        // output must be identical to Jackson's
+        for(List<Object> objects : List.of(customers, vehicles, reservations.subList(0, OBJECTS))) {
+            ByteArrayOutputStream jackson = new ByteArrayOutputStream();
+            mapper.writeValue(jackson, objects);
+            String writers = new String(JsonWriters.toBytes(mapper, objects, new ByteArrayOutputStream()), StandardCharsets.UTF_8);
+            if( ! jackson.toString(StandardCharsets.UTF_8).equals(writers))
+                throw new IllegalStateException("output differs from Jackson: " + objects.get(0).getClass());
+        }
+        System.out.println("output identical to Jackson for Customers, Vehicles, Reservations");
+        System.out.println("-".repeat(80));
+        //
+        for(int round=0; round < ROUNDS; round++) {     // round 0 is warm-up
+            for(var objects : List.of(customers, vehicles, reservations)) {
+                String type = objects.get(0).getClass().getSimpleName();
+                run(round, type, "jackson", objects, out -> mapper.writeValue(out, objects));
+                run(round, type, "writers", objects, out -> {
+                    try(JsonGenerator gen = mapper.createGenerator(out, JsonEncoding.UTF8)) {
+                        JsonWriters.writeArray(gen, objects);
+                    }
+                });
+            }
+        }
+    }
+
+
+    interface Serializer {
+        void write(OutputStream out) throws IOException;
+    }
+
+
+    static void run(int round, String type, String name, List<Object> objects, Serializer serializer) throws IOException {
+        Discard out = new Discard();
+        long thread = Thread.currentThread().getId();
+        long alloc0 = threads.getThreadAllocatedBytes(thread);
+        long t0 = System.nanoTime();
+        serializer.write(out);
+        long nanos = System.nanoTime() - t0;
+        long alloc = threads.getThreadAllocatedBytes(thread) - alloc0;
+        if(round > 0) {
+            System.out.println(String.format("%-12s %s: %,9d objects, %,11d bytes in %4d ms, %6.1f MB/s, %5.1f bytes allocated/object",
+                type, name, objects.size(), out.count, nanos / 1_000_000L, out.count * 1000.0 / nanos,
+                alloc / (double)objects.size()));
+        }
+    }
+
+
+    /**
+     * Output stream that counts and discards bytes.
+     */
+    static class Discard extends OutputStream {
+        long count = 0L;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package de.freerider.endpoints;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.freerider.data_jdbc.BatchResult;
+import de.freerider.datamodel.Customer;
+import de.freerider.datamodel.DataFactory;
+import de.freerider.datamodel.Reservation;
+import de.freerider.datamodel.Vehicle;
+
+
+/**
+ * JUnit 5 tests comparing the output of JsonWriters with Jackson bean
+ * serialization and the types accepted by JsonWriters.Converter.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class JsonWritersTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Strings with characters Jackson escapes: quotes, backslash, control
+     * characters including NUL, non-ASCII and surrogate pairs.
+     */
+    private static final String[] STRINGS = {
+        "Meyer, Eric", "\"quoted\" \\ back\\slash", "tab\tnew\nline\r", "nul\u0000char", "\u001f\u007f",
+        "Berlin Köpenick", "Łódź 東京", "emoji 🚗", "</script>", " ",
+    };
+
+    private static DataFactory dataFactory;
+
+
+    @BeforeAll
+    static void createDataFactory() {
+        try(var context = new AnnotationConfigApplicationContext("de.freerider.datamodel")) {
+            dataFactory = context.getBean(DataFactory.class);
+        }
+    }
+
+
+    /*
+     * Test cases 100: Customers with all statuses and escaped strings.
+     */
+    @Test @Order(100)
+    void test_100_customers() throws IOException {
+        List<Customer> customers = new ArrayList<Customer>();
+        Customer.Status[] statuses = Customer.Status.values();
+        for(int i=0; i < STRINGS.length; i++) {
+            dataFactory.createCustomer(i, STRINGS[i], STRINGS[STRINGS.length - 1 - i], statuses[i % statuses.length].name())
+                .map(c -> c.setVersion(3L))
+                .ifPresent(customers::add);
+        }
+        dataFactory.createCustomer(100L, "Empty", "", "Active").ifPresent(customers::add);
+        assertEquals(STRINGS.length + 1, customers.size());
+        assertSameJson(customers);
+    }
+
+
+    /*
+     * Test cases 110: Customer with null status, name and contact.
+     */
+    @Test @Order(110)
+    void test_110_customer_nulls() throws IOException {
+        Customer c = dataFactory.createCustomer(1L, "Meyer", "", "Active").get();
+        ReflectionTestUtils.setField(c, "status", null);
+        ReflectionTestUtils.setField(c, "name", null);
+        ReflectionTestUtils.setField(c, "contact", null);
+        assertSameJson(c);
+    }
+
+
+    /*
+     * Test cases 200: Vehicles with all categories, powers and statuses.
+     */
+    @Test @Order(200)
+    void test_200_vehicles() throws IOException {
+        List<Vehicle> vehicles = new ArrayList<Vehicle>();
+        int i = 0;
+        for(var category : Vehicle.Category.values()) {
+            for(var power : Vehicle.Power.values()) {
+                for(var status : Vehicle.Status.values()) {
+                    dataFactory.createVehicle(8000 + i, STRINGS[i % STRINGS.length], STRINGS[(i + 3) % STRINGS.length],
+                        1 + i % 9, category.name(), power.name(), status.name())
+                    .ifPresent(vehicles::add);
+                    i++;
+                }
+            }
+        }
+        assertEquals(i, vehicles.size());
+        assertSameJson(vehicles);
+    }
+
+
+    /*
+     * Test cases 210: Vehicle with null enums and strings.
+     */
+    @Test @Order(210)
+    void test_210_vehicle_nulls() throws IOException {
+        Vehicle v = dataFactory.createVehicle(8000L, "VW", "ID.3", 4, "Sedan", "Electric", "Active").get();
+        ReflectionTestUtils.setField(v, "category", null);
+        ReflectionTestUtils.setField(v, "power", null);
+        ReflectionTestUtils.setField(v, "status", null);
+        ReflectionTestUtils.setField(v, "make", null);
+        ReflectionTestUtils.setField(v, "model", null);
+        assertSameJson(v);
+    }
+
+
+    /*
+     * Test cases 300: Reservations with all statuses, escaped locations and
+     * begin/end at the bounds of the accepted range (2020..2029).
+     */
+    @Test @Order(300)
+    void test_300_reservations() throws IOException {
+        List<Reservation> reservations = new ArrayList<Reservation>();
+        Reservation.Status[] statuses = Reservation.Status.values();
+        long[] times = {1577833200000L, 1671526800000L, 1893448799000L};
+        for(int i=0; i < STRINGS.length; i++) {
+            long begin = times[i % times.length];
+            dataFactory.createReservation(145373 + i, i, 1000 + i, begin, begin + 3_600_000L,
+                STRINGS[i], STRINGS[(i + 1) % STRINGS.length],
+                statuses[i % statuses.length].name())
+            .map(r -> r.setVersion(7L))
+            .ifPresent(reservations::add);
+        }
+        assertEquals(STRINGS.length, reservations.size());
+        assertSameJson(reservations);
+    }
+
+
+    /*
+     * Test cases 310: Reservation with null status, pickup and dropoff.
+     */
+    @Test @Order(310)
+    void test_310_reservation_nulls() throws IOException {
+        Reservation r = dataFactory.createReservation(1L, 2L, 1002L, 1671526800000L, 1671562800000L,
+            "Berlin Wedding", "Berlin Mitte", "Booked").get();
+        ReflectionTestUtils.setField(r, "status", null);
+        ReflectionTestUtils.setField(r, "pickup", null);
+        ReflectionTestUtils.setField(r, "dropoff", null);
+        assertSameJson(r);
+    }
+
+
+    /*
+     * Test cases 400: objects without writer and empty arrays are written
+     * by the ObjectMapper.
+     */
+    @Test @Order(400)
+    void test_400_other_objects() throws IOException {
+        assertSameJson(List.of());
+        assertSameJson(Map.of("id", 1, "name", "nul\u0000"));
+        Vehicle v = dataFactory.createVehicle(8000L, "VW", "ID.3", 4, "Sedan", "Electric", "Active").get();
+        assertSameJson(List.of(v, Map.of("expand", "reservations"), "text"));
+    }
+
+
+    /*
+     * Test cases 500: Converter only accepts Iterables declared with element
+     * type Customer, Vehicle or Reservation.
+     */
+    @Test @Order(500)
+    void test_500_converter_canWrite() {
+        var converter = new JsonWriters.Converter(objectMapper);
+        MediaType json = MediaType.APPLICATION_JSON;
+        assertTrue(converter.canWrite(Vehicle.class, Vehicle.class, json));
+        assertTrue(converter.canWrite(Reservation.class, Reservation.class, json));
+        assertTrue(converter.canWrite(JsonWriters.Array.class, JsonWriters.Array.class, json));
+        assertTrue(converter.canWrite(iterableOf(List.class, Customer.class), ArrayList.class, json));
+        assertTrue(converter.canWrite(iterableOf(Iterable.class, Reservation.class), ArrayList.class, json));
+        //
+        assertFalse(converter.canWrite(iterableOf(List.class, Object.class), ArrayList.class, json));
+        assertFalse(converter.canWrite(iterableOf(List.class, BatchResult.class), ArrayList.class, json));
+        assertFalse(converter.canWrite(ArrayList.class, ArrayList.class, json));
+        assertFalse(converter.canWrite(Map.class, Map.class, json));
+        assertFalse(converter.canWrite(Vehicle.class, Vehicle.class, MediaType.APPLICATION_XML));
+    }
+
+
+    private static java.lang.reflect.Type iterableOf(Class<?> iterable, Class<?> element) {
+        return ResolvableType.forClassWithGenerics(iterable, element).getType();
+    }
+
+
+    private static void assertSameJson(Object obj) throws IOException {
+        String jackson = new String(objectMapper.writeValueAsBytes(obj), StandardCharsets.UTF_8);
+        String writers = new String(JsonWriters.toBytes(objectMapper, obj, new ByteArrayOutputStream()), StandardCharsets.UTF_8);
+        assertEquals(jackson, writers);
+    }
+}
@@ -0,0 +1,155 @@
+package de.freerider.endpoints;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+
+
+/**
+ * JUnit 5 tests of Paging: limits, cursors and pages (no database).
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class PagingTest {
+
+    @AfterEach
+    void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+
+    /*
+     * Test cases 100: limit defaults, bounds and rejects limits < 1.
+     */
+    @Test @Order(100)
+    void test_100_limit() {
+        assertEquals(Paging.DEFAULT_LIMIT, Paging.limit(null));
+        assertEquals(1, Paging.limit(1));
+        assertEquals(250, Paging.limit(250));
+        assertEquals(Paging.MAX_LIMIT, Paging.limit(Paging.MAX_LIMIT + 1));
+        assertBadRequest(() -> Paging.limit(0));
+        assertBadRequest(() -> Paging.limit(-1));
+    }
+
+
+    /*
+     * Test cases 200: cursors decode to the keys they were encoded from.
+     */
+    @Test @Order(200)
+    void test_200_cursor_roundtrip() {
+        long[][] keys = {
+            {0L}, {1L}, {-1L}, {145373L}, {Long.MAX_VALUE}, {Long.MIN_VALUE},
+            {1671526800000L, 145373L}, {-1L, -1L}, {0L, Long.MAX_VALUE},
+        };
+        for(long[] k : keys) {
+            String cursor = Paging.encode(k);
+            assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);    // URL-safe, no padding
+            assertArrayEquals(k, Paging.decode(cursor, k.length));
+        }
+    }
+
+
+    /*
+     * Test cases 300: cursors with wrong number of keys, invalid Base64 or
+     * altered content are rejected with 400 bad request.
+     */
+    @Test @Order(300)
+    void test_300_cursor_tampered() {
+        String cursor = Paging.encode(1671526800000L, 145373L);
+        assertBadRequest(() -> Paging.decode(cursor, 1));
+        assertBadRequest(() -> Paging.decode(cursor, 3));
+        assertBadRequest(() -> Paging.decode(Paging.encode(145373L), 2));
+        //
+        assertBadRequest(() -> Paging.decode("", 1));
+        assertBadRequest(() -> Paging.decode("!!!", 1));
+        assertBadRequest(() -> Paging.decode("MTIz=", 1));       // "123" with padding
+        assertBadRequest(() -> Paging.decode("MTIz+/", 1));      // not URL-safe Base64
+        assertBadRequest(() -> Paging.decode(cursor.substring(1), 2));
+        assertBadRequest(() -> Paging.decode(cursor.replace(cursor.charAt(3), '.'), 2));
+        //
+        for(String content : List.of("abc", "1.x", "1..2", "1.2.", ".1.2", "+1.2", "01.2", " 1.2",
+                "1.2 ", "1,2", "9223372036854775808.1", "1.2\u0000")) {
+            assertBadRequest(() -> Paging.decode(base64(content), 2));
+        }
+        assertArrayEquals(new long[] {1L, 2L}, Paging.decode(base64("1.2"), 2));
+    }
+
+
+    /*
+     * Test cases 400: page returns limit objects and next-cursor headers
+     * when the DAO returned one more object.
+     */
+    @Test @Order(400)
+    void test_400_page_next() {
+        bindRequest("/v1/customers", "limit=3&after=xyz");
+        ResponseEntity<Iterable<Long>> response = Paging.page(ids(4), 3, id -> new long[] {id});
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(1L, 2L, 3L), response.getBody());
+        //
+        String next = response.getHeaders().getFirst(Paging.NEXT_CURSOR_HEADER);
+        assertArrayEquals(new long[] {3L}, Paging.decode(next, 1));
+        assertEquals(String.format("<http://localhost/v1/customers?limit=3&after=%s>; rel=\"next\"", next),
+            response.getHeaders().getFirst(HttpHeaders.LINK));
+    }
+
+
+    /*
+     * Test cases 410: last page has no next-cursor headers.
+     */
+    @Test @Order(410)
+    void test_410_page_last() {
+        bindRequest("/v1/customers", "limit=3");
+        for(int n : new int[] {0, 2, 3}) {
+            ResponseEntity<Iterable<Long>> response = Paging.page(ids(n), 3, id -> new long[] {id});
+            assertEquals(ids(n), response.getBody());
+            assertNull(response.getHeaders().getFirst(Paging.NEXT_CURSOR_HEADER));
+            assertNull(response.getHeaders().getFirst(HttpHeaders.LINK));
+        }
+    }
+
+
+    private static void bindRequest(String path, String query) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setQueryString(query);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+
+    private static List<Long> ids(int n) {
+        List<Long> ids = new ArrayList<Long>();
+        for(long id=1; id <= n; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+
+    private static String base64(String content) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(content.getBytes(StandardCharsets.US_ASCII));
+    }
+
+
+    private static void assertBadRequest(Runnable call) {
+        var ex = assertThrows(ResponseStatusException.class, call::run);
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+}